@@ -22,14 +22,18 @@
 DROP TABLE IF EXISTS Album;
 DROP TABLE IF EXISTS Artist;
 DROP TABLE IF EXISTS Customer;
+DROP TABLE IF EXISTS CustomerRevenue;
 DROP TABLE IF EXISTS Employee;
 DROP TABLE IF EXISTS Genre;
 DROP TABLE IF EXISTS Invoice;
 DROP TABLE IF EXISTS InvoiceLine;
+DROP TABLE IF EXISTS InvoiceLineVersion;
 DROP TABLE IF EXISTS MediaType;
 DROP TABLE IF EXISTS Playlist;
+DROP TABLE IF EXISTS PlaylistSnapshot;
 DROP TABLE IF EXISTS PlaylistTrack;
 DROP TABLE IF EXISTS Track;
+DROP TABLE IF EXISTS TrackRecommendation;
 
 ALTER ZONE "Default" SET replicas = 2;
 
@@ -91,6 +95,23 @@ CREATE TABLE InvoiceLine
     PRIMARY KEY (InvoiceLineId, CustomerId)
 ) COLOCATE BY (CustomerId);
 
+-- Version of every InvoiceLine partition, replaced by training.InvoiceLineWriter and training.InvoiceLineIngestor after
+-- they change the partition.
+CREATE TABLE InvoiceLineVersion
+(
+    PartitionId INT,
+    Version UUID,
+    PRIMARY KEY (PartitionId)
+);
+
+-- Total spent by every customer, kept up to date with InvoiceLine by training.InvoiceLineWriter.
+CREATE TABLE CustomerRevenue
+(
+    CustomerId INT,
+    Total DECIMAL(12,2),
+    PRIMARY KEY (CustomerId)
+) COLOCATE BY (CustomerId);
+
 CREATE TABLE Employee
 (
     EmployeeId INT,
@@ -155,6 +176,23 @@ CREATE TABLE Track
     PRIMARY KEY (TrackId, ArtistId)
 ) COLOCATE BY (ArtistId);
 
+-- Tracks most often in the same playlists as every track, built by training.TrackRecommendationTask.
+CREATE TABLE TrackRecommendation
+(
+    TrackId INT,
+    Playlists INT,
+    Neighbours VARBINARY,
+    PRIMARY KEY (TrackId)
+);
+
+-- Track ids of every playlist at the last training.TrackRecommendationTask run, to find the playlists changed since.
+CREATE TABLE PlaylistSnapshot
+(
+    PlaylistId INT,
+    Tracks VARBINARY,
+    PRIMARY KEY (PlaylistId)
+);
+
 INSERT INTO Genre (GenreId, Name) VALUES (1, 'Rock');
 INSERT INTO Genre (GenreId, Name) VALUES (2, 'Jazz');
 INSERT INTO Genre (GenreId, Name) VALUES (3, 'Metal');
@@ -15773,3 +15811,10 @@ INSERT INTO PlaylistTrack (PlaylistId, TrackId, ArtistId) VALUES (17, 2095, 114)
 INSERT INTO PlaylistTrack (PlaylistId, TrackId, ArtistId) VALUES (17, 2096, 114);
 INSERT INTO PlaylistTrack (PlaylistId, TrackId, ArtistId) VALUES (17, 3290, 179);
 INSERT INTO PlaylistTrack (PlaylistId, TrackId, ArtistId) VALUES (18, 597, 68);
+
+INSERT INTO CustomerRevenue (CustomerId, Total)
+    SELECT CustomerId, SUM(Quantity * UnitPrice) FROM InvoiceLine GROUP BY CustomerId
+    HAVING SUM(Quantity * UnitPrice) <> 0;
+
+INSERT INTO InvoiceLineVersion (PartitionId, Version)
+    SELECT Part, RAND_UUID() FROM (SELECT DISTINCT "__part" AS Part FROM InvoiceLine);
@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.apache.ignite.IgniteServer;
+import org.apache.ignite.InitParameters;
+
+/**
+ * Starts a cluster of server nodes inside the current JVM, with the same ports as the docker compose nodes. The nodes
+ * load compute jobs from the classpath, so no deployment unit is needed.
+ *
+ * Only compiled with the {@code embedded} Maven profile, which adds the server dependency.
+ */
+public class EmbeddedCluster implements AutoCloseable {
+    private static final int NETWORK_PORT = 3344;
+
+    private static final int CLIENT_PORT = 10800;
+
+    private static final int REST_PORT = 10300;
+
+    private final List<IgniteServer> nodes = new ArrayList<>();
+
+    public EmbeddedCluster(int nodeCount, Path workDir) throws IOException {
+        var seeds = IntStream.range(0, nodeCount)
+                .mapToObj(i -> "\"localhost:" + (NETWORK_PORT + i) + "\"")
+                .collect(Collectors.joining(", "));
+
+        try {
+            for (var i = 0; i < nodeCount; i++) {
+                var name = "node" + (i + 1);
+                var nodeDir = Files.createDirectories(workDir.resolve(name));
+                var config = Files.writeString(nodeDir.resolve("ignite-config.conf"), "ignite {\n"
+                        + "  network.port: " + (NETWORK_PORT + i) + "\n"
+                        + "  network.nodeFinder.netClusterNodes: [" + seeds + "]\n"
+                        + "  clientConnector.port: " + (CLIENT_PORT + i) + "\n"
+                        + "  rest.port: " + (REST_PORT + i) + "\n"
+                        + "}\n");
+
+                nodes.add(IgniteServer.start(name, config, nodeDir.resolve("work")));
+            }
+
+            nodes.get(0).initCluster(InitParameters.builder()
+                    .metaStorageNodeNames(nodes.get(0).name())
+                    .clusterName("essentials")
+                    .build());
+
+            for (var node : nodes) {
+                node.waitForInitAsync().join();
+            }
+        } catch (RuntimeException | IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() {
+        for (var i = nodes.size() - 1; i >= 0; i--) {
+            nodes.get(i).shutdown();
+        }
+        nodes.clear();
+    }
+}
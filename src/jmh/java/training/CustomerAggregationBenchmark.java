@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import training.model.CustomerPrice;
+
+/**
+ * Aggregates a synthetic stream of invoice line rows the way a {@code TopPayingCustomersJob} aggregates one partition,
+ * and returns the top 5 customers. Customers are drawn from a Zipf distribution, like in {@link MediaStoreGenerator}.
+ *
+ * {@code boxedHashMap} is the original job code: a {@code HashMap<Integer, BigDecimal>} merged per row and sorted in
+ * full. {@code revenueAggregator} is {@link CustomerRevenueAggregator}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CustomerAggregationBenchmark {
+    private static final int TOP = 5;
+
+    @Param({"10000", "1000000"})
+    private int rows;
+
+    @Param({"100", "100000"})
+    private int customers;
+
+    private int[] customerIds;
+
+    private long[] cents;
+
+    /** The amounts as the SQL engine returns them to the original job. */
+    private BigDecimal[] prices;
+
+    @Setup
+    public void setUp() {
+        var random = new SplittableRandom(42);
+        var sampler = new ZipfSampler(customers, 1.0);
+
+        customerIds = new int[rows];
+        cents = new long[rows];
+        prices = new BigDecimal[rows];
+        for (var i = 0; i < rows; i++) {
+            customerIds[i] = sampler.sample(random);
+            cents[i] = random.nextInt(10) == 0 ? 198 : 99;
+            prices[i] = BigDecimal.valueOf(cents[i], CustomerRevenueAggregator.SCALE);
+        }
+    }
+
+    @Benchmark
+    public CustomerPrice[] revenueAggregator() {
+        var aggregator = new CustomerRevenueAggregator(1024);
+        for (var i = 0; i < rows; i++) {
+            aggregator.add(customerIds[i], cents[i]);
+        }
+        return aggregator.top(TOP);
+    }
+
+    @Benchmark
+    public CustomerPrice[] boxedHashMap() {
+        var customerPurchases = new HashMap<Integer, BigDecimal>();
+        for (var i = 0; i < rows; i++) {
+            customerPurchases.merge(customerIds[i], prices[i], BigDecimal::add);
+        }
+
+        var r = new ArrayList<>(customerPurchases.entrySet());
+        r.sort(Map.Entry.comparingByValue());
+        Collections.reverse(r);
+
+        var results = new CustomerPrice[TOP];
+        for (var p = 0; p < r.size() && p < TOP; p++) {
+            results[p] = new CustomerPrice(r.get(p).getKey(), r.get(p).getValue());
+        }
+        return results;
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ignite.marshalling.Marshaller;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import training.model.CustomerPrice;
+import training.model.TopCustomer;
+
+/**
+ * Marshals and unmarshals job results ({@code CustomerPrice[]}) and reduce results ({@code TopCustomer[]}) with the
+ * Java serialization of {@link ByteArrayMarshaller} and with {@link CompactMarshaller}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MarshallingBenchmark {
+    @Param({"5", "100", "10000"})
+    private int size;
+
+    @Param({"JAVA", "COMPACT"})
+    private String format;
+
+    private Marshaller<Object, byte[]> marshaller;
+
+    private CustomerPrice[] prices;
+
+    private TopCustomer[] customers;
+
+    private byte[] marshalledPrices;
+
+    private byte[] marshalledCustomers;
+
+    @Setup
+    public void setUp() {
+        marshaller = format.equals("JAVA") ? ByteArrayMarshaller.create() : CompactMarshaller.create();
+
+        var random = new Random(42);
+        prices = new CustomerPrice[size];
+        customers = new TopCustomer[size];
+        for (var i = 0; i < size; i++) {
+            var price = BigDecimal.valueOf(random.nextInt(500_00), 2);
+            prices[i] = new CustomerPrice(i + 1, price);
+
+            customers[i] = new TopCustomer(i + 1, price);
+            customers[i].setFullName("Customer " + (i + 1));
+            customers[i].setCountry("Country " + random.nextInt(24));
+            customers[i].setCity("City " + random.nextInt(53));
+        }
+
+        marshalledPrices = marshaller.marshal(prices);
+        marshalledCustomers = marshaller.marshal(customers);
+    }
+
+    @Benchmark
+    public byte[] marshalCustomerPrices() {
+        return marshaller.marshal(prices);
+    }
+
+    @Benchmark
+    public Object unmarshalCustomerPrices() {
+        return marshaller.unmarshal(marshalledPrices);
+    }
+
+    @Benchmark
+    public byte[] marshalTopCustomers() {
+        return marshaller.marshal(customers);
+    }
+
+    @Benchmark
+    public Object unmarshalTopCustomers() {
+        return marshaller.unmarshal(marshalledCustomers);
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import training.model.CustomerPrice;
+
+/**
+ * Merges and sorts the local top customers of every job, the step {@code TopPayingCustomersTask.finish} runs before
+ * it reads the winners' records. {@code count} is K, from the default top 5 to the 10,000 the enrichment is meant to
+ * stay flat for.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReduceMergeBenchmark {
+    @Param({"25", "100"})
+    private int jobs;
+
+    @Param({"5", "100", "1000", "10000"})
+    private int count;
+
+    private List<CustomerPrice[]> partials;
+
+    @Setup
+    public void setUp() {
+        var random = new SplittableRandom(42);
+
+        partials = new ArrayList<>(jobs);
+        for (var job = 0; job < jobs; job++) {
+            var customers = new CustomerPrice[count];
+            for (var i = 0; i < count; i++) {
+                customers[i] = new CustomerPrice(job * count + i + 1, BigDecimal.valueOf(random.nextInt(500_00), 2));
+            }
+            partials.add(customers);
+        }
+    }
+
+    @Benchmark
+    public List<CustomerPrice> mergeTopCustomers() {
+        return TopPayingCustomersTask.mergeTopCustomers(partials, count);
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import org.apache.ignite.sql.IgniteSql;
+import org.apache.ignite.tx.Transaction;
+
+/**
+ * How a top paying customers job computes the totals of one partition. All strategies feed a
+ * {@link CustomerRevenueAggregator}, so the job result has the same shape either way.
+ */
+public enum AggregationStrategy {
+    /**
+     * Ships every invoice line of the partition to the job and sums the amounts in Java.
+     */
+    JAVA_MERGE("select customerid, cast(quantity * unitprice * 100 as bigint) as cents from invoiceline where \"__part\" = ?") {
+        @Override
+        Object[] arguments(int partition, int count) {
+            return new Object[] {partition};
+        }
+    },
+
+    /**
+     * Groups, sorts and limits inside the partition query. InvoiceLine is colocated by CustomerId, so every customer's
+     * lines are in a single partition and the per-partition sums are final.
+     */
+    SQL_PUSH_DOWN("select customerid, sum(cast(quantity * unitprice * 100 as bigint)) as cents from invoiceline "
+            + "where \"__part\" = ? group by customerid order by cents desc, customerid limit ?") {
+        @Override
+        Object[] arguments(int partition, int count) {
+            return new Object[] {partition, count};
+        }
+    },
+
+    /**
+     * Reads the precomputed totals of the CustomerRevenue rollup. The rollup is colocated by CustomerId like InvoiceLine,
+     * so partition ids match and the partition query returns at most {@code count} rows without reading invoice lines.
+     */
+    ROLLUP("select customerid, cast(total * 100 as bigint) as cents from customerrevenue "
+            + "where \"__part\" = ? order by cents desc, customerid limit ?") {
+        @Override
+        Object[] arguments(int partition, int count) {
+            return new Object[] {partition, count};
+        }
+    },
+
+    /**
+     * Folds the node's {@link PartitionSnapshotCache} copy of the partition into the aggregator. The copy is built from
+     * the invoice lines once and reused while the partition's {@link InvoiceLineVersions version} doesn't change. Inside
+     * a transaction the lines are read like {@link #JAVA_MERGE}, since a snapshot may not reflect the transaction's own
+     * writes.
+     */
+    SNAPSHOT(PartitionSnapshotCache.ROWS_QUERY) {
+        @Override
+        Object[] arguments(int partition, int count) {
+            return new Object[] {partition};
+        }
+
+        @Override
+        long scan(IgniteSql sql, Transaction tx, int partition, int count, CustomerRevenueAggregator aggregator) {
+            if (tx != null) {
+                return JAVA_MERGE.scan(sql, tx, partition, count, aggregator);
+            }
+            return PartitionSnapshotCache.instance().snapshot(sql, partition).aggregateInto(aggregator);
+        }
+    };
+
+    private final String sql;
+
+    AggregationStrategy(String sql) {
+        this.sql = sql;
+    }
+
+    abstract Object[] arguments(int partition, int count);
+
+    /**
+     * Whether the row counts of a scan are the partition's invoice lines. {@link #SQL_PUSH_DOWN} and {@link #ROLLUP}
+     * return at most {@code count} customer totals per partition, which says nothing about how the lines are spread.
+     */
+    boolean countsInvoiceLines() {
+        return this == JAVA_MERGE || this == SNAPSHOT;
+    }
+
+    /**
+     * Runs the partition query and adds its rows to {@code aggregator}.
+     *
+     * @return Number of rows the query returned to the job.
+     */
+    long scan(IgniteSql sql, int partition, int count, CustomerRevenueAggregator aggregator) {
+        return scan(sql, null, partition, count, aggregator);
+    }
+
+    /** Same as {@link #scan(IgniteSql, int, int, CustomerRevenueAggregator)}, within transaction {@code tx}. */
+    long scan(IgniteSql sql, Transaction tx, int partition, int count, CustomerRevenueAggregator aggregator) {
+        long rows = 0;
+        try (var results = sql.execute(tx, this.sql, arguments(partition, count))) {
+            while (results.hasNext()) {
+                var row = results.next();
+                aggregator.add(row.intValue("customerId"), row.longValue("cents"));
+                rows++;
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import org.apache.ignite.sql.IgniteSql;
+import org.apache.ignite.sql.SqlRow;
+import org.apache.ignite.sql.async.AsyncResultSet;
+
+/**
+ * Reads query results page by page without blocking, for code that runs in the callbacks of other futures, such as
+ * the split step of a task, where a blocking {@code execute} would hold a thread of the node's pool until the whole
+ * result arrived.
+ */
+final class AsyncQueries {
+    private AsyncQueries() {
+    }
+
+    /** Runs {@code query} and passes every row to {@code action}, in order. */
+    static CompletableFuture<Void> forEachRow(IgniteSql sql, String query, Consumer<SqlRow> action, Object... arguments) {
+        return sql.executeAsync(null, query, arguments).thenCompose(rows -> forEachRow(rows, action));
+    }
+
+    private static CompletableFuture<Void> forEachRow(AsyncResultSet<SqlRow> rows, Consumer<SqlRow> action) {
+        for (var row : rows.currentPage()) {
+            action.accept(row);
+        }
+        if (!rows.hasMorePages()) {
+            return rows.closeAsync();
+        }
+        return rows.fetchNextPage().thenCompose(next -> forEachRow(next, action));
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads the encodings produced by {@link BinaryWriter}.
+ */
+class BinaryReader {
+    private final byte[] buf;
+
+    private int pos;
+
+    BinaryReader(byte[] buf, int offset) {
+        this.buf = buf;
+        this.pos = offset;
+    }
+
+    int readByte() {
+        return buf[pos++] & 0xFF;
+    }
+
+    int readVarInt() {
+        var v = (int) readUnsignedVarLong();
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    long readVarLong() {
+        var v = readUnsignedVarLong();
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    int readLength() {
+        return (int) readUnsignedVarLong();
+    }
+
+    BigDecimal readDecimal() {
+        var header = readUnsignedVarLong();
+        var zigzagScale = (int) (header >>> 1);
+        var scale = (zigzagScale >>> 1) ^ -(zigzagScale & 1);
+
+        if ((header & 1) == 0) {
+            return BigDecimal.valueOf(readVarLong(), scale);
+        }
+
+        var bytes = readBytes(readLength());
+
+        return new BigDecimal(new BigInteger(bytes), scale);
+    }
+
+    byte[] readBytes(int length) {
+        var bytes = new byte[length];
+        System.arraycopy(buf, pos, bytes, 0, length);
+        pos += length;
+        return bytes;
+    }
+
+    String readString() {
+        var len = readLength();
+        if (len == 0) {
+            return null;
+        }
+
+        var s = new String(buf, pos, len - 1, StandardCharsets.UTF_8);
+        pos += len - 1;
+
+        return s;
+    }
+
+    private long readUnsignedVarLong() {
+        long v = 0;
+        for (int shift = 0; ; shift += 7) {
+            var b = buf[pos++];
+            v |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return v;
+            }
+        }
+    }
+}
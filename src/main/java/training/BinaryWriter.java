@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Growable byte buffer with the primitive encodings used by {@link CompactMarshaller}. Integers are written as
+ * zig-zag varints, so small ids and amounts take one or two bytes.
+ */
+class BinaryWriter {
+    private byte[] buf;
+
+    private int pos;
+
+    BinaryWriter(int initialCapacity) {
+        buf = new byte[Math.max(16, initialCapacity)];
+    }
+
+    void writeByte(int b) {
+        ensure(1);
+        buf[pos++] = (byte) b;
+    }
+
+    void writeBytes(byte[] bytes) {
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buf, pos, bytes.length);
+        pos += bytes.length;
+    }
+
+    void writeVarInt(int v) {
+        writeUnsignedVarLong(((v << 1) ^ (v >> 31)) & 0xFFFFFFFFL);
+    }
+
+    void writeVarLong(long v) {
+        writeUnsignedVarLong((v << 1) ^ (v >> 63));
+    }
+
+    /** Writes a non-negative length or count. */
+    void writeLength(int len) {
+        writeUnsignedVarLong(len);
+    }
+
+    /**
+     * Writes a decimal as its scale followed by the unscaled value. Unscaled values that fit into a long, which covers
+     * every {@code DECIMAL(10,2)} amount in the media store, are written as a varint; larger ones as raw bytes.
+     */
+    void writeDecimal(BigDecimal d) {
+        var unscaled = d.unscaledValue();
+        var scale = (d.scale() << 1) ^ (d.scale() >> 31);
+
+        if (unscaled.bitLength() < 64) {
+            writeUnsignedVarLong((scale & 0xFFFFFFFFL) << 1);
+            writeVarLong(unscaled.longValue());
+        } else {
+            var bytes = unscaled.toByteArray();
+            writeUnsignedVarLong(((scale & 0xFFFFFFFFL) << 1) | 1);
+            writeLength(bytes.length);
+            writeBytes(bytes);
+        }
+    }
+
+    /** Writes a nullable string as {@code length + 1} followed by its UTF-8 bytes; zero stands for {@code null}. */
+    void writeString(String s) {
+        if (s == null) {
+            writeLength(0);
+            return;
+        }
+
+        var bytes = s.getBytes(StandardCharsets.UTF_8);
+        writeLength(bytes.length + 1);
+        writeBytes(bytes);
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(buf, pos);
+    }
+
+    private void writeUnsignedVarLong(long v) {
+        ensure(10);
+        while ((v & ~0x7FL) != 0) {
+            buf[pos++] = (byte) ((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        buf[pos++] = (byte) v;
+    }
+
+    private void ensure(int extra) {
+        if (pos + extra > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(buf.length << 1, pos + extra));
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.ignite.compute.ComputeJob;
+import org.apache.ignite.compute.JobExecutionContext;
+import org.apache.ignite.marshalling.Marshaller;
+import org.apache.ignite.table.Tuple;
+import training.model.PartitionResult;
+
+/**
+ * Job of a {@link ColocatedAggregationTask}. It scans the partitions in its {@code partitions} argument with
+ * {@link PartitionScanner}, one accumulator per scanning thread, then combines the threads and returns the partial
+ * aggregate with the row count and duration of every partition. The job checks for cancellation before every
+ * partition, and records {@code job.partitionScan}, {@code job.rows}, {@code job.aggregation}, {@code job.total} and
+ * {@code job.partitions} under the metrics prefix of its aggregation.
+ *
+ * Optional argument: {@code parallelism}, the number of scanning threads (the number of processors by default).
+ *
+ * Compute instantiates jobs by class, so every aggregation has a public subclass with a no-argument constructor that
+ * passes its {@link PartitionAggregation}.
+ */
+public abstract class ColocatedAggregationJob<A, P> implements ComputeJob<Tuple, PartitionResult<P>> {
+    private final PartitionAggregation<A, P> aggregation;
+
+    protected ColocatedAggregationJob(PartitionAggregation<A, P> aggregation) {
+        this.aggregation = aggregation;
+    }
+
+    @Override
+    public Marshaller<PartitionResult<P>, byte[]> resultMarshaller() {
+        return new MeteredMarshaller<>(CompactMarshaller.create(), aggregation.metricsPrefix() + "job.result");
+    }
+
+    @Override
+    public CompletableFuture<PartitionResult<P>> executeAsync(JobExecutionContext jobExecutionContext, Tuple parameters) {
+        var start = System.nanoTime();
+
+        var partitions = PartitionAssignment.fromArguments(parameters);
+        int parallelism = parameters.valueOrDefault("parallelism", Runtime.getRuntime().availableProcessors());
+
+        var ignite = jobExecutionContext.ignite();
+        var metrics = Metrics.registry();
+        var prefix = aggregation.metricsPrefix();
+        var rowCounts = new long[partitions.length];
+        var partitionNanos = new long[partitions.length];
+
+        var states = PartitionScanner.scan(partitions, parallelism,
+                () -> new ScanState<>(aggregation.createAccumulator(ignite, parameters)), (i, partition, state) -> {
+                    if (jobExecutionContext.isCancelled()) {
+                        throw new CancellationException("Job cancelled before scanning partition " + partition);
+                    }
+
+                    var allocatedAtStart = ThreadAllocation.current();
+                    var scanStart = System.nanoTime();
+                    rowCounts[i] = aggregation.scan(ignite, partition, parameters, state.accumulator);
+                    partitionNanos[i] = System.nanoTime() - scanStart;
+                    state.addAllocated(ThreadAllocation.since(allocatedAtStart));
+
+                    metrics.recordNanos(prefix + "job.partitionScan", partitionNanos[i]);
+                    metrics.increment(prefix + "job.rows", rowCounts[i]);
+                });
+
+        var aggregationStart = System.nanoTime();
+        var merged = states.get(0);
+        for (var i = 1; i < states.size(); i++) {
+            aggregation.combine(merged.accumulator, states.get(i).accumulator);
+            merged.addAllocated(states.get(i).allocatedBytes);
+        }
+        var partial = aggregation.partial(merged.accumulator, parameters);
+        var end = System.nanoTime();
+
+        metrics.recordNanos(prefix + "job.aggregation", end - aggregationStart);
+        metrics.recordNanos(prefix + "job.total", end - start);
+        metrics.increment(prefix + "job.partitions", partitions.length);
+
+        return CompletableFuture.completedFuture(new PartitionResult<>(partitions, rowCounts, partitionNanos, partial,
+                end - aggregationStart, end - start, merged.allocatedBytes));
+    }
+
+    /** State of one partition scanning worker. */
+    private static class ScanState<A> {
+        final A accumulator;
+
+        /** Heap allocated by the worker's scans, or {@code -1} when a scan ran on a thread that can't report it. */
+        long allocatedBytes;
+
+        ScanState(A accumulator) {
+            this.accumulator = accumulator;
+        }
+
+        void addAllocated(long bytes) {
+            allocatedBytes = allocatedBytes < 0 || bytes < 0 ? -1 : allocatedBytes + bytes;
+        }
+    }
+}
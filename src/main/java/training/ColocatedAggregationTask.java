@@ -0,0 +1,311 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import org.apache.ignite.compute.JobDescriptor;
+import org.apache.ignite.compute.task.MapReduceJob;
+import org.apache.ignite.compute.task.MapReduceTask;
+import org.apache.ignite.compute.task.TaskExecutionContext;
+import org.apache.ignite.marshalling.Marshaller;
+import org.apache.ignite.table.Tuple;
+import training.model.PartitionResult;
+import training.model.TaskTrace;
+
+/**
+ * Map-reduce task that runs a {@link PartitionAggregation} over the partitions of its table, where they are stored.
+ * The split assigns the partitions to their primary replicas by {@link SplitMode} ({@code split} in the task input),
+ * and every {@link ColocatedAggregationJob} returns a {@link PartitionResult} with its partial aggregate, encoded by
+ * {@link CompactMarshaller}. The reduce step checks that every partition was scanned exactly once and hands the
+ * partials to {@link #finish}, the only part a subclass writes besides the aggregation itself.
+ *
+ * The task records {@code task.split}, {@code task.map}, {@code task.network}, {@code task.reduce},
+ * {@code task.enrich} and {@code task.total} timers and the {@code task.executions} and {@code task.rows} counters
+ * under the metrics prefix of the aggregation; {@link Reduction#trace()} returns them as a {@link TaskTrace}.
+ *
+ * @param <A> Accumulator of a scanning thread.
+ * @param <P> Partial aggregate of a job.
+ * @param <R> Task result.
+ */
+public abstract class ColocatedAggregationTask<A, P, R> implements MapReduceTask<Tuple, Tuple, PartitionResult<P>, R> {
+    private final PartitionAggregation<A, P> aggregation;
+
+    private final Class<? extends ColocatedAggregationJob<A, P>> jobClass;
+
+    /** Unmarshals the job results of this execution, so the trace gets their size. */
+    private final MeteredMarshaller<PartitionResult<P>> jobResults;
+
+    private Tuple input;
+
+    /** Ids of all partitions of the table; every one must be covered by exactly one job. */
+    private BitSet partitions;
+
+    private long splitNanos;
+
+    private long splitEnd;
+
+    protected ColocatedAggregationTask(PartitionAggregation<A, P> aggregation,
+            Class<? extends ColocatedAggregationJob<A, P>> jobClass) {
+        this.aggregation = aggregation;
+        this.jobClass = jobClass;
+        this.jobResults = new MeteredMarshaller<>(CompactMarshaller.create(), aggregation.metricsPrefix() + "task.jobResult");
+    }
+
+    static <P> JobDescriptor<Tuple, PartitionResult<P>> jobDescriptor(
+            Class<? extends ColocatedAggregationJob<?, P>> jobClass, Marshaller<PartitionResult<P>, byte[]> resultMarshaller) {
+        return JobDescriptor.builder(jobClass)
+                .units(ComputeApp.deploymentUnits())
+                .resultMarshaller(resultMarshaller)
+                .build();
+    }
+
+    /** Split used when the task input has no {@code split}. */
+    protected SplitMode defaultSplit() {
+        return SplitMode.PER_NODE;
+    }
+
+    /**
+     * Returns the arguments every job gets besides its {@code partitions}: by default the task input without
+     * {@code split}. Runs once in the split step, so it may read what all jobs need, with non-blocking calls such as
+     * {@link AsyncQueries}.
+     */
+    protected CompletableFuture<Tuple> jobArgumentsAsync(TaskExecutionContext taskExecutionContext, Tuple input) {
+        var arguments = Tuple.create();
+        for (var i = 0; i < input.columnCount(); i++) {
+            if (!input.columnName(i).equalsIgnoreCase("split")) {
+                arguments.set(input.columnName(i), input.value(i));
+            }
+        }
+        return CompletableFuture.completedFuture(arguments);
+    }
+
+    /**
+     * Returns the arguments of the job that scans {@code partitions}: by default the ones of
+     * {@link #jobArgumentsAsync}, shared by all jobs. Runs in the split step once per job.
+     */
+    protected Tuple jobArguments(Tuple arguments, int[] partitions) {
+        return arguments;
+    }
+
+    /** Turns the partial aggregates of all jobs into the task result. */
+    protected abstract CompletableFuture<R> finish(TaskExecutionContext taskExecutionContext, Tuple input, List<P> partials,
+            Reduction reduction);
+
+    @Override
+    public CompletableFuture<List<MapReduceJob<Tuple, PartitionResult<P>>>> splitAsync(
+            TaskExecutionContext taskExecutionContext, Tuple input) {
+        var split = SplitMode.valueOf(input.valueOrDefault("split", defaultSplit().name()));
+
+        this.input = input;
+        var start = System.nanoTime();
+        return taskExecutionContext.ignite().tables().table(aggregation.table()).partitionManager().primaryReplicasAsync()
+                .thenCompose(replicas -> {
+                    partitions = PartitionAssignment.allPartitions(replicas);
+                    return jobArgumentsAsync(taskExecutionContext, input).thenApply(arguments -> {
+                        var jobs = split.assign(replicas).stream()
+                                .map(assignment ->
+                                        MapReduceJob.<Tuple, PartitionResult<P>>builder()
+                                                .nodes(List.of(assignment.getNode()))
+                                                .args(withArguments(assignment.toArguments(),
+                                                        jobArguments(arguments, assignment.getPartitions())))
+                                                .jobDescriptor(jobDescriptor(jobClass, jobResults))
+                                                .build())
+                                .collect(Collectors.toList());
+
+                        splitEnd = System.nanoTime();
+                        splitNanos = splitEnd - start;
+                        Metrics.registry().recordNanos(aggregation.metricsPrefix() + "task.split", splitNanos);
+                        return jobs;
+                    });
+                });
+    }
+
+    @Override
+    public CompletableFuture<R> reduceAsync(TaskExecutionContext taskExecutionContext,
+            Map<UUID, PartitionResult<P>> results) {
+        var reduceStart = System.nanoTime();
+
+        long[] partitionRowCounts;
+        try {
+            partitionRowCounts = checkCoverage(partitions, results.values());
+        } catch (IllegalStateException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        var partials = new ArrayList<P>(results.size());
+        for (var result : results.values()) {
+            partials.add(result.getPartial());
+        }
+
+        var reduction = new Reduction(results.values(), partitionRowCounts, reduceStart);
+        CompletableFuture<R> result;
+        try {
+            result = finish(taskExecutionContext, input, partials, reduction);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return result.thenApply(value -> {
+            reduction.trace();
+            return value;
+        });
+    }
+
+    private static Tuple withArguments(Tuple target, Tuple arguments) {
+        for (var i = 0; i < arguments.columnCount(); i++) {
+            target.set(arguments.columnName(i), arguments.value(i));
+        }
+        return target;
+    }
+
+    /**
+     * Checks that the jobs covered every partition exactly once: a missing partition would silently drop rows and a
+     * duplicate one would count them twice.
+     *
+     * @return Rows returned by every partition query, indexed by partition id.
+     * @throws IllegalStateException If a partition is missing, unknown or was scanned more than once.
+     */
+    static long[] checkCoverage(BitSet expected, Collection<? extends PartitionResult<?>> results) {
+        var rowCounts = new long[expected.length()];
+        var covered = new BitSet(rowCounts.length);
+
+        for (var result : results) {
+            var ids = result.getPartitions();
+            for (var i = 0; i < ids.length; i++) {
+                if (ids[i] < 0 || !expected.get(ids[i])) {
+                    throw new IllegalStateException("Job scanned unknown partition " + ids[i]);
+                }
+                if (covered.get(ids[i])) {
+                    throw new IllegalStateException("Partition " + ids[i] + " was scanned more than once");
+                }
+                covered.set(ids[i]);
+                rowCounts[ids[i]] = result.getRowCounts()[i];
+            }
+        }
+
+        if (!covered.equals(expected)) {
+            var missing = (BitSet) expected.clone();
+            missing.andNot(covered);
+            throw new IllegalStateException("Partitions not covered by any job: " + missing);
+        }
+
+        return rowCounts;
+    }
+
+    /**
+     * The reduce step of one execution. Time until {@link #startEnrich()} is reduce time, the rest is enrichment, such
+     * as reading the names of the winners.
+     */
+    protected final class Reduction {
+        private final Collection<PartitionResult<P>> results;
+
+        private final long[] partitionRowCounts;
+
+        private final long reduceStart;
+
+        private long enrichStart;
+
+        private TaskTrace trace;
+
+        private Reduction(Collection<PartitionResult<P>> results, long[] partitionRowCounts, long reduceStart) {
+            this.results = results;
+            this.partitionRowCounts = partitionRowCounts;
+            this.reduceStart = reduceStart;
+        }
+
+        /** Rows returned by every partition query, indexed by partition id. */
+        public long[] partitionRowCounts() {
+            return partitionRowCounts;
+        }
+
+        /** Marshalled size of all job results. */
+        public long jobResultBytes() {
+            return jobResults.bytes();
+        }
+
+        /** Heap allocated by all jobs, or {@code -1} when a job couldn't report it. */
+        public long jobAllocatedBytes() {
+            long bytes = 0;
+            for (var result : results) {
+                if (result.getAllocatedBytes() < 0) {
+                    return -1;
+                }
+                bytes += result.getAllocatedBytes();
+            }
+            return bytes;
+        }
+
+        public void startEnrich() {
+            enrichStart = System.nanoTime();
+        }
+
+        /** Returns the trace of the execution up to the first call and records it in the metrics. */
+        public synchronized TaskTrace trace() {
+            if (trace == null) {
+                var now = System.nanoTime();
+                var reduceEnd = enrichStart != 0 ? enrichStart : now;
+                trace = buildTrace(reduceStart - splitEnd, reduceEnd - reduceStart, now - reduceEnd);
+                record(trace);
+            }
+            return trace;
+        }
+
+        private TaskTrace buildTrace(long mapNanos, long reduceNanos, long enrichNanos) {
+            var partitionNanos = new long[partitionRowCounts.length];
+            long jobMaxNanos = 0;
+            long jobNanos = 0;
+            long scanNanos = 0;
+            long aggregationNanos = 0;
+            long rows = 0;
+
+            for (var result : results) {
+                var ids = result.getPartitions();
+                for (var i = 0; i < ids.length; i++) {
+                    partitionNanos[ids[i]] = result.getPartitionNanos()[i];
+                }
+                jobMaxNanos = Math.max(jobMaxNanos, result.getElapsedNanos());
+                jobNanos += result.getElapsedNanos();
+                scanNanos += result.getScanNanos();
+                aggregationNanos += result.getAggregationNanos();
+                rows += result.getTotalRows();
+            }
+
+            return new TaskTrace(splitNanos, mapNanos, reduceNanos, enrichNanos, results.size(), jobMaxNanos, jobNanos,
+                    jobAllocatedBytes(), scanNanos, aggregationNanos, rows, jobResults.bytes(), jobResults.nanos(),
+                    partitionNanos);
+        }
+
+        private void record(TaskTrace trace) {
+            var metrics = Metrics.registry();
+            var prefix = aggregation.metricsPrefix();
+            metrics.recordNanos(prefix + "task.map", trace.getMapNanos());
+            metrics.recordNanos(prefix + "task.network", trace.getNetworkNanos());
+            metrics.recordNanos(prefix + "task.reduce", trace.getReduceNanos());
+            metrics.recordNanos(prefix + "task.enrich", trace.getEnrichNanos());
+            metrics.recordNanos(prefix + "task.total", trace.getTotalNanos());
+            metrics.increment(prefix + "task.executions", 1);
+            metrics.increment(prefix + "task.rows", trace.getRowsScanned());
+        }
+    }
+}
@@ -0,0 +1,672 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import org.apache.ignite.marshalling.Marshaller;
+import training.model.CustomerPrice;
+import training.model.LongestTrack;
+import training.model.PartitionResult;
+import training.model.RankingPage;
+import training.model.RevenueRollup;
+import training.model.TaskTrace;
+import training.model.TopCustomer;
+import training.model.TopCustomersResult;
+import training.model.TopTrack;
+import training.model.TopTracksResult;
+import training.model.TrackNeighbours;
+
+/**
+ * Marshaller for the compute results in {@code training.model} that avoids Java serialization: no class descriptors,
+ * varint ids, decimals as scale plus unscaled value and length-prefixed arrays. The first byte of the payload is a type
+ * tag. Objects of any other type are handed to {@link ByteArrayMarshaller}; its output always starts with the
+ * serialization magic {@code 0xACED}, so {@link #unmarshal(byte[])} reads both formats.
+ */
+public class CompactMarshaller<T> implements Marshaller<T, byte[]> {
+    private static final int CUSTOMER_PRICE_ARRAY = 1;
+
+    private static final int TOP_CUSTOMER_ARRAY = 2;
+
+    private static final int PARTITION_RESULT = 3;
+
+    private static final int TOP_CUSTOMERS_RESULT = 4;
+
+    private static final int LONGEST_TRACK_ARRAY = 5;
+
+    private static final int REVENUE_ROLLUP = 6;
+
+    private static final int SPACE_SAVING_SUMMARY = 7;
+
+    private static final int TOP_TRACKS_RESULT = 8;
+
+    private static final int LONG_ARRAY = 9;
+
+    private static final int RANKING_PAGE = 10;
+
+    private static final int TRACK_NEIGHBOURS = 11;
+
+    /** Tag of a partial without a compact encoding inside a job result. */
+    private static final int SERIALIZED_PARTIAL = 127;
+
+    /** Element flags: the element itself, then its nullable fields. */
+    private static final int PRESENT = 1;
+
+    private static final int FIRST_FIELD = 2;
+
+    private static final int SECOND_FIELD = 4;
+
+    private final ByteArrayMarshaller<T> fallback = ByteArrayMarshaller.create();
+
+    static <T> CompactMarshaller<T> create() {
+        return new CompactMarshaller<>();
+    }
+
+    @Override
+    public byte[] marshal(T object) {
+        if (object == null) {
+            return null;
+        }
+
+        var size = sizeHint(object);
+        if (size < 0) {
+            return fallback.marshal(object);
+        }
+
+        var out = new BinaryWriter(size);
+        writeTagged(out, object);
+        return out.toByteArray();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T unmarshal(byte[] raw) {
+        if (raw == null) {
+            return null;
+        }
+        // Every encoding, the fallback's included, starts with at least one byte.
+        if (raw.length == 0) {
+            throw new IllegalArgumentException("Empty payload");
+        }
+
+        if (raw[0] < CUSTOMER_PRICE_ARRAY || raw[0] > TRACK_NEIGHBOURS) {
+            return fallback.unmarshal(raw);
+        }
+        return (T) readTagged(new BinaryReader(raw, 1), raw[0]);
+    }
+
+    /** Initial buffer size for the compact encoding of {@code object}, or {@code -1} if it has none. */
+    private static int sizeHint(Object object) {
+        if (object instanceof CustomerPrice[]) {
+            var values = (CustomerPrice[]) object;
+            return 2 + values.length * 8;
+        }
+
+        if (object instanceof TopCustomer[]) {
+            var values = (TopCustomer[]) object;
+            return 2 + values.length * 48;
+        }
+
+        if (object instanceof PartitionResult) {
+            var value = (PartitionResult<?>) object;
+            return 64 + value.getPartitions().length * 12 + Math.max(0, sizeHint(value.getPartial()));
+        }
+
+        if (object instanceof TopCustomersResult) {
+            var value = (TopCustomersResult) object;
+            return 64 + value.getCustomers().length * 48 + value.getPartitionRowCounts().length * 8;
+        }
+
+        if (object instanceof LongestTrack[]) {
+            var values = (LongestTrack[]) object;
+            return 2 + values.length * 64;
+        }
+
+        if (object instanceof RevenueRollup) {
+            var value = (RevenueRollup) object;
+            return 32 + value.getCountries().length * 24 + value.getMonths().length * 8
+                    + value.getGenreIds().length * 24;
+        }
+
+        if (object instanceof SpaceSavingSummary) {
+            var value = (SpaceSavingSummary) object;
+            return 24 + value.size() * 12;
+        }
+
+        if (object instanceof TopTracksResult) {
+            var value = (TopTracksResult) object;
+            return 32 + value.getTracks().length * 40;
+        }
+
+        if (object instanceof RankingPage) {
+            var value = (RankingPage) object;
+            return 16 + value.size() * 10;
+        }
+
+        if (object instanceof TrackNeighbours) {
+            var value = (TrackNeighbours) object;
+            return 16 + value.size() * 8 + value.getNeighbourIds().length * 4;
+        }
+
+        if (object instanceof long[]) {
+            return 2 + ((long[]) object).length * 4;
+        }
+
+        return -1;
+    }
+
+    /** Writes the type tag and the encoding of {@code object}, which must be of a type {@link #sizeHint} knows. */
+    private static void writeTagged(BinaryWriter out, Object object) {
+        if (object instanceof CustomerPrice[]) {
+            out.writeByte(CUSTOMER_PRICE_ARRAY);
+            writeCustomerPrices(out, (CustomerPrice[]) object);
+            return;
+        }
+
+        if (object instanceof TopCustomer[]) {
+            out.writeByte(TOP_CUSTOMER_ARRAY);
+            writeTopCustomers(out, (TopCustomer[]) object);
+            return;
+        }
+
+        if (object instanceof PartitionResult) {
+            out.writeByte(PARTITION_RESULT);
+            writePartitionResult(out, (PartitionResult<?>) object);
+            return;
+        }
+
+        if (object instanceof TopCustomersResult) {
+            out.writeByte(TOP_CUSTOMERS_RESULT);
+            writeTopCustomersResult(out, (TopCustomersResult) object);
+            return;
+        }
+
+        if (object instanceof LongestTrack[]) {
+            out.writeByte(LONGEST_TRACK_ARRAY);
+            writeLongestTracks(out, (LongestTrack[]) object);
+            return;
+        }
+
+        if (object instanceof RevenueRollup) {
+            out.writeByte(REVENUE_ROLLUP);
+            writeRevenueRollup(out, (RevenueRollup) object);
+            return;
+        }
+
+        if (object instanceof SpaceSavingSummary) {
+            out.writeByte(SPACE_SAVING_SUMMARY);
+            writeSpaceSavingSummary(out, (SpaceSavingSummary) object);
+            return;
+        }
+
+        if (object instanceof TopTracksResult) {
+            out.writeByte(TOP_TRACKS_RESULT);
+            writeTopTracksResult(out, (TopTracksResult) object);
+            return;
+        }
+
+        if (object instanceof RankingPage) {
+            out.writeByte(RANKING_PAGE);
+            writeRankingPage(out, (RankingPage) object);
+            return;
+        }
+
+        if (object instanceof TrackNeighbours) {
+            out.writeByte(TRACK_NEIGHBOURS);
+            writeTrackNeighbours(out, (TrackNeighbours) object);
+            return;
+        }
+
+        if (object instanceof long[]) {
+            out.writeByte(LONG_ARRAY);
+            writeLongs(out, (long[]) object);
+            return;
+        }
+
+        throw new IllegalArgumentException("No compact encoding for " + object.getClass().getName());
+    }
+
+    private static Object readTagged(BinaryReader in, int tag) {
+        switch (tag) {
+            case CUSTOMER_PRICE_ARRAY:
+                return readCustomerPrices(in);
+            case TOP_CUSTOMER_ARRAY:
+                return readTopCustomers(in);
+            case PARTITION_RESULT:
+                return readPartitionResult(in);
+            case TOP_CUSTOMERS_RESULT:
+                return readTopCustomersResult(in);
+            case LONGEST_TRACK_ARRAY:
+                return readLongestTracks(in);
+            case REVENUE_ROLLUP:
+                return readRevenueRollup(in);
+            case SPACE_SAVING_SUMMARY:
+                return readSpaceSavingSummary(in);
+            case TOP_TRACKS_RESULT:
+                return readTopTracksResult(in);
+            case LONG_ARRAY:
+                return readLongs(in);
+            case RANKING_PAGE:
+                return readRankingPage(in);
+            case TRACK_NEIGHBOURS:
+                return readTrackNeighbours(in);
+            default:
+                throw new IllegalArgumentException("Unknown type tag " + tag);
+        }
+    }
+
+    static void writeCustomerPrices(BinaryWriter out, CustomerPrice[] values) {
+        out.writeLength(values.length);
+        for (var value : values) {
+            if (value == null) {
+                out.writeByte(0);
+                continue;
+            }
+
+            var flags = PRESENT
+                    | (value.getCustomerId() != null ? FIRST_FIELD : 0)
+                    | (value.getPrice() != null ? SECOND_FIELD : 0);
+            out.writeByte(flags);
+            if ((flags & FIRST_FIELD) != 0) {
+                out.writeVarInt(value.getCustomerId());
+            }
+            if ((flags & SECOND_FIELD) != 0) {
+                out.writeDecimal(value.getPrice());
+            }
+        }
+    }
+
+    static CustomerPrice[] readCustomerPrices(BinaryReader in) {
+        var values = new CustomerPrice[in.readLength()];
+        for (var i = 0; i < values.length; i++) {
+            var flags = in.readByte();
+            if (flags == 0) {
+                continue;
+            }
+
+            Integer customerId = (flags & FIRST_FIELD) != 0 ? in.readVarInt() : null;
+            var price = (flags & SECOND_FIELD) != 0 ? in.readDecimal() : null;
+            values[i] = new CustomerPrice(customerId, price);
+        }
+        return values;
+    }
+
+    static void writeTopCustomers(BinaryWriter out, TopCustomer[] values) {
+        out.writeLength(values.length);
+        for (var value : values) {
+            if (value == null) {
+                out.writeByte(0);
+                continue;
+            }
+
+            var flags = PRESENT | (value.getTotalPurchases() != null ? FIRST_FIELD : 0);
+            out.writeByte(flags);
+            out.writeVarInt(value.getCustomerId());
+            if ((flags & FIRST_FIELD) != 0) {
+                out.writeDecimal(value.getTotalPurchases());
+            }
+            out.writeString(value.getFullName());
+            out.writeString(value.getCountry());
+            out.writeString(value.getCity());
+        }
+    }
+
+    static TopCustomer[] readTopCustomers(BinaryReader in) {
+        var values = new TopCustomer[in.readLength()];
+        for (var i = 0; i < values.length; i++) {
+            var flags = in.readByte();
+            if (flags == 0) {
+                continue;
+            }
+
+            var customerId = in.readVarInt();
+            var totalPurchases = (flags & FIRST_FIELD) != 0 ? in.readDecimal() : null;
+            var value = new TopCustomer(customerId, totalPurchases);
+            value.setFullName(in.readString());
+            value.setCountry(in.readString());
+            value.setCity(in.readString());
+            values[i] = value;
+        }
+        return values;
+    }
+
+    static void writeLongestTracks(BinaryWriter out, LongestTrack[] values) {
+        out.writeLength(values.length);
+        for (var value : values) {
+            if (value == null) {
+                out.writeByte(0);
+                continue;
+            }
+
+            out.writeByte(PRESENT);
+            out.writeVarInt(value.getTrackId());
+            out.writeString(value.getName());
+            out.writeVarInt(value.getMilliseconds());
+            out.writeString(value.getGenre());
+            out.writeString(value.getArtist());
+        }
+    }
+
+    static LongestTrack[] readLongestTracks(BinaryReader in) {
+        var values = new LongestTrack[in.readLength()];
+        for (var i = 0; i < values.length; i++) {
+            if (in.readByte() == 0) {
+                continue;
+            }
+
+            var trackId = in.readVarInt();
+            var name = in.readString();
+            var value = new LongestTrack(trackId, name, in.readVarInt());
+            value.setGenre(in.readString());
+            value.setArtist(in.readString());
+            values[i] = value;
+        }
+        return values;
+    }
+
+    static void writePartitionResult(BinaryWriter out, PartitionResult<?> value) {
+        var partitions = value.getPartitions();
+        var rowCounts = value.getRowCounts();
+        var partitionNanos = value.getPartitionNanos();
+        out.writeLength(partitions.length);
+        for (var i = 0; i < partitions.length; i++) {
+            out.writeVarInt(partitions[i]);
+            out.writeVarLong(rowCounts[i]);
+            out.writeVarLong(partitionNanos[i]);
+        }
+        writePartial(out, value.getPartial());
+        out.writeVarLong(value.getAggregationNanos());
+        out.writeVarLong(value.getElapsedNanos());
+        out.writeVarLong(value.getAllocatedBytes());
+    }
+
+    static PartitionResult<Object> readPartitionResult(BinaryReader in) {
+        var partitions = new int[in.readLength()];
+        var rowCounts = new long[partitions.length];
+        var partitionNanos = new long[partitions.length];
+        for (var i = 0; i < partitions.length; i++) {
+            partitions[i] = in.readVarInt();
+            rowCounts[i] = in.readVarLong();
+            partitionNanos[i] = in.readVarLong();
+        }
+        var partial = readPartial(in);
+        var aggregationNanos = in.readVarLong();
+        var elapsedNanos = in.readVarLong();
+        var allocatedBytes = in.readVarLong();
+        return new PartitionResult<>(partitions, rowCounts, partitionNanos, partial, aggregationNanos, elapsedNanos,
+                allocatedBytes);
+    }
+
+    /**
+     * Writes a partial aggregate in place, as its type tag followed by its encoding, so a job result costs one byte
+     * more than the partial alone. Partials without a compact encoding are nested as length-prefixed Java
+     * serialization.
+     */
+    static void writePartial(BinaryWriter out, Object partial) {
+        if (partial == null) {
+            out.writeByte(0);
+        } else if (sizeHint(partial) >= 0) {
+            writeTagged(out, partial);
+        } else {
+            var raw = ByteArrayMarshaller.create().marshal(partial);
+            out.writeByte(SERIALIZED_PARTIAL);
+            out.writeLength(raw.length);
+            out.writeBytes(raw);
+        }
+    }
+
+    static Object readPartial(BinaryReader in) {
+        var tag = in.readByte();
+        if (tag == 0) {
+            return null;
+        }
+        if (tag == SERIALIZED_PARTIAL) {
+            return ByteArrayMarshaller.create().unmarshal(in.readBytes(in.readLength()));
+        }
+        return readTagged(in, tag);
+    }
+
+    static void writeTopCustomersResult(BinaryWriter out, TopCustomersResult value) {
+        writeTopCustomers(out, value.getCustomers());
+        writeLongs(out, value.getPartitionRowCounts());
+        writeTaskTrace(out, value.getTrace());
+    }
+
+    static TopCustomersResult readTopCustomersResult(BinaryReader in) {
+        var customers = readTopCustomers(in);
+        var partitionRowCounts = readLongs(in);
+        var trace = readTaskTrace(in);
+        return new TopCustomersResult(customers, partitionRowCounts, trace);
+    }
+
+    static void writeTaskTrace(BinaryWriter out, TaskTrace value) {
+        if (value == null) {
+            out.writeByte(0);
+            return;
+        }
+
+        out.writeByte(PRESENT);
+        out.writeVarLong(value.getSplitNanos());
+        out.writeVarLong(value.getMapNanos());
+        out.writeVarLong(value.getReduceNanos());
+        out.writeVarLong(value.getEnrichNanos());
+        out.writeVarInt(value.getJobs());
+        out.writeVarLong(value.getJobMaxNanos());
+        out.writeVarLong(value.getJobNanos());
+        out.writeVarLong(value.getJobAllocatedBytes());
+        out.writeVarLong(value.getScanNanos());
+        out.writeVarLong(value.getAggregationNanos());
+        out.writeVarLong(value.getRowsScanned());
+        out.writeVarLong(value.getResultBytes());
+        out.writeVarLong(value.getUnmarshalNanos());
+        writeLongs(out, value.getPartitionNanos());
+    }
+
+    static TaskTrace readTaskTrace(BinaryReader in) {
+        if (in.readByte() == 0) {
+            return null;
+        }
+
+        var splitNanos = in.readVarLong();
+        var mapNanos = in.readVarLong();
+        var reduceNanos = in.readVarLong();
+        var enrichNanos = in.readVarLong();
+        var jobs = in.readVarInt();
+        var jobMaxNanos = in.readVarLong();
+        var jobNanos = in.readVarLong();
+        var jobAllocatedBytes = in.readVarLong();
+        var scanNanos = in.readVarLong();
+        var aggregationNanos = in.readVarLong();
+        var rowsScanned = in.readVarLong();
+        var resultBytes = in.readVarLong();
+        var unmarshalNanos = in.readVarLong();
+        var partitionNanos = readLongs(in);
+        return new TaskTrace(splitNanos, mapNanos, reduceNanos, enrichNanos, jobs, jobMaxNanos, jobNanos,
+                jobAllocatedBytes, scanNanos, aggregationNanos, rowsScanned, resultBytes, unmarshalNanos, partitionNanos);
+    }
+
+    static void writeRevenueRollup(BinaryWriter out, RevenueRollup value) {
+        writeStrings(out, value.getCountries());
+        writeLongs(out, value.getCountryCents());
+        writeInts(out, value.getMonths());
+        writeLongs(out, value.getMonthCents());
+        writeInts(out, value.getGenreIds());
+        writeLongs(out, value.getGenreCents());
+        if (value.getGenreNames() == null) {
+            out.writeByte(0);
+        } else {
+            out.writeByte(PRESENT);
+            writeStrings(out, value.getGenreNames());
+        }
+        out.writeVarLong(value.getLines());
+        out.writeVarLong(value.getUnmatchedLines());
+    }
+
+    static RevenueRollup readRevenueRollup(BinaryReader in) {
+        var countries = readStrings(in);
+        var countryCents = readLongs(in);
+        var months = readInts(in);
+        var monthCents = readLongs(in);
+        var genreIds = readInts(in);
+        var genreCents = readLongs(in);
+        var genreNames = in.readByte() != 0 ? readStrings(in) : null;
+        var lines = in.readVarLong();
+        var unmatchedLines = in.readVarLong();
+
+        var value = new RevenueRollup(countries, countryCents, months, monthCents, genreIds, genreCents, lines,
+                unmatchedLines);
+        value.setGenreNames(genreNames);
+        return value;
+    }
+
+    static void writeSpaceSavingSummary(BinaryWriter out, SpaceSavingSummary value) {
+        out.writeLength(value.capacity());
+        out.writeVarLong(value.floor());
+        out.writeVarLong(value.total());
+        writeInts(out, value.keys());
+        writeLongs(out, value.counts());
+        writeLongs(out, value.errors());
+    }
+
+    static SpaceSavingSummary readSpaceSavingSummary(BinaryReader in) {
+        var capacity = in.readLength();
+        var floor = in.readVarLong();
+        var total = in.readVarLong();
+        var keys = readInts(in);
+        var counts = readLongs(in);
+        var errors = readLongs(in);
+        return SpaceSavingSummary.of(capacity, keys, counts, errors, floor, total);
+    }
+
+    static void writeTopTracksResult(BinaryWriter out, TopTracksResult value) {
+        out.writeLength(value.getTracks().length);
+        for (var track : value.getTracks()) {
+            out.writeVarInt(track.getTrackId());
+            out.writeVarLong(track.getQuantity());
+            out.writeVarLong(track.getError());
+            out.writeString(track.getName());
+        }
+        out.writeVarLong(value.getTotalQuantity());
+        out.writeVarLong(value.getMaxError());
+        out.writeVarLong(value.getEntriesShipped());
+        out.writeVarLong(value.getResultBytes());
+    }
+
+    static TopTracksResult readTopTracksResult(BinaryReader in) {
+        var tracks = new TopTrack[in.readLength()];
+        for (var i = 0; i < tracks.length; i++) {
+            tracks[i] = new TopTrack(in.readVarInt(), in.readVarLong(), in.readVarLong());
+            tracks[i].setName(in.readString());
+        }
+        var totalQuantity = in.readVarLong();
+        var maxError = in.readVarLong();
+        var entriesShipped = in.readVarLong();
+        var resultBytes = in.readVarLong();
+        return new TopTracksResult(tracks, totalQuantity, maxError, entriesShipped, resultBytes);
+    }
+
+    /** Totals don't increase within a page, so each one after the first is written as its distance from the previous. */
+    static void writeRankingPage(BinaryWriter out, RankingPage value) {
+        out.writeVarInt(value.getPartition());
+        out.writeByte(value.isLast() ? 1 : 0);
+        writeInts(out, value.getCustomerIds());
+
+        var cents = value.getCents();
+        for (var i = 0; i < cents.length; i++) {
+            out.writeVarLong(i == 0 ? cents[0] : cents[i - 1] - cents[i]);
+        }
+    }
+
+    static RankingPage readRankingPage(BinaryReader in) {
+        var partition = in.readVarInt();
+        var last = in.readByte() != 0;
+        var customerIds = readInts(in);
+
+        var cents = new long[customerIds.length];
+        for (var i = 0; i < cents.length; i++) {
+            cents[i] = i == 0 ? in.readVarLong() : cents[i - 1] - in.readVarLong();
+        }
+        return new RankingPage(partition, customerIds, cents, last);
+    }
+
+    /** Neighbour counts of a track are written instead of offsets. */
+    static void writeTrackNeighbours(BinaryWriter out, TrackNeighbours value) {
+        writeInts(out, value.getTrackIds());
+        writeInts(out, value.getPlaylists());
+        var offsets = value.getOffsets();
+        for (var i = 0; i < value.size(); i++) {
+            out.writeLength(offsets[i + 1] - offsets[i]);
+        }
+        writeInts(out, value.getNeighbourIds());
+        writeInts(out, value.getSharedPlaylists());
+    }
+
+    static TrackNeighbours readTrackNeighbours(BinaryReader in) {
+        var trackIds = readInts(in);
+        var playlists = readInts(in);
+        var offsets = new int[trackIds.length + 1];
+        for (var i = 0; i < trackIds.length; i++) {
+            offsets[i + 1] = offsets[i] + in.readLength();
+        }
+        var neighbourIds = readInts(in);
+        var sharedPlaylists = readInts(in);
+        return new TrackNeighbours(trackIds, playlists, offsets, neighbourIds, sharedPlaylists);
+    }
+
+    static void writeStrings(BinaryWriter out, String[] values) {
+        out.writeLength(values.length);
+        for (var value : values) {
+            out.writeString(value);
+        }
+    }
+
+    static String[] readStrings(BinaryReader in) {
+        var values = new String[in.readLength()];
+        for (var i = 0; i < values.length; i++) {
+            values[i] = in.readString();
+        }
+        return values;
+    }
+
+    static void writeInts(BinaryWriter out, int[] values) {
+        out.writeLength(values.length);
+        for (var value : values) {
+            out.writeVarInt(value);
+        }
+    }
+
+    static int[] readInts(BinaryReader in) {
+        var values = new int[in.readLength()];
+        for (var i = 0; i < values.length; i++) {
+            values[i] = in.readVarInt();
+        }
+        return values;
+    }
+
+    static void writeLongs(BinaryWriter out, long[] values) {
+        out.writeLength(values.length);
+        for (var value : values) {
+            out.writeVarLong(value);
+        }
+    }
+
+    static long[] readLongs(BinaryReader in) {
+        var values = new long[in.readLength()];
+        for (var i = 0; i < values.length; i++) {
+            values[i] = in.readVarLong();
+        }
+        return values;
+    }
+}
@@ -16,25 +16,12 @@
  */
 package training;
 
-import java.math.BigDecimal;
 import java.util.*;
-import java.util.concurrent.CompletableFuture;
-import java.util.stream.Collectors;
 
 import org.apache.ignite.client.IgniteClient;
-import org.apache.ignite.compute.ComputeJob;
-import org.apache.ignite.compute.JobDescriptor;
-import org.apache.ignite.compute.JobExecutionContext;
-import org.apache.ignite.compute.TaskDescriptor;
-import org.apache.ignite.compute.task.MapReduceJob;
-import org.apache.ignite.compute.task.MapReduceTask;
-import org.apache.ignite.compute.task.TaskExecutionContext;
 import org.apache.ignite.deployment.DeploymentUnit;
-import org.apache.ignite.marshalling.Marshaller;
-import org.apache.ignite.table.Tuple;
 import org.apache.ignite.Ignite;
-import org.apache.ignite.tx.Transaction;
-import training.model.CustomerPrice;
+import training.model.TaskTrace;
 import training.model.TopCustomer;
 
 /**
@@ -43,6 +30,14 @@ import training.model.TopCustomer;
  * results.
  *
  * Update the implementation of the compute task to return top-10 paying customers.
+ *
+ * Pass {@code SQL_PUSH_DOWN} as the first argument to aggregate inside the partition queries instead of in the jobs, or
+ * {@code ROLLUP} to read the precomputed totals of the CustomerRevenue table, or {@code SNAPSHOT} to aggregate the
+ * columnar partition copies cached on the nodes. Pass {@code true} as the second argument to read the customer records
+ * of the result through a near cache on the node running the task; they can then be up to a minute old.
+ *
+ * The task returns a {@link TaskTrace} with the time of each phase, which is printed after the customers. The nodes
+ * also keep the counters and timers of all executions in the {@code training:type=Metrics,name=compute} MBean.
  */
 public class ComputeApp {
 
@@ -51,148 +46,72 @@ public class ComputeApp {
                 .addresses("127.0.0.1:10800")
                 .build()
         ) {
-            calculateTopPayingCustomers(ignite);
+            var strategy = args.length > 0 ? AggregationStrategy.valueOf(args[0]) : AggregationStrategy.JAVA_MERGE;
+            var nearCache = args.length > 1 && Boolean.parseBoolean(args[1]);
 
-            // wait for metrics to flush to Control Center
-            Thread.sleep(5000L);
+            calculateTopPayingCustomers(ignite, strategy, nearCache);
         }
     }
 
-    private static final DeploymentUnit deploymentUnit = new DeploymentUnit("essentialsCompute", "1.0.0");
-
-    private static void calculateTopPayingCustomers(Ignite ignite) {
-        int customersCount = 5;
-
-        // cluster unit deploy -up apps.jar -uv 1.0 essentials-compute
-        var job = TaskDescriptor.builder(TopPayingCustomersTask.class)
-                .units(deploymentUnit)
-                .reduceJobResultMarshaller(ByteArrayMarshaller.create())
-                .build();
-        var results = ignite.compute().executeMapReduce(job, customersCount);
-        printTopPayingCustomers(List.of(results), customersCount);
-    }
+    static final DeploymentUnit deploymentUnit = new DeploymentUnit("essentialsCompute", "1.0.0");
 
     /**
-     * Task that is executed on every cluster node and calculates top-5 local paying customers stored on a node.
+     * Deployment units of the compute jobs. With {@code -Dtraining.classpathJobs=true} no unit is used and the nodes
+     * load the jobs from their own classpath, as the embedded cluster of {@link LoadDriver} does.
      */
-    private static class TopPayingCustomersTask implements MapReduceTask<Integer, Tuple, CustomerPrice[], TopCustomer[]> {
-
-        public TopPayingCustomersTask() {
-        }
-
-        private Integer customerCount;
+    static List<DeploymentUnit> deploymentUnits() {
+        return Boolean.getBoolean("training.classpathJobs") ? List.of() : List.of(deploymentUnit);
+    }
 
-        @Override
-        public Marshaller<TopCustomer[], byte[]> reduceJobResultMarshaller() {
-            return ByteArrayMarshaller.create();
-        }
+    private static void calculateTopPayingCustomers(Ignite ignite, AggregationStrategy strategy, boolean nearCache) {
+        int customersCount = 5;
 
-        @Override
-        public CompletableFuture<List<MapReduceJob<Tuple, CustomerPrice[]>>> splitAsync(TaskExecutionContext taskExecutionContext, Integer customersCount) {
-            this.customerCount = customersCount;
-            return taskExecutionContext.ignite().tables().table("InvoiceLine").partitionManager().primaryReplicasAsync()
-                    .thenApply(x -> x.entrySet().stream()
-                            .map(jobParameter ->
-                                    MapReduceJob.<Tuple,CustomerPrice[]>builder()
-                                            .nodes(List.of(jobParameter.getValue()))
-                                            .args(Tuple.create()
-                                                    // FIXME: don't use hashCode once API is finalised
-                                                    .set("partition",jobParameter.getKey().hashCode())
-                                                    .set("count", customersCount))
-                                            .jobDescriptor(
-                                                    JobDescriptor.builder(TopPayingCustomersJob.class)
-                                                            .units(deploymentUnit)
-                                                            .resultMarshaller(ByteArrayMarshaller.create())
-                                                            .build()
-                                            )
-                                            .build())
-                            .collect(Collectors.toList())
-                    );
+        var job = TopPayingCustomersTask.descriptor();
+        var results = ignite.compute().executeMapReduce(job,
+                TopPayingCustomersTask.input(customersCount, strategy, SplitMode.PER_PARTITION, nearCache));
+        printTopPayingCustomers(List.of(results.getCustomers()), customersCount);
+        System.out.println(nearCache
+                ? ">>> Customer records read through the near cache, up to "
+                        + TopPayingCustomersTask.CUSTOMER_CACHE_TTL.toSeconds() + "s old"
+                : ">>> Customer records read from the cluster");
+        if (strategy.countsInvoiceLines()) {
+            printPartitionSkew(results.getPartitionRowCounts());
         }
+        printTrace(results.getTrace());
+    }
 
-        private static class TopPayingCustomersJob implements ComputeJob<Tuple, CustomerPrice[]> {
-            // Verify results with: select customerid, sum(quantity * unitprice) as price from invoiceline group by customerid order by price desc limit 5
-            private static String sql = "select customerid, quantity * unitprice as price from invoiceline where \"__part\" = ?";
-
-            private int customerCount = 5;
-
-            @Override
-            public Marshaller<CustomerPrice[], byte[]> resultMarshaller() {
-                return ByteArrayMarshaller.create();
-            }
-
-            @Override
-            public CompletableFuture<CustomerPrice[]> executeAsync(JobExecutionContext jobExecutionContext, Tuple parameters) {
-                final HashMap<Integer, BigDecimal> customerPurchases = new HashMap<>();
+    private static void printTopPayingCustomers(List<TopCustomer> results, int customersCount) {
+        System.out.println(">>> Top " + customersCount + " Paying Listeners Across All Cluster Nodes");
 
-                customerCount = parameters.intValue("count");
+        for (var i : results) {
+            System.out.println(i);
+        }
+    }
 
-                try (var results = jobExecutionContext.ignite().sql().execute((Transaction) null, sql, parameters.intValue("partition"))) {
-                    while (results.hasNext()) {
-                        var row = results.next();
-                        customerPurchases.merge(row.intValue("customerId"), row.value("price"), BigDecimal::add);
-                    }
-                }
+    private static void printPartitionSkew(long[] rowCounts) {
+        var total = Arrays.stream(rowCounts).sum();
+        var average = (double) total / Math.max(1, rowCounts.length);
 
-                var r = new ArrayList<>(customerPurchases.entrySet());
-                r.sort(Map.Entry.comparingByValue());
-                Collections.reverse(r);
+        System.out.printf(">>> Invoice lines per partition: min=%d, avg=%.1f, max=%d%n",
+                Arrays.stream(rowCounts).min().orElse(0), average, Arrays.stream(rowCounts).max().orElse(0));
 
-                var results = new ArrayList<CustomerPrice>();
-                for (var p = 0; p < r.size() && p < customerCount; p++) {
-                    results.add(new CustomerPrice(r.get(p).getKey(), r.get(p).getValue()));
-                }
-                return CompletableFuture.completedFuture(results.toArray(new CustomerPrice[customerCount]));
+        for (var partition = 0; partition < rowCounts.length; partition++) {
+            if (rowCounts[partition] > 2 * average) {
+                System.out.println(">>> Skewed partition " + partition + ": " + rowCounts[partition] + " lines");
             }
         }
+    }
 
-        @Override
-        public CompletableFuture<TopCustomer[]> reduceAsync(TaskExecutionContext taskExecutionContext, Map<UUID, CustomerPrice[]> map) {
-            var orderedResults = new ArrayList<CustomerPrice>();
-            for (var result : map.values()) {
-                orderedResults.addAll(Arrays.stream(result).filter(Objects::nonNull).collect(Collectors.toCollection(LinkedList::new)));
-            }
-            orderedResults.sort(Comparator.comparing(CustomerPrice::getPrice));
-            Collections.reverse(orderedResults);
-
-            var customersCache = taskExecutionContext.ignite().tables().table("Customer").recordView();
-            var results = new ArrayList<TopCustomer>();
-            for (var p = 0; p < orderedResults.size() && p < customerCount; p++) {
-                var newRecord = Tuple.create();
-
-                var key = orderedResults.get(p).getCustomerId();
-
-                var customerRecord = customersCache.get(null, Tuple.create().set("customerId", key));
-
-                if (customerRecord != null) {
-                    newRecord.set("firstName",customerRecord.stringValue("firstName"))
-                            .set("lastName", customerRecord.stringValue("lastName"))
-                            .set("city", customerRecord.stringValue("city"))
-                            .set("country", customerRecord.stringValue("country"));
-                }
-                else {
-                    newRecord.set("firstName", "unknown")
-                            .set("lastName", "unknown")
-                            .set("city", "unknown")
-                            .set("country", "unknown");
-                }
-                newRecord.set("price", orderedResults.get(p).getPrice());
-
-                var val = new TopCustomer(key, orderedResults.get(p).getPrice());
-                val.setFullName(customerRecord.stringValue("firstName") + " " + customerRecord.stringValue("lastName"));
-                val.setCity(customerRecord.stringValue("city"));
-                val.setCountry(customerRecord.stringValue("country"));
-                results.add(val);
-            }
-            return CompletableFuture.completedFuture(results.toArray(new TopCustomer[customerCount]));
+    private static void printTrace(TaskTrace trace) {
+        if (trace == null) {
+            return;
         }
-    }
 
-    private static void printTopPayingCustomers(List<TopCustomer> results, int customersCount) {
-        System.out.println(">>> Top " + customersCount + " Paying Listeners Across All Cluster Nodes");
+        System.out.println(">>> " + trace);
 
-        for (var i : results) {
-            System.out.println(i);
+        var slowest = trace.getSlowestPartition();
+        if (slowest >= 0) {
+            System.out.printf(">>> Slowest partition %d: %.2fms%n", slowest, trace.getPartitionNanos()[slowest] / 1e6);
         }
     }
 }
@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import org.apache.ignite.client.IgniteClient;
+import training.model.CustomerPrice;
+
+/**
+ * Reads the customer ranking through a {@link CustomerRankingStream}, prints the first customers and reports the time
+ * to the first customer separately from the time to read the whole ranking. With a positive {@code limit} only that
+ * many customers are read, and the ranking is compared with the result of {@link TopPayingCustomersTask} for the same
+ * count.
+ *
+ * Arguments: {@code [limit] [pageSize] [strategy]}, by default 0 (the full ranking), 1000 and {@code JAVA_MERGE}.
+ */
+public class CustomerRankingApp {
+
+    public static void main(String[] args) {
+        var limit = args.length > 0 ? Long.parseLong(args[0]) : 0;
+        var pageSize = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        var strategy = args.length > 2 ? AggregationStrategy.valueOf(args[2]) : AggregationStrategy.JAVA_MERGE;
+
+        try (var ignite = IgniteClient.builder()
+                .addresses("127.0.0.1:10800")
+                .build()
+        ) {
+            var start = System.nanoTime();
+            try (var ranking = CustomerRankingStream.open(ignite, strategy, pageSize)) {
+                var customerIds = new int[(int) Math.min(limit, 1_000_000)];
+
+                System.out.println(">>> Customer Ranking" + (limit > 0 ? ", top " + limit : ""));
+                CustomerPrice previous = null;
+                while ((limit == 0 || ranking.rows() < limit) && ranking.hasNext()) {
+                    var customer = ranking.next();
+                    if (ranking.rows() <= 10) {
+                        System.out.println(ranking.rows() + ". " + customer);
+                    }
+                    if (previous != null && customer.getPrice().compareTo(previous.getPrice()) > 0) {
+                        throw new IllegalStateException("Ranking out of order at " + ranking.rows() + ": " + previous
+                                + " before " + customer);
+                    }
+                    if (ranking.rows() <= customerIds.length) {
+                        customerIds[(int) ranking.rows() - 1] = customer.getCustomerId();
+                    }
+                    previous = customer;
+                }
+                var total = System.nanoTime() - start;
+
+                System.out.printf(">>> %d customers from %d partitions in %d pages of up to %d%n", ranking.rows(),
+                        ranking.partitions(), ranking.pages(), pageSize);
+                System.out.printf(">>> First customer after %.2f ms, all after %.2f ms%n",
+                        ranking.firstResultNanos() / 1e6, total / 1e6);
+
+                if (limit > 0) {
+                    compareWithTask(ignite, customerIds, (int) Math.min(ranking.rows(), customerIds.length), strategy);
+                }
+            }
+        }
+    }
+
+    private static void compareWithTask(IgniteClient ignite, int[] customerIds, int count, AggregationStrategy strategy) {
+        var start = System.nanoTime();
+        var result = ignite.compute().executeMapReduce(TopPayingCustomersTask.descriptor(),
+                TopPayingCustomersTask.input(count, strategy));
+        var customers = result.getCustomers();
+
+        var mismatch = customers.length == count ? -1 : Math.min(count, customers.length);
+        for (var i = 0; i < Math.min(count, customers.length) && mismatch < 0; i++) {
+            if (customers[i].getCustomerId() != customerIds[i]) {
+                mismatch = i;
+            }
+        }
+
+        System.out.printf(">>> TopPayingCustomersTask for %d customers: %.2f ms, %s%n", count,
+                (System.nanoTime() - start) / 1e6, mismatch < 0 ? "same ranking" : "differs at " + (mismatch + 1));
+    }
+}
@@ -0,0 +1,432 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ignite.Ignite;
+import org.apache.ignite.compute.ComputeJob;
+import org.apache.ignite.compute.JobDescriptor;
+import org.apache.ignite.compute.JobExecutionContext;
+import org.apache.ignite.compute.JobTarget;
+import org.apache.ignite.marshalling.Marshaller;
+import org.apache.ignite.network.ClusterNode;
+import org.apache.ignite.sql.IgniteSql;
+import org.apache.ignite.table.Tuple;
+import training.model.CustomerPrice;
+import training.model.RankingPage;
+
+/**
+ * Customer ranking that is read incrementally, for a full ranking or a K too large for {@link TopPayingCustomersTask},
+ * whose jobs and reduce step hold all K customers at once. Every InvoiceLine partition is ranked on its primary node by
+ * a {@link RankingPageJob} that returns the ranking a page at a time, and the stream merges the heads of the
+ * partitions: InvoiceLine is colocated by CustomerId, so the totals of a partition are final and the largest head is
+ * the next customer of the global ranking. The client holds at most two pages per partition, the one being read and
+ * the next one, which is requested once half of the current one is read.
+ *
+ * A page is requested by keyset, the total and id of the last customer read from the partition, so it is correct on
+ * whichever node serves it. The node keeps the sorted ranking of a partition for {@link #RANKING_TTL} after the last
+ * request, so the following pages don't scan the partition again; a node that doesn't have it, for example because
+ * the primary replica moved, ranks the partition again. A reader that stops early should {@link #close} the stream,
+ * which releases the rankings of the partitions not read to the end; rankings of streams that are never closed are
+ * swept by a timer on the node once their TTL has passed.
+ *
+ * The stream is not a {@link ColocatedAggregationTask}: a map-reduce task reduces once, with the whole partial of every
+ * job, while the stream asks every partition for page after page as the reader advances, so it sends single jobs.
+ */
+public class CustomerRankingStream implements Iterator<CustomerPrice>, AutoCloseable {
+    /** How long a node keeps a partition's ranking after the last page was requested. */
+    static final Duration RANKING_TTL = Duration.ofMinutes(1);
+
+    /** Partition rankings of open streams by ranking id and partition, on the node serving the pages. */
+    private static final Map<String, PartitionRanking> RANKINGS = new ConcurrentHashMap<>();
+
+    /** Expires {@link #RANKINGS} while there are any; shut down when they are empty. Guarded by the class. */
+    private static ScheduledExecutorService sweeper;
+
+    private static final Comparator<PartitionCursor> LARGEST_HEAD_FIRST = (a, b) -> {
+        var cents = Long.compare(b.cents(), a.cents());
+        return cents != 0 ? cents : Integer.compare(a.customerId(), b.customerId());
+    };
+
+    private final Ignite ignite;
+
+    private final String rankingId = UUID.randomUUID().toString();
+
+    private final AggregationStrategy strategy;
+
+    private final int pageSize;
+
+    private final List<PartitionCursor> cursors = new ArrayList<>();
+
+    private final PriorityQueue<PartitionCursor> heads = new PriorityQueue<>(LARGEST_HEAD_FIRST);
+
+    private final long startNanos = System.nanoTime();
+
+    private boolean started;
+
+    private boolean closed;
+
+    private long firstResultNanos = -1;
+
+    private long rows;
+
+    private long pages;
+
+    private CustomerRankingStream(Ignite ignite, AggregationStrategy strategy, int pageSize) {
+        this.ignite = ignite;
+        this.strategy = strategy;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Requests the first page of every partition and returns without waiting for them.
+     *
+     * @param strategy How the jobs compute the totals of a partition.
+     * @param pageSize Customers per page.
+     */
+    public static CustomerRankingStream open(Ignite ignite, AggregationStrategy strategy, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive: " + pageSize);
+        }
+
+        var stream = new CustomerRankingStream(ignite, strategy, pageSize);
+        var replicas = ignite.tables().table("InvoiceLine").partitionManager().primaryReplicasAsync().join();
+        PartitionAssignment.allPartitions(replicas);
+
+        for (var replica : replicas.entrySet()) {
+            var cursor = stream.new PartitionCursor(PartitionAssignment.partitionId(replica.getKey()), replica.getValue());
+            cursor.prefetch();
+            stream.cursors.add(cursor);
+        }
+        return stream;
+    }
+
+    static JobDescriptor<Tuple, RankingPage> jobDescriptor() {
+        return JobDescriptor.builder(RankingPageJob.class)
+                .units(ComputeApp.deploymentUnits())
+                .resultMarshaller(CompactMarshaller.create())
+                .build();
+    }
+
+    /** Waits for the first page of every partition on the first call. */
+    @Override
+    public boolean hasNext() {
+        if (closed) {
+            return false;
+        }
+        if (!started) {
+            started = true;
+            for (var cursor : cursors) {
+                if (cursor.nextPage()) {
+                    heads.add(cursor);
+                }
+            }
+        }
+        return !heads.isEmpty();
+    }
+
+    @Override
+    public CustomerPrice next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        var head = heads.poll();
+        var customer = new CustomerPrice(head.customerId(),
+                BigDecimal.valueOf(head.cents(), CustomerRevenueAggregator.SCALE));
+        if (head.advance()) {
+            heads.add(head);
+        }
+
+        if (rows++ == 0) {
+            firstResultNanos = System.nanoTime() - startNanos;
+        }
+        return customer;
+    }
+
+    /**
+     * Releases the node-side rankings of the partitions that are not read to the end. Pages still being requested are
+     * awaited first, so they can't rank a partition again after its release. The stream is empty afterwards.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        heads.clear();
+
+        var releases = new ArrayList<CompletableFuture<?>>();
+        for (var cursor : cursors) {
+            releases.add(cursor.release());
+        }
+        CompletableFuture.allOf(releases.toArray(new CompletableFuture[0])).join();
+    }
+
+    /** Time from {@link #open} to the first customer, or -1 before it is read. */
+    public long firstResultNanos() {
+        return firstResultNanos;
+    }
+
+    /** Customers read so far. */
+    public long rows() {
+        return rows;
+    }
+
+    /** Pages received so far. */
+    public long pages() {
+        return pages;
+    }
+
+    public int partitions() {
+        return cursors.size();
+    }
+
+    /** The page being read from a partition and the request for the next one. */
+    private class PartitionCursor {
+        final int partition;
+
+        final ClusterNode node;
+
+        RankingPage page;
+
+        int index;
+
+        CompletableFuture<RankingPage> next;
+
+        PartitionCursor(int partition, ClusterNode node) {
+            this.partition = partition;
+            this.node = node;
+        }
+
+        long cents() {
+            return page.getCents()[index];
+        }
+
+        int customerId() {
+            return page.getCustomerIds()[index];
+        }
+
+        /** Requests the page after the current one, unless it is requested already or the partition has no more. */
+        void prefetch() {
+            if (next != null || (page != null && page.isLast())) {
+                return;
+            }
+
+            var arguments = Tuple.create()
+                    .set("rankingId", rankingId)
+                    .set("partition", partition)
+                    .set("strategy", strategy.name())
+                    .set("pageSize", pageSize);
+            if (page != null) {
+                var last = page.size() - 1;
+                arguments.set("afterCents", page.getCents()[last])
+                        .set("afterCustomerId", page.getCustomerIds()[last]);
+            }
+            next = ignite.compute().executeAsync(JobTarget.node(node), jobDescriptor(), arguments);
+        }
+
+        /** Moves to the next page, waiting for it if needed. Returns {@code false} when the partition is read. */
+        boolean nextPage() {
+            if (page != null && page.isLast()) {
+                return false;
+            }
+
+            prefetch();
+            page = next.join();
+            next = null;
+            index = 0;
+            pages++;
+
+            // Only the last page can be empty.
+            return page.size() > 0;
+        }
+
+        /**
+         * Waits for the requested page, if any, then asks the node to drop the ranking unless the partition was read
+         * to the end, which drops it already. Failures are ignored: the node's sweeper expires what isn't released.
+         */
+        CompletableFuture<?> release() {
+            var pending = next != null ? next.handle((result, e) -> result) : CompletableFuture.completedFuture(page);
+            return pending.thenCompose(last -> {
+                if (last != null && last.isLast()) {
+                    return CompletableFuture.completedFuture(null);
+                }
+                var arguments = Tuple.create()
+                        .set("rankingId", rankingId)
+                        .set("partition", partition)
+                        .set("release", true);
+                return ignite.compute().executeAsync(JobTarget.node(node), jobDescriptor(), arguments);
+            }).handle((r, e) -> null);
+        }
+
+        /** Moves past the head. Returns {@code false} when the partition is read. */
+        boolean advance() {
+            if (++index < page.size()) {
+                if (index >= page.size() / 2) {
+                    prefetch();
+                }
+                return true;
+            }
+            return nextPage();
+        }
+    }
+
+    /**
+     * Returns the page of a partition's ranking that follows {@code afterCents} and {@code afterCustomerId}, or the
+     * first page without them. The partition is ranked on the first request and kept for the following ones. With
+     * {@code release} the job drops the ranking instead and returns an empty last page.
+     */
+    public static class RankingPageJob implements ComputeJob<Tuple, RankingPage> {
+        @Override
+        public Marshaller<RankingPage, byte[]> resultMarshaller() {
+            return CompactMarshaller.create();
+        }
+
+        @Override
+        public CompletableFuture<RankingPage> executeAsync(JobExecutionContext jobExecutionContext, Tuple parameters) {
+            var start = System.nanoTime();
+            var partition = parameters.intValue("partition");
+            var key = parameters.stringValue("rankingId") + "/" + partition;
+
+            if (parameters.valueOrDefault("release", false)) {
+                if (RANKINGS.remove(key) != null) {
+                    Metrics.registry().increment("ranking.releases", 1);
+                }
+                return CompletableFuture.completedFuture(new RankingPage(partition, new int[0], new long[0], true));
+            }
+
+            var pageSize = parameters.intValue("pageSize");
+            Long afterCents = parameters.valueOrDefault("afterCents", null);
+
+            expireRankings(start);
+
+            var ranking = RANKINGS.get(key);
+            if (ranking == null) {
+                var strategy = AggregationStrategy.valueOf(parameters.stringValue("strategy"));
+                ranking = PartitionRanking.build(jobExecutionContext.ignite().sql(), partition, strategy);
+                RANKINGS.put(key, ranking);
+                startSweeper();
+                Metrics.registry().increment("ranking.partitionRankings", 1);
+            }
+            ranking.touchedNanos = System.nanoTime();
+
+            var from = afterCents == null ? 0 : ranking.indexAfter(afterCents, parameters.intValue("afterCustomerId"));
+            var page = ranking.page(partition, from, pageSize);
+            if (page.isLast()) {
+                RANKINGS.remove(key, ranking);
+            }
+
+            Metrics.registry().recordNanos("ranking.page", System.nanoTime() - start);
+            return CompletableFuture.completedFuture(page);
+        }
+
+    }
+
+    private static void expireRankings(long now) {
+        RANKINGS.values().removeIf(ranking -> now - ranking.touchedNanos > RANKING_TTL.toNanos());
+    }
+
+    /** Starts the sweeper unless it runs already. */
+    private static synchronized void startSweeper() {
+        if (sweeper != null) {
+            return;
+        }
+        sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            var thread = new Thread(r, "ranking-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleWithFixedDelay(CustomerRankingStream::sweep, RANKING_TTL.toNanos(), RANKING_TTL.toNanos(),
+                TimeUnit.NANOSECONDS);
+    }
+
+    /** Expires rankings, then stops the sweeper if none are left, so an idle node runs no thread for the stream. */
+    private static synchronized void sweep() {
+        expireRankings(System.nanoTime());
+        if (RANKINGS.isEmpty() && sweeper != null) {
+            sweeper.shutdown();
+            sweeper = null;
+        }
+    }
+
+    /** All customers of a partition, largest total first. */
+    private static class PartitionRanking {
+        final int[] customerIds;
+
+        final long[] cents;
+
+        volatile long touchedNanos;
+
+        PartitionRanking(int[] customerIds, long[] cents) {
+            this.customerIds = customerIds;
+            this.cents = cents;
+        }
+
+        static PartitionRanking build(IgniteSql sql, int partition, AggregationStrategy strategy) {
+            var aggregator = new CustomerRevenueAggregator(1024);
+            strategy.scan(sql, partition, Integer.MAX_VALUE, aggregator);
+
+            var totals = aggregator.totals();
+            var slots = TopKSelector.select(totals, totals.size());
+            var customerIds = new int[slots.length];
+            var cents = new long[slots.length];
+            for (var i = 0; i < slots.length; i++) {
+                customerIds[i] = totals.keyAt(slots[i]);
+                cents[i] = totals.valueAt(slots[i]);
+            }
+            return new PartitionRanking(customerIds, cents);
+        }
+
+        /** Index of the first customer ranked after the given one. */
+        int indexAfter(long afterCents, int afterCustomerId) {
+            var low = 0;
+            var high = cents.length;
+            while (low < high) {
+                var mid = (low + high) >>> 1;
+                if (cents[mid] < afterCents || (cents[mid] == afterCents && customerIds[mid] > afterCustomerId)) {
+                    high = mid;
+                } else {
+                    low = mid + 1;
+                }
+            }
+            return low;
+        }
+
+        RankingPage page(int partition, int from, int size) {
+            var to = (int) Math.min(cents.length, (long) from + size);
+            return new RankingPage(partition, Arrays.copyOfRange(customerIds, from, to),
+                    Arrays.copyOfRange(cents, from, to), to == cents.length);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import java.math.BigDecimal;
+import training.model.CustomerPrice;
+
+/**
+ * Sums invoice line amounts per customer. Amounts are kept as fixed-point cents in a primitive map, matching the
+ * {@code DECIMAL(10,2)} prices of the media store, so adding a row doesn't allocate. Objects are only created for the
+ * K customers returned by {@link #top(int)}.
+ */
+public class CustomerRevenueAggregator {
+    /** Scale of the {@code UnitPrice} column. */
+    public static final int SCALE = 2;
+
+    private final IntLongHashMap totals;
+
+    private long rows;
+
+    public CustomerRevenueAggregator(int expectedCustomers) {
+        totals = new IntLongHashMap(expectedCustomers);
+    }
+
+    public void add(int customerId, long cents) {
+        totals.addTo(customerId, cents);
+        rows++;
+    }
+
+    /** Adds the totals and row count of {@code other} to this aggregator. */
+    public void mergeFrom(CustomerRevenueAggregator other) {
+        var otherTotals = other.totals;
+        for (var slot = 0; slot < otherTotals.capacity(); slot++) {
+            if (otherTotals.isUsed(slot)) {
+                totals.addTo(otherTotals.keyAt(slot), otherTotals.valueAt(slot));
+            }
+        }
+        rows += other.rows;
+    }
+
+    /** Total cents per customer id. */
+    IntLongHashMap totals() {
+        return totals;
+    }
+
+    /** Number of rows added so far. */
+    public long rows() {
+        return rows;
+    }
+
+    /** Number of distinct customers seen so far. */
+    public int customers() {
+        return totals.size();
+    }
+
+    /**
+     * Returns up to {@code k} customers with the largest totals, largest first. The array is never padded with
+     * {@code null}s: it is shorter than {@code k} when fewer customers were seen.
+     */
+    public CustomerPrice[] top(int k) {
+        var slots = TopKSelector.select(totals, k);
+
+        var result = new CustomerPrice[slots.length];
+        for (var i = 0; i < slots.length; i++) {
+            result[i] = new CustomerPrice(totals.keyAt(slots[i]), BigDecimal.valueOf(totals.valueAt(slots[i]), SCALE));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.ignite.client.IgniteClient;
+import training.model.InvoiceLine;
+import training.model.InvoiceLineKey;
+
+/**
+ * Simulates dashboard callers that keep asking for the top 1 to 10 paying customers through a
+ * {@link TopCustomersQueryService}, optionally while invoice lines are written, and prints how many requests reached
+ * the cluster.
+ *
+ * Arguments: {@code [callers] [seconds] [ttlMillis] [writesPerSecond]}, by default 32, 30, 5000 and 0. Lines written
+ * with an {@link InvoiceLineWriter} advance the {@link InvoiceLineVersions} and so invalidate the cached results.
+ */
+public class DashboardApp {
+
+    public static void main(String[] args) throws Exception {
+        var callers = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+        var seconds = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+        var ttl = Duration.ofMillis(args.length > 2 ? Long.parseLong(args[2]) : 5000);
+        var writesPerSecond = args.length > 3 ? Integer.parseInt(args[3]) : 0;
+
+        try (var ignite = IgniteClient.builder()
+                .addresses("127.0.0.1:10800")
+                .build()
+        ) {
+            var writer = new InvoiceLineWriter(ignite);
+            var service = new TopCustomersQueryService(ignite, ttl, 64);
+            var end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+            var latency = new LatencyHistogram();
+
+            var threads = new ArrayList<Thread>();
+            for (var c = 0; c < callers; c++) {
+                var random = new SplittableRandom(c);
+                threads.add(new Thread(() -> {
+                    while (System.nanoTime() < end) {
+                        var start = System.nanoTime();
+                        service.topCustomers(1 + random.nextInt(10), AggregationStrategy.JAVA_MERGE).join();
+                        latency.record(System.nanoTime() - start);
+
+                        sleep(random.nextInt(200));
+                    }
+                }));
+            }
+            if (writesPerSecond > 0) {
+                threads.add(new Thread(() -> writeLines(ignite, writer, writesPerSecond, end)));
+            }
+
+            threads.forEach(Thread::start);
+            for (var thread : threads) {
+                thread.join();
+            }
+
+            System.out.printf(">>> %d requests, %d tasks: %s%n", latency.count(), service.misses(), service);
+            System.out.printf(">>> Latency ms: p50=%.2f, p99=%.2f, max=%.2f%n", latency.percentile(50) / 1e6,
+                    latency.percentile(99) / 1e6, latency.max() / 1e6);
+        }
+    }
+
+    /** Adds one invoice line of a random customer at a time, {@code perSecond} times a second. */
+    private static void writeLines(IgniteClient ignite, InvoiceLineWriter writer, int perSecond, long end) {
+        int nextLineId;
+        int customers;
+        try (var result = ignite.sql().execute(null,
+                "select max(InvoiceLineId), (select max(CustomerId) from Customer) from InvoiceLine")) {
+            var row = result.next();
+            nextLineId = row.intValue(0) + 1;
+            customers = row.intValue(1);
+        }
+
+        var random = new SplittableRandom();
+        var interval = Math.max(1, TimeUnit.SECONDS.toNanos(1) / perSecond);
+        // Writes are scheduled at fixed times, so rates above one per millisecond and slow writes don't lower the rate.
+        for (var scheduled = System.nanoTime(); scheduled < end; scheduled += interval) {
+            LockSupport.parkNanos(scheduled - System.nanoTime());
+            writer.write(Map.of(new InvoiceLineKey(nextLineId++, 1 + random.nextInt(customers)),
+                    new InvoiceLine(1, 1, new BigDecimal("0.99"), 1)));
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
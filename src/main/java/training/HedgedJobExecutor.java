@@ -0,0 +1,231 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.apache.ignite.compute.IgniteCompute;
+import org.apache.ignite.compute.JobDescriptor;
+import org.apache.ignite.compute.JobTarget;
+import org.apache.ignite.lang.CancelHandle;
+import org.apache.ignite.network.ClusterNode;
+
+/**
+ * Runs compute jobs with a deadline and, optionally, a hedge. A job goes to its primary node first; if it hasn't
+ * finished after the {@code hedgePercentile} of the job latencies seen so far, or if it fails, a duplicate is started
+ * on the backup node. The first result wins and the other execution is cancelled. A job that has no result by the
+ * deadline fails with a {@link TimeoutException} and both executions are cancelled.
+ *
+ * Until {@value #MIN_SAMPLES} latencies are recorded the hedge is sent after {@code initialHedgeDelay}. A
+ * {@code hedgePercentile} of 0 disables hedging, which leaves the deadline only. Executions that are cancelled, the
+ * losers of a hedge and the executions of a job past its deadline, record how long they ran until then. That is a lower
+ * bound of their latency, but leaving them out would keep the slowest executions out of the percentile and hedge later
+ * than intended.
+ */
+public class HedgedJobExecutor {
+    /** Job latencies recorded before the percentile replaces the initial hedge delay. */
+    static final int MIN_SAMPLES = 20;
+
+    private final IgniteCompute compute;
+
+    private final long deadlineNanos;
+
+    private final double hedgePercentile;
+
+    private final long initialHedgeDelayNanos;
+
+    private final LatencyHistogram latencies = new LatencyHistogram();
+
+    private final AtomicLong executions = new AtomicLong();
+
+    private final AtomicLong hedges = new AtomicLong();
+
+    private final AtomicLong hedgeWins = new AtomicLong();
+
+    private final AtomicLong timeouts = new AtomicLong();
+
+    public HedgedJobExecutor(IgniteCompute compute, Duration deadline, double hedgePercentile,
+            Duration initialHedgeDelay) {
+        this.compute = compute;
+        this.deadlineNanos = deadline.toNanos();
+        this.hedgePercentile = hedgePercentile;
+        this.initialHedgeDelayNanos = initialHedgeDelay.toNanos();
+    }
+
+    /**
+     * Runs {@code job} on {@code primary} and, when hedging, on {@code backup}.
+     *
+     * @param argument Job argument for the node the execution is sent to.
+     * @param backup Node for the duplicate, or {@code null} not to hedge this job.
+     */
+    public <T, R> CompletableFuture<R> execute(JobDescriptor<T, R> job, Function<ClusterNode, T> argument,
+            ClusterNode primary, ClusterNode backup) {
+        executions.incrementAndGet();
+
+        var execution = new Execution<>(job, argument,
+                hedgePercentile > 0 && backup != null && !backup.name().equals(primary.name()) ? backup : null);
+        execution.start(primary, false);
+
+        if (execution.backup != null) {
+            CompletableFuture.delayedExecutor(hedgeDelayNanos(), TimeUnit.NANOSECONDS)
+                    .execute(execution::startHedge);
+        }
+
+        return execution.result
+                .orTimeout(deadlineNanos, TimeUnit.NANOSECONDS)
+                .whenComplete((result, error) -> {
+                    if (error instanceof TimeoutException) {
+                        timeouts.incrementAndGet();
+                    }
+                    execution.cancelAll();
+                });
+    }
+
+    /** How long a job runs before it is hedged. */
+    public long hedgeDelayNanos() {
+        return latencies.count() < MIN_SAMPLES ? initialHedgeDelayNanos : latencies.percentile(hedgePercentile);
+    }
+
+    public long executions() {
+        return executions.get();
+    }
+
+    /** Duplicates started. */
+    public long hedges() {
+        return hedges.get();
+    }
+
+    /** Jobs whose result came from the duplicate. */
+    public long hedgeWins() {
+        return hedgeWins.get();
+    }
+
+    public long timeouts() {
+        return timeouts.get();
+    }
+
+    @Override
+    public String toString() {
+        return "HedgedJobExecutor{" +
+                "executions=" + executions +
+                ", hedges=" + hedges +
+                ", hedgeWins=" + hedgeWins +
+                ", timeouts=" + timeouts +
+                ", hedgeDelayMillis=" + hedgeDelayNanos() / 1_000_000 +
+                '}';
+    }
+
+    /** The executions of one job. Guarded by {@code this}. */
+    private class Execution<T, R> {
+        final CompletableFuture<R> result = new CompletableFuture<>();
+
+        final JobDescriptor<T, R> job;
+
+        final Function<ClusterNode, T> argument;
+
+        final ClusterNode backup;
+
+        final List<CancelHandle> running = new ArrayList<>(2);
+
+        boolean hedged;
+
+        /** Executions that haven't failed yet. */
+        int pending;
+
+        boolean cancelled;
+
+        Execution(JobDescriptor<T, R> job, Function<ClusterNode, T> argument, ClusterNode backup) {
+            this.job = job;
+            this.argument = argument;
+            this.backup = backup;
+        }
+
+        void start(ClusterNode node, boolean hedge) {
+            var cancel = CancelHandle.create();
+            synchronized (this) {
+                running.add(cancel);
+                pending++;
+            }
+
+            var start = System.nanoTime();
+            compute.executeAsync(JobTarget.node(node), job, argument.apply(node), cancel.token())
+                    .whenComplete((value, error) -> {
+                        if (error == null) {
+                            latencies.record(System.nanoTime() - start);
+                            if (result.complete(value) && hedge) {
+                                hedgeWins.incrementAndGet();
+                            }
+                        } else if (isCancelled()) {
+                            latencies.record(System.nanoTime() - start);
+                        } else {
+                            failed(error);
+                        }
+                    });
+        }
+
+        void startHedge() {
+            synchronized (this) {
+                if (hedged || result.isDone()) {
+                    return;
+                }
+                hedged = true;
+            }
+
+            hedges.incrementAndGet();
+            start(backup, true);
+        }
+
+        void failed(Throwable error) {
+            boolean retry;
+            synchronized (this) {
+                pending--;
+                retry = backup != null && !hedged;
+                if (!retry && pending > 0) {
+                    return;
+                }
+            }
+
+            if (retry) {
+                startHedge();
+            } else {
+                result.completeExceptionally(error);
+            }
+        }
+
+        synchronized boolean isCancelled() {
+            return cancelled;
+        }
+
+        void cancelAll() {
+            List<CancelHandle> handles;
+            synchronized (this) {
+                cancelled = true;
+                handles = new ArrayList<>(running);
+            }
+            for (var handle : handles) {
+                handle.cancelAsync();
+            }
+        }
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.ignite.Ignite;
+import org.apache.ignite.compute.JobExecutionContext;
+import org.apache.ignite.network.ClusterNode;
+import org.apache.ignite.table.Tuple;
+import org.apache.ignite.table.partition.Partition;
+import training.model.CustomerPrice;
+import training.model.PartitionResult;
+import training.model.TopCustomer;
+import training.model.TopCustomersResult;
+
+/**
+ * Client-side version of {@link TopPayingCustomersTask} that sends the partition jobs through a
+ * {@link HedgedJobExecutor}. A map-reduce task can neither duplicate nor cancel single jobs, so one slow node holds up
+ * its reduce step; here a slow partition job is hedged on another node and the merge runs as soon as every partition
+ * has one result.
+ *
+ * The public API exposes primary replicas only, so the duplicate is hedged on any other node: the next node by name
+ * after the primary, which may or may not hold a replica of the partition. Where it holds a backup replica, the
+ * read-only partition query can be served locally; elsewhere the query reads the partition over the network, possibly
+ * from the slow primary itself, and the hedge gains nothing.
+ */
+public class HedgedTopPayingCustomers {
+    private final Ignite ignite;
+
+    private final HedgedJobExecutor executor;
+
+    private String slowNode;
+
+    private int slowDelayMillis;
+
+    private double slowProbability;
+
+    private boolean slowRemoteReads;
+
+    private final SplittableRandom random = new SplittableRandom(1);
+
+    public HedgedTopPayingCustomers(Ignite ignite, HedgedJobExecutor executor) {
+        this.ignite = ignite;
+        this.executor = executor;
+    }
+
+    /**
+     * Simulates a node that is slow or pausing for garbage collection: with the given probability per partition, the
+     * jobs for the partition that run on {@code node} pause for {@code delayMillis} before scanning. With
+     * {@code remoteReads} the duplicate of a job whose primary is {@code node} pauses as well, like a duplicate on a
+     * node without a replica that has to read the partition from the paused primary. The jobs then run as
+     * {@link SlowTopPayingCustomersJob}, so the pause stays out of the job the task uses.
+     */
+    public HedgedTopPayingCustomers withSlowNode(String node, int delayMillis, double probability,
+            boolean remoteReads) {
+        this.slowNode = node;
+        this.slowDelayMillis = delayMillis;
+        this.slowProbability = probability;
+        this.slowRemoteReads = remoteReads;
+        return this;
+    }
+
+    public CompletableFuture<TopCustomersResult> execute(int count, AggregationStrategy strategy) {
+        return ignite.tables().table("InvoiceLine").partitionManager().primaryReplicasAsync()
+                .thenCompose(replicas -> execute(replicas, count, strategy));
+    }
+
+    private CompletableFuture<TopCustomersResult> execute(Map<Partition, ClusterNode> replicas, int count,
+            AggregationStrategy strategy) {
+        var nodes = new ArrayList<>(ignite.clusterNodes());
+        nodes.sort(Comparator.comparing(ClusterNode::name));
+
+        var job = slowNode == null ? TopPayingCustomersTask.jobDescriptor()
+                : ColocatedAggregationTask.jobDescriptor(SlowTopPayingCustomersJob.class,
+                        CompactMarshaller.<PartitionResult<CustomerPrice[]>>create());
+
+        var futures = new ArrayList<CompletableFuture<PartitionResult<CustomerPrice[]>>>();
+        for (var assignment : SplitMode.PER_PARTITION.assign(replicas)) {
+            var arguments = TopPayingCustomersTask.jobArguments(assignment, count, strategy);
+            var primary = assignment.getNode();
+            var paused = paused();
+            futures.add(executor.execute(job,
+                    node -> paused && readsFromSlowNode(node, primary) ? slowed(arguments) : arguments,
+                    primary, next(nodes, primary)));
+        }
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).thenCompose(ignored -> {
+            var results = new ArrayList<PartitionResult<CustomerPrice[]>>(futures.size());
+            var partials = new ArrayList<CustomerPrice[]>(futures.size());
+            for (var future : futures) {
+                results.add(future.join());
+                partials.add(future.join().getPartial());
+            }
+
+            var rowCounts = ColocatedAggregationTask.checkCoverage(PartitionAssignment.allPartitions(replicas), results);
+            var topCustomers = TopPayingCustomersTask.mergeTopCustomers(partials, count);
+
+            var keys = new ArrayList<Tuple>(topCustomers.size());
+            for (var customer : topCustomers) {
+                keys.add(Tuple.create().set("customerId", customer.getCustomerId()));
+            }
+
+            return ignite.tables().table("Customer").recordView().getAllAsync(null, keys).thenApply(records -> {
+                var customers = new TopCustomer[topCustomers.size()];
+                for (var i = 0; i < customers.length; i++) {
+                    customers[i] = TopPayingCustomersTask.toTopCustomer(topCustomers.get(i), records.get(i));
+                }
+                return new TopCustomersResult(customers, rowCounts, null);
+            });
+        });
+    }
+
+    /** Whether the slow node pauses while a job runs, drawn once per job since the pause holds up both executions. */
+    private boolean paused() {
+        if (slowNode == null) {
+            return false;
+        }
+        synchronized (random) {
+            return random.nextDouble() < slowProbability;
+        }
+    }
+
+    private boolean readsFromSlowNode(ClusterNode node, ClusterNode primary) {
+        return node.name().equals(slowNode) || slowRemoteReads && primary.name().equals(slowNode);
+    }
+
+    private Tuple slowed(Tuple arguments) {
+        var slowed = Tuple.create();
+        for (var i = 0; i < arguments.columnCount(); i++) {
+            slowed.set(arguments.columnName(i), arguments.value(i));
+        }
+        return slowed.set("delayMillis", slowDelayMillis);
+    }
+
+    /**
+     * Top paying customers job that first pauses for its optional {@code delayMillis} argument, to simulate a slow
+     * node.
+     */
+    public static class SlowTopPayingCustomersJob extends TopPayingCustomersTask.TopPayingCustomersJob {
+        @Override
+        public CompletableFuture<PartitionResult<CustomerPrice[]>> executeAsync(
+                JobExecutionContext jobExecutionContext, Tuple parameters) {
+            pause(jobExecutionContext, parameters.valueOrDefault("delayMillis", 0));
+            return super.executeAsync(jobExecutionContext, parameters);
+        }
+
+        /** Sleeps for {@code delayMillis} unless the job is cancelled meanwhile. */
+        private static void pause(JobExecutionContext context, int delayMillis) {
+            var deadline = System.nanoTime() + delayMillis * 1_000_000L;
+            while (System.nanoTime() < deadline) {
+                if (context.isCancelled()) {
+                    throw new CancellationException("Job cancelled while paused");
+                }
+                try {
+                    Thread.sleep(Math.min(10, Math.max(1, (deadline - System.nanoTime()) / 1_000_000)));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new CancellationException("Job interrupted while paused");
+                }
+            }
+        }
+    }
+
+    /** The node after {@code node} in name order, or {@code null} if there is no other node. */
+    private static ClusterNode next(List<ClusterNode> nodes, ClusterNode node) {
+        for (var i = 0; i < nodes.size(); i++) {
+            if (nodes.get(i).name().equals(node.name())) {
+                var next = nodes.get((i + 1) % nodes.size());
+                return next.name().equals(node.name()) ? null : next;
+            }
+        }
+        return nodes.isEmpty() ? null : nodes.get(0);
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+
+import org.apache.ignite.Ignite;
+import org.apache.ignite.client.IgniteClient;
+import org.apache.ignite.network.ClusterNode;
+
+/**
+ * Measures the tail latency of the top paying customers query when one node is slow: the jobs sent to the first node
+ * by name pause with the given probability. The query runs through {@link HedgedTopPayingCustomers} without hedging,
+ * which waits for every paused job like the map-reduce task does, and with hedging at the given percentile twice: once
+ * with duplicates that read a local replica, so only executions on the slow node pause, and once with duplicates that
+ * read from the slow primary and pause too. The hedged duplicate goes to any other node, so the real latency lies
+ * between the two.
+ *
+ * Arguments: {@code [iterations] [delayMillis] [slowProbability] [hedgePercentile] [deadlineMillis]}, by default 200,
+ * 500, 0.1, 95 and 10000.
+ */
+public class HedgingBenchmark {
+    private static final int CUSTOMERS = 5;
+
+    public static void main(String[] args) {
+        var iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        var delayMillis = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        var slowProbability = args.length > 2 ? Double.parseDouble(args[2]) : 0.1;
+        var hedgePercentile = args.length > 3 ? Double.parseDouble(args[3]) : 95;
+        var deadline = Duration.ofMillis(args.length > 4 ? Long.parseLong(args[4]) : 10_000);
+
+        try (var ignite = IgniteClient.builder()
+                .addresses("127.0.0.1:10800")
+                .build()
+        ) {
+            var slowNode = ignite.clusterNodes().stream().map(ClusterNode::name).min(Comparator.naturalOrder())
+                    .orElseThrow();
+            System.out.printf(">>> Jobs on %s pause %d ms with probability %.2f%n", slowNode, delayMillis,
+                    slowProbability);
+            System.out.printf("%-22s %10s %10s %10s %10s %8s %10s %9s%n", "mode", "p50 ms", "p90 ms", "p99 ms",
+                    "max ms", "hedges", "hedge wins", "timeouts");
+
+            run(ignite, "primary only", new HedgedJobExecutor(ignite.compute(), deadline, 0, Duration.ZERO),
+                    slowNode, delayMillis, slowProbability, false, iterations);
+            for (var remoteReads : new boolean[] {false, true}) {
+                run(ignite, "hedged p" + hedgePercentile + (remoteReads ? " remote" : " local"),
+                        new HedgedJobExecutor(ignite.compute(), deadline, hedgePercentile, Duration.ofMillis(50)),
+                        slowNode, delayMillis, slowProbability, remoteReads, iterations);
+            }
+        }
+    }
+
+    private static void run(Ignite ignite, String mode, HedgedJobExecutor executor, String slowNode, int delayMillis,
+            double slowProbability, boolean remoteReads, int iterations) {
+        var query = new HedgedTopPayingCustomers(ignite, executor)
+                .withSlowNode(slowNode, delayMillis, slowProbability, remoteReads);
+
+        // Warm-up without the slow node, which also gives the executor the latencies its percentile needs.
+        var warmUp = new HedgedTopPayingCustomers(ignite, executor);
+        for (var i = 0; i < 20; i++) {
+            warmUp.execute(CUSTOMERS, AggregationStrategy.JAVA_MERGE).join();
+        }
+
+        var latencies = new LatencyHistogram();
+        var failures = new ArrayList<String>();
+        var hedges = executor.hedges();
+        var hedgeWins = executor.hedgeWins();
+        for (var i = 0; i < iterations; i++) {
+            var start = System.nanoTime();
+            try {
+                query.execute(CUSTOMERS, AggregationStrategy.JAVA_MERGE).join();
+                latencies.record(System.nanoTime() - start);
+            } catch (RuntimeException e) {
+                failures.add(String.valueOf(e.getCause()));
+            }
+        }
+
+        System.out.printf("%-22s %10.2f %10.2f %10.2f %10.2f %8d %10d %9d%n", mode, latencies.percentile(50) / 1e6,
+                latencies.percentile(90) / 1e6, latencies.percentile(99) / 1e6, latencies.max() / 1e6,
+                executor.hedges() - hedges, executor.hedgeWins() - hedgeWins, executor.timeouts());
+        if (!failures.isEmpty()) {
+            System.out.println("!!! " + failures.size() + " queries failed, first: " + failures.get(0));
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.ReflectionException;
+
+/**
+ * Registry that keeps counters as {@link LongAdder}s and timers as {@link LatencyHistogram}s. It is also a dynamic
+ * MBean: every counter is a {@code long} attribute and every timer has {@code <name>.count}, {@code <name>.meanMicros},
+ * {@code <name>.p50Micros}, {@code <name>.p99Micros} and {@code <name>.maxMicros} attributes. Metrics appear in JMX
+ * the first time they are recorded.
+ */
+public class InMemoryMetricsRegistry implements MetricsRegistry, DynamicMBean {
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+
+    private final Map<String, LatencyHistogram> timers = new ConcurrentHashMap<>();
+
+    private static final String[] TIMER_ATTRIBUTES = {".count", ".meanMicros", ".p50Micros", ".p99Micros", ".maxMicros"};
+
+    @Override
+    public void increment(String name, long delta) {
+        counters.computeIfAbsent(name, n -> new LongAdder()).add(delta);
+    }
+
+    @Override
+    public void recordNanos(String name, long nanos) {
+        timers.computeIfAbsent(name, n -> new LatencyHistogram()).record(nanos);
+    }
+
+    /** Returns the value of a counter, 0 if it was never incremented. */
+    public long counter(String name) {
+        var counter = counters.get(name);
+        return counter == null ? 0 : counter.sum();
+    }
+
+    /** Returns a timer, or {@code null} if it was never recorded. */
+    public LatencyHistogram timer(String name) {
+        return timers.get(name);
+    }
+
+    /** Current values of all attributes, sorted by name. */
+    public Map<String, Number> snapshot() {
+        var values = new TreeMap<String, Number>();
+        for (var entry : counters.entrySet()) {
+            values.put(entry.getKey(), entry.getValue().sum());
+        }
+        for (var entry : timers.entrySet()) {
+            for (var suffix : TIMER_ATTRIBUTES) {
+                values.put(entry.getKey() + suffix, timerValue(entry.getValue(), suffix));
+            }
+        }
+        return values;
+    }
+
+    /** Current value of one attribute, or {@code null} if there is no such attribute. */
+    private Number value(String attribute) {
+        var counter = counters.get(attribute);
+        if (counter != null) {
+            return counter.sum();
+        }
+
+        var dot = attribute.lastIndexOf('.');
+        var timer = dot < 0 ? null : timers.get(attribute.substring(0, dot));
+        return timer == null ? null : timerValue(timer, attribute.substring(dot));
+    }
+
+    private static Number timerValue(LatencyHistogram timer, String suffix) {
+        switch (suffix) {
+            case ".count":
+                return timer.count();
+            case ".meanMicros":
+                return timer.mean() / 1_000;
+            case ".p50Micros":
+                return timer.percentile(50) / 1_000.0;
+            case ".p99Micros":
+                return timer.percentile(99) / 1_000.0;
+            case ".maxMicros":
+                return timer.max() / 1_000.0;
+            default:
+                return null;
+        }
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        var value = value(attribute);
+        if (value == null) {
+            throw new AttributeNotFoundException(attribute);
+        }
+        return value;
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        var list = new AttributeList();
+        for (var attribute : attributes) {
+            var value = value(attribute);
+            if (value != null) {
+                list.add(new Attribute(attribute, value));
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("Metrics are read-only: " + attribute.getName());
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+        throw new ReflectionException(new NoSuchMethodException(actionName), "Metrics have no operations");
+    }
+
+    /** Lists the attributes by name only; their values are read when a client asks for them. */
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        var attributes = new ArrayList<MBeanAttributeInfo>();
+        for (var name : new TreeSet<>(counters.keySet())) {
+            attributes.add(attributeInfo(name, Long.class));
+        }
+        for (var name : new TreeSet<>(timers.keySet())) {
+            for (var suffix : TIMER_ATTRIBUTES) {
+                attributes.add(attributeInfo(name + suffix, suffix.equals(".count") ? Long.class : Double.class));
+            }
+        }
+        return new MBeanInfo(getClass().getName(), "Counters and timers of the compute tasks",
+                attributes.toArray(new MBeanAttributeInfo[0]), null, new MBeanOperationInfo[0], null);
+    }
+
+    private static MBeanAttributeInfo attributeInfo(String name, Class<?> type) {
+        return new MBeanAttributeInfo(name, type.getName(), name, true, false, false);
+    }
+
+    @Override
+    public String toString() {
+        var out = new StringBuilder();
+        for (var entry : snapshot().entrySet()) {
+            out.append(entry.getKey()).append('=').append(entry.getValue()).append(System.lineSeparator());
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import org.apache.ignite.Ignite;
+import org.apache.ignite.client.IgniteClient;
+import org.apache.ignite.table.Tuple;
+import training.model.InvoiceLine;
+import training.model.InvoiceLineKey;
+
+/**
+ * Compares the throughput of writing new invoice lines one {@code put} at a time, in partition-grouped batches with
+ * {@link InvoiceLineIngestor}, and as invoices written with their lines and rollup totals in one transaction each. The
+ * lines get ids above the existing ones and belong to random existing customers. The first two modes put every line on
+ * invoice 1, whatever its customer, and single puts bypass the CustomerRevenue rollup, so the benchmark ends with a
+ * {@link RollupReconciliationTask} run that brings the rollup up to date and then removes all the lines and invoices
+ * it wrote through {@link InvoiceLineWriter}, which leaves the tables as they were, also when a mode fails.
+ *
+ * Arguments: {@code [lines] [batchSize] [maxInFlight] [linesPerInvoice]}, by default 100000, 1000, 16 and 5. Single
+ * puts are measured on at most 10000 lines.
+ */
+public class IngestBenchmark {
+    private static final int MAX_SINGLE_PUTS = 10_000;
+
+    public static void main(String[] args) {
+        var lineCount = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        var batchSize = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        var maxInFlight = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+        var linesPerInvoice = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+
+        try (var ignite = IgniteClient.builder()
+                .addresses("127.0.0.1:10800")
+                .build()
+        ) {
+            var ids = new Ids(ignite);
+            var firstLineId = ids.nextLineId;
+            var firstInvoiceId = ids.nextInvoiceId;
+            try {
+                run(ignite, ids, lineCount, batchSize, maxInFlight, linesPerInvoice);
+            } finally {
+                System.out.println(">>> Reconciliation: " + ignite.compute().executeMapReduce(
+                        RollupReconciliationTask.descriptor(), Tuple.create()));
+                removeWritten(ignite, firstLineId, firstInvoiceId, batchSize);
+            }
+        }
+    }
+
+    private static void run(Ignite ignite, Ids ids, int lineCount, int batchSize, int maxInFlight,
+            int linesPerInvoice) {
+        var random = new SplittableRandom(19);
+
+        var singlePuts = Math.min(lineCount, MAX_SINGLE_PUTS);
+        var view = ignite.tables().table("InvoiceLine").keyValueView(InvoiceLineKey.class, InvoiceLine.class);
+        var singleLines = lines(ids, singlePuts, random);
+        var start = System.nanoTime();
+        while (singleLines.hasNext()) {
+            var line = singleLines.next();
+            view.put(null, line.getKey(), line.getValue());
+        }
+        printThroughput("Single put", singlePuts, System.nanoTime() - start, "lines");
+
+        var ingestor = new InvoiceLineIngestor(ignite, batchSize, maxInFlight);
+        start = System.nanoTime();
+        var written = ingestor.ingest(lines(ids, lineCount, random));
+        printThroughput("Batches per partition", written, System.nanoTime() - start, "lines");
+        System.out.printf(">>> %d batches of up to %d lines, %d in flight%n", ingestor.batches(), batchSize,
+                maxInFlight);
+
+        var invoiceCount = Math.max(1, lineCount / linesPerInvoice);
+        start = System.nanoTime();
+        var invoices = ingestor.ingestInvoices(invoices(ids, invoiceCount, linesPerInvoice, random));
+        var nanos = System.nanoTime() - start;
+        printThroughput("Invoice transactions", invoices * linesPerInvoice, nanos, "lines");
+        printThroughput("Invoice transactions", invoices, nanos, "invoices");
+    }
+
+    /**
+     * Removes the lines with ids from {@code firstLineId} on, {@code batchSize} per transaction, and the invoices with
+     * ids from {@code firstInvoiceId} on. Expects the rollup to include the lines.
+     */
+    private static void removeWritten(Ignite ignite, int firstLineId, int firstInvoiceId, int batchSize) {
+        var writer = new InvoiceLineWriter(ignite);
+        var keys = new ArrayList<InvoiceLineKey>(batchSize);
+        long removed = 0;
+        try (var rows = ignite.sql().execute(null,
+                "select invoicelineid, customerid from invoiceline where invoicelineid >= ?", firstLineId)) {
+            while (rows.hasNext()) {
+                var row = rows.next();
+                keys.add(new InvoiceLineKey(row.intValue("invoiceLineId"), row.intValue("customerId")));
+                if (keys.size() == batchSize || !rows.hasNext()) {
+                    writer.remove(keys);
+                    removed += keys.size();
+                    keys = new ArrayList<>(batchSize);
+                }
+            }
+        }
+
+        ignite.sql().execute(null, "delete from invoice where invoiceid >= ?", firstInvoiceId).close();
+        System.out.printf(">>> Removed %d written lines%n", removed);
+    }
+
+    /** Lines of random customers with new ids. Only amounts matter here, so all lines go to the first invoice. */
+    private static Iterator<Map.Entry<InvoiceLineKey, InvoiceLine>> lines(Ids ids, int count, SplittableRandom random) {
+        return new Iterator<>() {
+            private int i;
+
+            @Override
+            public boolean hasNext() {
+                return i < count;
+            }
+
+            @Override
+            public Map.Entry<InvoiceLineKey, InvoiceLine> next() {
+                i++;
+                var key = new InvoiceLineKey(ids.nextLineId++, 1 + random.nextInt(ids.customers));
+                var line = new InvoiceLine(1, 1 + random.nextInt(ids.tracks),
+                        new BigDecimal("0.99"), 1 + random.nextInt(3));
+                return new AbstractMap.SimpleImmutableEntry<>(key, line);
+            }
+        };
+    }
+
+    private static Iterator<Map.Entry<Tuple, Map<InvoiceLineKey, InvoiceLine>>> invoices(Ids ids, int count,
+            int linesPerInvoice, SplittableRandom random) {
+        return new Iterator<>() {
+            private int i;
+
+            @Override
+            public boolean hasNext() {
+                return i < count;
+            }
+
+            @Override
+            public Map.Entry<Tuple, Map<InvoiceLineKey, InvoiceLine>> next() {
+                i++;
+                var invoiceId = ids.nextInvoiceId++;
+                var customerId = 1 + random.nextInt(ids.customers);
+
+                var lines = new HashMap<InvoiceLineKey, InvoiceLine>(linesPerInvoice * 2);
+                var total = BigDecimal.ZERO;
+                for (var line = 0; line < linesPerInvoice; line++) {
+                    var value = new InvoiceLine(invoiceId, 1 + random.nextInt(ids.tracks), new BigDecimal("0.99"),
+                            1 + random.nextInt(3));
+                    lines.put(new InvoiceLineKey(ids.nextLineId++, customerId), value);
+                    total = total.add(value.getUnitPrice().multiply(BigDecimal.valueOf(value.getQuantity())));
+                }
+
+                var invoice = Tuple.create()
+                        .set("InvoiceId", invoiceId)
+                        .set("CustomerId", customerId)
+                        .set("InvoiceDate", LocalDate.now())
+                        .set("Total", total);
+                return new AbstractMap.SimpleImmutableEntry<>(invoice, lines);
+            }
+        };
+    }
+
+    private static void printThroughput(String mode, long count, long nanos, String unit) {
+        System.out.printf(">>> %-28s %10.0f %s/sec%n", mode, count / (nanos / 1e9), unit);
+    }
+
+    /** Next free ids and the id ranges of the existing customers and tracks. */
+    private static class Ids {
+        int nextLineId;
+
+        int nextInvoiceId;
+
+        final int customers;
+
+        final int tracks;
+
+        Ids(Ignite ignite) {
+            try (var result = ignite.sql().execute(null, "select (select max(InvoiceLineId) from InvoiceLine), "
+                    + "(select max(InvoiceId) from Invoice), (select max(CustomerId) from Customer), "
+                    + "(select max(TrackId) from Track)")) {
+                var row = result.next();
+                nextLineId = row.intValue(0) + 1;
+                nextInvoiceId = row.intValue(1) + 1;
+                customers = row.intValue(2);
+                tracks = row.intValue(3);
+            }
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from {@code int} to {@code long} with linear probing. Adding to an existing key doesn't
+ * allocate, which keeps per-row aggregation in compute jobs free of boxing. Slots are exposed directly so callers can
+ * iterate without an iterator object: a slot is in use when {@link #isUsed(int)} returns {@code true}.
+ */
+public class IntLongHashMap {
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private int[] keys;
+
+    private long[] values;
+
+    private boolean[] used;
+
+    private int size;
+
+    private int mask;
+
+    private int resizeAt;
+
+    public IntLongHashMap(int expectedSize) {
+        var capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) * 2 - 1);
+        allocate(capacity);
+    }
+
+    /** Adds {@code delta} to the value of {@code key}, starting from zero for a new key. */
+    public void addTo(int key, long delta) {
+        var slot = mix(key) & mask;
+        while (used[slot]) {
+            if (keys[slot] == key) {
+                values[slot] += delta;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        keys[slot] = key;
+        values[slot] = delta;
+        used[slot] = true;
+
+        if (++size > resizeAt) {
+            rehash();
+        }
+    }
+
+    /** Sets the value of {@code key}, replacing the previous one. */
+    public void put(int key, long value) {
+        var slot = mix(key) & mask;
+        while (used[slot]) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        keys[slot] = key;
+        values[slot] = value;
+        used[slot] = true;
+
+        if (++size > resizeAt) {
+            rehash();
+        }
+    }
+
+    public long get(int key, long defaultValue) {
+        var slot = mix(key) & mask;
+        while (used[slot]) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return defaultValue;
+    }
+
+    /** Removes {@code key}; the entries after it in its probe sequence move back, so no tombstone is left. */
+    public boolean remove(int key) {
+        var slot = mix(key) & mask;
+        while (used[slot]) {
+            if (keys[slot] == key) {
+                shiftBack(slot);
+                size--;
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return keys.length;
+    }
+
+    public boolean isUsed(int slot) {
+        return used[slot];
+    }
+
+    public int keyAt(int slot) {
+        return keys[slot];
+    }
+
+    public long valueAt(int slot) {
+        return values[slot];
+    }
+
+    /** Returns the keys in slot order. */
+    public int[] keys() {
+        var keys = new int[size];
+        var n = 0;
+        for (var slot = 0; slot < this.keys.length; slot++) {
+            if (used[slot]) {
+                keys[n++] = this.keys[slot];
+            }
+        }
+        return keys;
+    }
+
+    public void clear() {
+        Arrays.fill(used, false);
+        size = 0;
+    }
+
+    private void shiftBack(int gap) {
+        var slot = gap;
+        while (true) {
+            slot = (slot + 1) & mask;
+            if (!used[slot]) {
+                break;
+            }
+
+            // An entry can fill the gap unless its home slot lies between the gap and itself.
+            var home = mix(keys[slot]) & mask;
+            if (((slot - home) & mask) >= ((slot - gap) & mask)) {
+                keys[gap] = keys[slot];
+                values[gap] = values[slot];
+                gap = slot;
+            }
+        }
+        used[gap] = false;
+    }
+
+    private void rehash() {
+        var oldKeys = keys;
+        var oldValues = values;
+        var oldUsed = used;
+
+        allocate(keys.length << 1);
+        size = 0;
+
+        for (var i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                addTo(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new long[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int mix(int key) {
+        var h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import org.apache.ignite.Ignite;
+import org.apache.ignite.table.RecordView;
+import org.apache.ignite.table.Tuple;
+import training.model.InvoiceLine;
+import training.model.InvoiceLineKey;
+
+/**
+ * Writes a stream of invoice lines in batches instead of one {@code put} per line. Lines are grouped by the partition
+ * of their CustomerId colocation key, so every batch is served by a single primary replica; a partition's batch is
+ * sent once it has {@code batchSize} lines, and the rest at the end. Every batch is written in a transaction of its own
+ * with {@link InvoiceLineWriter#writeAsync}, which adds the lines' amounts to the customers' CustomerRevenue totals
+ * and advances the {@link InvoiceLineVersions} of the partition in the same transaction. At most
+ * {@code maxInFlight} batches are in flight: when the limit is reached {@link #ingest(Iterator)} blocks until one
+ * completes, which slows the producer down to what the cluster absorbs. The first failed request stops the ingestion:
+ * no further requests are sent and the failure is thrown without waiting for the rest of the input.
+ *
+ * {@link #ingestInvoices(Iterator)} writes every invoice, its lines and its customer's total in one transaction through
+ * {@link InvoiceLineWriter} instead, up to {@code maxInFlight} transactions at a time.
+ */
+public class InvoiceLineIngestor {
+    private final Ignite ignite;
+
+    private final InvoiceLineVersions versions;
+
+    private final InvoiceLineWriter writer;
+
+    private final int batchSize;
+
+    private final int maxInFlight;
+
+    private final AtomicLong batches = new AtomicLong();
+
+    public InvoiceLineIngestor(Ignite ignite, int batchSize, int maxInFlight) {
+        this.ignite = ignite;
+        this.batchSize = batchSize;
+        this.maxInFlight = maxInFlight;
+
+        versions = new InvoiceLineVersions(ignite);
+        writer = new InvoiceLineWriter(ignite, versions);
+    }
+
+    /**
+     * Writes all lines and waits until they are stored.
+     *
+     * @return Number of lines written.
+     */
+    public long ingest(Iterator<Map.Entry<InvoiceLineKey, InvoiceLine>> newLines) {
+        var buffers = new HashMap<Integer, Map<InvoiceLineKey, InvoiceLine>>();
+        var requests = new InFlight(maxInFlight);
+        long count = 0;
+
+        while (newLines.hasNext()) {
+            var line = newLines.next();
+            var partition = versions.partition(line.getKey());
+            var buffer = buffers.computeIfAbsent(partition, p -> new HashMap<>(batchSize * 2));
+            buffer.put(line.getKey(), line.getValue());
+            count++;
+
+            if (buffer.size() >= batchSize) {
+                buffers.remove(partition);
+                write(requests, buffer);
+            }
+        }
+        for (var buffer : buffers.values()) {
+            write(requests, buffer);
+        }
+
+        requests.awaitAll();
+        return count;
+    }
+
+    /**
+     * Writes every invoice record with its lines in one transaction, adding the lines' amounts to the customer's
+     * CustomerRevenue total.
+     *
+     * @return Number of invoices written.
+     */
+    public long ingestInvoices(Iterator<Map.Entry<Tuple, Map<InvoiceLineKey, InvoiceLine>>> invoices) {
+        RecordView<Tuple> invoiceView = ignite.tables().table("Invoice").recordView();
+        var executor = Executors.newFixedThreadPool(maxInFlight);
+        var requests = new InFlight(maxInFlight);
+        long count = 0;
+
+        try {
+            while (invoices.hasNext()) {
+                var invoice = invoices.next();
+                requests.submit(() -> CompletableFuture.runAsync(() -> {
+                    ignite.transactions().runInTransaction(tx -> {
+                        invoiceView.upsert(tx, invoice.getKey());
+                        writer.write(tx, invoice.getValue());
+                    });
+                }, executor));
+                count++;
+            }
+
+            requests.awaitAll();
+        } finally {
+            executor.shutdown();
+        }
+        return count;
+    }
+
+    /** Batches sent by {@link #ingest(Iterator)}. */
+    public long batches() {
+        return batches.get();
+    }
+
+    private void write(InFlight requests, Map<InvoiceLineKey, InvoiceLine> batch) {
+        batches.incrementAndGet();
+        requests.submit(() -> ignite.transactions().runInTransactionAsync(tx -> writer.writeAsync(tx, batch)));
+    }
+
+    /**
+     * Requests in flight, at most as many as the permits. Completed requests only release their permit, so nothing is
+     * kept per request; the first failure is remembered and thrown by the next call.
+     */
+    private static class InFlight {
+        private final Semaphore permits;
+
+        private final int maxInFlight;
+
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        InFlight(int maxInFlight) {
+            this.permits = new Semaphore(maxInFlight);
+            this.maxInFlight = maxInFlight;
+        }
+
+        /** Waits for a permit and sends {@code request}, or throws the failure of an earlier request. */
+        void submit(Supplier<CompletableFuture<?>> request) {
+            permits.acquireUninterruptibly();
+            try {
+                throwIfFailed();
+                request.get().whenComplete((r, e) -> {
+                    if (e != null) {
+                        failure.compareAndSet(null, e);
+                    }
+                    permits.release();
+                });
+            } catch (RuntimeException e) {
+                permits.release();
+                throw e;
+            }
+        }
+
+        /** Waits until no request is in flight, then throws the first failure, if any. */
+        void awaitAll() {
+            permits.acquireUninterruptibly(maxInFlight);
+            permits.release(maxInFlight);
+            throwIfFailed();
+        }
+
+        private void throwIfFailed() {
+            var e = failure.get();
+            if (e != null) {
+                throw e instanceof CompletionException ? (CompletionException) e : new CompletionException(e);
+            }
+        }
+    }
+}
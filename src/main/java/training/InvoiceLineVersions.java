@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.ignite.Ignite;
+import org.apache.ignite.sql.IgniteSql;
+import org.apache.ignite.table.KeyValueView;
+import org.apache.ignite.table.Tuple;
+import org.apache.ignite.table.mapper.Mapper;
+import org.apache.ignite.table.partition.PartitionManager;
+import org.apache.ignite.tx.Transaction;
+import training.model.InvoiceLineKey;
+
+/**
+ * Version of every InvoiceLine partition, kept in the InvoiceLineVersion table. Writers give a partition a new random
+ * version in every transaction that changes it, so the version changes exactly when the change commits. A copy of a
+ * partition's lines that was read after its version is current for as long as the version stays the same, which
+ * {@link PartitionSnapshotCache} checks with a single key lookup instead of reading the partition. Transactions that
+ * change the same partition take turns on its version row. Changes that bypass {@link InvoiceLineWriter} and
+ * {@link InvoiceLineIngestor}, such as SQL statements, don't advance the versions.
+ */
+final class InvoiceLineVersions {
+    static final String TABLE = "InvoiceLineVersion";
+
+    static final String VERSION_QUERY = "select version from " + TABLE + " where partitionid = ?";
+
+    static final String WATERMARK_QUERY = "select partitionid, version from " + TABLE + " order by partitionid";
+
+    private final PartitionManager partitions;
+
+    private final KeyValueView<Tuple, Tuple> versions;
+
+    /** Partition of every customer seen so far; lines are colocated by customer, so it doesn't depend on the line. */
+    private final Map<Integer, Integer> customerPartitions = new ConcurrentHashMap<>();
+
+    InvoiceLineVersions(Ignite ignite) {
+        partitions = ignite.tables().table("InvoiceLine").partitionManager();
+        versions = ignite.tables().table(TABLE).keyValueView();
+    }
+
+    /**
+     * Partition that holds the line with {@code key}. The partition is looked up outside the map, so lookups of other
+     * customers don't wait for it; concurrent first lookups of a customer may each ask the cluster.
+     */
+    int partition(InvoiceLineKey key) {
+        var partition = customerPartitions.get(key.getCustomerId());
+        if (partition == null) {
+            partition = PartitionAssignment.partitionId(
+                    partitions.partitionAsync(key, Mapper.of(InvoiceLineKey.class)).join());
+            customerPartitions.putIfAbsent(key.getCustomerId(), partition);
+        }
+        return partition;
+    }
+
+    /** Advances the versions of the partitions holding {@code keys} within {@code tx}, which changes those lines. */
+    void advance(Transaction tx, Collection<InvoiceLineKey> keys) {
+        var changed = changedVersions(keys);
+        if (!changed.isEmpty()) {
+            versions.putAll(tx, changed);
+        }
+    }
+
+    /** Like {@link #advance(Transaction, Collection)}, without blocking on the write. */
+    CompletableFuture<Void> advanceAsync(Transaction tx, Collection<InvoiceLineKey> keys) {
+        var changed = changedVersions(keys);
+        return changed.isEmpty() ? CompletableFuture.completedFuture(null) : versions.putAllAsync(tx, changed);
+    }
+
+    /** Current version of {@code partition}, or {@code null} if no writer changed it since the table was loaded. */
+    static UUID version(IgniteSql sql, int partition) {
+        try (var rows = sql.execute(null, VERSION_QUERY, partition)) {
+            return rows.hasNext() ? rows.next().value(0) : null;
+        }
+    }
+
+    /**
+     * Value that changes whenever the version of any partition is advanced, by any client. It is read from the whole
+     * table, which has a row per partition at most.
+     */
+    static CompletableFuture<Long> watermarkAsync(IgniteSql sql) {
+        var watermark = new long[] {1};
+        return AsyncQueries.forEachRow(sql, WATERMARK_QUERY, row -> {
+            UUID version = row.value("version");
+            watermark[0] = watermark[0] * 1_000_003 + row.intValue("partitionId");
+            watermark[0] = watermark[0] * 31 + (version.getMostSignificantBits() ^ version.getLeastSignificantBits());
+        }).thenApply(ignored -> watermark[0]);
+    }
+
+    /** New versions of the partitions holding {@code keys}. */
+    private Map<Tuple, Tuple> changedVersions(Collection<InvoiceLineKey> keys) {
+        var changed = new HashMap<Tuple, Tuple>();
+        for (var key : keys) {
+            changed.computeIfAbsent(key(partition(key)), partition -> nextVersion());
+        }
+        return changed;
+    }
+
+    private static Tuple key(int partition) {
+        return Tuple.create().set("PartitionId", partition);
+    }
+
+    private static Tuple nextVersion() {
+        return Tuple.create().set("Version", UUID.randomUUID());
+    }
+}
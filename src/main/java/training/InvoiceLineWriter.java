@@ -0,0 +1,185 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.ignite.Ignite;
+import org.apache.ignite.table.KeyValueView;
+import org.apache.ignite.table.Tuple;
+import org.apache.ignite.tx.IgniteTransactions;
+import org.apache.ignite.tx.Transaction;
+import training.model.InvoiceLine;
+import training.model.InvoiceLineKey;
+
+/**
+ * Writes invoice lines and keeps the CustomerRevenue rollup in step with them. Lines and the changed customer totals
+ * are written in the same transaction, so a committed total always equals the sum of the customer's committed lines.
+ * A customer whose total drops to zero, such as one whose lines were all removed, has no rollup row, which is what
+ * {@link RollupReconciliationTask} expects. The same transaction advances the {@link InvoiceLineVersions} of the
+ * lines' partitions, which tells {@link PartitionSnapshotCache} to reread them once it commits.
+ */
+public class InvoiceLineWriter {
+    static final String ROLLUP_TABLE = "CustomerRevenue";
+
+    private final IgniteTransactions transactions;
+
+    private final KeyValueView<InvoiceLineKey, InvoiceLine> lines;
+
+    private final KeyValueView<Tuple, Tuple> rollup;
+
+    private final InvoiceLineVersions versions;
+
+    public InvoiceLineWriter(Ignite ignite) {
+        this(ignite, new InvoiceLineVersions(ignite));
+    }
+
+    /** Writer that shares the partition lookups of {@code versions}. */
+    InvoiceLineWriter(Ignite ignite, InvoiceLineVersions versions) {
+        this.versions = versions;
+        transactions = ignite.transactions();
+        lines = ignite.tables().table("InvoiceLine").keyValueView(InvoiceLineKey.class, InvoiceLine.class);
+        rollup = ignite.tables().table(ROLLUP_TABLE).keyValueView();
+    }
+
+    /** Inserts or replaces {@code newLines} in a transaction of their own. */
+    public void write(Map<InvoiceLineKey, InvoiceLine> newLines) {
+        transactions.runInTransaction(tx -> {
+            write(tx, newLines);
+        });
+    }
+
+    /** Inserts or replaces {@code newLines} within {@code tx}. The amount of a replaced line is taken off the total. */
+    public void write(Transaction tx, Map<InvoiceLineKey, InvoiceLine> newLines) {
+        var deltas = writeDeltas(newLines, lines.getAll(tx, newLines.keySet()));
+
+        lines.putAll(tx, newLines);
+        addToTotals(tx, deltas);
+        versions.advance(tx, newLines.keySet());
+    }
+
+    /** Like {@link #write(Transaction, Map)}, without blocking, for callers that keep many transactions in flight. */
+    public CompletableFuture<Void> writeAsync(Transaction tx, Map<InvoiceLineKey, InvoiceLine> newLines) {
+        return lines.getAllAsync(tx, newLines.keySet())
+                .thenCompose(replaced -> lines.putAllAsync(tx, newLines)
+                        .thenCompose(ignored -> addToTotalsAsync(tx, writeDeltas(newLines, replaced))))
+                .thenCompose(ignored -> versions.advanceAsync(tx, newLines.keySet()));
+    }
+
+    /** Removes the lines with the given keys in a transaction of their own. */
+    public void remove(Collection<InvoiceLineKey> keys) {
+        transactions.runInTransaction(tx -> {
+            remove(tx, keys);
+        });
+    }
+
+    /** Removes the lines with the given keys within {@code tx}; keys without a line are ignored. */
+    public void remove(Transaction tx, Collection<InvoiceLineKey> keys) {
+        var existing = lines.getAll(tx, keys);
+
+        var deltas = new HashMap<Integer, BigDecimal>();
+        for (var line : existing.entrySet()) {
+            deltas.merge(line.getKey().getCustomerId(), amount(line.getValue()).negate(), BigDecimal::add);
+        }
+
+        lines.removeAll(tx, existing.keySet());
+        addToTotals(tx, deltas);
+        versions.advance(tx, existing.keySet());
+    }
+
+    /** Amount every customer's total changes by when {@code newLines} replace the {@code replaced} lines. */
+    private static Map<Integer, BigDecimal> writeDeltas(Map<InvoiceLineKey, InvoiceLine> newLines,
+            Map<InvoiceLineKey, InvoiceLine> replaced) {
+        var deltas = new HashMap<Integer, BigDecimal>();
+        for (var line : newLines.entrySet()) {
+            deltas.merge(line.getKey().getCustomerId(), amount(line.getValue()), BigDecimal::add);
+        }
+        for (var line : replaced.entrySet()) {
+            deltas.merge(line.getKey().getCustomerId(), amount(line.getValue()).negate(), BigDecimal::add);
+        }
+        return deltas;
+    }
+
+    private void addToTotals(Transaction tx, Map<Integer, BigDecimal> deltas) {
+        var keys = rollupKeys(deltas);
+        var changes = new TotalChanges(keys, rollup.getAll(tx, keys), deltas);
+
+        rollup.putAll(tx, changes.updated);
+        if (!changes.emptied.isEmpty()) {
+            rollup.removeAll(tx, changes.emptied);
+        }
+    }
+
+    private CompletableFuture<Void> addToTotalsAsync(Transaction tx, Map<Integer, BigDecimal> deltas) {
+        var keys = rollupKeys(deltas);
+        return rollup.getAllAsync(tx, keys).thenCompose(totals -> {
+            var changes = new TotalChanges(keys, totals, deltas);
+            var updates = rollup.putAllAsync(tx, changes.updated);
+            if (changes.emptied.isEmpty()) {
+                return updates;
+            }
+            return updates
+                    .thenCompose(ignored -> rollup.removeAllAsync(tx, changes.emptied))
+                    .thenApply(removed -> null);
+        });
+    }
+
+    private static List<Tuple> rollupKeys(Map<Integer, BigDecimal> deltas) {
+        var keys = new ArrayList<Tuple>(deltas.size());
+        for (var customerId : deltas.keySet()) {
+            keys.add(rollupKey(customerId));
+        }
+        return keys;
+    }
+
+    static Tuple rollupKey(int customerId) {
+        return Tuple.create().set("CustomerId", customerId);
+    }
+
+    private static BigDecimal amount(InvoiceLine line) {
+        return line.getUnitPrice().multiply(BigDecimal.valueOf(line.getQuantity()));
+    }
+
+    /** Rollup rows to write and remove for the {@code deltas} of the customers with the current {@code totals}. */
+    private static class TotalChanges {
+        final Map<Tuple, Tuple> updated = new HashMap<>();
+
+        final List<Tuple> emptied = new ArrayList<>();
+
+        TotalChanges(List<Tuple> keys, Map<Tuple, Tuple> totals, Map<Integer, BigDecimal> deltas) {
+            for (var key : keys) {
+                var delta = deltas.get(key.intValue("CustomerId"));
+                if (delta.signum() == 0) {
+                    continue;
+                }
+                var current = totals.get(key);
+                var total = current == null ? delta : current.decimalValue("Total").add(delta);
+                if (total.signum() == 0) {
+                    emptied.add(key);
+                } else {
+                    updated.put(key, Tuple.create().set("Total", total));
+                }
+            }
+        }
+    }
+}
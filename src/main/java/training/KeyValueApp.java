@@ -17,40 +17,176 @@
 
 package training;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
 import org.apache.ignite.client.IgniteClient;
+import org.apache.ignite.network.ClusterNode;
+import org.apache.ignite.table.Table;
+import org.apache.ignite.table.Tuple;
 import training.model.Artist;
 import org.apache.ignite.Ignite;
 
 
 /**
- * The application reads Artists from the cluster using key-value requests. Complete the TODO
- * item to see how Ignite distributes records across partitions and nodes.
+ * The application reads Artists from the cluster using key-value requests and prints the partition and node every
+ * key is mapped to. It then compares how fast the keys are read one blocking request at a time, with pipelined
+ * {@code getAsync} requests and with one {@code getAllAsync} batch per owning node, and with a {@link NearCache}
+ * preloaded with the whole Artist table. The Genre and MediaType tables are preloaded into near caches as well to show
+ * their size.
+ *
+ * Arguments: {@code [rounds] [maxInFlight]}, 20 and 32 by default.
  */
 public class KeyValueApp {
 
     public static void main(String[] args) throws Exception {
+        var rounds = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        var maxInFlight = args.length > 1 ? Integer.parseInt(args[1]) : 32;
+
         try (var ignite = IgniteClient.builder()
                 .addresses("127.0.0.1:10800")
                 .build()
         ) {
             getArtistsDistribution(ignite);
+
+            compareReaders(ignite, rounds, maxInFlight);
+
+            preloadDimensions(ignite);
         }
     }
 
     private static void getArtistsDistribution(Ignite ignite) {
+        var artistTable = ignite.tables().table("Artist");
+        var artistCache = artistTable.keyValueView(Integer.class, Artist.class);
+        var owners = primaryReplicas(artistTable);
 
-        var artistCache = ignite.tables().table("Artist").keyValueView(Integer.class, Artist.class);
+        var keysPerNode = new TreeMap<String, Integer>();
+        var keysPerPartition = new TreeMap<Integer, Integer>();
 
         for (int artistKey = 1; artistKey < 100; artistKey++) {
             Artist artist = artistCache.get(null, artistKey);
 
-            /**
-             * TODO #1: print partitions and nodes every artistKey is mapped to.
-             * Hint, use ignite.affinity(...).partition(...) and .mapPartitionToNode(...) methods.
-             */
+            var partition = partitionOf(artistTable, artistKey);
+            var node = owners.get(partition);
+
+            keysPerNode.merge(node.name(), 1, Integer::sum);
+            keysPerPartition.merge(partition, 1, Integer::sum);
 
-            System.out.println(artist);
+            System.out.println("key=" + artistKey + ", partition=" + partition + ", node=" + node.name() + ", " + artist);
         }
 
+        printHistogram("Keys per node", keysPerNode);
+        printHistogram("Keys per partition", keysPerPartition);
+    }
+
+    private static void compareReaders(Ignite ignite, int rounds, int maxInFlight) {
+        var artistTable = ignite.tables().table("Artist");
+        var artistCache = artistTable.keyValueView(Integer.class, Artist.class);
+        var owners = primaryReplicas(artistTable);
+
+        var keys = new ArrayList<Integer>();
+        var keysByNode = new HashMap<String, List<Integer>>();
+        for (int artistKey = 1; artistKey < 100; artistKey++) {
+            keys.add(artistKey);
+            keysByNode.computeIfAbsent(owners.get(partitionOf(artistTable, artistKey)).name(), n -> new ArrayList<>())
+                    .add(artistKey);
+        }
+
+        var reader = new PipelinedKeyValueReader<>(artistCache, maxInFlight);
+
+        System.out.println(">>> Reading " + keys.size() + " artists " + rounds + " times, up to " + maxInFlight
+                + " requests in flight");
+
+        // One untimed round of each reader warms up connections and schemas.
+        for (var key : keys) {
+            artistCache.get(null, key);
+        }
+        reader.getAll(keys);
+        reader.getAllBatched(keysByNode.values());
+
+        var start = System.nanoTime();
+        for (var round = 0; round < rounds; round++) {
+            for (var key : keys) {
+                artistCache.get(null, key);
+            }
+        }
+        printThroughput("Sequential get", keys.size() * rounds, System.nanoTime() - start);
+
+        start = System.nanoTime();
+        for (var round = 0; round < rounds; round++) {
+            reader.getAll(keys);
+        }
+        printThroughput("Pipelined getAsync", keys.size() * rounds, System.nanoTime() - start);
+
+        start = System.nanoTime();
+        for (var round = 0; round < rounds; round++) {
+            reader.getAllBatched(keysByNode.values());
+        }
+        printThroughput("getAllAsync per node", keys.size() * rounds, System.nanoTime() - start);
+
+        var nearCache = NearCache.ofKeyValueView("artist", artistCache, 10_000, Duration.ofMinutes(5),
+                NearCache.Eviction.LRU);
+        nearCache.preload(artists(ignite));
+
+        start = System.nanoTime();
+        for (var round = 0; round < rounds; round++) {
+            for (var key : keys) {
+                nearCache.get(key);
+            }
+        }
+        printThroughput("Near cache get", keys.size() * rounds, System.nanoTime() - start);
+        System.out.println(">>> " + nearCache);
+    }
+
+    /** Reads the whole Artist table with one query. */
+    private static Map<Integer, Artist> artists(Ignite ignite) {
+        var artists = new HashMap<Integer, Artist>();
+        try (var rows = ignite.sql().execute(null, "select artistid, name from artist")) {
+            while (rows.hasNext()) {
+                var row = rows.next();
+                artists.put(row.intValue("artistId"), new Artist(row.stringValue("name")));
+            }
+        }
+        return artists;
+    }
+
+    private static void preloadDimensions(Ignite ignite) {
+        for (var table : new String[] {"Genre", "MediaType"}) {
+            var cache = NearCache.ofRecordView(table, ignite.tables().table(table).recordView(), 1_000,
+                    Duration.ofHours(1), NearCache.Eviction.LFU);
+            cache.preload(NearCache.tableRows(ignite.sql(), table, table + "Id"));
+
+            var first = cache.get(Tuple.create().set(table + "Id", 1));
+            System.out.println(">>> " + cache + ", " + table + "Id=1: " + first);
+        }
+    }
+
+    /** Returns the primary replica node of every partition, by partition id. */
+    private static Map<Integer, ClusterNode> primaryReplicas(Table table) {
+        var owners = new HashMap<Integer, ClusterNode>();
+        for (var replica : table.partitionManager().primaryReplicasAsync().join().entrySet()) {
+            owners.put(PartitionAssignment.partitionId(replica.getKey()), replica.getValue());
+        }
+        return owners;
+    }
+
+    private static int partitionOf(Table table, int artistKey) {
+        var partition = table.partitionManager().partitionAsync(Tuple.create().set("ArtistId", artistKey)).join();
+        return PartitionAssignment.partitionId(partition);
+    }
+
+    private static void printHistogram(String title, Map<?, Integer> counts) {
+        System.out.println(">>> " + title);
+        for (var entry : counts.entrySet()) {
+            System.out.printf("%10s %4d %s%n", entry.getKey(), entry.getValue(), "#".repeat(entry.getValue()));
+        }
+    }
+
+    private static void printThroughput(String reader, long keys, long nanos) {
+        System.out.printf(">>> %-22s %10.0f keys/sec%n", reader, keys / (nanos / 1e9));
     }
 }
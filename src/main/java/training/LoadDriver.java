@@ -0,0 +1,309 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.ignite.Ignite;
+import org.apache.ignite.client.IgniteClient;
+import org.apache.ignite.table.DataStreamerOptions;
+import training.model.Artist;
+
+/**
+ * Load test of the top paying customers task and of key-value reads under concurrent callers.
+ *
+ * The driver connects to the docker compose nodes. When none is running it starts an embedded three node cluster in
+ * this JVM, which requires the {@code embedded} Maven profile. The media store is loaded when the cluster has no
+ * InvoiceLine table. Then {@code concurrency} callers issue operations for the warm-up and the measured period: each
+ * operation is a read of a random Artist with probability {@code readShare} and a {@code executeMapReduce} call of
+ * {@link TopPayingCustomersTask} otherwise. With a {@code rate} the callers follow a fixed schedule and latency is
+ * measured from the scheduled start, so a stalled cluster shows up in the percentiles instead of only lowering the
+ * throughput; a rate of 0 runs every caller back to back.
+ *
+ * Arguments: {@code [durationSeconds] [concurrency] [rate] [readShare] [warmupSeconds] [report]}, by default 60, 8, 0,
+ * 0.9, 10 and {@code target/load-report.json}.
+ */
+public class LoadDriver {
+    static final String[] COMPOSE_ADDRESSES = {"127.0.0.1:10800", "127.0.0.1:10801", "127.0.0.1:10802"};
+
+    private static final int EMBEDDED_NODES = 3;
+
+    public static void main(String[] args) throws Exception {
+        var duration = args.length > 0 ? Integer.parseInt(args[0]) : 60;
+        var concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        var rate = args.length > 2 ? Double.parseDouble(args[2]) : 0;
+        var readShare = args.length > 3 ? Double.parseDouble(args[3]) : 0.9;
+        var warmup = args.length > 4 ? Integer.parseInt(args[4]) : 10;
+        var report = Path.of(args.length > 5 ? args[5] : "target/load-report.json");
+
+        AutoCloseable embedded = null;
+        var client = connect(COMPOSE_ADDRESSES);
+        try {
+            if (client == null) {
+                System.out.println(">>> No cluster at " + String.join(", ", COMPOSE_ADDRESSES)
+                        + ", starting " + EMBEDDED_NODES + " embedded nodes");
+                System.setProperty("training.classpathJobs", "true");
+                embedded = startEmbeddedCluster();
+                client = IgniteClient.builder().addresses(COMPOSE_ADDRESSES).build();
+            }
+
+            if (client.tables().table("InvoiceLine") == null) {
+                loadMediaStore(client);
+            }
+
+            var run = new Run(client, duration, concurrency, rate, readShare, warmup);
+            run.execute();
+            run.print();
+
+            Files.createDirectories(report.toAbsolutePath().getParent());
+            Files.writeString(report, run.toJson(embedded != null ? "embedded" : "external"));
+            System.out.println(">>> Report written to " + report);
+        } finally {
+            if (client != null) {
+                client.close();
+            }
+            if (embedded != null) {
+                embedded.close();
+            }
+        }
+    }
+
+    private static IgniteClient connect(String... addresses) {
+        try {
+            return IgniteClient.builder()
+                    .addresses(addresses)
+                    .connectTimeout(2_000)
+                    .build();
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    /** Starts {@code EmbeddedCluster}, which is only on the classpath with the {@code embedded} Maven profile. */
+    private static AutoCloseable startEmbeddedCluster() throws Exception {
+        Class<?> clusterClass;
+        try {
+            clusterClass = Class.forName("training.EmbeddedCluster");
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Start the docker compose cluster or run with the embedded Maven profile: "
+                    + "mvn -P embedded compile exec:java -Dexec.mainClass=training.LoadDriver", e);
+        }
+
+        var workDir = Files.createTempDirectory("essentials-cluster");
+        return (AutoCloseable) clusterClass.getConstructor(int.class, Path.class).newInstance(EMBEDDED_NODES, workDir);
+    }
+
+    private static void loadMediaStore(Ignite ignite) throws IOException {
+        var script = MediaStoreScript.parse(Path.of("config/media_store.sql"));
+
+        MediaStoreLoader.createSchema(ignite, script);
+        MediaStoreLoader.printTableHeader();
+        for (var table : script.rows().entrySet()) {
+            MediaStoreLoader.streamTable(ignite, table.getKey(), ignite.tables().table(table.getKey()).recordView(),
+                    table.getValue().iterator(), DataStreamerOptions.DEFAULT, 10_000);
+        }
+        MediaStoreLoader.runPostLoadStatements(ignite, script);
+        System.out.println();
+    }
+
+    /** Latencies, errors and completions per second of one kind of operation. */
+    private static class OperationStats {
+        final String name;
+
+        final LatencyHistogram latency = new LatencyHistogram();
+
+        final AtomicLong errors = new AtomicLong();
+
+        final AtomicLongArray completedPerSecond;
+
+        OperationStats(String name, int seconds) {
+            this.name = name;
+            completedPerSecond = new AtomicLongArray(seconds);
+        }
+
+        double throughput(int seconds) {
+            return (double) latency.count() / seconds;
+        }
+    }
+
+    private static class Run {
+        private final Ignite ignite;
+
+        private final int duration;
+
+        private final int concurrency;
+
+        private final double rate;
+
+        private final double readShare;
+
+        private final int warmup;
+
+        private final OperationStats topCustomers;
+
+        private final OperationStats artistReads;
+
+        Run(Ignite ignite, int duration, int concurrency, double rate, double readShare, int warmup) {
+            this.ignite = ignite;
+            this.duration = duration;
+            this.concurrency = concurrency;
+            this.rate = rate;
+            this.readShare = readShare;
+            this.warmup = warmup;
+
+            topCustomers = new OperationStats("topCustomers", duration);
+            artistReads = new OperationStats("artistRead", duration);
+        }
+
+        void execute() throws InterruptedException {
+            var task = TopPayingCustomersTask.descriptor();
+            var input = TopPayingCustomersTask.input(5, AggregationStrategy.JAVA_MERGE);
+            var artists = ignite.tables().table("Artist").keyValueView(Integer.class, Artist.class);
+            int artistCount;
+            try (var result = ignite.sql().execute(null, "select max(ArtistId) from Artist")) {
+                artistCount = result.next().intValue(0);
+            }
+
+            var interval = rate > 0 ? (long) (TimeUnit.SECONDS.toNanos(concurrency) / rate) : 0;
+            var start = System.nanoTime();
+            var measureStart = start + TimeUnit.SECONDS.toNanos(warmup);
+            var end = measureStart + TimeUnit.SECONDS.toNanos(duration);
+
+            System.out.printf(">>> %d callers, %s, %.0f%% reads, %d s warm-up, %d s measured%n", concurrency,
+                    rate > 0 ? rate + " ops/s" : "unthrottled", readShare * 100, warmup, duration);
+
+            var callers = new ArrayList<Thread>(concurrency);
+            for (var c = 0; c < concurrency; c++) {
+                var caller = c;
+                var thread = new Thread(() -> {
+                    var random = new SplittableRandom(caller);
+                    var next = start + interval * caller / concurrency;
+
+                    while (true) {
+                        long scheduled;
+                        if (interval > 0) {
+                            scheduled = next;
+                            next += interval;
+                            LockSupport.parkNanos(scheduled - System.nanoTime());
+                        } else {
+                            scheduled = System.nanoTime();
+                        }
+                        if (scheduled >= end) {
+                            return;
+                        }
+
+                        var read = random.nextDouble() < readShare;
+                        var stats = read ? artistReads : topCustomers;
+                        try {
+                            if (read) {
+                                artists.get(null, 1 + random.nextInt(artistCount));
+                            } else {
+                                ignite.compute().executeMapReduce(task, input);
+                            }
+
+                            // Operations are measured by when they were scheduled, so the slow ones that finish
+                            // after the window still count.
+                            var finished = System.nanoTime();
+                            if (scheduled >= measureStart) {
+                                stats.latency.record(finished - scheduled);
+                                if (finished < end) {
+                                    stats.completedPerSecond.incrementAndGet(
+                                            (int) ((finished - measureStart) / 1_000_000_000L));
+                                }
+                            }
+                        } catch (RuntimeException e) {
+                            if (scheduled >= measureStart) {
+                                stats.errors.incrementAndGet();
+                            }
+                        }
+                    }
+                }, "load-caller-" + caller);
+                thread.start();
+                callers.add(thread);
+            }
+
+            for (var caller : callers) {
+                caller.join();
+            }
+        }
+
+        void print() {
+            System.out.printf("%n%-14s %10s %8s %10s %10s %10s %10s %10s %10s%n", "operation", "ops/s", "errors",
+                    "mean ms", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+            for (var stats : new OperationStats[] {topCustomers, artistReads}) {
+                var latency = stats.latency;
+                System.out.printf("%-14s %10.1f %8d %10.3f %10.3f %10.3f %10.3f %10.3f %10.3f%n", stats.name,
+                        stats.throughput(duration), stats.errors.get(), latency.mean() / 1e6, ms(latency.percentile(50)),
+                        ms(latency.percentile(90)), ms(latency.percentile(99)), ms(latency.percentile(99.9)),
+                        ms(latency.max()));
+            }
+        }
+
+        String toJson(String cluster) {
+            var json = new StringBuilder("{\n")
+                    .append("  \"cluster\": \"").append(cluster).append("\",\n")
+                    .append("  \"durationSeconds\": ").append(duration).append(",\n")
+                    .append("  \"warmupSeconds\": ").append(warmup).append(",\n")
+                    .append("  \"concurrency\": ").append(concurrency).append(",\n")
+                    .append("  \"targetRate\": ").append(number(rate)).append(",\n")
+                    .append("  \"readShare\": ").append(number(readShare)).append(",\n")
+                    .append("  \"operations\": {\n");
+
+            var operations = new OperationStats[] {topCustomers, artistReads};
+            for (var i = 0; i < operations.length; i++) {
+                var stats = operations[i];
+                var latency = stats.latency;
+                json.append("    \"").append(stats.name).append("\": {\n")
+                        .append("      \"count\": ").append(latency.count()).append(",\n")
+                        .append("      \"errors\": ").append(stats.errors.get()).append(",\n")
+                        .append("      \"throughput\": ").append(number(stats.throughput(duration))).append(",\n")
+                        .append("      \"latencyMs\": {")
+                        .append("\"mean\": ").append(number(latency.mean() / 1e6))
+                        .append(", \"p50\": ").append(number(ms(latency.percentile(50))))
+                        .append(", \"p90\": ").append(number(ms(latency.percentile(90))))
+                        .append(", \"p99\": ").append(number(ms(latency.percentile(99))))
+                        .append(", \"p999\": ").append(number(ms(latency.percentile(99.9))))
+                        .append(", \"max\": ").append(number(ms(latency.max())))
+                        .append("},\n")
+                        .append("      \"completedPerSecond\": [");
+                for (var s = 0; s < stats.completedPerSecond.length(); s++) {
+                    json.append(s == 0 ? "" : ", ").append(stats.completedPerSecond.get(s));
+                }
+                json.append("]\n    }").append(i < operations.length - 1 ? ",\n" : "\n");
+            }
+
+            return json.append("  }\n}\n").toString();
+        }
+
+        private static double ms(long nanos) {
+            return nanos / 1e6;
+        }
+
+        private static String number(double value) {
+            return String.format(Locale.ROOT, "%.3f", value);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import org.apache.ignite.client.IgniteClient;
+
+/**
+ * Prints the report of {@code sql/top_20_longest_tracks_with_authors.sql} computed by {@link LongestTracksTask}: the
+ * jobs rank the tracks of their own partitions and resolve artists locally, and only the 20 longest tracks of every
+ * job travel to the reduce step.
+ *
+ * Arguments: {@code [count] [maxGenreId] [split]}, by default 20, 17 and {@code PER_NODE}.
+ */
+public class LongestTracksApp {
+
+    public static void main(String[] args) {
+        var count = args.length > 0 ? Integer.parseInt(args[0]) : LongestTracksTask.DEFAULT_COUNT;
+        var maxGenreId = args.length > 1 ? Integer.parseInt(args[1]) : LongestTracksTask.DEFAULT_MAX_GENRE_ID;
+        var split = args.length > 2 ? SplitMode.valueOf(args[2]) : SplitMode.PER_NODE;
+
+        try (var ignite = IgniteClient.builder()
+                .addresses("127.0.0.1:10800")
+                .build()
+        ) {
+            var tracks = ignite.compute().executeMapReduce(LongestTracksTask.descriptor(),
+                    LongestTracksTask.input(count, maxGenreId, split));
+
+            System.out.println(">>> Top " + count + " Longest Tracks");
+            for (var track : tracks) {
+                System.out.println(track);
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import org.apache.ignite.Ignite;
+import org.apache.ignite.client.IgniteClient;
+import org.apache.ignite.table.DataStreamerOptions;
+
+/**
+ * Compares the longest tracks reports of {@code sql/} run by the SQL engine, which joins Track with the
+ * non-colocated Genre and Artist tables, with {@link LongestTracksTask}, which ranks and joins inside the Track
+ * partitions. For every scale the media store is regenerated with {@link MediaStoreGenerator}; the track durations
+ * returned by the task must match those of the SQL report with authors.
+ *
+ * Arguments: {@code [iterations] [scale...]}, by default 20 and the scales 1, 10 and 100. The cluster is reloaded.
+ */
+public class LongestTracksBenchmark {
+    private static final String[] REPORTS = {
+            "top_20_longest_tracks.sql", "top_20_longest_tracks_with_genres.sql",
+            "top_20_longest_tracks_with_authors.sql"};
+
+    public static void main(String[] args) throws Exception {
+        var iterations = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        var scales = args.length > 1
+                ? Arrays.stream(args, 1, args.length).mapToInt(Integer::parseInt).toArray()
+                : new int[] {1, 10, 100};
+
+        var script = MediaStoreScript.parse(Path.of("config/media_store.sql"));
+        var queries = new LinkedHashMap<String, String>();
+        for (var report : REPORTS) {
+            queries.put(report, Files.readString(Path.of("sql", report)).trim().replaceAll(";$", ""));
+        }
+
+        try (var ignite = IgniteClient.builder()
+                .addresses("127.0.0.1:10800")
+                .build()
+        ) {
+            for (var scale : scales) {
+                System.out.println(">>> Loading scale " + scale);
+                new MediaStoreGenerator(script, scale, 1.0, 42).load(ignite, DataStreamerOptions.DEFAULT, 10_000);
+
+                long tracks;
+                try (var result = ignite.sql().execute(null, "select count(*) from Track")) {
+                    tracks = result.next().longValue(0);
+                }
+
+                System.out.printf("%n%-8s %10s %-40s %12s %12s%n", "scale", "tracks", "variant", "p50 ms", "p99 ms");
+                List<Integer> sqlDurations = null;
+                for (var query : queries.entrySet()) {
+                    var durations = new ArrayList<Integer>();
+                    print(scale, tracks, "SQL " + query.getKey(),
+                            TopPayingCustomersBenchmark.measure(() -> runQuery(ignite, query.getValue(), durations), iterations));
+                    sqlDurations = durations;
+                }
+
+                for (var split : SplitMode.values()) {
+                    var durations = new ArrayList<Integer>();
+                    print(scale, tracks, "LongestTracksTask " + split,
+                            TopPayingCustomersBenchmark.measure(() -> runTask(ignite, split, durations), iterations));
+
+                    if (!durations.equals(sqlDurations)) {
+                        System.out.println("!!! " + split + " returned durations " + durations + ", SQL: " + sqlDurations);
+                    }
+                }
+                System.out.println();
+            }
+        }
+    }
+
+    private static void print(int scale, long tracks, String variant, long[] latencies) {
+        System.out.printf("%-8d %10d %-40s %12.2f %12.2f%n", scale, tracks, variant,
+                TopPayingCustomersBenchmark.percentile(latencies, 0.5) / 1e6,
+                TopPayingCustomersBenchmark.percentile(latencies, 0.99) / 1e6);
+    }
+
+    /** Runs a report and keeps the durations of its last run; duration is the last column of every report. */
+    private static Object runQuery(Ignite ignite, String query, List<Integer> durations) {
+        durations.clear();
+        try (var rows = ignite.sql().execute(null, query)) {
+            while (rows.hasNext()) {
+                var row = rows.next();
+                durations.add(row.intValue(row.columnCount() - 1));
+            }
+        }
+        return durations;
+    }
+
+    private static Object runTask(Ignite ignite, SplitMode split, List<Integer> durations) {
+        var tracks = ignite.compute().executeMapReduce(LongestTracksTask.descriptor(), LongestTracksTask.input(
+                LongestTracksTask.DEFAULT_COUNT, LongestTracksTask.DEFAULT_MAX_GENRE_ID, split));
+
+        durations.clear();
+        for (var track : tracks) {
+            durations.add(track.getDurationMinutes());
+        }
+        return tracks;
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.ignite.Ignite;
+import org.apache.ignite.compute.TaskDescriptor;
+import org.apache.ignite.compute.task.TaskExecutionContext;
+import org.apache.ignite.marshalling.Marshaller;
+import org.apache.ignite.sql.IgniteSql;
+import org.apache.ignite.table.Tuple;
+import training.model.LongestTrack;
+
+/**
+ * Compute version of the {@code sql/top_20_longest_tracks*.sql} reports. Track is colocated by ArtistId and Artist is
+ * keyed by ArtistId alone, so in the same zone partition {@code p} of both tables holds the same artists: a job reads
+ * the longest tracks of its partitions and looks up their artists on its own node. Genre is a tiny dimension table;
+ * the task reads it once and sends it to every job with the arguments. The reduce step merges the per-job lists.
+ *
+ * The task input is a tuple with the number of tracks ({@code count}, 20 by default), the exclusive genre id bound of
+ * the reports ({@code maxGenreId}, 17 by default) and the {@link SplitMode} ({@code split}, {@code PER_NODE} by
+ * default). Tracks are ranked by milliseconds, ties by track id; {@link LongestTrack#getDurationMinutes()} is the
+ * {@code duration} of the reports.
+ */
+public class LongestTracksTask extends ColocatedAggregationTask<LongestTracksTask.Candidates, LongestTrack[],
+        LongestTrack[]> {
+    static final int DEFAULT_COUNT = 20;
+
+    static final int DEFAULT_MAX_GENRE_ID = 17;
+
+    public LongestTracksTask() {
+        super(new LongestTracksAggregation(), LongestTracksJob.class);
+    }
+
+    static TaskDescriptor<Tuple, LongestTrack[]> descriptor() {
+        return TaskDescriptor.builder(LongestTracksTask.class)
+                .units(ComputeApp.deploymentUnits())
+                .reduceJobResultMarshaller(CompactMarshaller.create())
+                .build();
+    }
+
+    static Tuple input(int count, int maxGenreId, SplitMode split) {
+        return Tuple.create()
+                .set("count", count)
+                .set("maxGenreId", maxGenreId)
+                .set("split", split.name());
+    }
+
+    @Override
+    public Marshaller<LongestTrack[], byte[]> reduceJobResultMarshaller() {
+        return CompactMarshaller.create();
+    }
+
+    @Override
+    protected CompletableFuture<Tuple> jobArgumentsAsync(TaskExecutionContext taskExecutionContext, Tuple input) {
+        int count = input.valueOrDefault("count", DEFAULT_COUNT);
+        int maxGenreId = input.valueOrDefault("maxGenreId", DEFAULT_MAX_GENRE_ID);
+        return readGenresAsync(taskExecutionContext.ignite().sql(), maxGenreId)
+                .thenApply(genres -> Tuple.create()
+                        .set("count", count)
+                        .set("genres", encodeGenres(genres)));
+    }
+
+    @Override
+    protected CompletableFuture<LongestTrack[]> finish(TaskExecutionContext taskExecutionContext, Tuple input,
+            List<LongestTrack[]> partials, Reduction reduction) {
+        return CompletableFuture.completedFuture(mergeLongest(partials, input.valueOrDefault("count", DEFAULT_COUNT)));
+    }
+
+    /** Merges the per-job lists and returns the {@code count} longest tracks. */
+    static LongestTrack[] mergeLongest(Iterable<LongestTrack[]> results, int count) {
+        var tracks = new ArrayList<LongestTrack>();
+        for (var result : results) {
+            Collections.addAll(tracks, result);
+        }
+        tracks.sort(LongestTrack.LONGEST_FIRST);
+
+        return tracks.subList(0, Math.min(count, tracks.size())).toArray(new LongestTrack[0]);
+    }
+
+    /** Reads the names of the genres below {@code maxGenreId}. */
+    static CompletableFuture<Map<Integer, String>> readGenresAsync(IgniteSql sql, int maxGenreId) {
+        var genres = new HashMap<Integer, String>();
+        return AsyncQueries.forEachRow(sql, "select genreid, name from genre where genreid < ?",
+                        row -> genres.put(row.intValue("genreId"), row.stringValue("name")), maxGenreId)
+                .thenApply(ignored -> genres);
+    }
+
+    static byte[] encodeGenres(Map<Integer, String> genres) {
+        var out = new BinaryWriter(genres.size() * 16);
+        out.writeLength(genres.size());
+        for (var genre : genres.entrySet()) {
+            out.writeVarInt(genre.getKey());
+            out.writeString(genre.getValue());
+        }
+        return out.toByteArray();
+    }
+
+    static Map<Integer, String> decodeGenres(byte[] raw) {
+        var in = new BinaryReader(raw, 0);
+        var size = in.readLength();
+        var genres = new HashMap<Integer, String>(size * 2);
+        for (var i = 0; i < size; i++) {
+            genres.put(in.readVarInt(), in.readString());
+        }
+        return genres;
+    }
+
+    public static class LongestTracksJob extends ColocatedAggregationJob<Candidates, LongestTrack[]> {
+        public LongestTracksJob() {
+            super(new LongestTracksAggregation());
+        }
+    }
+
+    /**
+     * Keeps the {@code count} longest tracks of every partition, then the {@code count} longest of the job with their
+     * genre and artist names.
+     */
+    static class LongestTracksAggregation implements PartitionAggregation<Candidates, LongestTrack[]> {
+        @Override
+        public String table() {
+            return "Track";
+        }
+
+        @Override
+        public String metricsPrefix() {
+            return "longestTracks.";
+        }
+
+        @Override
+        public Candidates createAccumulator(Ignite ignite, Tuple arguments) {
+            return new Candidates(ignite, decodeGenres(arguments.value("genres")));
+        }
+
+        @Override
+        public long scan(Ignite ignite, int partition, Tuple arguments, Candidates candidates) {
+            if (candidates.genreIds.length == 0) {
+                return 0;
+            }
+
+            var queryArguments = new Object[candidates.genreIds.length + 2];
+            queryArguments[0] = partition;
+            System.arraycopy(candidates.genreIds, 0, queryArguments, 1, candidates.genreIds.length);
+            queryArguments[queryArguments.length - 1] = arguments.intValue("count");
+
+            long rows = 0;
+            try (var results = ignite.sql().execute(null, candidates.query, queryArguments)) {
+                while (results.hasNext()) {
+                    var row = results.next();
+                    candidates.candidates.add(new Candidate(
+                            new LongestTrack(row.intValue("trackId"), row.stringValue("name"),
+                                    row.intValue("milliseconds")),
+                            row.intValue("artistId"), row.intValue("genreId")));
+                    rows++;
+                }
+            }
+            return rows;
+        }
+
+        @Override
+        public void combine(Candidates into, Candidates other) {
+            into.candidates.addAll(other.candidates);
+        }
+
+        @Override
+        public LongestTrack[] partial(Candidates accumulator, Tuple arguments) {
+            var candidates = accumulator.candidates;
+            candidates.sort((a, b) -> LongestTrack.LONGEST_FIRST.compare(a.track, b.track));
+            var longest = candidates.subList(0, Math.min(arguments.intValue("count"), candidates.size()));
+
+            // Artist partitions are colocated with the scanned Track partitions, so these keys are served locally.
+            var artistIds = new LinkedHashSet<Integer>();
+            for (var candidate : longest) {
+                artistIds.add(candidate.artistId);
+            }
+            var keys = new ArrayList<Tuple>(artistIds.size());
+            for (var artistId : artistIds) {
+                keys.add(Tuple.create().set("artistId", artistId));
+            }
+            var artists = accumulator.ignite.tables().table("Artist").recordView().getAll(null, keys);
+
+            var names = new HashMap<Integer, String>(keys.size() * 2);
+            for (var i = 0; i < keys.size(); i++) {
+                if (artists.get(i) != null) {
+                    names.put(keys.get(i).intValue("artistId"), artists.get(i).stringValue("name"));
+                }
+            }
+
+            var result = new LongestTrack[longest.size()];
+            for (var i = 0; i < result.length; i++) {
+                var candidate = longest.get(i);
+                candidate.track.setGenre(accumulator.genres.get(candidate.genreId));
+                // Left join: a track whose artist is missing is kept without a name.
+                candidate.track.setArtist(names.get(candidate.artistId));
+                result[i] = candidate.track;
+            }
+            return result;
+        }
+    }
+
+    /** The longest tracks a scanning thread found, with the node and genres it needs to name them. */
+    static class Candidates {
+        final Ignite ignite;
+
+        final Map<Integer, String> genres;
+
+        final Integer[] genreIds;
+
+        /** The genre filter is the inner join with Genre: only ids that exist are passed, so the limit is exact. */
+        final String query;
+
+        final List<Candidate> candidates = new ArrayList<>();
+
+        Candidates(Ignite ignite, Map<Integer, String> genres) {
+            this.ignite = ignite;
+            this.genres = genres;
+            genreIds = genres.keySet().toArray(new Integer[0]);
+            query = "select trackid, name, artistid, genreid, milliseconds from track where \"__part\" = ? "
+                    + "and genreid in (" + String.join(", ", Collections.nCopies(genreIds.length, "?")) + ") "
+                    + "order by milliseconds desc, trackid limit ?";
+        }
+    }
+
+    /** A track with the ids the job resolves after selecting the longest ones. */
+    private static class Candidate {
+        final LongestTrack track;
+
+        final int artistId;
+
+        final int genreId;
+
+        Candidate(LongestTrack track, int artistId, int genreId) {
+            this.track = track;
+            this.artistId = artistId;
+            this.genreId = genreId;
+        }
+    }
+}
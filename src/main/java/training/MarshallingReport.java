@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import training.model.CustomerPrice;
+import training.model.TopCustomer;
+
+/**
+ * Prints the payload size of job and reduce results for the Java serialization format of {@link ByteArrayMarshaller}
+ * next to {@link CompactMarshaller}. Runs locally, no cluster is needed.
+ */
+public class MarshallingReport {
+
+    public static void main(String[] args) {
+        var javaFormat = ByteArrayMarshaller.create();
+        var compactFormat = CompactMarshaller.create();
+        var random = new Random(42);
+
+        System.out.println(">>> Bytes per result: Java serialization vs compact format");
+        System.out.printf("%-14s %8s %12s %12s %12s %12s%n", "type", "results", "java", "compact", "java/res", "compact/res");
+
+        for (int size : new int[] {5, 10, 100, 1_000, 10_000}) {
+            var prices = new CustomerPrice[size];
+            var customers = new TopCustomer[size];
+            for (var i = 0; i < size; i++) {
+                var price = BigDecimal.valueOf(random.nextInt(500_00), 2);
+                prices[i] = new CustomerPrice(i + 1, price);
+
+                customers[i] = new TopCustomer(i + 1, price);
+                customers[i].setFullName("Customer " + (i + 1));
+                customers[i].setCountry("Country " + random.nextInt(24));
+                customers[i].setCity("City " + random.nextInt(53));
+            }
+
+            print("CustomerPrice", size, javaFormat.marshal(prices), compactFormat.marshal(prices));
+            print("TopCustomer", size, javaFormat.marshal(customers), compactFormat.marshal(customers));
+        }
+    }
+
+    private static void print(String type, int size, byte[] java, byte[] compact) {
+        System.out.printf("%-14s %8d %12d %12d %12.1f %12.1f%n", type, size, java.length, compact.length,
+                (double) java.length / size, (double) compact.length / size);
+    }
+}
@@ -0,0 +1,406 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.function.LongFunction;
+
+import org.apache.ignite.Ignite;
+import org.apache.ignite.client.IgniteClient;
+import org.apache.ignite.table.DataStreamerOptions;
+import org.apache.ignite.table.Tuple;
+import training.model.CustomerPrice;
+import training.model.InvoiceLine;
+import training.model.InvoiceLineKey;
+
+/**
+ * Generates a media store dataset of any size from {@code config/media_store.sql}.
+ *
+ * The catalog and the customers are copies of the script's rows: copy {@code c} of a row shifts its ids by {@code c}
+ * times the largest id of the table, so every copy keeps the original Track to Album to Artist relations and the
+ * {@code ArtistId} colocation keys. Invoices are random: each one gets a customer and tracks drawn from Zipf
+ * distributions, so a few customers and tracks dominate the sales the way they do in real stores. Every invoice draws
+ * from its own random generator seeded with the dataset seed and the invoice id, so the same arguments always produce
+ * the same data, and an invoice and its lines always share the {@code CustomerId} they are colocated by.
+ *
+ * Arguments: {@code [scale] [skew] [seed] [pageSize] [perPartitionParallelOperations]}, by default 10, 1.0, 42, 1000
+ * and 4. A skew of 0 picks customers and tracks uniformly.
+ */
+public class MediaStoreGenerator {
+    /** Invoice lines per invoice are drawn uniformly from {@code 1..MAX_LINES}. */
+    private static final int MAX_LINES = 10;
+
+    private static final LocalDate FIRST_INVOICE_DATE = LocalDate.of(2009, 1, 1);
+
+    private static final int INVOICE_DAYS = 5 * 365;
+
+    /** Tables whose rows are generated; the other tables of the script are loaded as they are. */
+    static final Set<String> GENERATED_TABLES = Set.of(
+            "Artist", "Album", "Track", "PlaylistTrack", "Customer", "Invoice", "InvoiceLine");
+
+    private final MediaStoreScript template;
+
+    private final int scale;
+
+    private final long seed;
+
+    private final int artistIds;
+
+    private final int albumIds;
+
+    private final int trackIds;
+
+    private final int customerIds;
+
+    private final int invoices;
+
+    /** Unit price of every template track, indexed by track id. */
+    private final BigDecimal[] trackPrices;
+
+    /** Template customers, indexed by customer id. */
+    private final Tuple[] customers;
+
+    private final ZipfSampler customerSampler;
+
+    private final ZipfSampler trackSampler;
+
+    public MediaStoreGenerator(MediaStoreScript template, int scale, double skew, long seed) {
+        if (scale < 1) {
+            throw new IllegalArgumentException("Scale must be positive: " + scale);
+        }
+        this.template = template;
+        this.scale = scale;
+        this.seed = seed;
+
+        artistIds = maxId("Artist", "ArtistId");
+        albumIds = maxId("Album", "AlbumId");
+        trackIds = denseIds("Track", "TrackId");
+        customerIds = denseIds("Customer", "CustomerId");
+        invoices = Math.multiplyExact(rows("Invoice").size(), scale);
+
+        trackPrices = new BigDecimal[trackIds + 1];
+        for (var track : rows("Track")) {
+            trackPrices[track.intValue("TrackId")] = track.decimalValue("UnitPrice");
+        }
+        customers = new Tuple[customerIds + 1];
+        for (var customer : rows("Customer")) {
+            customers[customer.intValue("CustomerId")] = customer;
+        }
+
+        customerSampler = new ZipfSampler(Math.multiplyExact(customerIds, scale), skew);
+        trackSampler = new ZipfSampler(Math.multiplyExact(trackIds, scale), skew);
+    }
+
+    public static void main(String[] args) throws Exception {
+        var scale = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        var skew = args.length > 1 ? Double.parseDouble(args[1]) : 1.0;
+        var seed = args.length > 2 ? Long.parseLong(args[2]) : 42L;
+        var pageSize = args.length > 3 ? Integer.parseInt(args[3]) : 1000;
+        var parallelism = args.length > 4 ? Integer.parseInt(args[4]) : 4;
+        var maxInFlight = 10_000;
+
+        var script = MediaStoreScript.parse(Path.of("config/media_store.sql"));
+        var generator = new MediaStoreGenerator(script, scale, skew, seed);
+
+        var options = DataStreamerOptions.builder()
+                .pageSize(pageSize)
+                .perPartitionParallelOperations(parallelism)
+                .build();
+
+        try (var ignite = IgniteClient.builder()
+                .addresses("127.0.0.1:10800")
+                .build()
+        ) {
+            var start = System.nanoTime();
+
+            generator.load(ignite, options, maxInFlight);
+
+            System.out.printf("%nGenerated scale %d, skew %.2f, seed %d in %d ms%n", scale, skew, seed,
+                    (System.nanoTime() - start) / 1_000_000);
+
+            System.out.println("Expected top paying customers:");
+            for (var customer : generator.topCustomers(5)) {
+                System.out.println("  customerId=" + customer.getCustomerId() + ", total=" + customer.getPrice());
+            }
+        }
+    }
+
+    /**
+     * Recreates the schema of the template script, loads the tables that are not generated as they are, streams the
+     * generated rows and finally fills the derived tables.
+     */
+    public void load(Ignite ignite, DataStreamerOptions options, int maxInFlight) {
+        MediaStoreLoader.createSchema(ignite, template);
+
+        MediaStoreLoader.printTableHeader();
+        for (var table : template.rows().entrySet()) {
+            if (!GENERATED_TABLES.contains(table.getKey())) {
+                MediaStoreLoader.streamTable(ignite, table.getKey(), ignite.tables().table(table.getKey()).recordView(),
+                        table.getValue().iterator(), options, maxInFlight);
+            }
+        }
+
+        var generated = new LinkedHashMap<String, Iterator<Tuple>>();
+        generated.put("Artist", artists());
+        generated.put("Album", albums());
+        generated.put("Track", tracks());
+        generated.put("PlaylistTrack", playlistTracks());
+        generated.put("Customer", customers());
+        generated.put("Invoice", invoices());
+        for (var table : generated.entrySet()) {
+            MediaStoreLoader.streamTable(ignite, table.getKey(), ignite.tables().table(table.getKey()).recordView(),
+                    table.getValue(), options, maxInFlight);
+        }
+
+        var invoiceLines = ignite.tables().table("InvoiceLine").keyValueView(InvoiceLineKey.class, InvoiceLine.class);
+        MediaStoreLoader.streamTable(ignite, "InvoiceLine", invoiceLines, invoiceLines(), options, maxInFlight);
+
+        MediaStoreLoader.runPostLoadStatements(ignite, template);
+    }
+
+    public Iterator<Tuple> artists() {
+        return copies(rows("Artist"), (row, c) -> copy(row)
+                .set("ArtistId", row.intValue("ArtistId") + c * artistIds)
+                .set("Name", suffix(row.stringValue("Name"), c)));
+    }
+
+    public Iterator<Tuple> albums() {
+        return copies(rows("Album"), (row, c) -> copy(row)
+                .set("AlbumId", row.intValue("AlbumId") + c * albumIds)
+                .set("ArtistId", row.intValue("ArtistId") + c * artistIds)
+                .set("Title", suffix(row.stringValue("Title"), c)));
+    }
+
+    public Iterator<Tuple> tracks() {
+        return copies(rows("Track"), (row, c) -> copy(row)
+                .set("TrackId", row.intValue("TrackId") + c * trackIds)
+                .set("AlbumId", row.intValue("AlbumId") + c * albumIds)
+                .set("ArtistId", row.intValue("ArtistId") + c * artistIds)
+                .set("Name", suffix(row.stringValue("Name"), c)));
+    }
+
+    public Iterator<Tuple> playlistTracks() {
+        return copies(rows("PlaylistTrack"), (row, c) -> copy(row)
+                .set("TrackId", row.intValue("TrackId") + c * trackIds)
+                .set("ArtistId", row.intValue("ArtistId") + c * artistIds));
+    }
+
+    public Iterator<Tuple> customers() {
+        return copies(rows("Customer"), (row, c) -> copy(row)
+                .set("CustomerId", row.intValue("CustomerId") + c * customerIds));
+    }
+
+    public Iterator<Tuple> invoices() {
+        return new GeneratingIterator<>(invoices, i -> {
+            var invoice = invoice((int) i + 1);
+            var customer = customers[(invoice.customerId - 1) % customerIds + 1];
+
+            return Tuple.create()
+                    .set("InvoiceId", invoice.invoiceId)
+                    .set("CustomerId", invoice.customerId)
+                    .set("InvoiceDate", invoice.date)
+                    .set("BillingAddress", customer.valueOrDefault("Address", null))
+                    .set("BillingCity", customer.valueOrDefault("City", null))
+                    .set("BillingState", customer.valueOrDefault("State", null))
+                    .set("BillingCountry", customer.valueOrDefault("Country", null))
+                    .set("BillingPostalCode", customer.valueOrDefault("PostalCode", null))
+                    .set("Total", invoice.total());
+        });
+    }
+
+    /** Invoice lines keyed by {@link InvoiceLineKey}, numbered from 1 in invoice order. */
+    public Iterator<Map.Entry<InvoiceLineKey, InvoiceLine>> invoiceLines() {
+        return new Iterator<>() {
+            private int nextInvoiceId = 1;
+
+            private int nextLineId = 1;
+
+            private Invoice invoice;
+
+            private int line;
+
+            @Override
+            public boolean hasNext() {
+                return (invoice != null && line < invoice.trackIds.length) || nextInvoiceId <= invoices;
+            }
+
+            @Override
+            public Map.Entry<InvoiceLineKey, InvoiceLine> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                if (invoice == null || line == invoice.trackIds.length) {
+                    invoice = invoice(nextInvoiceId++);
+                    line = 0;
+                }
+
+                var key = new InvoiceLineKey(nextLineId++, invoice.customerId);
+                var value = new InvoiceLine(invoice.invoiceId, invoice.trackIds[line], invoice.unitPrices[line],
+                        invoice.quantities[line]);
+                line++;
+
+                return new AbstractMap.SimpleImmutableEntry<>(key, value);
+            }
+        };
+    }
+
+    /** Computes the {@code count} customers with the largest invoice line totals, to check query results against. */
+    public CustomerPrice[] topCustomers(int count) {
+        var revenue = new CustomerRevenueAggregator(Math.multiplyExact(customerIds, scale));
+
+        for (var id = 1; id <= invoices; id++) {
+            var invoice = invoice(id);
+            for (var line = 0; line < invoice.trackIds.length; line++) {
+                revenue.add(invoice.customerId, invoice.unitPrices[line].unscaledValue().longValueExact()
+                        * invoice.quantities[line]);
+            }
+        }
+
+        return revenue.top(count);
+    }
+
+    private Invoice invoice(int invoiceId) {
+        var random = new SplittableRandom(seed * 0x9E3779B97F4A7C15L + invoiceId);
+
+        var customerId = customerSampler.sample(random);
+        var date = FIRST_INVOICE_DATE.plusDays(random.nextInt(INVOICE_DAYS));
+
+        var lines = 1 + random.nextInt(MAX_LINES);
+        var tracks = new int[lines];
+        var unitPrices = new BigDecimal[lines];
+        var quantities = new int[lines];
+        for (var i = 0; i < lines; i++) {
+            tracks[i] = trackSampler.sample(random);
+            unitPrices[i] = trackPrices[(tracks[i] - 1) % trackIds + 1];
+            quantities[i] = random.nextInt(10) == 0 ? 2 : 1;
+        }
+
+        return new Invoice(invoiceId, customerId, date, tracks, unitPrices, quantities);
+    }
+
+    private List<Tuple> rows(String table) {
+        return template.rows().getOrDefault(table, Collections.emptyList());
+    }
+
+    private int maxId(String table, String column) {
+        var max = 0;
+        for (var row : rows(table)) {
+            max = Math.max(max, row.intValue(column));
+        }
+        return max;
+    }
+
+    /** Returns the largest id, which ids drawn from {@code 1..max} rely on being the row count. */
+    private int denseIds(String table, String column) {
+        var max = maxId(table, column);
+        if (max != rows(table).size()) {
+            throw new IllegalArgumentException(table + " ids are not 1.." + rows(table).size());
+        }
+        return max;
+    }
+
+    private Iterator<Tuple> copies(List<Tuple> rows, CopyFunction copy) {
+        return new GeneratingIterator<>((long) rows.size() * scale,
+                i -> copy.apply(rows.get((int) (i % rows.size())), (int) (i / rows.size())));
+    }
+
+    private static Tuple copy(Tuple row) {
+        var copy = Tuple.create(row.columnCount());
+        for (var i = 0; i < row.columnCount(); i++) {
+            copy.set(row.columnName(i), row.value(i));
+        }
+        return copy;
+    }
+
+    private static String suffix(String name, int copy) {
+        return copy == 0 || name == null ? name : name + " " + (copy + 1);
+    }
+
+    /** Creates copy {@code c} of a template row. */
+    private interface CopyFunction {
+        Tuple apply(Tuple row, int c);
+    }
+
+    /** Iterates over elements {@code 0..size-1} created on demand, so nothing is held in memory. */
+    private static class GeneratingIterator<T> implements Iterator<T> {
+        private final long size;
+
+        private final LongFunction<T> generator;
+
+        private long next;
+
+        GeneratingIterator(long size, LongFunction<T> generator) {
+            this.size = size;
+            this.generator = generator;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < size;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return generator.apply(next++);
+        }
+    }
+
+    private static class Invoice {
+        final int invoiceId;
+
+        final int customerId;
+
+        final LocalDate date;
+
+        final int[] trackIds;
+
+        final BigDecimal[] unitPrices;
+
+        final int[] quantities;
+
+        Invoice(int invoiceId, int customerId, LocalDate date, int[] trackIds, BigDecimal[] unitPrices, int[] quantities) {
+            this.invoiceId = invoiceId;
+            this.customerId = customerId;
+            this.date = date;
+            this.trackIds = trackIds;
+            this.unitPrices = unitPrices;
+            this.quantities = quantities;
+        }
+
+        BigDecimal total() {
+            var total = BigDecimal.ZERO;
+            for (var i = 0; i < trackIds.length; i++) {
+                total = total.add(unitPrices[i].multiply(BigDecimal.valueOf(quantities[i])));
+            }
+            return total;
+        }
+    }
+}
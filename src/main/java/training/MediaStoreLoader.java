@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import java.nio.file.Path;
+import java.util.Iterator;
+
+import org.apache.ignite.Ignite;
+import org.apache.ignite.client.IgniteClient;
+import org.apache.ignite.table.DataStreamerOptions;
+import org.apache.ignite.table.DataStreamerTarget;
+
+/**
+ * Loads the media store dataset with the table data streamer instead of executing {@code config/media_store.sql}
+ * statement by statement. The schema statements of the script are executed as SQL, then the rows of its
+ * {@code INSERT} statements are streamed table by table.
+ *
+ * Arguments: {@code [pageSize] [perPartitionParallelOperations] [maxInFlight] [compareSql] [script]}, by default
+ * 1000, 4, 10000, {@code false} and {@code config/media_store.sql}. With {@code compareSql} set to {@code true} the
+ * whole script is executed through SQL first, so both load times can be compared.
+ */
+public class MediaStoreLoader {
+
+    public static void main(String[] args) throws Exception {
+        var pageSize = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        var parallelism = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        var maxInFlight = args.length > 2 ? Integer.parseInt(args[2]) : 10_000;
+        var compareSql = args.length > 3 && Boolean.parseBoolean(args[3]);
+        var scriptPath = Path.of(args.length > 4 ? args[4] : "config/media_store.sql");
+
+        var script = MediaStoreScript.parse(scriptPath);
+
+        var options = DataStreamerOptions.builder()
+                .pageSize(pageSize)
+                .perPartitionParallelOperations(parallelism)
+                .build();
+
+        try (var ignite = IgniteClient.builder()
+                .addresses("127.0.0.1:10800")
+                .build()
+        ) {
+            long sqlNanos = 0;
+            if (compareSql) {
+                var start = System.nanoTime();
+                ignite.sql().executeScript(script.text());
+                sqlNanos = System.nanoTime() - start;
+                System.out.printf("SQL script: %d ms%n", sqlNanos / 1_000_000);
+            }
+
+            var start = System.nanoTime();
+
+            createSchema(ignite, script);
+
+            printTableHeader();
+            for (var table : script.rows().entrySet()) {
+                streamTable(ignite, table.getKey(), ignite.tables().table(table.getKey()).recordView(),
+                        table.getValue().iterator(), options, maxInFlight);
+            }
+
+            runPostLoadStatements(ignite, script);
+
+            var loadNanos = System.nanoTime() - start;
+            System.out.printf("%nStreaming load: %d ms (page size %d, %d parallel operations per partition, %d in flight)%n",
+                    loadNanos / 1_000_000, pageSize, parallelism, maxInFlight);
+            if (compareSql) {
+                System.out.printf("SQL script: %d ms, %.1fx slower%n", sqlNanos / 1_000_000, (double) sqlNanos / loadNanos);
+            }
+        }
+    }
+
+    /** Drops and creates the tables of the script. */
+    static void createSchema(Ignite ignite, MediaStoreScript script) {
+        var start = System.nanoTime();
+        for (var statement : script.schemaStatements()) {
+            ignite.sql().execute(null, statement).close();
+        }
+        System.out.printf("Schema: %d statements in %d ms%n%n", script.schemaStatements().size(),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /** Fills the derived tables, such as the CustomerRevenue rollup, from the loaded rows. */
+    static void runPostLoadStatements(Ignite ignite, MediaStoreScript script) {
+        for (var statement : script.postLoadStatements()) {
+            var start = System.nanoTime();
+            long rows;
+            try (var result = ignite.sql().execute(null, statement)) {
+                rows = result.affectedRows();
+            }
+            System.out.printf("%-14s %10d %10d %12s%n", statement.split("\\s+")[2], rows,
+                    (System.nanoTime() - start) / 1_000_000, "(SQL)");
+        }
+    }
+
+    static void printTableHeader() {
+        System.out.printf("%-14s %10s %10s %12s%n", "table", "rows", "ms", "rows/sec");
+    }
+
+    /**
+     * Streams {@code rows} into {@code view}, checks that the table holds as many rows as were streamed and prints the
+     * load rate.
+     */
+    static <T> void streamTable(Ignite ignite, String table, DataStreamerTarget<T> view, Iterator<T> rows,
+            DataStreamerOptions options, int maxInFlight) {
+        var start = System.nanoTime();
+        var streamed = TableStreamer.stream(view, rows, options, maxInFlight);
+        var nanos = System.nanoTime() - start;
+
+        try (var result = ignite.sql().execute(null, "select count(*) from " + table)) {
+            var stored = result.next().longValue(0);
+            if (stored != streamed) {
+                throw new IllegalStateException(table + ": streamed " + streamed + " rows, but the table has " + stored);
+            }
+        }
+
+        System.out.printf("%-14s %10d %10d %12.0f%n", table, streamed, nanos / 1_000_000, streamed * 1e9 / nanos);
+    }
+}
@@ -0,0 +1,277 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import org.apache.ignite.table.Tuple;
+
+/**
+ * Parses {@code config/media_store.sql}: the schema statements are kept as SQL, and the single-row {@code INSERT}
+ * statements are turned into tuples typed after the {@code CREATE TABLE} definitions, so they can be streamed instead
+ * of being executed one by one. {@code INSERT ... SELECT} statements are kept to be run once the rows are loaded.
+ */
+public class MediaStoreScript {
+    private static final Pattern CREATE_TABLE = Pattern.compile("CREATE\\s+TABLE\\s+(\\w+)\\s*\\(", Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern INSERT = Pattern.compile(
+            "INSERT\\s+INTO\\s+(\\w+)\\s*\\(([^)]*)\\)\\s*VALUES\\s*\\((.*)\\)", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("y-M-d");
+
+    private final List<String> schemaStatements = new ArrayList<>();
+
+    private final List<String> postLoadStatements = new ArrayList<>();
+
+    /** Column types of every table, upper-case names. */
+    private final Map<String, Map<String, String>> columnTypes = new HashMap<>();
+
+    /** Rows of every table in the order the tables are first inserted into. */
+    private final Map<String, List<Tuple>> rows = new LinkedHashMap<>();
+
+    private final String text;
+
+    private MediaStoreScript(String text) {
+        this.text = text;
+    }
+
+    public static MediaStoreScript parse(Path path) throws IOException {
+        var script = new MediaStoreScript(Files.readString(path, StandardCharsets.UTF_8));
+
+        for (var statement : splitStatements(script.text)) {
+            var insert = INSERT.matcher(statement);
+            if (insert.matches()) {
+                script.addRow(insert.group(1), insert.group(2), insert.group(3));
+                continue;
+            }
+            if (statement.regionMatches(true, 0, "INSERT", 0, 6)) {
+                script.postLoadStatements.add(statement);
+                continue;
+            }
+
+            var create = CREATE_TABLE.matcher(statement);
+            if (create.lookingAt()) {
+                var body = statement.substring(create.end(), closingParenthesis(statement, create.end()));
+                script.columnTypes.put(create.group(1).toUpperCase(Locale.ROOT), parseColumns(body));
+            }
+            script.schemaStatements.add(statement);
+        }
+
+        return script;
+    }
+
+    /** The original script text. */
+    public String text() {
+        return text;
+    }
+
+    /** {@code DROP}, {@code ALTER} and {@code CREATE} statements, in script order. */
+    public List<String> schemaStatements() {
+        return schemaStatements;
+    }
+
+    /** {@code INSERT ... SELECT} statements that derive tables from the loaded rows, in script order. */
+    public List<String> postLoadStatements() {
+        return postLoadStatements;
+    }
+
+    /** Rows per table name, as written in the {@code INSERT} statements. */
+    public Map<String, List<Tuple>> rows() {
+        return rows;
+    }
+
+    private void addRow(String table, String columnList, String valueList) {
+        var types = columnTypes.get(table.toUpperCase(Locale.ROOT));
+        if (types == null) {
+            throw new IllegalArgumentException("INSERT into unknown table " + table);
+        }
+
+        var columns = columnList.split(",");
+        var values = parseValues(valueList);
+        if (columns.length != values.size()) {
+            throw new IllegalArgumentException("Column and value counts differ: INSERT INTO " + table + " (" + columnList + ")");
+        }
+
+        var row = Tuple.create(columns.length);
+        for (var i = 0; i < columns.length; i++) {
+            var column = columns[i].trim();
+            row.set(column, convert(types.get(column.toUpperCase(Locale.ROOT)), values.get(i)));
+        }
+        rows.computeIfAbsent(table, t -> new ArrayList<>()).add(row);
+    }
+
+    private static Object convert(String type, String value) {
+        if (value == null) {
+            return null;
+        }
+        if (type == null) {
+            throw new IllegalArgumentException("Value for unknown column: " + value);
+        }
+
+        if (type.startsWith("INT")) {
+            return Integer.valueOf(value);
+        }
+        if (type.startsWith("DECIMAL")) {
+            var scale = Integer.parseInt(type.substring(type.indexOf(',') + 1, type.indexOf(')')).trim());
+            return new BigDecimal(value).setScale(scale);
+        }
+        if (type.startsWith("DATE")) {
+            return LocalDate.parse(value, DATE);
+        }
+        return value;
+    }
+
+    /** Parses {@code name TYPE} definitions, skipping constraints. */
+    private static Map<String, String> parseColumns(String body) {
+        var columns = new HashMap<String, String>();
+        for (var definition : splitTopLevel(body)) {
+            var parts = definition.trim().split("\\s+", 2);
+            if (parts.length < 2 || parts[0].equalsIgnoreCase("PRIMARY")) {
+                continue;
+            }
+            columns.put(parts[0].toUpperCase(Locale.ROOT), parts[1].replaceAll("\\s+", "").toUpperCase(Locale.ROOT));
+        }
+        return columns;
+    }
+
+    /**
+     * Splits a {@code VALUES} list into literals: numbers, quoted strings with {@code ''} escapes,
+     * {@code DATE('y-M-d')} and {@code NULL}, which is returned as {@code null}.
+     */
+    static List<String> parseValues(String list) {
+        var values = new ArrayList<String>();
+        var i = 0;
+        while (i < list.length()) {
+            var c = list.charAt(i);
+            if (c == ',' || Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '\'') {
+                var value = new StringBuilder();
+                for (i++; ; i++) {
+                    if (list.charAt(i) == '\'') {
+                        if (i + 1 < list.length() && list.charAt(i + 1) == '\'') {
+                            value.append('\'');
+                            i++;
+                        } else {
+                            break;
+                        }
+                    } else {
+                        value.append(list.charAt(i));
+                    }
+                }
+                values.add(value.toString());
+                i++;
+            } else if (list.regionMatches(true, i, "DATE(", 0, 5)) {
+                var start = list.indexOf('\'', i) + 1;
+                var end = list.indexOf('\'', start);
+                values.add(list.substring(start, end));
+                i = list.indexOf(')', end) + 1;
+            } else {
+                var end = list.indexOf(',', i);
+                end = end < 0 ? list.length() : end;
+                var token = list.substring(i, end).trim();
+                values.add(token.equalsIgnoreCase("NULL") ? null : token);
+                i = end;
+            }
+        }
+        return values;
+    }
+
+    /** Returns the index of the parenthesis closing the one opened just before {@code from}. */
+    private static int closingParenthesis(String s, int from) {
+        var depth = 1;
+        for (var i = from; i < s.length(); i++) {
+            if (s.charAt(i) == '(') {
+                depth++;
+            } else if (s.charAt(i) == ')' && --depth == 0) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Unbalanced parentheses: " + s);
+    }
+
+    /** Splits on commas outside of parentheses. */
+    private static List<String> splitTopLevel(String body) {
+        var parts = new ArrayList<String>();
+        var depth = 0;
+        var start = 0;
+        for (var i = 0; i < body.length(); i++) {
+            var c = body.charAt(i);
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == ',' && depth == 0) {
+                parts.add(body.substring(start, i));
+                start = i + 1;
+            }
+        }
+        parts.add(body.substring(start));
+        return parts;
+    }
+
+    /** Splits a script on semicolons outside of string literals and drops comments. */
+    static List<String> splitStatements(String script) {
+        var statements = new ArrayList<String>();
+        var current = new StringBuilder();
+        var inString = false;
+
+        for (var i = 0; i < script.length(); i++) {
+            var c = script.charAt(i);
+            if (inString) {
+                current.append(c);
+                inString = c != '\'';
+            } else if (c == '\'') {
+                current.append(c);
+                inString = true;
+            } else if (script.startsWith("/*", i)) {
+                i = script.indexOf("*/", i + 2) + 1;
+            } else if (script.startsWith("--", i)) {
+                var end = script.indexOf('\n', i);
+                i = end < 0 ? script.length() : end;
+            } else if (c == ';') {
+                addStatement(statements, current);
+            } else {
+                current.append(c);
+            }
+        }
+        addStatement(statements, current);
+
+        return statements;
+    }
+
+    private static void addStatement(List<String> statements, StringBuilder current) {
+        var statement = current.toString().trim();
+        if (!statement.isEmpty()) {
+            statements.add(statement);
+        }
+        current.setLength(0);
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.ignite.marshalling.Marshaller;
+
+/**
+ * Marshaller that measures another one: the payload bytes and time of every call go to the {@code <name>.bytes}
+ * counter and the {@code <name>.marshal} and {@code <name>.unmarshal} timers of {@link Metrics#registry()}, and are
+ * also summed per instance, so a task that uses its own instance can read the totals of one execution.
+ */
+public class MeteredMarshaller<T> implements Marshaller<T, byte[]> {
+    private final Marshaller<T, byte[]> delegate;
+
+    private final String name;
+
+    private final AtomicLong bytes = new AtomicLong();
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    public MeteredMarshaller(Marshaller<T, byte[]> delegate, String name) {
+        this.delegate = delegate;
+        this.name = name;
+    }
+
+    @Override
+    public byte[] marshal(T object) {
+        var start = System.nanoTime();
+        var raw = delegate.marshal(object);
+        record(name + ".marshal", raw, System.nanoTime() - start);
+        return raw;
+    }
+
+    @Override
+    public T unmarshal(byte[] raw) {
+        var start = System.nanoTime();
+        var object = delegate.unmarshal(raw);
+        record(name + ".unmarshal", raw, System.nanoTime() - start);
+        return object;
+    }
+
+    /** Payload bytes marshalled and unmarshalled by this instance. */
+    public long bytes() {
+        return bytes.get();
+    }
+
+    /** Time spent in this instance. */
+    public long nanos() {
+        return nanos.get();
+    }
+
+    private void record(String timer, byte[] raw, long elapsed) {
+        var length = raw == null ? 0 : raw.length;
+        bytes.addAndGet(length);
+        nanos.addAndGet(elapsed);
+
+        var registry = Metrics.registry();
+        registry.increment(name + ".bytes", length);
+        registry.recordNanos(timer, elapsed);
+    }
+}
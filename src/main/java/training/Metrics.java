@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Holds the metrics registry of the JVM. Compute jobs are instantiated by the nodes, so they can't be handed a registry
+ * and look it up here instead. The default is an {@link InMemoryMetricsRegistry} registered with the platform MBean
+ * server as {@value #OBJECT_NAME}. When the class is loaded again, as after a redeployment of the deployment unit,
+ * the new registry replaces the old one in JMX.
+ */
+public final class Metrics {
+    public static final String OBJECT_NAME = "training:type=Metrics,name=compute";
+
+    private static volatile MetricsRegistry registry = registerDefault();
+
+    private Metrics() {
+    }
+
+    public static MetricsRegistry registry() {
+        return registry;
+    }
+
+    /** Replaces the registry, for example with one that forwards to a monitoring system. */
+    public static void install(MetricsRegistry registry) {
+        Metrics.registry = registry;
+    }
+
+    private static MetricsRegistry registerDefault() {
+        var registry = new InMemoryMetricsRegistry();
+        try {
+            var server = ManagementFactory.getPlatformMBeanServer();
+            var name = new ObjectName(OBJECT_NAME);
+            // A registry left by a previous deployment of the jobs' unit is no longer recorded to; replace it.
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(registry, name);
+        } catch (JMException | SecurityException e) {
+            // Only JMX access is lost; the registry still records.
+        }
+        return registry;
+    }
+}
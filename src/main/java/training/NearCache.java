@@ -0,0 +1,383 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.ignite.sql.IgniteSql;
+import org.apache.ignite.table.KeyValueView;
+import org.apache.ignite.table.RecordView;
+import org.apache.ignite.table.Tuple;
+
+/**
+ * Read-through cache in front of a key-value or record view, for dimension tables that almost never change such as
+ * Genre, MediaType, Artist and Customer. Hits are served from local memory without a network round trip; misses of one
+ * call are loaded with a single bulk request. Keys that don't exist are cached as well, so they don't go to the
+ * cluster every time either.
+ *
+ * The cache holds at most {@code maxEntries} keys and evicts either the least recently used one or, with
+ * {@link Eviction#LFU}, the least frequently used of the {@value #LFU_SAMPLE} least recently used ones. Entries expire
+ * {@code ttl} after they were loaded. {@link #invalidate(Object)} and {@link #invalidateAll()} also discard loads that
+ * were running at the time, so a stale value can't be cached after an invalidation.
+ *
+ * Hits, misses, loads and evictions are counted here and in {@link Metrics#registry()} as
+ * {@code nearCache.<name>.*}; {@link #estimatedBytes()} approximates the heap taken by the entries.
+ */
+public class NearCache<K, V> {
+    /** How many of the least recently used entries LFU eviction compares. */
+    static final int LFU_SAMPLE = 8;
+
+    /** Fixed cost of an entry: the map node, the entry object and the key and value headers. */
+    private static final long ENTRY_OVERHEAD = 96;
+
+    public enum Eviction {
+        LRU,
+        LFU
+    }
+
+    /** Loads the values of many keys with one request; keys that don't exist are absent from the result. */
+    public interface Loader<K, V> {
+        CompletableFuture<Map<K, V>> loadAll(Collection<K> keys);
+    }
+
+    private final String name;
+
+    private final Loader<K, V> loader;
+
+    private final int maxEntries;
+
+    private final long ttlNanos;
+
+    private final Eviction eviction;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong loads = new AtomicLong();
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    private final AtomicLong expirations = new AtomicLong();
+
+    /** Entries, least recently used first. Guarded by {@code this}, like the fields below. */
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long estimatedBytes;
+
+    /** Changes on every invalidation; loads that started at another generation aren't cached. */
+    private long generation;
+
+    public NearCache(String name, Loader<K, V> loader, int maxEntries, Duration ttl, Eviction eviction) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("Max entries must be positive: " + maxEntries);
+        }
+
+        this.name = name;
+        this.loader = loader;
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+        this.eviction = eviction;
+    }
+
+    /** Cache in front of a key-value view. */
+    public static <K, V> NearCache<K, V> ofKeyValueView(String name, KeyValueView<K, V> view, int maxEntries,
+            Duration ttl, Eviction eviction) {
+        return new NearCache<>(name, keys -> view.getAllAsync(null, keys), maxEntries, ttl, eviction);
+    }
+
+    /** Cache in front of a record view; keys are tuples with the key columns only. */
+    public static NearCache<Tuple, Tuple> ofRecordView(String name, RecordView<Tuple> view, int maxEntries,
+            Duration ttl, Eviction eviction) {
+        return new NearCache<>(name, keys -> {
+            var keyList = new ArrayList<>(keys);
+            return view.getAllAsync(null, keyList).thenApply(records -> {
+                var values = new HashMap<Tuple, Tuple>(keyList.size() * 2);
+                for (var i = 0; i < keyList.size(); i++) {
+                    if (records.get(i) != null) {
+                        values.put(keyList.get(i), records.get(i));
+                    }
+                }
+                return values;
+            });
+        }, maxEntries, ttl, eviction);
+    }
+
+    /**
+     * Reads a whole table as key and value tuples for {@link #preload(Map)}: the key tuple holds {@code keyColumns},
+     * the value tuple every column.
+     */
+    public static Map<Tuple, Tuple> tableRows(IgniteSql sql, String table, String... keyColumns) {
+        var rows = new LinkedHashMap<Tuple, Tuple>();
+        try (var result = sql.execute(null, "select * from " + table)) {
+            while (result.hasNext()) {
+                var row = result.next();
+
+                var key = Tuple.create(keyColumns.length);
+                for (var column : keyColumns) {
+                    key.set(column, row.value(column));
+                }
+                var value = Tuple.create(row.columnCount());
+                for (var i = 0; i < row.columnCount(); i++) {
+                    value.set(row.columnName(i), row.value(i));
+                }
+                rows.put(key, value);
+            }
+        }
+        return rows;
+    }
+
+    /** Returns the value of {@code key}, or {@code null} if it doesn't exist. */
+    public V get(K key) {
+        synchronized (this) {
+            var entry = liveEntry(key, System.nanoTime());
+            if (entry != null) {
+                hit(1);
+                return entry.value;
+            }
+        }
+
+        return getAll(List.of(key)).get(key);
+    }
+
+    /** Returns the values of the keys that exist. */
+    public Map<K, V> getAll(Collection<K> keys) {
+        return getAllAsync(keys).join();
+    }
+
+    /** Returns the values of the keys that exist, loading the ones that aren't cached with one request. */
+    public CompletableFuture<Map<K, V>> getAllAsync(Collection<K> keys) {
+        var values = new HashMap<K, V>(keys.size() * 2);
+        var missing = new ArrayList<K>();
+        long loadGeneration;
+
+        synchronized (this) {
+            var now = System.nanoTime();
+            for (var key : keys) {
+                var entry = liveEntry(key, now);
+                if (entry == null) {
+                    missing.add(key);
+                } else if (entry.value != null) {
+                    values.put(key, entry.value);
+                }
+            }
+            loadGeneration = generation;
+        }
+
+        hit(keys.size() - missing.size());
+        if (missing.isEmpty()) {
+            return CompletableFuture.completedFuture(values);
+        }
+
+        misses.addAndGet(missing.size());
+        loads.incrementAndGet();
+        Metrics.registry().increment("nearCache." + name + ".misses", missing.size());
+
+        return loader.loadAll(missing).thenApply(loaded -> {
+            synchronized (this) {
+                if (generation == loadGeneration) {
+                    var now = System.nanoTime();
+                    for (var key : missing) {
+                        put(key, loaded.get(key), now);
+                    }
+                }
+            }
+
+            for (var key : missing) {
+                var value = loaded.get(key);
+                if (value != null) {
+                    values.put(key, value);
+                }
+            }
+            return values;
+        });
+    }
+
+    /** Puts entries read in bulk, such as a whole table from {@link #tableRows(IgniteSql, String, String...)}. */
+    public synchronized void preload(Map<? extends K, ? extends V> values) {
+        var now = System.nanoTime();
+        for (var entry : values.entrySet()) {
+            put(entry.getKey(), entry.getValue(), now);
+        }
+    }
+
+    public synchronized void invalidate(K key) {
+        generation++;
+        var entry = entries.remove(key);
+        if (entry != null) {
+            estimatedBytes -= entry.bytes;
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        generation++;
+        entries.clear();
+        estimatedBytes = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /** Approximate heap taken by the cached keys and values. */
+    public synchronized long estimatedBytes() {
+        return estimatedBytes;
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    /** Keys that were loaded from the cluster. */
+    public long misses() {
+        return misses.get();
+    }
+
+    /** Bulk requests sent to the cluster. */
+    public long loads() {
+        return loads.get();
+    }
+
+    public long evictions() {
+        return evictions.get();
+    }
+
+    public long expirations() {
+        return expirations.get();
+    }
+
+    public double hitRate() {
+        var lookups = hits.get() + misses.get();
+        return lookups == 0 ? 0 : (double) hits.get() / lookups;
+    }
+
+    private void hit(long count) {
+        if (count > 0) {
+            hits.addAndGet(count);
+            Metrics.registry().increment("nearCache." + name + ".hits", count);
+        }
+    }
+
+    /** Returns the entry of {@code key} if it is cached and not expired. Must hold the lock. */
+    private Entry<V> liveEntry(K key, long now) {
+        var entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+
+        if (now - entry.loadedAt > ttlNanos) {
+            entries.remove(key);
+            estimatedBytes -= entry.bytes;
+            expirations.incrementAndGet();
+            return null;
+        }
+
+        if (entry.frequency < Integer.MAX_VALUE) {
+            entry.frequency++;
+        }
+        return entry;
+    }
+
+    /** Must hold the lock. */
+    private void put(K key, V value, long now) {
+        var entry = new Entry<>(value, now, ENTRY_OVERHEAD + estimateBytes(key) + estimateBytes(value));
+        var previous = entries.put(key, entry);
+        estimatedBytes += entry.bytes - (previous == null ? 0 : previous.bytes);
+
+        while (entries.size() > maxEntries) {
+            var victim = victim();
+            estimatedBytes -= entries.remove(victim).bytes;
+            evictions.incrementAndGet();
+            Metrics.registry().increment("nearCache." + name + ".evictions", 1);
+        }
+    }
+
+    /**
+     * Must hold the lock. The most recently used entry, the one just put, is never sampled: it hasn't had a chance to
+     * be used yet and would otherwise evict itself whenever the cache is smaller than the sample.
+     */
+    private K victim() {
+        var iterator = entries.entrySet().iterator();
+        var victim = iterator.next();
+        if (eviction == Eviction.LFU) {
+            for (var i = 1; i < LFU_SAMPLE && i < entries.size() - 1; i++) {
+                var candidate = iterator.next();
+                if (candidate.getValue().frequency < victim.getValue().frequency) {
+                    victim = candidate;
+                }
+            }
+        }
+        return victim.getKey();
+    }
+
+    /** Rough size of a cached key or value: strings by length, tuples by their columns. */
+    static long estimateBytes(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof String) {
+            return 40 + ((String) value).length();
+        }
+        if (value instanceof BigDecimal) {
+            return 64;
+        }
+        if (value instanceof Number || value instanceof Boolean) {
+            return 16;
+        }
+        if (value instanceof Tuple) {
+            var tuple = (Tuple) value;
+            long bytes = 48;
+            for (var i = 0; i < tuple.columnCount(); i++) {
+                bytes += 16 + estimateBytes(tuple.value(i));
+            }
+            return bytes;
+        }
+        return 64;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("NearCache{name=%s, size=%d, estimatedBytes=%d, hitRate=%.3f, hits=%d, misses=%d, "
+                        + "loads=%d, evictions=%d, expirations=%d}", name, size(), estimatedBytes(), hitRate(),
+                hits(), misses(), loads(), evictions(), expirations());
+    }
+
+    private static class Entry<V> {
+        final V value;
+
+        final long loadedAt;
+
+        final long bytes;
+
+        int frequency;
+
+        Entry(V value, long loadedAt, long bytes) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+            this.bytes = bytes;
+        }
+    }
+}
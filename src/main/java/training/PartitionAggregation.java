@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import org.apache.ignite.Ignite;
+import org.apache.ignite.table.Tuple;
+
+/**
+ * The node side of a {@link ColocatedAggregationTask}: how a job reads one partition into an accumulator, how the
+ * accumulators of its scanning threads combine and what the job sends back. Instances are created on the task node and
+ * on every job node by a no-argument constructor, so they must not hold state of their own; everything an execution
+ * needs comes from the job arguments.
+ *
+ * Aggregations that read a partition with a single query implement {@link PartitionQueryAggregation}, which streams
+ * the rows into the accumulator; those that read it some other way, with more than one query or from a cache,
+ * implement {@link #scan} themselves.
+ *
+ * @param <A> Accumulator of one scanning thread. Primitive-keyed maps such as {@link IntLongHashMap} keep the per-row
+ *      work free of boxing.
+ * @param <P> Partial aggregate a job returns; {@link CompactMarshaller} should have an encoding for it.
+ */
+public interface PartitionAggregation<A, P> {
+    /** Table whose partitions the jobs scan; the task splits by the primary replicas of its partitions. */
+    String table();
+
+    /** Prefix of the {@code task.*} and {@code job.*} metrics of the aggregation, such as {@code "topTracks."}. */
+    String metricsPrefix();
+
+    A createAccumulator(Ignite ignite, Tuple arguments);
+
+    /**
+     * Reads partition {@code partition} into the accumulator.
+     *
+     * @return Number of rows read.
+     */
+    long scan(Ignite ignite, int partition, Tuple arguments, A accumulator);
+
+    /** Adds {@code other} to {@code into}. Scanning threads are combined once per job, after their partitions. */
+    void combine(A into, A other);
+
+    /**
+     * Returns what the job sends to the reduce step for its combined accumulator. This is where a job pre-aggregates,
+     * for example by keeping only its local top K when no group spans two jobs.
+     */
+    P partial(A accumulator, Tuple arguments);
+}
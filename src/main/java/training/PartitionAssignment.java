@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import java.util.BitSet;
+import java.util.Map;
+
+import org.apache.ignite.network.ClusterNode;
+import org.apache.ignite.table.Tuple;
+import org.apache.ignite.table.partition.HashPartition;
+import org.apache.ignite.table.partition.Partition;
+
+/**
+ * The partitions a single job scans and the node it is sent to. Partitions are identified by the real partition id
+ * reported by the table's partition manager, which is what the {@code "__part"} column of a partition query is
+ * compared with.
+ */
+public class PartitionAssignment {
+    private final ClusterNode node;
+
+    private final int[] partitions;
+
+    public PartitionAssignment(ClusterNode node, int[] partitions) {
+        this.node = node;
+        this.partitions = partitions;
+    }
+
+    public ClusterNode getNode() {
+        return node;
+    }
+
+    public int[] getPartitions() {
+        return partitions;
+    }
+
+    /** Job argument tuple that carries the partition ids of this assignment. */
+    public Tuple toArguments() {
+        return Tuple.create().set("partitions", encode(partitions));
+    }
+
+    /** Encodes partition ids as their count followed by the ids as varints. */
+    static byte[] encode(int[] partitions) {
+        var out = new BinaryWriter(1 + partitions.length * 2);
+        out.writeLength(partitions.length);
+        for (var partition : partitions) {
+            out.writeVarInt(partition);
+        }
+        return out.toByteArray();
+    }
+
+    static int[] decode(byte[] raw) {
+        var in = new BinaryReader(raw, 0);
+        var partitions = new int[in.readLength()];
+        for (var i = 0; i < partitions.length; i++) {
+            partitions[i] = in.readVarInt();
+        }
+        return partitions;
+    }
+
+    /** Partition ids of the job arguments built by {@link #toArguments()}. */
+    static int[] fromArguments(Tuple arguments) {
+        return decode(arguments.value("partitions"));
+    }
+
+    /**
+     * Returns the id of a partition returned by {@code PartitionManager}.
+     *
+     * @throws IllegalStateException If the table isn't hash partitioned.
+     */
+    public static int partitionId(Partition partition) {
+        if (partition instanceof HashPartition) {
+            return ((HashPartition) partition).partitionId();
+        }
+
+        throw new IllegalStateException("Unsupported partition type: " + partition.getClass().getName());
+    }
+
+    /**
+     * Returns the ids of all partitions of a table and checks they are exactly {@code 0..n-1}, so a job can't be
+     * silently pointed at a partition that doesn't exist.
+     */
+    public static BitSet allPartitions(Map<Partition, ClusterNode> primaryReplicas) {
+        var ids = new BitSet(primaryReplicas.size());
+        for (var partition : primaryReplicas.keySet()) {
+            var id = partitionId(partition);
+            if (id < 0 || id >= primaryReplicas.size() || ids.get(id)) {
+                throw new IllegalStateException("Unexpected partition id " + id + " in a table with "
+                        + primaryReplicas.size() + " partitions");
+            }
+            ids.set(id);
+        }
+        return ids;
+    }
+}
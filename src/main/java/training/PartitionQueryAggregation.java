@@ -0,0 +1,49 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import org.apache.ignite.Ignite;
+import org.apache.ignite.sql.SqlRow;
+import org.apache.ignite.table.Tuple;
+
+/**
+ * A {@link PartitionAggregation} that reads a partition with one query and adds its rows to the accumulator one by
+ * one.
+ */
+public interface PartitionQueryAggregation<A, P> extends PartitionAggregation<A, P> {
+    /** Query of one partition; {@link #queryArguments} supplies its parameters, the partition id first. */
+    String query(Tuple arguments);
+
+    default Object[] queryArguments(int partition, Tuple arguments) {
+        return new Object[] {partition};
+    }
+
+    /** Adds a row of the partition query to the accumulator. */
+    void accumulate(A accumulator, SqlRow row);
+
+    @Override
+    default long scan(Ignite ignite, int partition, Tuple arguments, A accumulator) {
+        long rows = 0;
+        try (var results = ignite.sql().execute(null, query(arguments), queryArguments(partition, arguments))) {
+            while (results.hasNext()) {
+                accumulate(accumulator, results.next());
+                rows++;
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Scans several partitions of one node in parallel. A bounded number of workers pull partitions from a shared counter,
+ * so at most {@code parallelism} partition queries run at once no matter how many partitions the node owns. Workers
+ * run on virtual threads when the JVM has them (Java 21+) and on a shared pool of daemon threads otherwise.
+ */
+final class PartitionScanner {
+    private static final Method NEW_VIRTUAL_THREAD_EXECUTOR = virtualThreadExecutorFactory();
+
+    private static final ExecutorService PLATFORM_THREADS = NEW_VIRTUAL_THREAD_EXECUTOR != null ? null
+            : Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), r -> {
+                var thread = new Thread(r, "partition-scanner");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private PartitionScanner() {
+    }
+
+    /** Scans one partition into the worker's state. */
+    interface PartitionScan<S> {
+        void scan(int index, int partition, S state);
+    }
+
+    /**
+     * Runs {@code scan} for every partition and returns the per-worker states created by {@code stateFactory}. Each
+     * worker owns its state, so scans don't synchronize with each other.
+     */
+    static <S> ArrayList<S> scan(int[] partitions, int parallelism, Supplier<S> stateFactory, PartitionScan<S> scan) {
+        var workers = Math.max(1, Math.min(parallelism, partitions.length));
+        var states = new ArrayList<S>(workers);
+
+        if (workers == 1) {
+            var state = stateFactory.get();
+            for (var i = 0; i < partitions.length; i++) {
+                scan.scan(i, partitions[i], state);
+            }
+            states.add(state);
+            return states;
+        }
+
+        var next = new AtomicInteger();
+        var executor = NEW_VIRTUAL_THREAD_EXECUTOR != null ? newVirtualThreadExecutor() : PLATFORM_THREADS;
+        try {
+            var futures = new ArrayList<Future<S>>(workers);
+            for (var w = 0; w < workers; w++) {
+                futures.add(executor.submit(() -> {
+                    var state = stateFactory.get();
+                    for (var i = next.getAndIncrement(); i < partitions.length; i = next.getAndIncrement()) {
+                        scan.scan(i, partitions[i], state);
+                    }
+                    return state;
+                }));
+            }
+
+            for (var future : futures) {
+                states.add(future.get());
+            }
+            return states;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            if (executor != PLATFORM_THREADS) {
+                executor.shutdown();
+            }
+        }
+    }
+
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) NEW_VIRTUAL_THREAD_EXECUTOR.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Method virtualThreadExecutorFactory() {
+        try {
+            var factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+
+            // Java 19 and 20 have the method, but it throws unless preview features are enabled.
+            ((ExecutorService) factory.invoke(null)).shutdown();
+
+            return factory;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.ignite.sql.IgniteSql;
+
+/**
+ * Node-side cache of the InvoiceLine columns the top paying customers jobs aggregate: the customer id and amount in
+ * cents of every line of a partition, in two primitive arrays. A job with {@link AggregationStrategy#SNAPSHOT} folds
+ * the arrays into its aggregator instead of materializing the partition query row by row.
+ *
+ * A snapshot is used only while the partition still has the {@link InvoiceLineVersions version} read before the
+ * snapshot was built, which is checked with one primary key lookup before every use. The writers replace the version
+ * after every change they commit, so any change to the lines, even one that keeps the totals, rebuilds the snapshot;
+ * a partition without a version, which no writer changed since it was loaded by other means, is rebuilt every time.
+ * With {@code -Dtraining.snapshotCache.maxStalenessMillis} the check is skipped for that long after the last one, so
+ * repeated scans don't run any SQL. Snapshots of all partitions share
+ * a memory budget, {@code -Dtraining.snapshotCache.bytes} or 1/8 of the maximum heap, and the least recently used
+ * ones are dropped to stay within it.
+ */
+public class PartitionSnapshotCache {
+    static final String ROWS_QUERY = "select customerid, cast(quantity * unitprice * 100 as bigint) as cents "
+            + "from invoiceline where \"__part\" = ?";
+
+    private static final PartitionSnapshotCache INSTANCE = new PartitionSnapshotCache(
+            Long.getLong("training.snapshotCache.bytes", Runtime.getRuntime().maxMemory() / 8),
+            TimeUnit.MILLISECONDS.toNanos(Long.getLong("training.snapshotCache.maxStalenessMillis", 0)));
+
+    /** Array headers and the snapshot object. */
+    private static final long SNAPSHOT_OVERHEAD = 96;
+
+    private final long budgetBytes;
+
+    private final long maxStalenessNanos;
+
+    /** Snapshots by partition id, least recently used first. Guarded by {@code this}, like {@link #bytes}. */
+    private final LinkedHashMap<Integer, Snapshot> snapshots = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long bytes;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong builds = new AtomicLong();
+
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    PartitionSnapshotCache(long budgetBytes, long maxStalenessNanos) {
+        this.budgetBytes = budgetBytes;
+        this.maxStalenessNanos = maxStalenessNanos;
+    }
+
+    /** The cache of this JVM; nodes sharing a JVM share it, which is safe since snapshots are checked before use. */
+    static PartitionSnapshotCache instance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns an up-to-date snapshot of an InvoiceLine partition, building it if the cached one is missing or the
+     * partition changed. Concurrent callers missing the same partition may each build it; the last one is kept.
+     */
+    Snapshot snapshot(IgniteSql sql, int partition) {
+        Snapshot cached;
+        synchronized (this) {
+            cached = snapshots.get(partition);
+        }
+
+        var metrics = Metrics.registry();
+        if (cached != null && System.nanoTime() - cached.validatedAt <= maxStalenessNanos) {
+            return hit(cached);
+        }
+
+        // The version is read first, so a change committed while the snapshot is built makes it stale at once.
+        var version = InvoiceLineVersions.version(sql, partition);
+        if (cached != null) {
+            if (version != null && version.equals(cached.version)) {
+                cached.validatedAt = System.nanoTime();
+                return hit(cached);
+            }
+
+            invalidations.incrementAndGet();
+            metrics.increment("snapshot.invalidations", 1);
+            remove(partition, cached);
+        }
+
+        var start = System.nanoTime();
+        var snapshot = build(sql, partition, version);
+        builds.incrementAndGet();
+        metrics.recordNanos("snapshot.build", System.nanoTime() - start);
+
+        put(partition, snapshot);
+        return snapshot;
+    }
+
+    /** Drops every snapshot, for example after a reload of the media store. */
+    synchronized void clear() {
+        snapshots.clear();
+        bytes = 0;
+    }
+
+    synchronized long bytes() {
+        return bytes;
+    }
+
+    synchronized int size() {
+        return snapshots.size();
+    }
+
+    long hits() {
+        return hits.get();
+    }
+
+    long builds() {
+        return builds.get();
+    }
+
+    long invalidations() {
+        return invalidations.get();
+    }
+
+    long evictions() {
+        return evictions.get();
+    }
+
+    private Snapshot hit(Snapshot snapshot) {
+        hits.incrementAndGet();
+        Metrics.registry().increment("snapshot.hits", 1);
+        return snapshot;
+    }
+
+    private synchronized void put(int partition, Snapshot snapshot) {
+        if (snapshot.bytes() > budgetBytes) {
+            return;
+        }
+
+        var previous = snapshots.remove(partition);
+        if (previous != null) {
+            bytes -= previous.bytes();
+        }
+
+        var iterator = snapshots.values().iterator();
+        while (bytes + snapshot.bytes() > budgetBytes && iterator.hasNext()) {
+            bytes -= iterator.next().bytes();
+            iterator.remove();
+            evictions.incrementAndGet();
+            Metrics.registry().increment("snapshot.evictions", 1);
+        }
+
+        snapshots.put(partition, snapshot);
+        bytes += snapshot.bytes();
+    }
+
+    private synchronized void remove(int partition, Snapshot snapshot) {
+        if (snapshots.remove(partition, snapshot)) {
+            bytes -= snapshot.bytes();
+        }
+    }
+
+    private static Snapshot build(IgniteSql sql, int partition, UUID version) {
+        var customerIds = new int[1024];
+        var cents = new long[1024];
+        var rows = 0;
+
+        try (var result = sql.execute(null, ROWS_QUERY, partition)) {
+            while (result.hasNext()) {
+                var row = result.next();
+                if (rows == customerIds.length) {
+                    customerIds = Arrays.copyOf(customerIds, rows * 2);
+                    cents = Arrays.copyOf(cents, rows * 2);
+                }
+
+                customerIds[rows] = row.intValue("customerId");
+                cents[rows] = row.longValue("cents");
+                rows++;
+            }
+        }
+
+        return new Snapshot(Arrays.copyOf(customerIds, rows), Arrays.copyOf(cents, rows), version);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "PartitionSnapshotCache{" +
+                "partitions=" + snapshots.size() +
+                ", bytes=" + bytes +
+                ", budgetBytes=" + budgetBytes +
+                ", hits=" + hits +
+                ", builds=" + builds +
+                ", invalidations=" + invalidations +
+                ", evictions=" + evictions +
+                '}';
+    }
+
+    /** Columns of one partition; immutable apart from the time of the last version check. */
+    static class Snapshot {
+        private final int[] customerIds;
+
+        private final long[] cents;
+
+        /** Version of the partition read before the columns, {@code null} if it had none. */
+        private final UUID version;
+
+        private volatile long validatedAt = System.nanoTime();
+
+        Snapshot(int[] customerIds, long[] cents, UUID version) {
+            this.customerIds = customerIds;
+            this.cents = cents;
+            this.version = version;
+        }
+
+        /**
+         * Adds every line to {@code aggregator}.
+         *
+         * @return Number of lines.
+         */
+        long aggregateInto(CustomerRevenueAggregator aggregator) {
+            for (var i = 0; i < customerIds.length; i++) {
+                aggregator.add(customerIds[i], cents[i]);
+            }
+            return customerIds.length;
+        }
+
+        long bytes() {
+            return SNAPSHOT_OVERHEAD + 12L * customerIds.length;
+        }
+    }
+}
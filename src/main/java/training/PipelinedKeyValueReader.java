@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+import org.apache.ignite.table.KeyValueView;
+
+/**
+ * Reads many keys from a key-value view with a bounded number of requests in flight. Issuing the next request doesn't
+ * wait for the previous response, so latency overlaps instead of adding up; when the limit is reached the caller
+ * blocks until a response frees a slot.
+ */
+public class PipelinedKeyValueReader<K, V> {
+    private final KeyValueView<K, V> view;
+
+    private final int maxInFlight;
+
+    public PipelinedKeyValueReader(KeyValueView<K, V> view, int maxInFlight) {
+        this.view = view;
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Reads every key with its own {@code getAsync} request. Keys that don't exist are absent from the result.
+     */
+    public Map<K, V> getAll(Collection<K> keys) {
+        var results = new ConcurrentHashMap<K, V>(keys.size());
+        var futures = new ArrayList<CompletableFuture<?>>(keys.size());
+        var permits = new Semaphore(maxInFlight);
+
+        for (var key : keys) {
+            futures.add(submit(permits, () -> view.getAsync(null, key).thenAccept(value -> {
+                if (value != null) {
+                    results.put(key, value);
+                }
+            })));
+        }
+
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        return results;
+    }
+
+    /**
+     * Reads every batch with one {@code getAllAsync} request. Batches are typically the keys owned by one node, so each
+     * request is served by a single primary replica.
+     */
+    public Map<K, V> getAllBatched(Collection<? extends Collection<K>> batches) {
+        var results = new ConcurrentHashMap<K, V>();
+        var futures = new ArrayList<CompletableFuture<?>>(batches.size());
+        var permits = new Semaphore(maxInFlight);
+
+        for (var batch : batches) {
+            futures.add(submit(permits, () -> view.getAllAsync(null, batch).thenAccept(values -> {
+                for (var entry : values.entrySet()) {
+                    if (entry.getValue() != null) {
+                        results.put(entry.getKey(), entry.getValue());
+                    }
+                }
+            })));
+        }
+
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        return results;
+    }
+
+    private static CompletableFuture<?> submit(Semaphore permits, Supplier<CompletableFuture<?>> request) {
+        permits.acquireUninterruptibly();
+        try {
+            return request.get().whenComplete((r, e) -> permits.release());
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,384 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.ignite.client.IgniteClient;
+import org.apache.ignite.table.KeyValueView;
+import training.model.Artist;
+import training.model.TopCustomer;
+
+/**
+ * Resident query service. {@link ComputeApp} and {@link KeyValueApp} connect, run one operation and exit, so every run
+ * pays the connection setup, the topology discovery and the first use of the {@code essentialsCompute} deployment
+ * unit on the nodes. The server keeps one {@link IgniteClient} connected to all docker compose nodes instead, so key
+ * requests go straight to the node owning the key, and answers over HTTP/1.1 on localhost with keep-alive connections:
+ * <ul>
+ *     <li>{@code GET /top-customers?count=5&strategy=JAVA_MERGE} runs {@link TopPayingCustomersTask};</li>
+ *     <li>{@code GET /artists?id=1,2,3} reads the artists with one {@code getAllAsync};</li>
+ *     <li>{@code GET /recommendations?track=1&count=10} reads the tracks most often in the same playlists as the
+ *     track through a {@link TrackRecommender};</li>
+ *     <li>{@code GET /stats} returns the cold and warm latencies of the operations.</li>
+ * </ul>
+ * Before accepting requests the server times the client connection and the first call of each operation, which is
+ * the cold latency, and then runs {@code warmups} more calls, so the jobs are loaded on every node and the client code
+ * is compiled. Served requests are timed from the start of the cluster call to its completion, without HTTP overhead.
+ *
+ * Arguments: {@code [port] [warmups] [address...]}, by default 8080, 5 and the three docker compose nodes.
+ */
+public class QueryServer implements AutoCloseable {
+    private final IgniteClient ignite;
+
+    private final KeyValueView<Integer, Artist> artists;
+
+    private final TrackRecommender recommender;
+
+    private final long connectNanos;
+
+    private final Map<String, Operation> operations = new LinkedHashMap<>();
+
+    private final ExecutorService executor;
+
+    private HttpServer server;
+
+    public static void main(String[] args) throws Exception {
+        var port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        var warmups = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        var addresses = args.length > 2 ? Arrays.copyOfRange(args, 2, args.length) : LoadDriver.COMPOSE_ADDRESSES;
+
+        var server = start(addresses, port, warmups);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+
+        System.out.println(">>> Serving on http://127.0.0.1:" + port + "/, " + server.ignite.connections().size()
+                + " connections to " + String.join(", ", addresses));
+    }
+
+    /** Connects to {@code addresses}, warms the operations up and starts serving on {@code port}. */
+    public static QueryServer start(String[] addresses, int port, int warmups) throws IOException {
+        var start = System.nanoTime();
+        var ignite = IgniteClient.builder()
+                .addresses(addresses)
+                .build();
+        var connectNanos = System.nanoTime() - start;
+
+        var server = new QueryServer(ignite, connectNanos);
+        try {
+            server.prewarm(warmups);
+            server.printStats();
+            server.listen(port);
+        } catch (IOException | RuntimeException e) {
+            server.close();
+            throw e;
+        }
+        return server;
+    }
+
+    private QueryServer(IgniteClient ignite, long connectNanos) {
+        this.ignite = ignite;
+        this.connectNanos = connectNanos;
+        this.artists = ignite.tables().table("Artist").keyValueView(Integer.class, Artist.class);
+        this.recommender = new TrackRecommender(ignite);
+        this.executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), r -> {
+            var thread = new Thread(r, "query-server");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        operations.put("/top-customers", new Operation("topCustomers", this::topCustomers));
+        operations.put("/artists", new Operation("artists", this::artists));
+        operations.put("/recommendations", new Operation("recommendations", this::recommendations));
+    }
+
+    /** Runs every operation once as the cold call and {@code warmups} more times. */
+    private void prewarm(int warmups) {
+        var parameters = Map.of("count", "5", "id", "1,2,3,4,5", "track", "1");
+        for (var operation : operations.values()) {
+            var start = System.nanoTime();
+            operation.handler.apply(parameters).join();
+            operation.coldNanos = System.nanoTime() - start;
+
+            for (var i = 0; i < warmups; i++) {
+                start = System.nanoTime();
+                operation.handler.apply(parameters).join();
+                operation.warmup.record(System.nanoTime() - start);
+            }
+        }
+    }
+
+    private void listen(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        server.setExecutor(executor);
+
+        for (var operation : operations.entrySet()) {
+            server.createContext(operation.getKey(), exchange -> serve(exchange, operation.getValue()));
+        }
+        server.createContext("/stats", exchange -> {
+            if (checkMethod(exchange)) {
+                respond(exchange, 200, statsJson());
+            }
+        });
+        server.start();
+    }
+
+    private void serve(HttpExchange exchange, Operation operation) {
+        if (!checkMethod(exchange)) {
+            return;
+        }
+
+        CompletableFuture<String> response;
+        var start = System.nanoTime();
+        try {
+            response = operation.handler.apply(parameters(exchange.getRequestURI().getRawQuery()));
+        } catch (IllegalArgumentException e) {
+            respond(exchange, 400, errorJson(e));
+            return;
+        }
+
+        response.whenComplete((json, error) -> {
+            if (error == null) {
+                operation.served.record(System.nanoTime() - start);
+                respond(exchange, 200, json);
+            } else {
+                operation.errors.incrementAndGet();
+                respond(exchange, 500, errorJson(error instanceof CompletionException ? error.getCause() : error));
+            }
+        });
+    }
+
+    private CompletableFuture<String> topCustomers(Map<String, String> parameters) {
+        var count = Integer.parseInt(parameters.getOrDefault("count", "5"));
+        var strategy = AggregationStrategy.valueOf(parameters.getOrDefault("strategy", "JAVA_MERGE"));
+
+        return ignite.compute()
+                .executeMapReduceAsync(TopPayingCustomersTask.descriptor(), TopPayingCustomersTask.input(count, strategy))
+                .thenApply(result -> {
+                    var json = new StringBuilder("{\"customers\": [");
+                    var customers = result.getCustomers();
+                    for (var i = 0; i < customers.length; i++) {
+                        json.append(i == 0 ? "" : ", ").append(customerJson(customers[i]));
+                    }
+                    return json.append("]}").toString();
+                });
+    }
+
+    private CompletableFuture<String> artists(Map<String, String> parameters) {
+        var ids = parameters.get("id");
+        if (ids == null) {
+            throw new IllegalArgumentException("Missing parameter: id");
+        }
+
+        var keys = new ArrayList<Integer>();
+        for (var id : ids.split(",")) {
+            keys.add(Integer.parseInt(id.trim()));
+        }
+
+        return artists.getAllAsync(null, keys).thenApply(found -> {
+            var json = new StringBuilder("{\"artists\": [");
+            for (var i = 0; i < keys.size(); i++) {
+                var artist = found.get(keys.get(i));
+                json.append(i == 0 ? "" : ", ")
+                        .append("{\"artistId\": ").append(keys.get(i))
+                        .append(", \"name\": ").append(artist == null ? "null" : string(artist.getName()))
+                        .append('}');
+            }
+            return json.append("]}").toString();
+        });
+    }
+
+    private CompletableFuture<String> recommendations(Map<String, String> parameters) {
+        var track = parameters.get("track");
+        if (track == null) {
+            throw new IllegalArgumentException("Missing parameter: track");
+        }
+        var trackId = Integer.parseInt(track.trim());
+        var count = Integer.parseInt(parameters.getOrDefault("count", "10"));
+
+        return recommender.recommendAsync(trackId, count).thenApply(recommendations -> {
+            var json = new StringBuilder("{\"trackId\": ").append(trackId).append(", \"recommendations\": [");
+            for (var i = 0; i < recommendations.length; i++) {
+                json.append(i == 0 ? "" : ", ")
+                        .append("{\"trackId\": ").append(recommendations[i].getTrackId())
+                        .append(", \"sharedPlaylists\": ").append(recommendations[i].getSharedPlaylists())
+                        .append('}');
+            }
+            return json.append("]}").toString();
+        });
+    }
+
+    String statsJson() {
+        var json = new StringBuilder("{\n")
+                .append("  \"connectMs\": ").append(number(connectNanos / 1e6)).append(",\n")
+                .append("  \"connections\": ").append(ignite.connections().size()).append(",\n")
+                .append("  \"operations\": {\n");
+
+        var first = true;
+        for (var operation : operations.values()) {
+            json.append(first ? "" : ",\n")
+                    .append("    \"").append(operation.name).append("\": {")
+                    .append("\"coldMs\": ").append(number(operation.coldNanos / 1e6))
+                    .append(", \"warmup\": ").append(latencyJson(operation.warmup))
+                    .append(", \"served\": ").append(latencyJson(operation.served))
+                    .append(", \"errors\": ").append(operation.errors.get())
+                    .append('}');
+            first = false;
+        }
+        return json.append("\n  }\n}\n").toString();
+    }
+
+    void printStats() {
+        System.out.printf(">>> Client connected in %.2f ms%n", connectNanos / 1e6);
+        System.out.printf("%-14s %10s %8s %10s %10s %8s %10s %10s %10s%n", "operation", "cold ms", "warmups",
+                "p50 ms", "max ms", "served", "p50 ms", "p99 ms", "max ms");
+        for (var operation : operations.values()) {
+            var warmup = operation.warmup;
+            var served = operation.served;
+            System.out.printf("%-14s %10.3f %8d %10.3f %10.3f %8d %10.3f %10.3f %10.3f%n", operation.name,
+                    operation.coldNanos / 1e6, warmup.count(), warmup.percentile(50) / 1e6, warmup.max() / 1e6,
+                    served.count(), served.percentile(50) / 1e6, served.percentile(99) / 1e6, served.max() / 1e6);
+        }
+    }
+
+    /** Stops accepting requests, prints the latencies and closes the client. */
+    @Override
+    public void close() {
+        if (server != null) {
+            server.stop(1);
+            printStats();
+        }
+        executor.shutdown();
+        ignite.close();
+    }
+
+    private static boolean checkMethod(HttpExchange exchange) {
+        if ("GET".equals(exchange.getRequestMethod())) {
+            return true;
+        }
+        exchange.getResponseHeaders().set("Allow", "GET");
+        respond(exchange, 405, "{\"error\": \"Only GET is supported\"}");
+        return false;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) {
+        var body = json.getBytes(StandardCharsets.UTF_8);
+        try {
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(status, body.length);
+            exchange.getResponseBody().write(body);
+        } catch (IOException e) {
+            // The caller went away; the connection is dropped by the server.
+        } finally {
+            exchange.close();
+        }
+    }
+
+    static Map<String, String> parameters(String query) {
+        var parameters = new HashMap<String, String>();
+        if (query == null) {
+            return parameters;
+        }
+        for (var pair : query.split("&")) {
+            var eq = pair.indexOf('=');
+            if (eq > 0) {
+                parameters.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return parameters;
+    }
+
+    private static String customerJson(TopCustomer customer) {
+        return "{\"customerId\": " + customer.getCustomerId()
+                + ", \"fullName\": " + string(customer.getFullName())
+                + ", \"city\": " + string(customer.getCity())
+                + ", \"country\": " + string(customer.getCountry())
+                + ", \"totalPurchases\": " + customer.getTotalPurchases().toPlainString() + '}';
+    }
+
+    private static String latencyJson(LatencyHistogram latency) {
+        return "{\"count\": " + latency.count()
+                + ", \"meanMs\": " + number(latency.mean() / 1e6)
+                + ", \"p50Ms\": " + number(latency.percentile(50) / 1e6)
+                + ", \"p99Ms\": " + number(latency.percentile(99) / 1e6)
+                + ", \"maxMs\": " + number(latency.max() / 1e6) + '}';
+    }
+
+    private static String errorJson(Throwable error) {
+        return "{\"error\": " + string(String.valueOf(error.getMessage())) + '}';
+    }
+
+    /** Quotes {@code s} as a JSON string, or returns {@code null} for a missing value. */
+    static String string(String s) {
+        if (s == null) {
+            return "null";
+        }
+
+        var json = new StringBuilder(s.length() + 2).append('"');
+        for (var i = 0; i < s.length(); i++) {
+            var c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        return json.append('"').toString();
+    }
+
+    private static String number(double value) {
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+
+    /** An operation served at one path and its latencies. */
+    private static class Operation {
+        final String name;
+
+        final Function<Map<String, String>, CompletableFuture<String>> handler;
+
+        final LatencyHistogram warmup = new LatencyHistogram();
+
+        final LatencyHistogram served = new LatencyHistogram();
+
+        final AtomicLong errors = new AtomicLong();
+
+        volatile long coldNanos;
+
+        Operation(String name, Function<Map<String, String>, CompletableFuture<String>> handler) {
+            this.name = name;
+            this.handler = handler;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+
+import org.apache.ignite.client.IgniteClient;
+import training.model.Artist;
+
+/**
+ * Compares the latency a caller sees when every run connects anew, as {@link ComputeApp} and {@link KeyValueApp} do,
+ * with requests to a running {@link QueryServer} over one keep-alive HTTP connection. A one-shot run is timed from the
+ * start of the connection to the completion of the top customers task and of a read of five artists; the resident
+ * requests ask the server for the same data. The server's own cold and warm latencies are printed at the end.
+ *
+ * Arguments: {@code [iterations] [serverUrl]}, by default 20 and {@code http://127.0.0.1:8080}.
+ */
+public class QueryServerBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        var iterations = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        var url = args.length > 1 ? args[1] : "http://127.0.0.1:8080";
+
+        var connect = new LatencyHistogram();
+        var oneShot = new LatencyHistogram();
+        for (var i = 0; i < iterations; i++) {
+            var start = System.nanoTime();
+            try (var ignite = IgniteClient.builder()
+                    .addresses("127.0.0.1:10800")
+                    .build()
+            ) {
+                connect.record(System.nanoTime() - start);
+
+                ignite.compute().executeMapReduce(TopPayingCustomersTask.descriptor(),
+                        TopPayingCustomersTask.input(5, AggregationStrategy.JAVA_MERGE));
+                ignite.tables().table("Artist").keyValueView(Integer.class, Artist.class)
+                        .getAll(null, List.of(1, 2, 3, 4, 5));
+            }
+            oneShot.record(System.nanoTime() - start);
+        }
+
+        var http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .build();
+        var resident = new LatencyHistogram();
+        for (var i = 0; i < iterations; i++) {
+            var start = System.nanoTime();
+            get(http, url + "/top-customers?count=5");
+            get(http, url + "/artists?id=1,2,3,4,5");
+            resident.record(System.nanoTime() - start);
+        }
+
+        System.out.printf("%-22s %8s %10s %10s %10s %10s%n", "mode", "runs", "mean ms", "p50 ms", "p99 ms", "max ms");
+        print("One-shot connect", connect);
+        print("One-shot total", oneShot);
+        print("Resident server", resident);
+
+        System.out.println(">>> Server stats: " + get(http, url + "/stats"));
+    }
+
+    private static String get(HttpClient http, String uri) throws Exception {
+        var response = http.send(HttpRequest.newBuilder(URI.create(uri)).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(uri + " returned " + response.statusCode() + ": " + response.body());
+        }
+        return response.body();
+    }
+
+    private static void print(String mode, LatencyHistogram latency) {
+        System.out.printf("%-22s %8d %10.3f %10.3f %10.3f %10.3f%n", mode, latency.count(), latency.mean() / 1e6,
+                latency.percentile(50) / 1e6, latency.percentile(99) / 1e6, latency.max() / 1e6);
+    }
+}
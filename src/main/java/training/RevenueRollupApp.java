@@ -0,0 +1,56 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import org.apache.ignite.client.IgniteClient;
+
+/**
+ * Prints the revenue by billing country, by month and by genre computed by {@link RevenueRollupTask}: every job joins
+ * the invoices and invoice lines of its own partitions and only the partial rollups travel to the reduce step.
+ *
+ * Arguments: {@code [split]}, by default {@code PER_NODE}.
+ */
+public class RevenueRollupApp {
+
+    public static void main(String[] args) {
+        var split = args.length > 0 ? SplitMode.valueOf(args[0]) : SplitMode.PER_NODE;
+
+        try (var ignite = IgniteClient.builder()
+                .addresses("127.0.0.1:10800")
+                .build()
+        ) {
+            var rollup = ignite.compute().executeMapReduce(RevenueRollupTask.descriptor(),
+                    RevenueRollupTask.input(split));
+
+            System.out.println(">>> Revenue of " + rollup.getLines() + " invoice lines");
+            print("Country", rollup.byCountry());
+            print("Month", rollup.byMonth());
+            print("Genre", rollup.byGenre());
+        }
+    }
+
+    private static void print(String dimension, Map<String, BigDecimal> revenue) {
+        System.out.println();
+        System.out.println(">>> Revenue by " + dimension);
+        for (var entry : revenue.entrySet()) {
+            System.out.printf("%-30s %14s%n", entry.getKey(), entry.getValue());
+        }
+    }
+}
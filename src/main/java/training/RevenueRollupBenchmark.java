@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.ignite.Ignite;
+import org.apache.ignite.client.IgniteClient;
+import org.apache.ignite.table.DataStreamerOptions;
+import training.model.RevenueRollup;
+
+/**
+ * Compares the revenue rollups by country, month and genre run as three SQL {@code GROUP BY} joins with
+ * {@link RevenueRollupTask}, which computes all three in one pass over the colocated partitions. For every scale the
+ * media store is regenerated with {@link MediaStoreGenerator}; the task must return the same amounts, to the cent, as
+ * the SQL queries.
+ *
+ * Arguments: {@code [iterations] [scale...]}, by default 20 and the scales 1, 10 and 100. The cluster is reloaded.
+ */
+public class RevenueRollupBenchmark {
+    private static final String CENTS = "sum(cast(l.quantity * l.unitprice * 100 as bigint))";
+
+    private static final String LINES_WITH_INVOICES = "from invoiceline l join invoice i "
+            + "on i.invoiceid = l.invoiceid and i.customerid = l.customerid ";
+
+    private static final String MONTH = "extract(year from i.invoicedate) * 100 + extract(month from i.invoicedate)";
+
+    /** Dimension name to a query returning the key and the revenue in cents. */
+    private static final Map<String, String> QUERIES = new LinkedHashMap<>();
+
+    static {
+        QUERIES.put("country", "select i.billingcountry, " + CENTS + " " + LINES_WITH_INVOICES
+                + "group by i.billingcountry");
+        QUERIES.put("month", "select " + MONTH + ", " + CENTS + " " + LINES_WITH_INVOICES + "group by " + MONTH);
+        QUERIES.put("genre", "select g.name, " + CENTS + " from invoiceline l "
+                + "join track t on t.trackid = l.trackid join genre g on g.genreid = t.genreid group by g.name");
+    }
+
+    public static void main(String[] args) throws Exception {
+        var iterations = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        var scales = args.length > 1
+                ? Arrays.stream(args, 1, args.length).mapToInt(Integer::parseInt).toArray()
+                : new int[] {1, 10, 100};
+
+        var script = MediaStoreScript.parse(Path.of("config/media_store.sql"));
+
+        try (var ignite = IgniteClient.builder()
+                .addresses("127.0.0.1:10800")
+                .build()
+        ) {
+            for (var scale : scales) {
+                System.out.println(">>> Loading scale " + scale);
+                new MediaStoreGenerator(script, scale, 1.0, 42).load(ignite, DataStreamerOptions.DEFAULT, 10_000);
+
+                long lines;
+                try (var result = ignite.sql().execute(null, "select count(*) from InvoiceLine")) {
+                    lines = result.next().longValue(0);
+                }
+
+                System.out.printf("%n%-8s %10s %-40s %12s %12s%n", "scale", "lines", "variant", "p50 ms", "p99 ms");
+                var expected = new HashMap<String, Map<String, Long>>();
+                for (var query : QUERIES.entrySet()) {
+                    print(scale, lines, "SQL by " + query.getKey(),
+                            TopPayingCustomersBenchmark.measure(() -> expected.put(query.getKey(), runQuery(ignite, query.getValue())), iterations));
+                }
+                print(scale, lines, "SQL all dimensions", TopPayingCustomersBenchmark.measure(() -> {
+                    for (var query : QUERIES.values()) {
+                        runQuery(ignite, query);
+                    }
+                    return null;
+                }, iterations));
+
+                for (var split : SplitMode.values()) {
+                    var rollup = new RevenueRollup[1];
+                    print(scale, lines, "RevenueRollupTask " + split, TopPayingCustomersBenchmark.measure(() -> rollup[0] = ignite.compute()
+                            .executeMapReduce(RevenueRollupTask.descriptor(), RevenueRollupTask.input(split)), iterations));
+
+                    var actual = Map.of(
+                            "country", cents(rollup[0].byCountry()),
+                            "month", months(rollup[0]),
+                            "genre", cents(rollup[0].byGenre()));
+                    for (var dimension : QUERIES.keySet()) {
+                        if (!actual.get(dimension).equals(expected.get(dimension))) {
+                            System.out.println("!!! " + split + " by " + dimension + " returned "
+                                    + actual.get(dimension) + ", SQL: " + expected.get(dimension));
+                        }
+                    }
+                }
+                System.out.println();
+            }
+        }
+    }
+
+    private static void print(int scale, long lines, String variant, long[] latencies) {
+        System.out.printf("%-8d %10d %-40s %12.2f %12.2f%n", scale, lines, variant,
+                TopPayingCustomersBenchmark.percentile(latencies, 0.5) / 1e6,
+                TopPayingCustomersBenchmark.percentile(latencies, 0.99) / 1e6);
+    }
+
+    /** Runs a rollup query and returns the cents per key, a {@code null} key as {@code "null"}. */
+    private static Map<String, Long> runQuery(Ignite ignite, String query) {
+        var cents = new HashMap<String, Long>();
+        try (var rows = ignite.sql().execute(null, query)) {
+            while (rows.hasNext()) {
+                var row = rows.next();
+                Number value = row.value(1);
+                cents.put(String.valueOf((Object) row.value(0)), value == null ? 0 : value.longValue());
+            }
+        }
+        return cents;
+    }
+
+    /** Months keyed by their {@code yyyymm} number, like the SQL query returns them. */
+    private static Map<String, Long> months(RevenueRollup rollup) {
+        var cents = new HashMap<String, Long>();
+        for (var i = 0; i < rollup.getMonths().length; i++) {
+            cents.put(rollup.getMonths()[i] == 0 ? "null" : String.valueOf(rollup.getMonths()[i]),
+                    rollup.getMonthCents()[i]);
+        }
+        return cents;
+    }
+
+    private static Map<String, Long> cents(Map<String, BigDecimal> revenue) {
+        var cents = new HashMap<String, Long>();
+        for (var entry : revenue.entrySet()) {
+            cents.put(String.valueOf(entry.getKey()), entry.getValue().movePointRight(2).longValueExact());
+        }
+        return cents;
+    }
+}
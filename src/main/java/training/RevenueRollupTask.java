@@ -0,0 +1,414 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.ignite.Ignite;
+import org.apache.ignite.compute.TaskDescriptor;
+import org.apache.ignite.compute.task.TaskExecutionContext;
+import org.apache.ignite.marshalling.Marshaller;
+import org.apache.ignite.sql.IgniteSql;
+import org.apache.ignite.table.Tuple;
+import training.model.RevenueRollup;
+
+/**
+ * Revenue by billing country, by month of the invoice date and by genre in one pass over the invoice lines. Invoice
+ * and InvoiceLine are both colocated by CustomerId, so partition {@code p} of InvoiceLine only refers to invoices in
+ * partition {@code p} of Invoice: a job reads the invoices of a partition into a primitive map, then streams the lines
+ * and adds their amounts to {@link IntLongHashMap}s keyed by a country code, a {@code yyyymm} month and a genre id.
+ *
+ * Track is colocated by ArtistId, so the genre of a line's track can be anywhere. Every node keeps the whole
+ * TrackId to GenreId mapping in memory instead: the task computes a version of Track once per execution and sends it
+ * to the jobs, which reload their node's copy only when the version changed. Genre names are needed by the reduce step
+ * alone, which merges the partial rollups and sorts every dimension by revenue.
+ *
+ * The joins are inner joins on InvoiceId and CustomerId, and on TrackId and GenreId; invoice ids are expected to be
+ * unique, as they are in the media store. The task input is a tuple with the {@link SplitMode} ({@code split},
+ * {@code PER_NODE} by default).
+ */
+public class RevenueRollupTask
+        extends ColocatedAggregationTask<RevenueRollupTask.RollupState, RevenueRollup, RevenueRollup> {
+    static final String INVOICE_QUERY = "select invoiceid, customerid, billingcountry, invoicedate from invoice "
+            + "where \"__part\" = ?";
+
+    static final String LINE_QUERY = "select invoiceid, customerid, trackid, "
+            + "cast(quantity * unitprice * 100 as bigint) as cents from invoiceline where \"__part\" = ?";
+
+    static final String TRACK_VERSION_QUERY = "select count(*), sum(cast(trackid as bigint)), "
+            + "sum(cast(genreid as bigint)), sum(cast(trackid as bigint) * genreid) from track";
+
+    static final String TRACK_GENRE_QUERY = "select trackid, genreid from track where genreid is not null";
+
+    /** TrackId to GenreId of every node in this JVM, keyed by node name. */
+    private static final Map<String, TrackGenres> TRACK_GENRES = new ConcurrentHashMap<>();
+
+    private Map<Integer, String> genres;
+
+    public RevenueRollupTask() {
+        super(new RevenueRollupAggregation(), RevenueRollupJob.class);
+    }
+
+    static TaskDescriptor<Tuple, RevenueRollup> descriptor() {
+        return TaskDescriptor.builder(RevenueRollupTask.class)
+                .units(ComputeApp.deploymentUnits())
+                .reduceJobResultMarshaller(CompactMarshaller.create())
+                .build();
+    }
+
+    static Tuple input(SplitMode split) {
+        return Tuple.create().set("split", split.name());
+    }
+
+    @Override
+    public Marshaller<RevenueRollup, byte[]> reduceJobResultMarshaller() {
+        return CompactMarshaller.create();
+    }
+
+    @Override
+    protected CompletableFuture<Tuple> jobArgumentsAsync(TaskExecutionContext taskExecutionContext, Tuple input) {
+        var sql = taskExecutionContext.ignite().sql();
+        return LongestTracksTask.readGenresAsync(sql, Integer.MAX_VALUE)
+                .thenCompose(genreNames -> {
+                    genres = genreNames;
+                    return TrackGenres.versionAsync(sql);
+                })
+                .thenApply(version -> Tuple.create().set("trackVersion", version));
+    }
+
+    @Override
+    protected CompletableFuture<RevenueRollup> finish(TaskExecutionContext taskExecutionContext, Tuple input,
+            List<RevenueRollup> partials, Reduction reduction) {
+        return CompletableFuture.completedFuture(merge(partials, genres));
+    }
+
+    /**
+     * Merges partial rollups and sorts every dimension by revenue, then by key. Genres without a name in
+     * {@code genres} are dropped, like the inner join with Genre does.
+     */
+    static RevenueRollup merge(Iterable<RevenueRollup> results, Map<Integer, String> genres) {
+        var countries = new HashMap<String, Long>();
+        var months = new IntLongHashMap(64);
+        var genreCents = new IntLongHashMap(32);
+        long lines = 0;
+        long unmatchedLines = 0;
+
+        for (var result : results) {
+            for (var i = 0; i < result.getCountries().length; i++) {
+                countries.merge(result.getCountries()[i], result.getCountryCents()[i], Long::sum);
+            }
+            for (var i = 0; i < result.getMonths().length; i++) {
+                months.addTo(result.getMonths()[i], result.getMonthCents()[i]);
+            }
+            for (var i = 0; i < result.getGenreIds().length; i++) {
+                if (genres.containsKey(result.getGenreIds()[i])) {
+                    genreCents.addTo(result.getGenreIds()[i], result.getGenreCents()[i]);
+                }
+            }
+            lines += result.getLines();
+            unmatchedLines += result.getUnmatchedLines();
+        }
+
+        var countryOrder = new ArrayList<>(countries.entrySet());
+        countryOrder.sort(Map.Entry.<String, Long>comparingByValue().reversed()
+                .thenComparing(Map.Entry::getKey, Comparator.nullsFirst(String::compareTo)));
+        var countryNames = new String[countryOrder.size()];
+        var countryCents = new long[countryOrder.size()];
+        for (var i = 0; i < countryNames.length; i++) {
+            countryNames[i] = countryOrder.get(i).getKey();
+            countryCents[i] = countryOrder.get(i).getValue();
+        }
+
+        var monthKeys = sortedKeys(months);
+        var genreIds = sortedKeys(genreCents);
+        var genreNames = new String[genreIds.length];
+        for (var i = 0; i < genreIds.length; i++) {
+            genreNames[i] = genres.get(genreIds[i]);
+        }
+
+        var rollup = new RevenueRollup(countryNames, countryCents, monthKeys, values(months, monthKeys), genreIds,
+                values(genreCents, genreIds), lines, unmatchedLines);
+        rollup.setGenreNames(genreNames);
+        return rollup;
+    }
+
+    /** Keys of the map, largest value first, ties by key. */
+    private static int[] sortedKeys(IntLongHashMap map) {
+        var keys = Arrays.stream(map.keys()).boxed().toArray(Integer[]::new);
+        Arrays.sort(keys, (a, b) -> {
+            var byValue = Long.compare(map.get(b, 0), map.get(a, 0));
+            return byValue != 0 ? byValue : Integer.compare(a, b);
+        });
+        return Arrays.stream(keys).mapToInt(Integer::intValue).toArray();
+    }
+
+    private static long[] values(IntLongHashMap map, int[] keys) {
+        var values = new long[keys.length];
+        for (var i = 0; i < keys.length; i++) {
+            values[i] = map.get(keys[i], 0);
+        }
+        return values;
+    }
+
+    /** {@code yyyymm} of a date, {@code 0} when there is none. */
+    static int month(LocalDate date) {
+        return date == null ? 0 : date.getYear() * 100 + date.getMonthValue();
+    }
+
+    /** The TrackId to GenreId mapping of one node, tagged with the version of Track it was read at. */
+    static final class TrackGenres {
+        final long version;
+
+        final IntLongHashMap genres;
+
+        private TrackGenres(long version, IntLongHashMap genres) {
+            this.version = version;
+            this.genres = genres;
+        }
+
+        /**
+         * Combines the row count with sums over the ids, so that adding, removing or re-genring a track changes the
+         * version. The aggregate still scans all of Track, once per task execution, but returns a single row instead of
+         * the mapping every node would otherwise read.
+         */
+        static CompletableFuture<Long> versionAsync(IgniteSql sql) {
+            var version = new long[] {1};
+            return AsyncQueries.forEachRow(sql, TRACK_VERSION_QUERY, row -> {
+                for (var i = 0; i < row.columnCount(); i++) {
+                    Number value = row.value(i);
+                    version[0] = version[0] * 1_000_003 + (value == null ? 0 : value.longValue());
+                }
+            }).thenApply(ignored -> version[0]);
+        }
+
+        /**
+         * Returns the node's mapping, reading Track first if it is missing or older than {@code version}. Track is read
+         * outside the map, so jobs of other nodes in the JVM aren't blocked meanwhile; concurrent jobs of the node that
+         * find the same old mapping may each read it, and the last one read is kept.
+         */
+        static TrackGenres forNode(Ignite ignite, long version) {
+            var cached = TRACK_GENRES.get(ignite.name());
+            if (cached != null && cached.version == version) {
+                return cached;
+            }
+
+            var loaded = load(ignite.sql(), version);
+            TRACK_GENRES.put(ignite.name(), loaded);
+            return loaded;
+        }
+
+        private static TrackGenres load(IgniteSql sql, long version) {
+            var genres = new IntLongHashMap(4096);
+            try (var rows = sql.execute(null, TRACK_GENRE_QUERY)) {
+                while (rows.hasNext()) {
+                    var row = rows.next();
+                    genres.put(row.intValue("trackId"), row.intValue("genreId"));
+                }
+            }
+            Metrics.registry().increment("revenueRollup.trackGenreLoads", 1);
+            return new TrackGenres(version, genres);
+        }
+    }
+
+    public static class RevenueRollupJob extends ColocatedAggregationJob<RollupState, RevenueRollup> {
+        public RevenueRollupJob() {
+            super(new RevenueRollupAggregation());
+        }
+    }
+
+    /** Joins the invoices and invoice lines of a partition and adds the line amounts to the three dimensions. */
+    static class RevenueRollupAggregation implements PartitionAggregation<RollupState, RevenueRollup> {
+        @Override
+        public String table() {
+            return "InvoiceLine";
+        }
+
+        @Override
+        public String metricsPrefix() {
+            return "revenueRollup.";
+        }
+
+        @Override
+        public RollupState createAccumulator(Ignite ignite, Tuple arguments) {
+            long trackVersion = arguments.value("trackVersion");
+            return new RollupState(TrackGenres.forNode(ignite, trackVersion).genres);
+        }
+
+        @Override
+        public long scan(Ignite ignite, int partition, Tuple arguments, RollupState state) {
+            var sql = ignite.sql();
+            long rows = 0;
+
+            state.clearInvoices();
+            try (var results = sql.execute(null, INVOICE_QUERY, partition)) {
+                while (results.hasNext()) {
+                    var row = results.next();
+                    state.addInvoice(row.intValue("invoiceId"), row.intValue("customerId"),
+                            row.stringValue("billingCountry"), month(row.dateValue("invoiceDate")));
+                    rows++;
+                }
+            }
+
+            try (var results = sql.execute(null, LINE_QUERY, partition)) {
+                while (results.hasNext()) {
+                    var row = results.next();
+                    state.addLine(row.intValue("invoiceId"), row.intValue("customerId"), row.intValue("trackId"),
+                            row.longValue("cents"));
+                    rows++;
+                }
+            }
+            return rows;
+        }
+
+        @Override
+        public void combine(RollupState into, RollupState other) {
+            into.addAll(other);
+        }
+
+        @Override
+        public RevenueRollup partial(RollupState state, Tuple arguments) {
+            return state.toRollup();
+        }
+    }
+
+    /**
+     * Aggregation state of one scanning thread. Countries are dictionary-encoded per thread, so the country map is
+     * keyed by a small int like the others; {@link #addAll} re-encodes the countries of the other thread by name.
+     */
+    static class RollupState {
+        private final IntLongHashMap trackGenres;
+
+        private final Map<String, Integer> countryCodes = new HashMap<>();
+
+        private final List<String> countries = new ArrayList<>();
+
+        /** InvoiceId to the invoice's index in the arrays below, for the partition being scanned. */
+        private final IntLongHashMap invoices = new IntLongHashMap(1024);
+
+        private int[] invoiceCustomers = new int[1024];
+
+        private int[] invoiceCountries = new int[1024];
+
+        private int[] invoiceMonths = new int[1024];
+
+        private int invoiceCount;
+
+        private final IntLongHashMap countryCents = new IntLongHashMap(32);
+
+        private final IntLongHashMap monthCents = new IntLongHashMap(64);
+
+        private final IntLongHashMap genreCents = new IntLongHashMap(32);
+
+        private long lines;
+
+        private long unmatchedLines;
+
+        RollupState(IntLongHashMap trackGenres) {
+            this.trackGenres = trackGenres;
+        }
+
+        void clearInvoices() {
+            invoices.clear();
+            invoiceCount = 0;
+        }
+
+        void addInvoice(int invoiceId, int customerId, String country, int month) {
+            if (invoiceCount == invoiceCustomers.length) {
+                invoiceCustomers = Arrays.copyOf(invoiceCustomers, invoiceCount * 2);
+                invoiceCountries = Arrays.copyOf(invoiceCountries, invoiceCount * 2);
+                invoiceMonths = Arrays.copyOf(invoiceMonths, invoiceCount * 2);
+            }
+
+            invoiceCustomers[invoiceCount] = customerId;
+            invoiceCountries[invoiceCount] = countryCode(country);
+            invoiceMonths[invoiceCount] = month;
+            invoices.put(invoiceId, invoiceCount++);
+        }
+
+        void addLine(int invoiceId, int customerId, int trackId, long cents) {
+            var invoice = (int) invoices.get(invoiceId, -1);
+            if (invoice < 0 || invoiceCustomers[invoice] != customerId) {
+                unmatchedLines++;
+                return;
+            }
+
+            countryCents.addTo(invoiceCountries[invoice], cents);
+            monthCents.addTo(invoiceMonths[invoice], cents);
+            var genreId = trackGenres.get(trackId, -1);
+            if (genreId >= 0) {
+                genreCents.addTo((int) genreId, cents);
+            }
+            lines++;
+        }
+
+        void addAll(RollupState other) {
+            for (var slot = 0; slot < other.countryCents.capacity(); slot++) {
+                if (other.countryCents.isUsed(slot)) {
+                    countryCents.addTo(countryCode(other.countries.get(other.countryCents.keyAt(slot))),
+                            other.countryCents.valueAt(slot));
+                }
+            }
+            addAll(monthCents, other.monthCents);
+            addAll(genreCents, other.genreCents);
+            lines += other.lines;
+            unmatchedLines += other.unmatchedLines;
+        }
+
+        RevenueRollup toRollup() {
+            var countryNames = new String[countryCents.size()];
+            var countryTotals = new long[countryNames.length];
+            var n = 0;
+            for (var slot = 0; slot < countryCents.capacity(); slot++) {
+                if (countryCents.isUsed(slot)) {
+                    countryNames[n] = countries.get(countryCents.keyAt(slot));
+                    countryTotals[n++] = countryCents.valueAt(slot);
+                }
+            }
+
+            var months = monthCents.keys();
+            var genreIds = genreCents.keys();
+            return new RevenueRollup(countryNames, countryTotals, months, values(monthCents, months), genreIds,
+                    values(genreCents, genreIds), lines, unmatchedLines);
+        }
+
+        private int countryCode(String country) {
+            var code = countryCodes.get(country);
+            if (code == null) {
+                code = countries.size();
+                countryCodes.put(country, code);
+                countries.add(country);
+            }
+            return code;
+        }
+
+        private static void addAll(IntLongHashMap into, IntLongHashMap other) {
+            for (var slot = 0; slot < other.capacity(); slot++) {
+                if (other.isUsed(slot)) {
+                    into.addTo(other.keyAt(slot), other.valueAt(slot));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.SplittableRandom;
+
+import org.apache.ignite.Ignite;
+import org.apache.ignite.client.IgniteClient;
+import org.apache.ignite.table.DataStreamerOptions;
+import org.apache.ignite.table.Tuple;
+import training.model.InvoiceLine;
+import training.model.InvoiceLineKey;
+import training.model.TopCustomer;
+
+/**
+ * Compares the top paying customers task reading the CustomerRevenue rollup with the strategies that scan InvoiceLine,
+ * as the data grows. For every scale the media store is regenerated with {@link MediaStoreGenerator} and the rollup is
+ * checked with {@link RollupReconciliationTask}. Then invoice lines are added through {@link InvoiceLineWriter} and
+ * the rollup must still give the same answer as the scans.
+ *
+ * Arguments: {@code [iterations] [scale...]}, by default 20 and the scales 1, 10 and 100. The cluster is reloaded.
+ */
+public class RollupBenchmark {
+    private static final int CUSTOMERS = 5;
+
+    private static final AggregationStrategy[] STRATEGIES = {
+            AggregationStrategy.JAVA_MERGE, AggregationStrategy.SQL_PUSH_DOWN, AggregationStrategy.ROLLUP};
+
+    public static void main(String[] args) throws Exception {
+        var iterations = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        var scales = args.length > 1
+                ? Arrays.stream(args, 1, args.length).mapToInt(Integer::parseInt).toArray()
+                : new int[] {1, 10, 100};
+
+        var script = MediaStoreScript.parse(Path.of("config/media_store.sql"));
+
+        try (var ignite = IgniteClient.builder()
+                .addresses("127.0.0.1:10800")
+                .build()
+        ) {
+            for (var scale : scales) {
+                System.out.println(">>> Loading scale " + scale);
+                new MediaStoreGenerator(script, scale, 1.0, 42).load(ignite, DataStreamerOptions.DEFAULT, 10_000);
+
+                System.out.println(">>> Reconciliation: " + ignite.compute().executeMapReduce(
+                        RollupReconciliationTask.descriptor(), Tuple.create()));
+
+                long lines;
+                try (var result = ignite.sql().execute(null, "select count(*) from InvoiceLine")) {
+                    lines = result.next().longValue(0);
+                }
+
+                System.out.printf("%n%-8s %12s %-14s %12s %12s %10s%n", "scale", "lines", "strategy", "p50 ms",
+                        "p99 ms", "speedup");
+                var scanP50 = 0L;
+                for (var strategy : STRATEGIES) {
+                    var latencies = measure(ignite, strategy, iterations);
+                    var p50 = TopPayingCustomersBenchmark.percentile(latencies, 0.5);
+                    scanP50 = strategy == AggregationStrategy.JAVA_MERGE ? p50 : scanP50;
+
+                    System.out.printf("%-8d %12d %-14s %12.2f %12.2f %9.1fx%n", scale, lines, strategy, p50 / 1e6,
+                            TopPayingCustomersBenchmark.percentile(latencies, 0.99) / 1e6, (double) scanP50 / p50);
+                }
+
+                writeLines(ignite, 1_000, 100);
+                var scanned = topCustomers(ignite, AggregationStrategy.JAVA_MERGE);
+                var rolledUp = topCustomers(ignite, AggregationStrategy.ROLLUP);
+                if (!Arrays.equals(scanned, rolledUp)) {
+                    System.out.println("!!! Rollup is out of date: " + Arrays.toString(rolledUp) + ", scan: "
+                            + Arrays.toString(scanned));
+                }
+                System.out.println();
+            }
+        }
+    }
+
+    /** Returns the sorted task latencies after one unmeasured warm-up run. */
+    private static long[] measure(Ignite ignite, AggregationStrategy strategy, int iterations) {
+        var latencies = new long[iterations];
+        for (var i = -1; i < iterations; i++) {
+            var start = System.nanoTime();
+            topCustomers(ignite, strategy);
+            if (i >= 0) {
+                latencies[i] = System.nanoTime() - start;
+            }
+        }
+        Arrays.sort(latencies);
+        return latencies;
+    }
+
+    private static TopCustomer[] topCustomers(Ignite ignite, AggregationStrategy strategy) {
+        return ignite.compute().executeMapReduce(TopPayingCustomersTask.descriptor(),
+                TopPayingCustomersTask.input(CUSTOMERS, strategy)).getCustomers();
+    }
+
+    /** Adds {@code count} invoice lines of random customers, in transactions of {@code batch} lines. */
+    private static void writeLines(Ignite ignite, int count, int batch) {
+        int nextLineId;
+        int customers;
+        try (var result = ignite.sql().execute(null,
+                "select max(InvoiceLineId), (select max(CustomerId) from Customer) from InvoiceLine")) {
+            var row = result.next();
+            nextLineId = row.intValue(0) + 1;
+            customers = row.intValue(1);
+        }
+
+        var writer = new InvoiceLineWriter(ignite);
+        var random = new SplittableRandom(7);
+        var start = System.nanoTime();
+
+        for (var written = 0; written < count; written += batch) {
+            // Only the customers and amounts matter here, so every line goes to the first invoice and track.
+            var lines = new HashMap<InvoiceLineKey, InvoiceLine>();
+            for (var i = 0; i < batch; i++) {
+                lines.put(new InvoiceLineKey(nextLineId++, 1 + random.nextInt(customers)),
+                        new InvoiceLine(1, 1, new BigDecimal("0.99"), 1 + random.nextInt(3)));
+            }
+            writer.write(lines);
+        }
+
+        System.out.printf(">>> Wrote %d lines with the rollup in %d ms%n", count, (System.nanoTime() - start) / 1_000_000);
+    }
+}
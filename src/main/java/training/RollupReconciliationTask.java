@@ -0,0 +1,182 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.ignite.Ignite;
+import org.apache.ignite.compute.TaskDescriptor;
+import org.apache.ignite.compute.task.TaskExecutionContext;
+import org.apache.ignite.table.Tuple;
+
+/**
+ * Rebuilds the CustomerRevenue rollup from InvoiceLine. Every job recomputes the customer totals of its partitions
+ * from the invoice lines and fixes the rollup rows that differ, inserting missing customers and removing customers
+ * without lines or with a zero total, which {@link InvoiceLineWriter} doesn't keep rows for either. Each partition
+ * is checked in one transaction, so writers using {@link InvoiceLineWriter} at the same time can't leave it
+ * inconsistent.
+ *
+ * The task input is a tuple with the optional {@link SplitMode} ({@code split}, {@code PER_NODE} by default). The
+ * result holds the number of {@code partitions} and {@code customers} checked, and the rollup rows {@code corrected},
+ * {@code inserted} and {@code removed}.
+ */
+public class RollupReconciliationTask extends ColocatedAggregationTask<long[], long[], Tuple> {
+    private static final String[] COUNTERS = {"partitions", "customers", "corrected", "inserted", "removed"};
+
+    private static final int PARTITIONS = 0;
+
+    private static final int CUSTOMERS = 1;
+
+    private static final int CORRECTED = 2;
+
+    private static final int INSERTED = 3;
+
+    private static final int REMOVED = 4;
+
+    public RollupReconciliationTask() {
+        super(new ReconciliationAggregation(), ReconciliationJob.class);
+    }
+
+    static TaskDescriptor<Tuple, Tuple> descriptor() {
+        return TaskDescriptor.builder(RollupReconciliationTask.class)
+                .units(ComputeApp.deploymentUnits())
+                .build();
+    }
+
+    @Override
+    protected CompletableFuture<Tuple> finish(TaskExecutionContext taskExecutionContext, Tuple input,
+            List<long[]> partials, Reduction reduction) {
+        var total = new long[COUNTERS.length];
+        for (var partial : partials) {
+            for (var i = 0; i < total.length; i++) {
+                total[i] += partial[i];
+            }
+        }
+
+        var result = Tuple.create();
+        for (var i = 0; i < COUNTERS.length; i++) {
+            result.set(COUNTERS[i], total[i]);
+        }
+        return CompletableFuture.completedFuture(result);
+    }
+
+    public static class ReconciliationJob extends ColocatedAggregationJob<long[], long[]> {
+        public ReconciliationJob() {
+            super(new ReconciliationAggregation());
+        }
+    }
+
+    /** Fixes the rollup rows of every partition in a transaction of its own and counts them like {@code COUNTERS}. */
+    static class ReconciliationAggregation implements PartitionAggregation<long[], long[]> {
+        private static final String ROLLUP_QUERY = "select customerid, cast(total * 100 as bigint) as cents "
+                + "from customerrevenue where \"__part\" = ?";
+
+        @Override
+        public String table() {
+            return "InvoiceLine";
+        }
+
+        @Override
+        public String metricsPrefix() {
+            return "reconciliation.";
+        }
+
+        @Override
+        public long[] createAccumulator(Ignite ignite, Tuple arguments) {
+            return new long[COUNTERS.length];
+        }
+
+        @Override
+        public long scan(Ignite ignite, int partition, Tuple arguments, long[] counters) {
+            var rollup = ignite.tables().table(InvoiceLineWriter.ROLLUP_TABLE).recordView();
+            var lines = new long[1];
+
+            // Counted from the attempt that commits, in case the transaction is retried.
+            var changes = ignite.transactions().runInTransaction(tx -> {
+                var expected = new CustomerRevenueAggregator(1024);
+                lines[0] = AggregationStrategy.JAVA_MERGE.scan(ignite.sql(), tx, partition, 0, expected);
+                var totals = expected.totals();
+
+                var upserts = new ArrayList<Tuple>();
+                var deletes = new ArrayList<Tuple>();
+                var present = new IntLongHashMap(totals.size());
+                long corrected = 0;
+
+                try (var rows = ignite.sql().execute(tx, ROLLUP_QUERY, partition)) {
+                    while (rows.hasNext()) {
+                        var row = rows.next();
+                        var customerId = row.intValue("customerId");
+                        var cents = row.longValue("cents");
+                        var expectedCents = totals.get(customerId, Long.MIN_VALUE);
+
+                        if (expectedCents == Long.MIN_VALUE || expectedCents == 0) {
+                            deletes.add(InvoiceLineWriter.rollupKey(customerId));
+                            continue;
+                        }
+                        present.addTo(customerId, 1);
+                        if (expectedCents != cents) {
+                            upserts.add(rollupRow(customerId, expectedCents));
+                            corrected++;
+                        }
+                    }
+                }
+
+                // Customers with a non-zero total but no rollup row.
+                for (var slot = 0; slot < totals.capacity(); slot++) {
+                    if (totals.isUsed(slot) && totals.valueAt(slot) != 0
+                            && present.get(totals.keyAt(slot), 0) == 0) {
+                        upserts.add(rollupRow(totals.keyAt(slot), totals.valueAt(slot)));
+                    }
+                }
+
+                rollup.upsertAll(tx, upserts);
+                rollup.deleteAll(tx, deletes);
+
+                var partitionCounters = new long[COUNTERS.length];
+                partitionCounters[PARTITIONS] = 1;
+                partitionCounters[CUSTOMERS] = totals.size();
+                partitionCounters[CORRECTED] = corrected;
+                partitionCounters[INSERTED] = upserts.size() - corrected;
+                partitionCounters[REMOVED] = deletes.size();
+                return partitionCounters;
+            });
+
+            combine(counters, changes);
+            return lines[0];
+        }
+
+        @Override
+        public void combine(long[] into, long[] other) {
+            for (var i = 0; i < into.length; i++) {
+                into[i] += other[i];
+            }
+        }
+
+        @Override
+        public long[] partial(long[] accumulator, Tuple arguments) {
+            return accumulator;
+        }
+
+        private static Tuple rollupRow(int customerId, long cents) {
+            return InvoiceLineWriter.rollupKey(customerId)
+                    .set("Total", BigDecimal.valueOf(cents, CustomerRevenueAggregator.SCALE));
+        }
+    }
+}
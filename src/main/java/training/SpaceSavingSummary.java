@@ -0,0 +1,257 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import java.util.Arrays;
+
+/**
+ * Weighted Space-Saving summary of {@code int} keys: at most {@code capacity} counters, kept in a min-heap by count.
+ * A new key takes a free counter or evicts the smallest one; either way it starts at {@link #floor()}, the largest
+ * count a key outside the summary can have, and records it as its error. For every key the true total lies in
+ * {@code [count - error, count]}; a key that isn't in the summary has a true total of at most {@link #floor()}. Fed a
+ * stream of total weight {@code N}, the floor never exceeds {@code N / capacity}.
+ *
+ * Summaries are mergeable: {@link #merge} adds the counters of both sides, charging the other side's floor to keys
+ * only one side has, and keeps the {@code capacity} largest. The floor of the result is the sum of the floors, or the
+ * largest count dropped if that is more. With {@link #UNBOUNDED} capacity nothing is ever evicted and the summary is
+ * an exact per-key total.
+ */
+public class SpaceSavingSummary {
+    public static final int UNBOUNDED = Integer.MAX_VALUE;
+
+    private final int capacity;
+
+    /** Key to its index in the heap arrays. */
+    private final IntLongHashMap positions;
+
+    private int[] keys;
+
+    private long[] counts;
+
+    private long[] errors;
+
+    private int size;
+
+    private long floor;
+
+    private long total;
+
+    public SpaceSavingSummary(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+
+        this.capacity = capacity;
+        var initial = Math.min(capacity, 1024);
+        positions = new IntLongHashMap(initial);
+        keys = new int[initial];
+        counts = new long[initial];
+        errors = new long[initial];
+    }
+
+    /** Rebuilds a summary from its counters, as written by {@link CompactMarshaller}. */
+    static SpaceSavingSummary of(int capacity, int[] keys, long[] counts, long[] errors, long floor, long total) {
+        var summary = new SpaceSavingSummary(capacity);
+        for (var i = 0; i < keys.length; i++) {
+            summary.insert(keys[i], counts[i], errors[i]);
+        }
+        summary.floor = floor;
+        summary.total = total;
+        return summary;
+    }
+
+    /** Adds {@code weight} to the total of {@code key}. */
+    public void add(int key, long weight) {
+        total += weight;
+
+        var position = (int) positions.get(key, -1);
+        if (position >= 0) {
+            counts[position] += weight;
+            siftDown(position);
+            return;
+        }
+
+        if (size == capacity) {
+            floor = Math.max(floor, counts[0]);
+            removeMin();
+        }
+        insert(key, floor + weight, floor);
+    }
+
+    /** Adds the counters of {@code other} to this summary. {@code other} is left unchanged. */
+    public void merge(SpaceSavingSummary other) {
+        var union = new SpaceSavingSummary(UNBOUNDED);
+        for (var i = 0; i < size; i++) {
+            var position = (int) other.positions.get(keys[i], -1);
+            var otherCount = position >= 0 ? other.counts[position] : other.floor;
+            var otherError = position >= 0 ? other.errors[position] : other.floor;
+            union.insert(keys[i], counts[i] + otherCount, errors[i] + otherError);
+        }
+        for (var i = 0; i < other.size; i++) {
+            if (positions.get(other.keys[i], -1) < 0) {
+                union.insert(other.keys[i], other.counts[i] + floor, other.errors[i] + floor);
+            }
+        }
+
+        var dropped = 0L;
+        while (union.size > capacity) {
+            dropped = Math.max(dropped, union.counts[0]);
+            union.removeMin();
+        }
+
+        positions.clear();
+        keys = union.keys;
+        counts = union.counts;
+        errors = union.errors;
+        size = union.size;
+        for (var i = 0; i < size; i++) {
+            positions.put(keys[i], i);
+        }
+        floor = Math.max(floor + other.floor, dropped);
+        total += other.total;
+    }
+
+    /** Upper bound of the total of {@code key}. */
+    public long count(int key) {
+        var position = (int) positions.get(key, -1);
+        return position >= 0 ? counts[position] : floor;
+    }
+
+    /** How much {@link #count(int)} may overestimate the total of {@code key}. */
+    public long error(int key) {
+        var position = (int) positions.get(key, -1);
+        return position >= 0 ? errors[position] : floor;
+    }
+
+    /** Returns the keys with the {@code k} largest counts, largest first, ties by the smaller key. */
+    public int[] top(int k) {
+        var order = new Integer[size];
+        for (var i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> counts[a] != counts[b] ? Long.compare(counts[b], counts[a])
+                : Integer.compare(keys[a], keys[b]));
+
+        var top = new int[Math.min(k, size)];
+        for (var i = 0; i < top.length; i++) {
+            top[i] = keys[order[i]];
+        }
+        return top;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /** Number of counters in use. */
+    public int size() {
+        return size;
+    }
+
+    /** Largest total a key outside the summary can have, and the largest error of a counter. */
+    public long floor() {
+        return floor;
+    }
+
+    /** Sum of all weights added, including those merged in. */
+    public long total() {
+        return total;
+    }
+
+    /** Keys of the counters in heap order; {@link #counts()} and {@link #errors()} are parallel to it. */
+    int[] keys() {
+        return Arrays.copyOf(keys, size);
+    }
+
+    long[] counts() {
+        return Arrays.copyOf(counts, size);
+    }
+
+    long[] errors() {
+        return Arrays.copyOf(errors, size);
+    }
+
+    private void insert(int key, long count, long error) {
+        if (size == keys.length) {
+            var grown = (int) Math.min((long) capacity, (long) size * 2);
+            keys = Arrays.copyOf(keys, grown);
+            counts = Arrays.copyOf(counts, grown);
+            errors = Arrays.copyOf(errors, grown);
+        }
+
+        keys[size] = key;
+        counts[size] = count;
+        errors[size] = error;
+        positions.put(key, size);
+        siftUp(size++);
+    }
+
+    private void removeMin() {
+        positions.remove(keys[0]);
+        size--;
+        if (size > 0) {
+            move(size, 0);
+            siftDown(0);
+        }
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            var parent = (i - 1) >>> 1;
+            if (counts[parent] <= counts[i]) {
+                break;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            var child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && counts[child + 1] < counts[child]) {
+                child++;
+            }
+            if (counts[i] <= counts[child]) {
+                break;
+            }
+            swap(i, child);
+            i = child;
+        }
+    }
+
+    private void move(int from, int to) {
+        keys[to] = keys[from];
+        counts[to] = counts[from];
+        errors[to] = errors[from];
+        positions.put(keys[to], to);
+    }
+
+    private void swap(int a, int b) {
+        var key = keys[a];
+        var count = counts[a];
+        var error = errors[a];
+        move(b, a);
+        keys[b] = key;
+        counts[b] = count;
+        errors[b] = error;
+        positions.put(key, b);
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ignite.network.ClusterNode;
+import org.apache.ignite.table.partition.Partition;
+
+/**
+ * How {@link TopPayingCustomersTask} turns the primary replicas of InvoiceLine into jobs.
+ */
+public enum SplitMode {
+    /**
+     * One job per partition, sent to the partition's primary replica.
+     */
+    PER_PARTITION {
+        @Override
+        List<PartitionAssignment> assign(Map<Partition, ClusterNode> primaryReplicas) {
+            var jobs = new ArrayList<PartitionAssignment>(primaryReplicas.size());
+            for (var replica : primaryReplicas.entrySet()) {
+                jobs.add(new PartitionAssignment(replica.getValue(),
+                        new int[] {PartitionAssignment.partitionId(replica.getKey())}));
+            }
+            return jobs;
+        }
+    },
+
+    /**
+     * One job per node covering every partition the node is primary for. The job scans its partitions in parallel and
+     * returns a single node-local top-K, which cuts the number of jobs and results to the number of nodes.
+     */
+    PER_NODE {
+        @Override
+        List<PartitionAssignment> assign(Map<Partition, ClusterNode> primaryReplicas) {
+            var nodes = new LinkedHashMap<String, ClusterNode>();
+            var partitions = new LinkedHashMap<String, List<Integer>>();
+            for (var replica : primaryReplicas.entrySet()) {
+                var node = replica.getValue();
+                nodes.putIfAbsent(node.name(), node);
+                partitions.computeIfAbsent(node.name(), n -> new ArrayList<>())
+                        .add(PartitionAssignment.partitionId(replica.getKey()));
+            }
+
+            var jobs = new ArrayList<PartitionAssignment>(nodes.size());
+            for (var node : nodes.entrySet()) {
+                var ids = partitions.get(node.getKey()).stream().mapToInt(Integer::intValue).toArray();
+                jobs.add(new PartitionAssignment(node.getValue(), ids));
+            }
+            return jobs;
+        }
+    };
+
+    /**
+     * Returns the jobs to run: the node each job is sent to and the partitions it scans.
+     */
+    abstract List<PartitionAssignment> assign(Map<Partition, ClusterNode> primaryReplicas);
+}
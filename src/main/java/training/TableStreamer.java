@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import java.util.Iterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.SubmissionPublisher;
+
+import org.apache.ignite.table.DataStreamerItem;
+import org.apache.ignite.table.DataStreamerOptions;
+import org.apache.ignite.table.DataStreamerTarget;
+
+/**
+ * Feeds items into a table data streamer. The streamer batches items into pages per partition and sends them
+ * concurrently; the publisher buffer bounds how many items wait for the streamer, so the producer blocks instead of
+ * holding a whole table in flight.
+ */
+public final class TableStreamer {
+    private TableStreamer() {
+    }
+
+    /**
+     * Streams all {@code items} into {@code target} and waits until the streamer has written them.
+     *
+     * @param maxInFlight Maximum number of items submitted to the streamer but not yet requested by it.
+     * @return Number of streamed items.
+     */
+    public static <T> long stream(DataStreamerTarget<T> target, Iterator<T> items, DataStreamerOptions options,
+            int maxInFlight) {
+        long count = 0;
+
+        try (var publisher = new SubmissionPublisher<DataStreamerItem<T>>(ForkJoinPool.commonPool(), maxInFlight)) {
+            var streamed = target.streamData(publisher, options);
+
+            // A publisher without subscribers silently drops items.
+            if (publisher.getNumberOfSubscribers() == 0 && !streamed.isDone()) {
+                throw new IllegalStateException("Data streamer didn't subscribe to the publisher");
+            }
+
+            while (items.hasNext() && !streamed.isDone()) {
+                publisher.submit(DataStreamerItem.of(items.next()));
+                count++;
+            }
+
+            publisher.close();
+            streamed.join();
+        }
+
+        return count;
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Reads the heap allocated by the current thread, where the JVM supports it.
+ */
+final class ThreadAllocation {
+    private static final com.sun.management.ThreadMXBean THREADS = threads();
+
+    private ThreadAllocation() {
+    }
+
+    /** Bytes allocated by the current thread so far, or {@code -1} when unsupported. */
+    static long current() {
+        if (THREADS == null) {
+            return -1;
+        }
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /** Bytes allocated by the current thread since {@code start} was taken with {@link #current()}. */
+    static long since(long start) {
+        return start < 0 ? -1 : current() - start;
+    }
+
+    private static com.sun.management.ThreadMXBean threads() {
+        var bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            var threads = (com.sun.management.ThreadMXBean) bean;
+            if (threads.isThreadAllocatedMemorySupported()) {
+                threads.setThreadAllocatedMemoryEnabled(true);
+                return threads;
+            }
+        }
+        return null;
+    }
+}
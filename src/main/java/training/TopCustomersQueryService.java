@@ -0,0 +1,273 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.apache.ignite.Ignite;
+import training.model.TopCustomer;
+import training.model.TopCustomersResult;
+
+/**
+ * Client-side front of {@link TopPayingCustomersTask} for callers that ask for the same ranking within seconds of each
+ * other, such as dashboards:
+ * <ul>
+ *     <li>a request is answered from a cached result of the same strategy with at least as many customers, since the
+ *     top {@code k} customers are a prefix of any longer ranking;</li>
+ *     <li>otherwise it joins a running task that will answer it, so concurrent identical requests start one task;</li>
+ *     <li>cached results expire after a TTL, the least recently used ones are evicted beyond a maximum number of
+ *     entries, and all of them are dropped when the write watermark moves. A task that started before a write still
+ *     answers its callers but isn't cached.</li>
+ * </ul>
+ *
+ * By default the watermark is read from the {@link InvoiceLineVersions} of the cluster once per request, so writes of
+ * every {@link InvoiceLineWriter} and {@link InvoiceLineIngestor} invalidate the cache, at the cost of one small query
+ * instead of a task on a hit.
+ */
+public class TopCustomersQueryService {
+    private final Ignite ignite;
+
+    private final long ttlNanos;
+
+    private final int maxEntries;
+
+    private final Supplier<CompletableFuture<Long>> writeWatermark;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong coalesced = new AtomicLong();
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    /** Cached results, least recently used first. Guarded by {@code this}, like {@link #inFlight}. */
+    private final LinkedHashMap<Key, CachedResult> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, CachedResult> eldest) {
+            if (size() > maxEntries) {
+                evictions.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    private final Map<Key, RunningTask> inFlight = new HashMap<>();
+
+    public TopCustomersQueryService(Ignite ignite, Duration ttl, int maxEntries) {
+        this(ignite, ttl, maxEntries, () -> InvoiceLineVersions.watermarkAsync(ignite.sql()));
+    }
+
+    /**
+     * @param writeWatermark Reads a value that changes whenever invoice lines are written; cached results taken at
+     *      another value are not used.
+     */
+    public TopCustomersQueryService(Ignite ignite, Duration ttl, int maxEntries,
+            Supplier<CompletableFuture<Long>> writeWatermark) {
+        this.ignite = ignite;
+        this.ttlNanos = ttl.toNanos();
+        this.maxEntries = maxEntries;
+        this.writeWatermark = writeWatermark;
+    }
+
+    /** Returns the {@code count} top paying customers computed with {@code strategy}. */
+    public CompletableFuture<TopCustomer[]> topCustomers(int count, AggregationStrategy strategy) {
+        return writeWatermark.get().thenCompose(watermark -> topCustomers(count, strategy, watermark));
+    }
+
+    private CompletableFuture<TopCustomer[]> topCustomers(int count, AggregationStrategy strategy, long watermark) {
+        CompletableFuture<TopCustomersResult> source;
+
+        synchronized (this) {
+            var cached = cached(strategy, count, watermark);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return CompletableFuture.completedFuture(prefix(cached.customers, count));
+            }
+
+            var running = running(strategy, count, watermark);
+            if (running != null) {
+                coalesced.incrementAndGet();
+                source = running.result;
+            } else {
+                misses.incrementAndGet();
+
+                var task = new RunningTask(new Key(strategy, count), watermark, ignite.compute().executeMapReduceAsync(
+                        TopPayingCustomersTask.descriptor(), TopPayingCustomersTask.input(count, strategy)));
+                inFlight.put(task.key, task);
+                // A write during the task may be missing from its result, so it is only cached if the watermark
+                // didn't move.
+                task.result
+                        .thenCompose(result -> writeWatermark.get()
+                                .thenApply(current -> current == task.watermark ? result : null))
+                        .whenComplete((result, error) -> completed(task, result));
+                source = task.result;
+            }
+        }
+
+        return source.thenApply(result -> prefix(result.getCustomers(), count));
+    }
+
+    /** Drops all cached results. */
+    public synchronized void invalidate() {
+        evictions.addAndGet(cache.size());
+        cache.clear();
+    }
+
+    /** Requests answered from the cache. */
+    public long hits() {
+        return hits.get();
+    }
+
+    /** Requests that started a task. */
+    public long misses() {
+        return misses.get();
+    }
+
+    /** Requests that joined a task started by another request. */
+    public long coalesced() {
+        return coalesced.get();
+    }
+
+    /** Cached results dropped because they expired, were stale, were superseded or didn't fit. */
+    public long evictions() {
+        return evictions.get();
+    }
+
+    @Override
+    public String toString() {
+        return "hits=" + hits + ", misses=" + misses + ", coalesced=" + coalesced + ", evictions=" + evictions;
+    }
+
+    /** Finds the smallest cached result of {@code strategy} with at least {@code count} customers. */
+    private CachedResult cached(AggregationStrategy strategy, int count, long watermark) {
+        var now = System.nanoTime();
+        Key best = null;
+
+        for (var it = cache.entrySet().iterator(); it.hasNext(); ) {
+            var entry = it.next();
+            var result = entry.getValue();
+
+            if (now - result.createdNanos > ttlNanos || result.watermark != watermark) {
+                it.remove();
+                evictions.incrementAndGet();
+            } else if (entry.getKey().strategy == strategy && entry.getKey().count >= count
+                    && (best == null || entry.getKey().count < best.count)) {
+                best = entry.getKey();
+            }
+        }
+
+        // Looked up again to mark the entry as recently used.
+        return best == null ? null : cache.get(best);
+    }
+
+    private RunningTask running(AggregationStrategy strategy, int count, long watermark) {
+        for (var task : inFlight.values()) {
+            if (task.key.strategy == strategy && task.key.count >= count && task.watermark == watermark) {
+                return task;
+            }
+        }
+        return null;
+    }
+
+    private synchronized void completed(RunningTask task, TopCustomersResult result) {
+        inFlight.remove(task.key, task);
+
+        if (result == null) {
+            return;
+        }
+
+        // Smaller rankings of the same strategy are prefixes of this one.
+        for (var it = cache.keySet().iterator(); it.hasNext(); ) {
+            var key = it.next();
+            if (key.strategy == task.key.strategy && key.count <= task.key.count) {
+                it.remove();
+                evictions.incrementAndGet();
+            }
+        }
+        cache.put(task.key, new CachedResult(result.getCustomers(), System.nanoTime(), task.watermark));
+    }
+
+    private static TopCustomer[] prefix(TopCustomer[] customers, int count) {
+        return Arrays.copyOf(customers, Math.min(count, customers.length));
+    }
+
+    private static class Key {
+        final AggregationStrategy strategy;
+
+        final int count;
+
+        Key(AggregationStrategy strategy, int count) {
+            this.strategy = strategy;
+            this.count = count;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            var key = (Key) o;
+            return count == key.count && strategy == key.strategy;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(strategy, count);
+        }
+    }
+
+    private static class CachedResult {
+        final TopCustomer[] customers;
+
+        final long createdNanos;
+
+        final long watermark;
+
+        CachedResult(TopCustomer[] customers, long createdNanos, long watermark) {
+            this.customers = customers;
+            this.createdNanos = createdNanos;
+            this.watermark = watermark;
+        }
+    }
+
+    private static class RunningTask {
+        final Key key;
+
+        final long watermark;
+
+        final CompletableFuture<TopCustomersResult> result;
+
+        RunningTask(Key key, long watermark, CompletableFuture<TopCustomersResult> result) {
+            this.key = key;
+            this.watermark = watermark;
+            this.result = result;
+        }
+    }
+}
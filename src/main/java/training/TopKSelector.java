@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+/**
+ * Selects the K largest entries of an {@link IntLongHashMap} with a size-K min-heap of slot indices, so selection
+ * takes O(n log K) time and O(K) memory instead of sorting every entry. Equal values are ranked by the smaller key
+ * first, which keeps the output deterministic.
+ */
+public final class TopKSelector {
+
+    private TopKSelector() {
+    }
+
+    /**
+     * Returns the slots of the {@code k} largest values, ordered from the largest value down.
+     */
+    public static int[] select(IntLongHashMap map, int k) {
+        var heap = new int[Math.max(0, Math.min(k, map.size()))];
+        if (heap.length == 0) {
+            return heap;
+        }
+
+        var heapSize = 0;
+        for (var slot = 0; slot < map.capacity(); slot++) {
+            if (!map.isUsed(slot)) {
+                continue;
+            }
+
+            if (heapSize < heap.length) {
+                heap[heapSize] = slot;
+                siftUp(map, heap, heapSize++);
+            } else if (ranksBelow(map, heap[0], slot)) {
+                heap[0] = slot;
+                siftDown(map, heap, heapSize);
+            }
+        }
+
+        // Pop the minimum into the tail, which leaves the array ordered from the largest value down.
+        for (var end = heapSize - 1; end > 0; end--) {
+            var min = heap[0];
+            heap[0] = heap[end];
+            heap[end] = min;
+            siftDown(map, heap, end);
+        }
+
+        return heap;
+    }
+
+    /** Whether slot {@code a} ranks below slot {@code b}. */
+    private static boolean ranksBelow(IntLongHashMap map, int a, int b) {
+        var va = map.valueAt(a);
+        var vb = map.valueAt(b);
+        return va < vb || (va == vb && map.keyAt(a) > map.keyAt(b));
+    }
+
+    private static void siftUp(IntLongHashMap map, int[] heap, int i) {
+        while (i > 0) {
+            var parent = (i - 1) >>> 1;
+            if (!ranksBelow(map, heap[i], heap[parent])) {
+                return;
+            }
+            swap(heap, i, parent);
+            i = parent;
+        }
+    }
+
+    private static void siftDown(IntLongHashMap map, int[] heap, int size) {
+        var i = 0;
+        while (true) {
+            var left = 2 * i + 1;
+            if (left >= size) {
+                return;
+            }
+
+            var smallest = left;
+            if (left + 1 < size && ranksBelow(map, heap[left + 1], heap[left])) {
+                smallest = left + 1;
+            }
+            if (!ranksBelow(map, heap[smallest], heap[i])) {
+                return;
+            }
+            swap(heap, i, smallest);
+            i = smallest;
+        }
+    }
+
+    private static void swap(int[] heap, int i, int j) {
+        var t = heap[i];
+        heap[i] = heap[j];
+        heap[j] = t;
+    }
+}
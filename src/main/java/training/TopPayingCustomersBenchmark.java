@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+import org.apache.ignite.Ignite;
+import org.apache.ignite.client.IgniteClient;
+import training.model.TaskTrace;
+import training.model.TopCustomer;
+
+/**
+ * Compares the {@link AggregationStrategy strategies} and {@link SplitMode split modes} of
+ * {@link TopPayingCustomersTask} on the data currently loaded into the cluster. For every combination it reports the
+ * number of jobs, the rows the partition queries return to the jobs, the time the jobs spend on their nodes, the heap
+ * they allocate and the end-to-end latency of the whole task. The job figures come from the {@link TaskTrace} of the
+ * measured runs, so the cluster only runs the task. Allocation is reported as n/a when jobs scan on virtual threads,
+ * which don't expose it.
+ *
+ * It then sweeps the number of customers K with {@code JAVA_MERGE} and the default split and reports the reduce and
+ * enrichment time of the task for every K. The winners' records are read with one batched call, so both should stay
+ * flat as K grows while the jobs' time grows with the size of their local tops.
+ *
+ * Arguments: {@code [customersCount] [iterations] [sweepCounts]}, 5, 20 and {@code 5,100,1000,10000} by default.
+ */
+public class TopPayingCustomersBenchmark {
+
+    public static void main(String[] args) {
+        var customersCount = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        var iterations = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        var sweepCounts = Arrays.stream((args.length > 2 ? args[2] : "5,100,1000,10000").split(","))
+                .mapToInt(Integer::parseInt)
+                .toArray();
+
+        try (var ignite = IgniteClient.builder()
+                .addresses("127.0.0.1:10800")
+                .build()
+        ) {
+            System.out.println(">>> Top " + customersCount + " paying customers, " + iterations + " iterations per strategy");
+            System.out.printf("%-14s %-14s %8s %12s %12s %12s %14s %12s %12s%n", "strategy", "split", "jobs/run",
+                    "rows/run", "job avg ms", "job max ms", "alloc KB/run", "task p50 ms", "task p99 ms");
+
+            TopCustomer[] reference = null;
+            for (var strategy : AggregationStrategy.values()) {
+                for (var split : SplitMode.values()) {
+                    var result = run(ignite, strategy, split, customersCount, iterations);
+
+                    if (reference == null) {
+                        reference = result;
+                    } else if (!Arrays.equals(reference, result)) {
+                        System.out.println("!!! " + strategy + "/" + split + " returned different customers: "
+                                + Arrays.toString(result));
+                    }
+                }
+            }
+
+            System.out.println();
+            System.out.println(">>> K sweep, " + AggregationStrategy.JAVA_MERGE + ", " + iterations
+                    + " iterations per K");
+            System.out.printf("%8s %12s %14s %14s %12s %12s%n", "K", "job max ms", "reduce p50 ms", "enrich p50 ms",
+                    "task p50 ms", "task p99 ms");
+            for (var count : sweepCounts) {
+                sweep(ignite, count, iterations);
+            }
+        }
+    }
+
+    /** Prints how the reduce step and the enrichment of the winners scale with the number of customers. */
+    private static void sweep(Ignite ignite, int customersCount, int iterations) {
+        long jobMaxNanos = 0;
+        var reduceNanos = new long[iterations];
+        var enrichNanos = new long[iterations];
+        var taskNanos = new long[iterations];
+
+        for (var i = -1; i < iterations; i++) {
+            var start = System.nanoTime();
+            var result = ignite.compute().executeMapReduce(TopPayingCustomersTask.descriptor(),
+                    TopPayingCustomersTask.input(customersCount, AggregationStrategy.JAVA_MERGE));
+            var taskTime = System.nanoTime() - start;
+
+            if (i < 0) {
+                continue;
+            }
+
+            var trace = result.getTrace();
+            jobMaxNanos = Math.max(jobMaxNanos, trace.getJobMaxNanos());
+            reduceNanos[i] = trace.getReduceNanos();
+            enrichNanos[i] = trace.getEnrichNanos();
+            taskNanos[i] = taskTime;
+        }
+
+        Arrays.sort(reduceNanos);
+        Arrays.sort(enrichNanos);
+        Arrays.sort(taskNanos);
+        System.out.printf("%8d %12.2f %14.2f %14.2f %12.2f %12.2f%n", customersCount, jobMaxNanos / 1e6,
+                percentile(reduceNanos, 0.5) / 1e6, percentile(enrichNanos, 0.5) / 1e6,
+                percentile(taskNanos, 0.5) / 1e6, percentile(taskNanos, 0.99) / 1e6);
+    }
+
+    private static TopCustomer[] run(Ignite ignite, AggregationStrategy strategy, SplitMode split, int customersCount,
+            int iterations) {
+        long rows = 0;
+        long jobNanos = 0;
+        long jobMaxNanos = 0;
+        long jobs = 0;
+        long allocated = 0;
+        var taskNanos = new long[iterations];
+        TopCustomer[] last = null;
+
+        // The first run warms up the deployment unit and the query plans and isn't measured.
+        for (var i = -1; i < iterations; i++) {
+            var start = System.nanoTime();
+            var result = ignite.compute().executeMapReduce(TopPayingCustomersTask.descriptor(),
+                    TopPayingCustomersTask.input(customersCount, strategy, split));
+            var taskTime = System.nanoTime() - start;
+            last = result.getCustomers();
+
+            if (i < 0) {
+                continue;
+            }
+
+            var trace = result.getTrace();
+            taskNanos[i] = taskTime;
+            rows += trace.getRowsScanned();
+            jobNanos += trace.getJobNanos();
+            jobMaxNanos = Math.max(jobMaxNanos, trace.getJobMaxNanos());
+            jobs += trace.getJobs();
+            allocated = allocated < 0 || trace.getJobAllocatedBytes() < 0 ? -1
+                    : allocated + trace.getJobAllocatedBytes();
+        }
+
+        Arrays.sort(taskNanos);
+        System.out.printf("%-14s %-14s %8d %12d %12.2f %12.2f %14s %12.2f %12.2f%n", strategy, split,
+                jobs / iterations, rows / iterations, jobNanos / 1e6 / Math.max(1, jobs), jobMaxNanos / 1e6,
+                allocated < 0 ? "n/a" : String.format(Locale.ROOT, "%.1f", allocated / 1024.0 / iterations),
+                percentile(taskNanos, 0.5) / 1e6, percentile(taskNanos, 0.99) / 1e6);
+
+        return last;
+    }
+
+    /** Returns the sorted latencies of {@code iterations} runs after one unmeasured warm-up run. */
+    static long[] measure(Supplier<?> run, int iterations) {
+        var latencies = new long[iterations];
+        for (var i = -1; i < iterations; i++) {
+            var start = System.nanoTime();
+            run.get();
+            if (i >= 0) {
+                latencies[i] = System.nanoTime() - start;
+            }
+        }
+        Arrays.sort(latencies);
+        return latencies;
+    }
+
+    static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)];
+    }
+}
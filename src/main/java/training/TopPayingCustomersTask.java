@@ -0,0 +1,237 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.ignite.Ignite;
+import org.apache.ignite.compute.JobDescriptor;
+import org.apache.ignite.compute.TaskDescriptor;
+import org.apache.ignite.compute.task.TaskExecutionContext;
+import org.apache.ignite.marshalling.Marshaller;
+import org.apache.ignite.table.Tuple;
+import training.model.CustomerPrice;
+import training.model.PartitionResult;
+import training.model.TaskTrace;
+import training.model.TopCustomer;
+import training.model.TopCustomersResult;
+
+/**
+ * Task that finds the {@code count} customers who paid the most. Every job sums the invoice lines of its partitions
+ * with the requested {@link AggregationStrategy} and returns its local top {@code count}; the task merges them and
+ * reads the customer records of the winners.
+ *
+ * The task input is a tuple with the number of customers to return ({@code count}) and, optionally, the
+ * {@link AggregationStrategy} the jobs use ({@code strategy}, {@code JAVA_MERGE} by default) and the {@link SplitMode}
+ * ({@code split}, {@code PER_PARTITION} by default). The customer records of the winners are read from the cluster,
+ * or with {@code nearCache} set to {@code true} through a {@link NearCache} of the node running the task, whose names
+ * and addresses can be up to {@link #CUSTOMER_CACHE_TTL} old.
+ *
+ * The task is a {@link ColocatedAggregationTask}: InvoiceLine is colocated by CustomerId, so the top customers of a
+ * job's partitions are final and a job only returns its local top {@code count}. Every phase is timed: the task
+ * records {@code task.*} timers and the jobs {@code job.*} timers and counters in {@link Metrics#registry()} of their
+ * node, and the result carries a {@link TaskTrace} of the execution.
+ */
+public class TopPayingCustomersTask
+        extends ColocatedAggregationTask<CustomerRevenueAggregator, CustomerPrice[], TopCustomersResult> {
+
+    public TopPayingCustomersTask() {
+        super(new TopCustomersAggregation(), TopPayingCustomersJob.class);
+    }
+
+    /** Customers by node name, so nodes sharing a JVM each read through their own connection. */
+    private static final Map<String, NearCache<Tuple, Tuple>> CUSTOMER_CACHES = new ConcurrentHashMap<>();
+
+    /** How stale a customer's name and address in a result can be. */
+    static final Duration CUSTOMER_CACHE_TTL = Duration.ofMinutes(1);
+
+    static TaskDescriptor<Tuple, TopCustomersResult> descriptor() {
+        // cluster unit deploy -up apps.jar -uv 1.0 essentials-compute
+        return TaskDescriptor.builder(TopPayingCustomersTask.class)
+                .units(ComputeApp.deploymentUnits())
+                .reduceJobResultMarshaller(CompactMarshaller.create())
+                .build();
+    }
+
+    static JobDescriptor<Tuple, PartitionResult<CustomerPrice[]>> jobDescriptor() {
+        return jobDescriptor(CompactMarshaller.create());
+    }
+
+    static JobDescriptor<Tuple, PartitionResult<CustomerPrice[]>> jobDescriptor(
+            Marshaller<PartitionResult<CustomerPrice[]>, byte[]> resultMarshaller) {
+        return jobDescriptor(TopPayingCustomersJob.class, resultMarshaller);
+    }
+
+    static Tuple input(int customersCount, AggregationStrategy strategy) {
+        return input(customersCount, strategy, SplitMode.PER_PARTITION);
+    }
+
+    static Tuple input(int customersCount, AggregationStrategy strategy, SplitMode split) {
+        return input(customersCount, strategy, split, false);
+    }
+
+    static Tuple input(int customersCount, AggregationStrategy strategy, SplitMode split, boolean nearCache) {
+        return Tuple.create()
+                .set("count", customersCount)
+                .set("strategy", strategy.name())
+                .set("split", split.name())
+                .set("nearCache", nearCache);
+    }
+
+    static Tuple jobArguments(PartitionAssignment assignment, int customersCount, AggregationStrategy strategy) {
+        return assignment.toArguments()
+                .set("count", customersCount)
+                .set("strategy", strategy.name());
+    }
+
+    @Override
+    public Marshaller<TopCustomersResult, byte[]> reduceJobResultMarshaller() {
+        return CompactMarshaller.create();
+    }
+
+    @Override
+    protected SplitMode defaultSplit() {
+        return SplitMode.PER_PARTITION;
+    }
+
+    @Override
+    protected CompletableFuture<Tuple> jobArgumentsAsync(TaskExecutionContext taskExecutionContext, Tuple input) {
+        return CompletableFuture.completedFuture(Tuple.create()
+                .set("count", input.intValue("count"))
+                .set("strategy", input.valueOrDefault("strategy", AggregationStrategy.JAVA_MERGE.name())));
+    }
+
+    @Override
+    protected CompletableFuture<TopCustomersResult> finish(TaskExecutionContext taskExecutionContext, Tuple input,
+            List<CustomerPrice[]> partials, Reduction reduction) {
+        var topCustomers = mergeTopCustomers(partials, input.intValue("count"));
+        reduction.startEnrich();
+
+        // One batched read for all winners instead of a blocking round trip per customer.
+        var keys = new ArrayList<Tuple>(topCustomers.size());
+        for (var customer : topCustomers) {
+            keys.add(Tuple.create().set("customerId", customer.getCustomerId()));
+        }
+
+        return customerRecords(taskExecutionContext.ignite(), keys, input.valueOrDefault("nearCache", false))
+                .thenApply(customerRecords -> {
+                    var results = new TopCustomer[topCustomers.size()];
+                    for (var p = 0; p < results.length; p++) {
+                        results[p] = toTopCustomer(topCustomers.get(p), customerRecords.get(p));
+                    }
+                    return new TopCustomersResult(results, reduction.partitionRowCounts(), reduction.trace());
+                });
+    }
+
+    public static class TopPayingCustomersJob
+            extends ColocatedAggregationJob<CustomerRevenueAggregator, CustomerPrice[]> {
+        // Verify results with: select customerid, sum(quantity * unitprice) as price from invoiceline group by customerid order by price desc limit 5
+
+        public TopPayingCustomersJob() {
+            super(new TopCustomersAggregation());
+        }
+    }
+
+    /** Sums the invoice lines of every customer with the job's {@link AggregationStrategy}. */
+    static class TopCustomersAggregation implements PartitionAggregation<CustomerRevenueAggregator, CustomerPrice[]> {
+        @Override
+        public String table() {
+            return "InvoiceLine";
+        }
+
+        /** The metric names predate the framework and are kept for existing dashboards. */
+        @Override
+        public String metricsPrefix() {
+            return "";
+        }
+
+        @Override
+        public CustomerRevenueAggregator createAccumulator(Ignite ignite, Tuple arguments) {
+            return new CustomerRevenueAggregator(1024);
+        }
+
+        @Override
+        public long scan(Ignite ignite, int partition, Tuple arguments, CustomerRevenueAggregator accumulator) {
+            var strategy = AggregationStrategy.valueOf(arguments.stringValue("strategy"));
+            return strategy.scan(ignite.sql(), partition, arguments.intValue("count"), accumulator);
+        }
+
+        /** Partitions hold disjoint sets of customers, so workers aggregate independently and are merged once. */
+        @Override
+        public void combine(CustomerRevenueAggregator into, CustomerRevenueAggregator other) {
+            into.mergeFrom(other);
+        }
+
+        @Override
+        public CustomerPrice[] partial(CustomerRevenueAggregator accumulator, Tuple arguments) {
+            return accumulator.top(arguments.intValue("count"));
+        }
+    }
+
+    private static CompletableFuture<List<Tuple>> customerRecords(Ignite ignite, List<Tuple> keys, boolean nearCache) {
+        if (!nearCache) {
+            return ignite.tables().table("Customer").recordView().getAllAsync(null, keys);
+        }
+
+        var cache = CUSTOMER_CACHES.computeIfAbsent(ignite.name(), name -> NearCache.ofRecordView("customer",
+                ignite.tables().table("Customer").recordView(), 100_000, CUSTOMER_CACHE_TTL, NearCache.Eviction.LRU));
+        return cache.getAllAsync(keys).thenApply(records -> {
+            var aligned = new ArrayList<Tuple>(keys.size());
+            for (var key : keys) {
+                aligned.add(records.get(key));
+            }
+            return aligned;
+        });
+    }
+
+    /**
+     * Merges the local top customers of all jobs and returns the {@code count} customers with the largest totals.
+     */
+    static List<CustomerPrice> mergeTopCustomers(Collection<CustomerPrice[]> partials, int count) {
+        var orderedResults = new ArrayList<CustomerPrice>();
+        for (var partial : partials) {
+            for (var customer : partial) {
+                if (customer != null) {
+                    orderedResults.add(customer);
+                }
+            }
+        }
+        orderedResults.sort(Comparator.comparing(CustomerPrice::getPrice).reversed()
+                .thenComparing(CustomerPrice::getCustomerId));
+
+        return orderedResults.subList(0, Math.min(count, orderedResults.size()));
+    }
+
+    static TopCustomer toTopCustomer(CustomerPrice customer, Tuple customerRecord) {
+        var val = new TopCustomer(customer.getCustomerId(), customer.getPrice());
+
+        if (customerRecord != null) {
+            val.setFullName(customerRecord.stringValue("firstName") + " " + customerRecord.stringValue("lastName"));
+            val.setCity(customerRecord.stringValue("city"));
+            val.setCountry(customerRecord.stringValue("country"));
+        }
+        else {
+            val.setFullName("unknown");
+            val.setCity("unknown");
+            val.setCountry("unknown");
+        }
+        return val;
+    }
+}
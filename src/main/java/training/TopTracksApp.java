@@ -0,0 +1,48 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import org.apache.ignite.client.IgniteClient;
+
+/**
+ * Prints the top selling tracks computed by {@link TopTracksTask}, exactly or from Space-Saving summaries, with the
+ * error bound and the size of the job results.
+ *
+ * Arguments: {@code [count] [capacity] [split]}, by default 10, 256 and {@code PER_NODE}; a capacity of 0 is exact.
+ */
+public class TopTracksApp {
+
+    public static void main(String[] args) {
+        var count = args.length > 0 ? Integer.parseInt(args[0]) : TopTracksTask.DEFAULT_COUNT;
+        var capacity = args.length > 1 ? Integer.parseInt(args[1]) : TopTracksTask.DEFAULT_CAPACITY;
+        var split = args.length > 2 ? SplitMode.valueOf(args[2]) : SplitMode.PER_NODE;
+
+        try (var ignite = IgniteClient.builder()
+                .addresses("127.0.0.1:10800")
+                .build()
+        ) {
+            var result = ignite.compute().executeMapReduce(TopTracksTask.descriptor(),
+                    TopTracksTask.input(count, capacity, split));
+
+            System.out.println(">>> Top " + count + " Selling Tracks");
+            for (var track : result.getTracks()) {
+                System.out.println(track);
+            }
+            System.out.println(result);
+        }
+    }
+}
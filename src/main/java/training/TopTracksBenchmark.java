@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.ignite.Ignite;
+import org.apache.ignite.client.IgniteClient;
+import training.model.TopTracksResult;
+
+/**
+ * Compares the exact top selling tracks of {@link TopTracksTask}, where every job ships its per-track totals, with
+ * the approximate mode at several summary capacities. Besides latency it prints the counters and bytes the jobs sent,
+ * the error bound of the result, the recall against the exact answer and the number of returned quantities outside
+ * their stated bounds, checked against a SQL {@code GROUP BY} over all invoice lines. Runs against the loaded data.
+ *
+ * Arguments: {@code [iterations] [count] [capacity...]}, by default 20, 10 and the capacities 32, 128 and 512.
+ */
+public class TopTracksBenchmark {
+
+    public static void main(String[] args) {
+        var iterations = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        var count = args.length > 1 ? Integer.parseInt(args[1]) : TopTracksTask.DEFAULT_COUNT;
+        var capacities = args.length > 2
+                ? Arrays.stream(args, 2, args.length).mapToInt(Integer::parseInt).toArray()
+                : new int[] {32, 128, 512};
+
+        try (var ignite = IgniteClient.builder()
+                .addresses("127.0.0.1:10800")
+                .build()
+        ) {
+            var sold = soldPerTrack(ignite);
+            var sorted = new ArrayList<>(sold.values());
+            sorted.sort((a, b) -> Long.compare(b, a));
+            // Ties at the last place make more than one top list correct: any track selling at least this much is.
+            var threshold = sorted.isEmpty() ? 0 : sorted.get(Math.min(count, sorted.size()) - 1);
+
+            var variants = new int[capacities.length + 1];
+            variants[0] = TopTracksTask.EXACT;
+            System.arraycopy(capacities, 0, variants, 1, capacities.length);
+
+            System.out.printf("%-10s %-10s %10s %10s %12s %12s %10s %8s %10s%n", "capacity", "split", "p50 ms",
+                    "p99 ms", "entries", "bytes", "maxError", "recall", "outside");
+            for (var split : SplitMode.values()) {
+                for (var capacity : variants) {
+                    var last = new TopTracksResult[1];
+                    var latencies = TopPayingCustomersBenchmark.measure(() -> last[0] = ignite.compute()
+                            .executeMapReduce(TopTracksTask.descriptor(), TopTracksTask.input(count, capacity, split)),
+                            iterations);
+
+                    var found = 0;
+                    var outside = 0;
+                    for (var track : last[0].getTracks()) {
+                        var actual = sold.getOrDefault(track.getTrackId(), 0L);
+                        if (actual >= threshold) {
+                            found++;
+                        }
+                        if (actual < track.getLowerBound() || actual > track.getQuantity()) {
+                            outside++;
+                        }
+                    }
+
+                    System.out.printf("%-10s %-10s %10.2f %10.2f %12d %12d %10d %8.2f %10d%n",
+                            capacity == TopTracksTask.EXACT ? "exact" : String.valueOf(capacity), split,
+                            TopPayingCustomersBenchmark.percentile(latencies, 0.5) / 1e6,
+                            TopPayingCustomersBenchmark.percentile(latencies, 0.99) / 1e6,
+                            last[0].getEntriesShipped(), last[0].getResultBytes(),
+                            last[0].getMaxError(), (double) found / Math.max(1, Math.min(count, sold.size())), outside);
+                }
+            }
+        }
+    }
+
+    /** Units sold per track over all invoice lines. */
+    private static Map<Integer, Long> soldPerTrack(Ignite ignite) {
+        var sold = new HashMap<Integer, Long>();
+        try (var rows = ignite.sql().execute(null,
+                "select trackid, sum(cast(quantity as bigint)) from invoiceline group by trackid")) {
+            while (rows.hasNext()) {
+                var row = rows.next();
+                sold.put(row.intValue(0), row.longValue(1));
+            }
+        }
+        return sold;
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.ignite.Ignite;
+import org.apache.ignite.compute.TaskDescriptor;
+import org.apache.ignite.compute.task.TaskExecutionContext;
+import org.apache.ignite.marshalling.Marshaller;
+import org.apache.ignite.sql.IgniteSql;
+import org.apache.ignite.sql.SqlRow;
+import org.apache.ignite.table.Tuple;
+import training.model.TopTrack;
+import training.model.TopTracksResult;
+
+/**
+ * Top selling tracks by units sold. Unlike the customers of {@link TopPayingCustomersTask}, the sales of a track are
+ * spread over every InvoiceLine partition, so a per-partition top-K can't be merged into the global one: an exact
+ * answer needs the per-track totals of every job. That is what the task computes with a {@code capacity} of
+ * {@link #EXACT}.
+ *
+ * With a positive {@code capacity} every job streams its lines into a {@link SpaceSavingSummary} of that many
+ * counters and ships only the summary; the reduce step merges them into one summary of the same capacity and returns
+ * its top tracks with their error. Every returned quantity is an upper bound that overestimates by at most
+ * {@link TopTracksResult#getMaxError()}, and no track left out can have sold more than that bound.
+ *
+ * The task input is a tuple with the number of tracks ({@code count}, 10 by default), the {@code capacity}
+ * ({@link #DEFAULT_CAPACITY} by default) and the {@link SplitMode} ({@code split}, {@code PER_NODE} by default).
+ */
+public class TopTracksTask extends ColocatedAggregationTask<SpaceSavingSummary, SpaceSavingSummary, TopTracksResult> {
+    static final int EXACT = 0;
+
+    static final int DEFAULT_COUNT = 10;
+
+    static final int DEFAULT_CAPACITY = 256;
+
+    static final String LINE_QUERY = "select trackid, quantity from invoiceline where \"__part\" = ?";
+
+    public TopTracksTask() {
+        super(new TopTracksAggregation(), TopTracksJob.class);
+    }
+
+    static TaskDescriptor<Tuple, TopTracksResult> descriptor() {
+        return TaskDescriptor.builder(TopTracksTask.class)
+                .units(ComputeApp.deploymentUnits())
+                .reduceJobResultMarshaller(CompactMarshaller.create())
+                .build();
+    }
+
+    static Tuple input(int count, int capacity, SplitMode split) {
+        return Tuple.create()
+                .set("count", count)
+                .set("capacity", capacity)
+                .set("split", split.name());
+    }
+
+    @Override
+    public Marshaller<TopTracksResult, byte[]> reduceJobResultMarshaller() {
+        return CompactMarshaller.create();
+    }
+
+    @Override
+    protected CompletableFuture<TopTracksResult> finish(TaskExecutionContext taskExecutionContext, Tuple input,
+            List<SpaceSavingSummary> partials, Reduction reduction) {
+        var merged = new SpaceSavingSummary(summaryCapacity(input.valueOrDefault("capacity", DEFAULT_CAPACITY)));
+        long entriesShipped = 0;
+        for (var partial : partials) {
+            merged.merge(partial);
+            entriesShipped += partial.size();
+        }
+
+        var tracks = topTracks(merged, input.valueOrDefault("count", DEFAULT_COUNT));
+        reduction.startEnrich();
+        var trackIds = new int[tracks.length];
+        for (var i = 0; i < tracks.length; i++) {
+            trackIds[i] = tracks[i].getTrackId();
+        }
+        var shipped = entriesShipped;
+        return trackNamesAsync(taskExecutionContext.ignite().sql(), trackIds).thenApply(names -> {
+            for (var track : tracks) {
+                track.setName(names.get(track.getTrackId()));
+            }
+            return new TopTracksResult(tracks, merged.total(), merged.floor(), shipped, reduction.jobResultBytes());
+        });
+    }
+
+    static int summaryCapacity(int capacity) {
+        return capacity == EXACT ? SpaceSavingSummary.UNBOUNDED : capacity;
+    }
+
+    static TopTrack[] topTracks(SpaceSavingSummary summary, int count) {
+        var keys = summary.top(count);
+        var tracks = new TopTrack[keys.length];
+        for (var i = 0; i < keys.length; i++) {
+            tracks[i] = new TopTrack(keys[i], summary.count(keys[i]), summary.error(keys[i]));
+        }
+        return tracks;
+    }
+
+    static CompletableFuture<Map<Integer, String>> trackNamesAsync(IgniteSql sql, int[] trackIds) {
+        var names = new HashMap<Integer, String>();
+        if (trackIds.length == 0) {
+            return CompletableFuture.completedFuture(names);
+        }
+
+        var arguments = new Object[trackIds.length];
+        for (var i = 0; i < trackIds.length; i++) {
+            arguments[i] = trackIds[i];
+        }
+        var query = "select trackid, name from track where trackid in ("
+                + String.join(", ", Collections.nCopies(arguments.length, "?")) + ")";
+        return AsyncQueries.forEachRow(sql, query,
+                        row -> names.put(row.intValue("trackId"), row.stringValue("name")), arguments)
+                .thenApply(ignored -> names);
+    }
+
+    public static class TopTracksJob extends ColocatedAggregationJob<SpaceSavingSummary, SpaceSavingSummary> {
+        public TopTracksJob() {
+            super(new TopTracksAggregation());
+        }
+    }
+
+    /** Streams the units sold of every line into a summary of {@code capacity} counters, unbounded when exact. */
+    static class TopTracksAggregation implements PartitionQueryAggregation<SpaceSavingSummary, SpaceSavingSummary> {
+        @Override
+        public String table() {
+            return "InvoiceLine";
+        }
+
+        @Override
+        public String metricsPrefix() {
+            return "topTracks.";
+        }
+
+        @Override
+        public SpaceSavingSummary createAccumulator(Ignite ignite, Tuple arguments) {
+            return new SpaceSavingSummary(summaryCapacity(arguments.valueOrDefault("capacity", DEFAULT_CAPACITY)));
+        }
+
+        @Override
+        public String query(Tuple arguments) {
+            return LINE_QUERY;
+        }
+
+        @Override
+        public void accumulate(SpaceSavingSummary accumulator, SqlRow row) {
+            accumulator.add(row.intValue("trackId"), row.intValue("quantity"));
+        }
+
+        @Override
+        public void combine(SpaceSavingSummary into, SpaceSavingSummary other) {
+            into.merge(other);
+        }
+
+        @Override
+        public SpaceSavingSummary partial(SpaceSavingSummary accumulator, Tuple arguments) {
+            return accumulator;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import org.apache.ignite.client.IgniteClient;
+
+/**
+ * Refreshes the track recommendations with {@link TrackRecommendationTask}, reports the build time and memory against
+ * the size of the PlaylistTrack table, then prints the recommendations of the given tracks and times lookups through
+ * {@link TrackRecommender}.
+ *
+ * Arguments: {@code [full] [topN] [maxPlaylistSize] [trackId...]}, by default {@code false} (refresh the tracks of
+ * changed playlists only), 10, 0 (no limit) and tracks 1 to 3.
+ */
+public class TrackRecommendationApp {
+    private static final int LOOKUPS = 1_000;
+
+    public static void main(String[] args) {
+        var full = args.length > 0 && Boolean.parseBoolean(args[0]);
+        var topN = args.length > 1 ? Integer.parseInt(args[1]) : TrackRecommendationTask.DEFAULT_TOP_N;
+        var maxPlaylistSize = args.length > 2 ? Integer.parseInt(args[2]) : 0;
+        var trackIds = new int[args.length > 3 ? args.length - 3 : 3];
+        for (var i = 0; i < trackIds.length; i++) {
+            trackIds[i] = args.length > 3 ? Integer.parseInt(args[i + 3]) : i + 1;
+        }
+
+        try (var ignite = IgniteClient.builder()
+                .addresses("127.0.0.1:10800")
+                .build()
+        ) {
+            var refresh = ignite.compute().executeMapReduce(TrackRecommendationTask.descriptor(),
+                    TrackRecommendationTask.input(full, topN, maxPlaylistSize));
+            var trace = refresh.getTrace();
+
+            System.out.println(">>> " + (refresh.isFull() ? "Full" : "Incremental") + " refresh: "
+                    + refresh.getPlaylistsChanged() + " of " + refresh.getPlaylists() + " playlists changed, "
+                    + refresh.getTracksRanked() + " tracks ranked");
+            System.out.printf(">>> Built in %.2f ms: split %.2f ms, map %.2f ms (%d jobs), write %.2f ms%n",
+                    trace.getTotalNanos() / 1e6, trace.getSplitNanos() / 1e6, trace.getMapNanos() / 1e6,
+                    trace.getJobs(), trace.getEnrichNanos() / 1e6);
+            System.out.printf(">>> %d PlaylistTrack rows: membership %d bytes (%.2f per row), job results %d bytes, "
+                            + "job allocations %s%n",
+                    refresh.getPlaylistTrackRows(), refresh.getMembershipBytes(),
+                    (double) refresh.getMembershipBytes() / Math.max(1, refresh.getPlaylistTrackRows()),
+                    refresh.getJobResultBytes(),
+                    refresh.getJobAllocatedBytes() < 0 ? "n/a" : refresh.getJobAllocatedBytes() + " bytes");
+            System.out.printf(">>> %d rows written (%d neighbour bytes), %d rows deleted%n", refresh.getRowsWritten(),
+                    refresh.getNeighbourBytes(), refresh.getRowsDeleted());
+
+            var recommender = new TrackRecommender(ignite);
+            for (var trackId : trackIds) {
+                var recommendations = recommender.recommendAsync(trackId, topN).join();
+                TrackRecommender.setNames(ignite.sql(), recommendations);
+
+                System.out.println(">>> Track " + trackId + ":");
+                for (var recommendation : recommendations) {
+                    System.out.println("    " + recommendation);
+                }
+            }
+
+            var latency = new LatencyHistogram();
+            for (var i = 0; i < LOOKUPS; i++) {
+                var start = System.nanoTime();
+                recommender.recommendAsync(trackIds[i % trackIds.length], topN).join();
+                latency.record(System.nanoTime() - start);
+            }
+            System.out.printf(">>> %d lookups: p50 %.3f ms, p99 %.3f ms, max %.3f ms%n", latency.count(),
+                    latency.percentile(50) / 1e6, latency.percentile(99) / 1e6, latency.max() / 1e6);
+        }
+    }
+}
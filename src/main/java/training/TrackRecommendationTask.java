@@ -0,0 +1,686 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.ignite.Ignite;
+import org.apache.ignite.compute.TaskDescriptor;
+import org.apache.ignite.compute.task.TaskExecutionContext;
+import org.apache.ignite.marshalling.Marshaller;
+import org.apache.ignite.sql.IgniteSql;
+import org.apache.ignite.table.KeyValueView;
+import org.apache.ignite.table.Tuple;
+import training.model.RecommendationRefresh;
+import training.model.TrackNeighbours;
+
+/**
+ * Builds the TrackRecommendation table: for every track, the {@code topN} tracks that are most often in the same
+ * playlists, served by {@link TrackRecommender}.
+ *
+ * PlaylistTrack is colocated by ArtistId like Track, so a partition holds every playlist entry of its tracks, but a
+ * playlist spans partitions. The task reads the track ids and partition of every playlist entry once and sends each job
+ * only the playlists with a track it ranks in its partitions, as sorted id differences, so a refresh that ranks a few
+ * tracks ships a few playlists. A job streams the entries of its partitions ordered by track and, for every track, counts the tracks
+ * of its playlists in an {@link IntLongHashMap} reused from track to track, so memory stays at one track's neighbours
+ * instead of every pair of the partition. The counts of a track are final in the job that owns it, so a job ships
+ * only the top {@code topN} neighbours of its tracks and the reduce step writes them as they are, one row per track.
+ *
+ * Refreshes are incremental. The PlaylistSnapshot table keeps the track ids of every playlist as of the last run, and
+ * only the tracks of playlists that changed since, before and after the change, are ranked again; rows of tracks left
+ * without neighbours are deleted. With {@code full} every track is ranked and every row of a track without neighbours
+ * is deleted. The snapshot is written after the recommendations, so an interrupted run is repeated by the next one.
+ * Runs are expected not to overlap.
+ *
+ * The task input is a tuple with {@code full} ({@code false} by default), {@code topN} (10), {@code maxPlaylistSize}
+ * and the {@link SplitMode} ({@code split}, {@code PER_NODE}). Playlists with more than {@code maxPlaylistSize}
+ * tracks are skipped when it is positive: a playlist of the whole catalog says little about which tracks go together,
+ * and its cost grows with the square of its size. Writing the rows is reported as the enrich phase of the trace.
+ */
+public class TrackRecommendationTask extends
+        ColocatedAggregationTask<TrackRecommendationTask.CooccurrenceState, TrackNeighbours, RecommendationRefresh> {
+    static final String MEMBERSHIP_QUERY = "select playlistid, trackid, \"__part\" as part from playlisttrack "
+            + "order by playlistid, trackid";
+
+    static final String PARTITION_QUERY = "select trackid, playlistid from playlisttrack where \"__part\" = ? "
+            + "order by trackid, playlistid";
+
+    static final String SNAPSHOT_TABLE = "PlaylistSnapshot";
+
+    static final String SNAPSHOT_QUERY = "select playlistid, tracks from " + SNAPSHOT_TABLE;
+
+    static final int DEFAULT_TOP_N = 10;
+
+    /** Rows per {@code putAll} or {@code removeAll} call of the reduce step. */
+    private static final int WRITE_BATCH = 1_000;
+
+    private Membership membership;
+
+    /** Playlists with a track to rank, by partition; the membership of a job is the union of its partitions. */
+    private Map<Integer, BitSet> playlistsByPartition;
+
+    /** Encoded size of the memberships of all jobs. */
+    private long membershipBytes;
+
+    /** Track ids of the added and changed playlists, encoded for the snapshot. */
+    private Map<Integer, byte[]> changedPlaylists;
+
+    private List<Integer> removedPlaylists;
+
+    /** Tracks the jobs rank, or {@code null} for all. */
+    private int[] rankedTracks;
+
+    public TrackRecommendationTask() {
+        super(new CooccurrenceAggregation(), TrackRecommendationJob.class);
+    }
+
+    static TaskDescriptor<Tuple, RecommendationRefresh> descriptor() {
+        return TaskDescriptor.builder(TrackRecommendationTask.class)
+                .units(ComputeApp.deploymentUnits())
+                .reduceJobResultMarshaller(CompactMarshaller.create())
+                .build();
+    }
+
+    static Tuple input(boolean full, int topN, int maxPlaylistSize) {
+        return Tuple.create()
+                .set("full", full)
+                .set("topN", topN)
+                .set("maxPlaylistSize", maxPlaylistSize);
+    }
+
+    @Override
+    public Marshaller<RecommendationRefresh, byte[]> reduceJobResultMarshaller() {
+        return CompactMarshaller.create();
+    }
+
+    /** Reads the playlists, compares them with the snapshot and picks the tracks to rank. */
+    @Override
+    protected CompletableFuture<Tuple> jobArgumentsAsync(TaskExecutionContext taskExecutionContext, Tuple input) {
+        var sql = taskExecutionContext.ignite().sql();
+        var builder = new Membership.Builder();
+        var previous = new HashMap<Integer, byte[]>();
+        return AsyncQueries.forEachRow(sql, MEMBERSHIP_QUERY,
+                        row -> builder.add(row.intValue("playlistId"), row.intValue("trackId"), row.intValue("part")))
+                .thenCompose(ignored -> AsyncQueries.forEachRow(sql, SNAPSHOT_QUERY,
+                        row -> previous.put(row.intValue("playlistId"), row.value("tracks"))))
+                .thenApply(ignored -> sharedJobArguments(input, builder.build(), previous));
+    }
+
+    /** Compares the playlists with the snapshot, whose entries it removes, and picks the tracks to rank. */
+    Tuple sharedJobArguments(Tuple input, Membership membership, Map<Integer, byte[]> previous) {
+        this.membership = membership;
+        changedPlaylists = new HashMap<>();
+        var tracks = new IntLongHashMap(1024);
+        for (var p = 0; p < membership.playlists(); p++) {
+            var encoded = membership.encodeTracks(p);
+            var old = previous.remove(membership.playlistId(p));
+            if (Arrays.equals(encoded, old)) {
+                continue;
+            }
+
+            changedPlaylists.put(membership.playlistId(p), encoded);
+            for (var t = membership.start(p); t < membership.end(p); t++) {
+                tracks.put(membership.trackAt(t), 0);
+            }
+            if (old != null) {
+                addKeys(tracks, decodeIds(old));
+            }
+        }
+        removedPlaylists = new ArrayList<>(previous.keySet());
+        for (var old : previous.values()) {
+            addKeys(tracks, decodeIds(old));
+        }
+
+        var full = input.valueOrDefault("full", false);
+        int maxPlaylistSize = input.valueOrDefault("maxPlaylistSize", 0);
+        rankedTracks = full ? null : sortedKeys(tracks);
+        playlistsByPartition = membership.playlistsByPartition(full ? null : tracks, maxPlaylistSize);
+        membershipBytes = 0;
+
+        return Tuple.create()
+                .set("topN", input.valueOrDefault("topN", DEFAULT_TOP_N))
+                .set("maxPlaylistSize", maxPlaylistSize);
+    }
+
+    /** Adds the playlists and, on a refresh, the tracks to rank of the job's partitions. */
+    @Override
+    protected Tuple jobArguments(Tuple arguments, int[] partitions) {
+        var owned = new BitSet();
+        var playlists = new BitSet(membership.playlists());
+        for (var partition : partitions) {
+            owned.set(partition);
+            var inPartition = playlistsByPartition.get(partition);
+            if (inPartition != null) {
+                playlists.or(inPartition);
+            }
+        }
+
+        var encoded = membership.encode(playlists);
+        membershipBytes += encoded.length;
+        var jobArguments = Tuple.create()
+                .set("membership", encoded)
+                .set("topN", arguments.intValue("topN"))
+                .set("maxPlaylistSize", arguments.intValue("maxPlaylistSize"));
+        if (rankedTracks != null) {
+            var tracks = membership.tracksIn(rankedTracks, owned);
+            jobArguments.set("tracks", encodeIds(tracks, 0, tracks.length));
+        }
+        return jobArguments;
+    }
+
+    @Override
+    protected CompletableFuture<RecommendationRefresh> finish(TaskExecutionContext taskExecutionContext, Tuple input,
+            List<TrackNeighbours> partials, Reduction reduction) {
+        var rows = new LinkedHashMap<Tuple, Tuple>();
+        var withNeighbours = new IntLongHashMap(1024);
+        var tracksRanked = 0;
+        long neighbourBytes = 0;
+
+        for (var partial : partials) {
+            var offsets = partial.getOffsets();
+            for (var i = 0; i < partial.size(); i++) {
+                tracksRanked++;
+                if (offsets[i + 1] == offsets[i]) {
+                    continue;
+                }
+
+                var neighbours = TrackRecommender.encode(partial.getNeighbourIds(), partial.getSharedPlaylists(),
+                        offsets[i], offsets[i + 1]);
+                neighbourBytes += neighbours.length;
+                withNeighbours.put(partial.getTrackIds()[i], 0);
+                rows.put(Tuple.create().set("trackId", partial.getTrackIds()[i]),
+                        Tuple.create().set("playlists", partial.getPlaylists()[i]).set("neighbours", neighbours));
+            }
+        }
+        reduction.startEnrich();
+
+        var ignite = taskExecutionContext.ignite();
+        var deletes = new ArrayList<Tuple>();
+        for (var trackId : rankedTracks != null ? rankedTracks : recommendedTracks(ignite.sql())) {
+            if (withNeighbours.get(trackId, -1) < 0) {
+                deletes.add(Tuple.create().set("trackId", trackId));
+            }
+        }
+
+        var recommendations = ignite.tables().table(TrackRecommender.TABLE).keyValueView();
+        putAll(recommendations, rows);
+        removeAll(recommendations, deletes);
+
+        var snapshot = ignite.tables().table(SNAPSHOT_TABLE).keyValueView();
+        var snapshotRows = new LinkedHashMap<Tuple, Tuple>();
+        for (var playlist : changedPlaylists.entrySet()) {
+            snapshotRows.put(Tuple.create().set("playlistId", playlist.getKey()),
+                    Tuple.create().set("tracks", playlist.getValue()));
+        }
+        var snapshotDeletes = new ArrayList<Tuple>();
+        for (var playlistId : removedPlaylists) {
+            snapshotDeletes.add(Tuple.create().set("playlistId", playlistId));
+        }
+        putAll(snapshot, snapshotRows);
+        removeAll(snapshot, snapshotDeletes);
+
+        return CompletableFuture.completedFuture(new RecommendationRefresh(rankedTracks == null,
+                membership.playlists(), membership.rows(), changedPlaylists.size() + removedPlaylists.size(),
+                tracksRanked, rows.size(), deletes.size(), neighbourBytes, membershipBytes, reduction.jobResultBytes(),
+                reduction.jobAllocatedBytes(), reduction.trace()));
+    }
+
+    private static int[] recommendedTracks(IgniteSql sql) {
+        var tracks = new IntLongHashMap(1024);
+        try (var rows = sql.execute(null, "select trackid from " + TrackRecommender.TABLE)) {
+            while (rows.hasNext()) {
+                tracks.put(rows.next().intValue("trackId"), 0);
+            }
+        }
+        return sortedKeys(tracks);
+    }
+
+    private static void putAll(KeyValueView<Tuple, Tuple> view, Map<Tuple, Tuple> rows) {
+        var batch = new LinkedHashMap<Tuple, Tuple>();
+        for (var row : rows.entrySet()) {
+            batch.put(row.getKey(), row.getValue());
+            if (batch.size() == WRITE_BATCH) {
+                view.putAll(null, batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            view.putAll(null, batch);
+        }
+    }
+
+    private static void removeAll(KeyValueView<Tuple, Tuple> view, List<Tuple> keys) {
+        for (var from = 0; from < keys.size(); from += WRITE_BATCH) {
+            view.removeAll(null, keys.subList(from, Math.min(keys.size(), from + WRITE_BATCH)));
+        }
+    }
+
+    private static void addKeys(IntLongHashMap set, int[] keys) {
+        for (var key : keys) {
+            set.put(key, 0);
+        }
+    }
+
+    private static int[] sortedKeys(IntLongHashMap map) {
+        var keys = map.keys();
+        Arrays.sort(keys);
+        return keys;
+    }
+
+    /** Encodes ascending ids {@code from} to {@code to - 1} as their count and the differences between them. */
+    static byte[] encodeIds(int[] ids, int from, int to) {
+        var out = new BinaryWriter(1 + (to - from) * 2);
+        writeIds(out, ids, from, to);
+        return out.toByteArray();
+    }
+
+    static int[] decodeIds(byte[] raw) {
+        return readIds(new BinaryReader(raw, 0));
+    }
+
+    private static void writeIds(BinaryWriter out, int[] ids, int from, int to) {
+        out.writeLength(to - from);
+        for (var i = from; i < to; i++) {
+            out.writeLength(i == from ? ids[i] : ids[i] - ids[i - 1]);
+        }
+    }
+
+    private static int[] readIds(BinaryReader in) {
+        var ids = new int[in.readLength()];
+        for (var i = 0; i < ids.length; i++) {
+            ids[i] = i == 0 ? in.readLength() : ids[i - 1] + in.readLength();
+        }
+        return ids;
+    }
+
+    public static class TrackRecommendationJob extends ColocatedAggregationJob<CooccurrenceState, TrackNeighbours> {
+        public TrackRecommendationJob() {
+            super(new CooccurrenceAggregation());
+        }
+    }
+
+    /** Ranks the neighbours of the tracks in the scanned partitions. */
+    static class CooccurrenceAggregation implements PartitionAggregation<CooccurrenceState, TrackNeighbours> {
+        @Override
+        public String table() {
+            return "PlaylistTrack";
+        }
+
+        @Override
+        public String metricsPrefix() {
+            return "recommendations.";
+        }
+
+        @Override
+        public CooccurrenceState createAccumulator(Ignite ignite, Tuple arguments) {
+            byte[] tracks = arguments.valueOrDefault("tracks", null);
+            return new CooccurrenceState(Membership.decode(arguments.value("membership")),
+                    tracks == null ? null : decodeIds(tracks), arguments.intValue("topN"),
+                    arguments.intValue("maxPlaylistSize"));
+        }
+
+        /** Collects the playlists of one track at a time from the rows ordered by track, then ranks the track. */
+        @Override
+        public long scan(Ignite ignite, int partition, Tuple arguments, CooccurrenceState accumulator) {
+            if (accumulator.ranksNothing()) {
+                return 0;
+            }
+
+            long rows = 0;
+            var trackId = 0;
+            var playlists = new int[16];
+            var playlistCount = 0;
+            try (var results = ignite.sql().execute(null, PARTITION_QUERY, partition)) {
+                while (results.hasNext()) {
+                    var row = results.next();
+                    var rowTrackId = row.intValue("trackId");
+                    var playlistId = row.intValue("playlistId");
+                    rows++;
+
+                    if (playlistCount > 0 && rowTrackId != trackId) {
+                        accumulator.rank(trackId, playlists, playlistCount);
+                        playlistCount = 0;
+                    }
+                    // The key includes ArtistId, so a track could be listed twice in a playlist.
+                    if (playlistCount > 0 && playlists[playlistCount - 1] == playlistId) {
+                        continue;
+                    }
+                    if (playlistCount == playlists.length) {
+                        playlists = Arrays.copyOf(playlists, playlistCount * 2);
+                    }
+                    trackId = rowTrackId;
+                    playlists[playlistCount++] = playlistId;
+                }
+            }
+            if (playlistCount > 0) {
+                accumulator.rank(trackId, playlists, playlistCount);
+            }
+            return rows;
+        }
+
+        /** Every track is ranked by one scanning thread, so the results are appended. */
+        @Override
+        public void combine(CooccurrenceState into, CooccurrenceState other) {
+            into.addAll(other);
+        }
+
+        @Override
+        public TrackNeighbours partial(CooccurrenceState accumulator, Tuple arguments) {
+            return accumulator.toNeighbours();
+        }
+    }
+
+    /** The neighbour counting of a scanning thread and the top neighbours of the tracks it ranked. */
+    static final class CooccurrenceState {
+        private final Membership membership;
+
+        /** Tracks to rank, or {@code null} for all. */
+        private final IntLongHashMap tracks;
+
+        private final int topN;
+
+        private final int maxPlaylistSize;
+
+        /** Shared playlists per neighbour of the track being ranked. */
+        private final IntLongHashMap counts = new IntLongHashMap(1024);
+
+        private int size;
+
+        private int[] trackIds = new int[64];
+
+        private int[] playlists = new int[64];
+
+        private int[] offsets = new int[65];
+
+        private int[] neighbourIds = new int[256];
+
+        private int[] sharedPlaylists = new int[256];
+
+        CooccurrenceState(Membership membership, int[] tracks, int topN, int maxPlaylistSize) {
+            this.membership = membership;
+            this.topN = topN;
+            this.maxPlaylistSize = maxPlaylistSize;
+
+            if (tracks == null) {
+                this.tracks = null;
+            } else {
+                this.tracks = new IntLongHashMap(tracks.length);
+                addKeys(this.tracks, tracks);
+            }
+        }
+
+        boolean ranksNothing() {
+            return tracks != null && tracks.size() == 0;
+        }
+
+        /** Counts the tracks sharing a playlist with {@code trackId} and keeps the {@code topN} of them. */
+        void rank(int trackId, int[] trackPlaylists, int playlistCount) {
+            if (tracks != null && tracks.get(trackId, -1) < 0) {
+                return;
+            }
+
+            counts.clear();
+            var counted = 0;
+            for (var i = 0; i < playlistCount; i++) {
+                var p = membership.position(trackPlaylists[i]);
+                // A playlist created after the task read them is left to the next run.
+                if (p < 0 || (maxPlaylistSize > 0 && membership.end(p) - membership.start(p) > maxPlaylistSize)) {
+                    continue;
+                }
+
+                counted++;
+                for (var t = membership.start(p); t < membership.end(p); t++) {
+                    var neighbour = membership.trackAt(t);
+                    if (neighbour != trackId) {
+                        counts.addTo(neighbour, 1);
+                    }
+                }
+            }
+
+            var slots = TopKSelector.select(counts, topN);
+            if (size == trackIds.length) {
+                trackIds = Arrays.copyOf(trackIds, size * 2);
+                playlists = Arrays.copyOf(playlists, size * 2);
+                offsets = Arrays.copyOf(offsets, size * 2 + 1);
+            }
+            var entries = offsets[size];
+            ensureNeighbours(entries + slots.length);
+
+            trackIds[size] = trackId;
+            playlists[size] = counted;
+            for (var slot : slots) {
+                neighbourIds[entries] = counts.keyAt(slot);
+                sharedPlaylists[entries++] = (int) counts.valueAt(slot);
+            }
+            offsets[++size] = entries;
+        }
+
+        void addAll(CooccurrenceState other) {
+            for (var i = 0; i < other.size; i++) {
+                if (size == trackIds.length) {
+                    trackIds = Arrays.copyOf(trackIds, size * 2);
+                    playlists = Arrays.copyOf(playlists, size * 2);
+                    offsets = Arrays.copyOf(offsets, size * 2 + 1);
+                }
+                var from = other.offsets[i];
+                var to = other.offsets[i + 1];
+                var entries = offsets[size];
+                ensureNeighbours(entries + to - from);
+
+                System.arraycopy(other.neighbourIds, from, neighbourIds, entries, to - from);
+                System.arraycopy(other.sharedPlaylists, from, sharedPlaylists, entries, to - from);
+                trackIds[size] = other.trackIds[i];
+                playlists[size] = other.playlists[i];
+                offsets[++size] = entries + to - from;
+            }
+        }
+
+        TrackNeighbours toNeighbours() {
+            var entries = offsets[size];
+            return new TrackNeighbours(Arrays.copyOf(trackIds, size), Arrays.copyOf(playlists, size),
+                    Arrays.copyOf(offsets, size + 1), Arrays.copyOf(neighbourIds, entries),
+                    Arrays.copyOf(sharedPlaylists, entries));
+        }
+
+        private void ensureNeighbours(int capacity) {
+            if (capacity > neighbourIds.length) {
+                var length = Math.max(capacity, neighbourIds.length * 2);
+                neighbourIds = Arrays.copyOf(neighbourIds, length);
+                sharedPlaylists = Arrays.copyOf(sharedPlaylists, length);
+            }
+        }
+    }
+
+    /**
+     * Track ids of every playlist, ascending, in one array. A primitive map from PlaylistId to the position of the
+     * playlist finds the tracks of a playlist without boxing. The task also keeps the partition of every track, which
+     * isn't sent to the jobs.
+     */
+    static final class Membership {
+        private final int[] playlistIds;
+
+        /** Tracks of playlist {@code p} are {@code trackIds[offsets[p]]} to {@code trackIds[offsets[p + 1] - 1]}. */
+        private final int[] offsets;
+
+        private final int[] trackIds;
+
+        private final IntLongHashMap positions;
+
+        /** Partition by TrackId, or {@code null} in a job. */
+        private final IntLongHashMap trackPartitions;
+
+        Membership(int[] playlistIds, int[] offsets, int[] trackIds, IntLongHashMap trackPartitions) {
+            this.playlistIds = playlistIds;
+            this.offsets = offsets;
+            this.trackIds = trackIds;
+            this.trackPartitions = trackPartitions;
+
+            positions = new IntLongHashMap(playlistIds.length);
+            for (var p = 0; p < playlistIds.length; p++) {
+                positions.put(playlistIds[p], p);
+            }
+        }
+
+        /** Collects the rows of {@link #MEMBERSHIP_QUERY}, which come ordered by playlist and track. */
+        static final class Builder {
+            private int[] playlistIds = new int[64];
+
+            private int[] offsets = new int[65];
+
+            private int[] trackIds = new int[1024];
+
+            private int playlists;
+
+            private int rows;
+
+            private final IntLongHashMap trackPartitions = new IntLongHashMap(1024);
+
+            void add(int playlistId, int trackId, int partition) {
+                trackPartitions.put(trackId, partition);
+
+                if (playlists == 0 || playlistIds[playlists - 1] != playlistId) {
+                    if (playlists == playlistIds.length) {
+                        playlistIds = Arrays.copyOf(playlistIds, playlists * 2);
+                        offsets = Arrays.copyOf(offsets, playlists * 2 + 1);
+                    }
+                    playlistIds[playlists++] = playlistId;
+                } else if (trackIds[rows - 1] == trackId) {
+                    return;
+                }
+
+                if (rows == trackIds.length) {
+                    trackIds = Arrays.copyOf(trackIds, rows * 2);
+                }
+                trackIds[rows++] = trackId;
+                offsets[playlists] = rows;
+            }
+
+            Membership build() {
+                return new Membership(Arrays.copyOf(playlistIds, playlists), Arrays.copyOf(offsets, playlists + 1),
+                        Arrays.copyOf(trackIds, rows), trackPartitions);
+            }
+        }
+
+        /**
+         * Positions of the playlists with a track of {@code tracks}, or any track when it is {@code null}, by the
+         * partition of the track. Playlists of more than {@code maxPlaylistSize} tracks are left out when it is
+         * positive, since the jobs skip them anyway.
+         */
+        Map<Integer, BitSet> playlistsByPartition(IntLongHashMap tracks, int maxPlaylistSize) {
+            var playlists = new HashMap<Integer, BitSet>();
+            for (var p = 0; p < playlistIds.length; p++) {
+                if (maxPlaylistSize > 0 && offsets[p + 1] - offsets[p] > maxPlaylistSize) {
+                    continue;
+                }
+                for (var t = offsets[p]; t < offsets[p + 1]; t++) {
+                    if (tracks == null || tracks.get(trackIds[t], -1) >= 0) {
+                        var partition = (int) trackPartitions.get(trackIds[t], -1);
+                        playlists.computeIfAbsent(partition, k -> new BitSet(playlistIds.length)).set(p);
+                    }
+                }
+            }
+            return playlists;
+        }
+
+        /** The ascending {@code tracks} in {@code partitions}; tracks without playlists are in none. */
+        int[] tracksIn(int[] tracks, BitSet partitions) {
+            var in = new int[tracks.length];
+            var size = 0;
+            for (var trackId : tracks) {
+                var partition = (int) trackPartitions.get(trackId, -1);
+                if (partition >= 0 && partitions.get(partition)) {
+                    in[size++] = trackId;
+                }
+            }
+            return Arrays.copyOf(in, size);
+        }
+
+        /** Encodes the playlists at the set positions of {@code playlists}. */
+        byte[] encode(BitSet playlists) {
+            var rows = 0;
+            for (var p = playlists.nextSetBit(0); p >= 0; p = playlists.nextSetBit(p + 1)) {
+                rows += offsets[p + 1] - offsets[p];
+            }
+
+            var out = new BinaryWriter(8 + playlists.cardinality() * 4 + rows * 2);
+            out.writeLength(playlists.cardinality());
+            for (var p = playlists.nextSetBit(0); p >= 0; p = playlists.nextSetBit(p + 1)) {
+                out.writeVarInt(playlistIds[p]);
+                writeIds(out, trackIds, offsets[p], offsets[p + 1]);
+            }
+            return out.toByteArray();
+        }
+
+        static Membership decode(byte[] raw) {
+            var in = new BinaryReader(raw, 0);
+            var playlistIds = new int[in.readLength()];
+            var offsets = new int[playlistIds.length + 1];
+            var tracks = new int[playlistIds.length][];
+            for (var p = 0; p < playlistIds.length; p++) {
+                playlistIds[p] = in.readVarInt();
+                tracks[p] = readIds(in);
+                offsets[p + 1] = offsets[p] + tracks[p].length;
+            }
+
+            var trackIds = new int[offsets[playlistIds.length]];
+            for (var p = 0; p < playlistIds.length; p++) {
+                System.arraycopy(tracks[p], 0, trackIds, offsets[p], tracks[p].length);
+            }
+            return new Membership(playlistIds, offsets, trackIds, null);
+        }
+
+        int playlists() {
+            return playlistIds.length;
+        }
+
+        int rows() {
+            return trackIds.length;
+        }
+
+        int playlistId(int p) {
+            return playlistIds[p];
+        }
+
+        /** Position of a playlist, or {@code -1} if there is no such playlist. */
+        int position(int playlistId) {
+            return (int) positions.get(playlistId, -1);
+        }
+
+        int start(int p) {
+            return offsets[p];
+        }
+
+        int end(int p) {
+            return offsets[p + 1];
+        }
+
+        int trackAt(int i) {
+            return trackIds[i];
+        }
+
+        byte[] encodeTracks(int p) {
+            return encodeIds(trackIds, offsets[p], offsets[p + 1]);
+        }
+    }
+}
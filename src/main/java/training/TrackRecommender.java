@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.ignite.Ignite;
+import org.apache.ignite.sql.IgniteSql;
+import org.apache.ignite.table.KeyValueView;
+import org.apache.ignite.table.Tuple;
+import training.model.TrackRecommendation;
+
+/**
+ * Serves the recommendations built by {@link TrackRecommendationTask}. All neighbours of a track are kept in one
+ * TrackRecommendation row, so a lookup is a single key-value read by TrackId. The {@code Neighbours} column holds the
+ * neighbour ids and their shared playlist counts as varints, the counts as differences from the previous one since they
+ * don't increase.
+ */
+public class TrackRecommender {
+    static final String TABLE = "TrackRecommendation";
+
+    private final KeyValueView<Tuple, Tuple> recommendations;
+
+    public TrackRecommender(Ignite ignite) {
+        recommendations = ignite.tables().table(TABLE).keyValueView();
+    }
+
+    /**
+     * Returns up to {@code count} tracks most often in the same playlists as {@code trackId}, most shared playlists
+     * first. The array is empty for a track that shares no playlist with another one.
+     */
+    public CompletableFuture<TrackRecommendation[]> recommendAsync(int trackId, int count) {
+        return recommendations.getAsync(null, Tuple.create().set("trackId", trackId))
+                .thenApply(row -> row == null ? new TrackRecommendation[0] : decode(row.value("neighbours"), count));
+    }
+
+    /** Sets the track names of {@code recommendations} with one query. */
+    static void setNames(IgniteSql sql, TrackRecommendation[] recommendations) {
+        var trackIds = new int[recommendations.length];
+        for (var i = 0; i < trackIds.length; i++) {
+            trackIds[i] = recommendations[i].getTrackId();
+        }
+
+        var names = TopTracksTask.trackNamesAsync(sql, trackIds).join();
+        for (var recommendation : recommendations) {
+            recommendation.setName(names.get(recommendation.getTrackId()));
+        }
+    }
+
+    /** Encodes neighbours {@code from} to {@code to - 1}, which are ordered by shared playlists, largest first. */
+    static byte[] encode(int[] neighbourIds, int[] sharedPlaylists, int from, int to) {
+        var out = new BinaryWriter(1 + (to - from) * 4);
+        out.writeLength(to - from);
+        for (var i = from; i < to; i++) {
+            out.writeVarInt(neighbourIds[i]);
+            out.writeLength(i == from ? sharedPlaylists[i] : sharedPlaylists[i - 1] - sharedPlaylists[i]);
+        }
+        return out.toByteArray();
+    }
+
+    static TrackRecommendation[] decode(byte[] raw, int count) {
+        var in = new BinaryReader(raw, 0);
+        var recommendations = new TrackRecommendation[Math.min(count, in.readLength())];
+        var shared = 0;
+        for (var i = 0; i < recommendations.length; i++) {
+            var trackId = in.readVarInt();
+            shared = i == 0 ? in.readLength() : shared - in.readLength();
+            recommendations[i] = new TrackRecommendation(trackId, shared);
+        }
+        return recommendations;
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import java.util.SplittableRandom;
+
+/**
+ * Samples ranks {@code 1..n} with probability proportional to {@code 1 / rank^exponent}, using rejection-inversion
+ * (Hormann and Derflinger). It needs constant memory and time, so it works for millions of ranks. An exponent of
+ * {@code 0} samples uniformly.
+ */
+public final class ZipfSampler {
+    private final int n;
+
+    private final double exponent;
+
+    private final double hIntegralX1;
+
+    private final double hIntegralN;
+
+    private final double s;
+
+    public ZipfSampler(int n, double exponent) {
+        if (n < 1 || exponent < 0) {
+            throw new IllegalArgumentException("Invalid Zipf parameters: n=" + n + ", exponent=" + exponent);
+        }
+        this.n = n;
+        this.exponent = exponent;
+
+        hIntegralX1 = hIntegral(1.5) - 1;
+        hIntegralN = hIntegral(n + 0.5);
+        s = 2 - hIntegralInverse(hIntegral(2.5) - h(2));
+    }
+
+    public int sample(SplittableRandom random) {
+        if (exponent == 0) {
+            return 1 + random.nextInt(n);
+        }
+
+        while (true) {
+            var u = hIntegralN + random.nextDouble() * (hIntegralX1 - hIntegralN);
+            var x = hIntegralInverse(u);
+            var k = (int) Math.max(1, Math.min(n, (long) (x + 0.5)));
+
+            if (k - x <= s || u >= hIntegral(k + 0.5) - h(k)) {
+                return k;
+            }
+        }
+    }
+
+    private double h(double x) {
+        return Math.exp(-exponent * Math.log(x));
+    }
+
+    private double hIntegral(double x) {
+        var logX = Math.log(x);
+        return expm1OverX((1 - exponent) * logX) * logX;
+    }
+
+    private double hIntegralInverse(double x) {
+        var t = Math.max(-1, x * (1 - exponent));
+        return Math.exp(log1pOverX(t) * x);
+    }
+
+    private static double log1pOverX(double x) {
+        return Math.abs(x) > 1e-8 ? Math.log1p(x) / x : 1 - x * (0.5 - x * (1.0 / 3 - 0.25 * x));
+    }
+
+    private static double expm1OverX(double x) {
+        return Math.abs(x) > 1e-8 ? Math.expm1(x) / x : 1 + x * 0.5 * (1 + x / 3 * (1 + 0.25 * x));
+    }
+}
@@ -27,6 +27,9 @@ public class InvoiceLine {
 
     private int quantity;
 
+    public InvoiceLine() {
+    }
+
     public InvoiceLine(int invoiceId, int trackId, BigDecimal unitPrice, int quantity) {
         this.invoiceId = invoiceId;
         this.trackId = trackId;
@@ -32,6 +32,9 @@ public class InvoiceLineKey {
     @Column
     private int CUSTOMERID;
 
+    public InvoiceLineKey() {
+    }
+
     public InvoiceLineKey(int invoiceLineId, int customerId) {
         this.invoiceLineId = invoiceLineId;
         this.CUSTOMERID = customerId;
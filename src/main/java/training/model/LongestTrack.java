@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training.model;
+
+import java.io.Serializable;
+import java.util.Comparator;
+
+/**
+ * A track of the longest tracks report with its genre and artist names, as returned by the
+ * {@code sql/top_20_longest_tracks*.sql} queries.
+ */
+public class LongestTrack implements Serializable {
+    /** Longest first; ties go to the smaller track id so the report is deterministic. */
+    public static final Comparator<LongestTrack> LONGEST_FIRST = Comparator
+            .comparingInt(LongestTrack::getMilliseconds).reversed()
+            .thenComparingInt(LongestTrack::getTrackId);
+
+    private final int trackId;
+
+    private final String name;
+
+    private final int milliseconds;
+
+    private String genre;
+
+    private String artist;
+
+    public LongestTrack(int trackId, String name, int milliseconds) {
+        this.trackId = trackId;
+        this.name = name;
+        this.milliseconds = milliseconds;
+    }
+
+    public int getTrackId() {
+        return trackId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getMilliseconds() {
+        return milliseconds;
+    }
+
+    /** Whole minutes, the {@code duration} column of the SQL reports. */
+    public int getDurationMinutes() {
+        return milliseconds / (1000 * 60);
+    }
+
+    public String getGenre() {
+        return genre;
+    }
+
+    public void setGenre(String genre) {
+        this.genre = genre;
+    }
+
+    public String getArtist() {
+        return artist;
+    }
+
+    public void setArtist(String artist) {
+        this.artist = artist;
+    }
+
+    @Override public String toString() {
+        return "LongestTrack{" +
+            "trackId=" + trackId +
+            ", name='" + name + '\'' +
+            ", genre='" + genre + '\'' +
+            ", artist='" + artist + '\'' +
+            ", duration=" + getDurationMinutes() +
+            '}';
+    }
+}
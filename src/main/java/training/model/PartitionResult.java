@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training.model;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Result of a job of a {@code ColocatedAggregationTask}: the partial aggregate of the partitions the job scanned, such
+ * as the local top customers, plus the number of rows each partition query returned to the job, how long each query
+ * took and what the job cost on its node.
+ *
+ * @param <P> Type of the partial aggregate.
+ */
+public class PartitionResult<P> implements Serializable {
+    private final int[] partitions;
+
+    private final long[] rowCounts;
+
+    private final long[] partitionNanos;
+
+    private final P partial;
+
+    private final long aggregationNanos;
+
+    private final long elapsedNanos;
+
+    private final long allocatedBytes;
+
+    public PartitionResult(int[] partitions, long[] rowCounts, long[] partitionNanos, P partial,
+            long aggregationNanos, long elapsedNanos, long allocatedBytes) {
+        this.partitions = partitions;
+        this.rowCounts = rowCounts;
+        this.partitionNanos = partitionNanos;
+        this.partial = partial;
+        this.aggregationNanos = aggregationNanos;
+        this.elapsedNanos = elapsedNanos;
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    public int[] getPartitions() {
+        return partitions;
+    }
+
+    /** Rows read from the partition query, aligned with {@link #getPartitions()}. */
+    public long[] getRowCounts() {
+        return rowCounts;
+    }
+
+    /** Duration of every partition query including the aggregation of its rows, aligned with {@link #getPartitions()}. */
+    public long[] getPartitionNanos() {
+        return partitionNanos;
+    }
+
+    public P getPartial() {
+        return partial;
+    }
+
+    /** Time spent combining the scanning workers and building the partial aggregate. */
+    public long getAggregationNanos() {
+        return aggregationNanos;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /** Heap allocated by the job thread, or {@code -1} when the JVM can't report it. */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    public long getTotalRows() {
+        long total = 0;
+        for (var rows : rowCounts) {
+            total += rows;
+        }
+        return total;
+    }
+
+    public long getScanNanos() {
+        long total = 0;
+        for (var nanos : partitionNanos) {
+            total += nanos;
+        }
+        return total;
+    }
+
+    @Override
+    public String toString() {
+        return "PartitionResult{" +
+                "partitions=" + partitions.length +
+                ", rows=" + getTotalRows() +
+                ", partial=" + (partial instanceof Object[] ? Arrays.toString((Object[]) partial) : partial) +
+                ", scanNanos=" + getScanNanos() +
+                ", aggregationNanos=" + aggregationNanos +
+                ", elapsedNanos=" + elapsedNanos +
+                ", allocatedBytes=" + allocatedBytes +
+                '}';
+    }
+}
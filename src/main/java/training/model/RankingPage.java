@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training.model;
+
+import java.io.Serializable;
+
+/**
+ * One page of a partition's customer ranking: customer ids and their totals in cents, largest total first and equal
+ * totals by the smaller id, continuing right after the last customer of the previous page.
+ */
+public class RankingPage implements Serializable {
+    private final int partition;
+
+    private final int[] customerIds;
+
+    private final long[] cents;
+
+    private final boolean last;
+
+    public RankingPage(int partition, int[] customerIds, long[] cents, boolean last) {
+        this.partition = partition;
+        this.customerIds = customerIds;
+        this.cents = cents;
+        this.last = last;
+    }
+
+    public int getPartition() {
+        return partition;
+    }
+
+    public int[] getCustomerIds() {
+        return customerIds;
+    }
+
+    public long[] getCents() {
+        return cents;
+    }
+
+    public int size() {
+        return customerIds.length;
+    }
+
+    /** Whether the partition has no customers after this page. */
+    public boolean isLast() {
+        return last;
+    }
+
+    @Override
+    public String toString() {
+        return "RankingPage{" +
+                "partition=" + partition +
+                ", size=" + customerIds.length +
+                ", last=" + last +
+                '}';
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training.model;
+
+import java.io.Serializable;
+
+/**
+ * What a run of the track recommendation task changed, with its cost next to the size of its input and output.
+ */
+public class RecommendationRefresh implements Serializable {
+    private final boolean full;
+
+    private final int playlists;
+
+    private final long playlistTrackRows;
+
+    private final int playlistsChanged;
+
+    private final int tracksRanked;
+
+    private final int rowsWritten;
+
+    private final int rowsDeleted;
+
+    private final long neighbourBytes;
+
+    private final long membershipBytes;
+
+    private final long jobResultBytes;
+
+    private final long jobAllocatedBytes;
+
+    private final TaskTrace trace;
+
+    public RecommendationRefresh(boolean full, int playlists, long playlistTrackRows, int playlistsChanged,
+            int tracksRanked, int rowsWritten, int rowsDeleted, long neighbourBytes, long membershipBytes,
+            long jobResultBytes, long jobAllocatedBytes, TaskTrace trace) {
+        this.full = full;
+        this.playlists = playlists;
+        this.playlistTrackRows = playlistTrackRows;
+        this.playlistsChanged = playlistsChanged;
+        this.tracksRanked = tracksRanked;
+        this.rowsWritten = rowsWritten;
+        this.rowsDeleted = rowsDeleted;
+        this.neighbourBytes = neighbourBytes;
+        this.membershipBytes = membershipBytes;
+        this.jobResultBytes = jobResultBytes;
+        this.jobAllocatedBytes = jobAllocatedBytes;
+        this.trace = trace;
+    }
+
+    /** Whether every track was ranked, rather than only those in playlists changed since the last run. */
+    public boolean isFull() {
+        return full;
+    }
+
+    public int getPlaylists() {
+        return playlists;
+    }
+
+    public long getPlaylistTrackRows() {
+        return playlistTrackRows;
+    }
+
+    /** Playlists added, removed or with other tracks than at the last run. */
+    public int getPlaylistsChanged() {
+        return playlistsChanged;
+    }
+
+    /** Tracks whose neighbours the jobs counted. */
+    public int getTracksRanked() {
+        return tracksRanked;
+    }
+
+    public int getRowsWritten() {
+        return rowsWritten;
+    }
+
+    public int getRowsDeleted() {
+        return rowsDeleted;
+    }
+
+    /** Encoded size of the neighbours in the written rows. */
+    public long getNeighbourBytes() {
+        return neighbourBytes;
+    }
+
+    /** Encoded size of the playlists sent to the jobs, all jobs together. */
+    public long getMembershipBytes() {
+        return membershipBytes;
+    }
+
+    /** Marshalled size of all job results. */
+    public long getJobResultBytes() {
+        return jobResultBytes;
+    }
+
+    /** Heap allocated by all jobs, or {@code -1} when a job couldn't report it. */
+    public long getJobAllocatedBytes() {
+        return jobAllocatedBytes;
+    }
+
+    public TaskTrace getTrace() {
+        return trace;
+    }
+
+    @Override
+    public String toString() {
+        return "RecommendationRefresh{" +
+                "full=" + full +
+                ", playlists=" + playlists +
+                ", playlistTrackRows=" + playlistTrackRows +
+                ", playlistsChanged=" + playlistsChanged +
+                ", tracksRanked=" + tracksRanked +
+                ", rowsWritten=" + rowsWritten +
+                ", rowsDeleted=" + rowsDeleted +
+                ", neighbourBytes=" + neighbourBytes +
+                ", membershipBytes=" + membershipBytes +
+                ", jobResultBytes=" + jobResultBytes +
+                ", jobAllocatedBytes=" + jobAllocatedBytes +
+                '}';
+    }
+}
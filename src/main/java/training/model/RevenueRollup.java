@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training.model;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Revenue of the invoice lines grouped by three dimensions: the billing country of the invoice, the month of the
+ * invoice date and the genre of the track. Amounts are in cents, keys and amounts of a dimension are parallel arrays.
+ * A job returns genre ids only; the reduce step adds the genre names.
+ *
+ * Months are {@code yyyymm} numbers, {@code 0} for invoices without a date; a {@code null} country is the group of
+ * invoices without a billing country.
+ */
+public class RevenueRollup implements Serializable {
+    private final String[] countries;
+
+    private final long[] countryCents;
+
+    private final int[] months;
+
+    private final long[] monthCents;
+
+    private final int[] genreIds;
+
+    private final long[] genreCents;
+
+    private String[] genreNames;
+
+    /** Invoice lines aggregated. */
+    private final long lines;
+
+    /** Invoice lines without an invoice in their partition, which the inner join drops. */
+    private final long unmatchedLines;
+
+    public RevenueRollup(String[] countries, long[] countryCents, int[] months, long[] monthCents, int[] genreIds,
+            long[] genreCents, long lines, long unmatchedLines) {
+        this.countries = countries;
+        this.countryCents = countryCents;
+        this.months = months;
+        this.monthCents = monthCents;
+        this.genreIds = genreIds;
+        this.genreCents = genreCents;
+        this.lines = lines;
+        this.unmatchedLines = unmatchedLines;
+    }
+
+    public String[] getCountries() {
+        return countries;
+    }
+
+    public long[] getCountryCents() {
+        return countryCents;
+    }
+
+    public int[] getMonths() {
+        return months;
+    }
+
+    public long[] getMonthCents() {
+        return monthCents;
+    }
+
+    public int[] getGenreIds() {
+        return genreIds;
+    }
+
+    public long[] getGenreCents() {
+        return genreCents;
+    }
+
+    /** Names parallel to {@link #getGenreIds()}, or {@code null} for a job result. */
+    public String[] getGenreNames() {
+        return genreNames;
+    }
+
+    public void setGenreNames(String[] genreNames) {
+        this.genreNames = genreNames;
+    }
+
+    public long getLines() {
+        return lines;
+    }
+
+    public long getUnmatchedLines() {
+        return unmatchedLines;
+    }
+
+    public Map<String, BigDecimal> byCountry() {
+        var result = new LinkedHashMap<String, BigDecimal>();
+        for (var i = 0; i < countries.length; i++) {
+            result.put(countries[i], BigDecimal.valueOf(countryCents[i], 2));
+        }
+        return result;
+    }
+
+    /** Revenue per {@code yyyy-mm} month. */
+    public Map<String, BigDecimal> byMonth() {
+        var result = new LinkedHashMap<String, BigDecimal>();
+        for (var i = 0; i < months.length; i++) {
+            var month = months[i] == 0 ? null : String.format("%04d-%02d", months[i] / 100, months[i] % 100);
+            result.put(month, BigDecimal.valueOf(monthCents[i], 2));
+        }
+        return result;
+    }
+
+    /** Revenue per genre name, or per {@code #id} before the names are set. */
+    public Map<String, BigDecimal> byGenre() {
+        var result = new LinkedHashMap<String, BigDecimal>();
+        for (var i = 0; i < genreIds.length; i++) {
+            var genre = genreNames != null ? genreNames[i] : "#" + genreIds[i];
+            result.put(genre, BigDecimal.valueOf(genreCents[i], 2));
+        }
+        return result;
+    }
+
+    @Override public String toString() {
+        return "RevenueRollup{" +
+            "lines=" + lines +
+            ", unmatchedLines=" + unmatchedLines +
+            ", byCountry=" + byCountry() +
+            ", byMonth=" + byMonth() +
+            ", byGenre=" + byGenre() +
+            '}';
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training.model;
+
+import java.io.Serializable;
+import java.util.Locale;
+
+/**
+ * Where one execution of the top paying customers task spent its time. Task phases are measured on the node running
+ * the task, job phases are summed over the jobs. Network time isn't measured directly: {@link #getNetworkNanos()} is
+ * what remains of the map phase after the slowest job and unmarshalling.
+ */
+public class TaskTrace implements Serializable {
+    /** Resolving the primary replicas and building the jobs. */
+    private final long splitNanos;
+
+    /** From the end of the split until all job results arrived. */
+    private final long mapNanos;
+
+    /** Coverage check and merge of the job results. */
+    private final long reduceNanos;
+
+    /** Reading the names and addresses of the top customers. */
+    private final long enrichNanos;
+
+    private final int jobs;
+
+    private final long jobMaxNanos;
+
+    /** Time the jobs spent on their nodes, summed over the jobs. */
+    private final long jobNanos;
+
+    /** Heap allocated by the jobs, or {@code -1} when a job couldn't report it. */
+    private final long jobAllocatedBytes;
+
+    /** Partition queries, including folding their rows into the aggregator, summed over all partitions. */
+    private final long scanNanos;
+
+    /** Merging the workers of every job and selecting its top customers, summed over the jobs. */
+    private final long aggregationNanos;
+
+    private final long rowsScanned;
+
+    /** Bytes of job results unmarshalled by the task; results of jobs on the task's own node may not be marshalled. */
+    private final long resultBytes;
+
+    private final long unmarshalNanos;
+
+    /** Partition query durations, indexed by partition id. */
+    private final long[] partitionNanos;
+
+    public TaskTrace(long splitNanos, long mapNanos, long reduceNanos, long enrichNanos, int jobs, long jobMaxNanos,
+            long jobNanos, long jobAllocatedBytes, long scanNanos, long aggregationNanos, long rowsScanned,
+            long resultBytes, long unmarshalNanos, long[] partitionNanos) {
+        this.splitNanos = splitNanos;
+        this.mapNanos = mapNanos;
+        this.reduceNanos = reduceNanos;
+        this.enrichNanos = enrichNanos;
+        this.jobs = jobs;
+        this.jobMaxNanos = jobMaxNanos;
+        this.jobNanos = jobNanos;
+        this.jobAllocatedBytes = jobAllocatedBytes;
+        this.scanNanos = scanNanos;
+        this.aggregationNanos = aggregationNanos;
+        this.rowsScanned = rowsScanned;
+        this.resultBytes = resultBytes;
+        this.unmarshalNanos = unmarshalNanos;
+        this.partitionNanos = partitionNanos;
+    }
+
+    public long getSplitNanos() {
+        return splitNanos;
+    }
+
+    public long getMapNanos() {
+        return mapNanos;
+    }
+
+    public long getReduceNanos() {
+        return reduceNanos;
+    }
+
+    public long getEnrichNanos() {
+        return enrichNanos;
+    }
+
+    public int getJobs() {
+        return jobs;
+    }
+
+    public long getJobMaxNanos() {
+        return jobMaxNanos;
+    }
+
+    public long getJobNanos() {
+        return jobNanos;
+    }
+
+    public long getJobAllocatedBytes() {
+        return jobAllocatedBytes;
+    }
+
+    public long getScanNanos() {
+        return scanNanos;
+    }
+
+    public long getAggregationNanos() {
+        return aggregationNanos;
+    }
+
+    public long getRowsScanned() {
+        return rowsScanned;
+    }
+
+    public long getResultBytes() {
+        return resultBytes;
+    }
+
+    public long getUnmarshalNanos() {
+        return unmarshalNanos;
+    }
+
+    public long[] getPartitionNanos() {
+        return partitionNanos;
+    }
+
+    /** Estimated time the job requests and results spent between the nodes. */
+    public long getNetworkNanos() {
+        return Math.max(0, mapNanos - jobMaxNanos - unmarshalNanos);
+    }
+
+    /** Time of the task from the split to the enriched result. */
+    public long getTotalNanos() {
+        return splitNanos + mapNanos + reduceNanos + enrichNanos;
+    }
+
+    /** Id of the partition with the slowest query, or {@code -1} if there are none. */
+    public int getSlowestPartition() {
+        var slowest = -1;
+        for (var partition = 0; partition < partitionNanos.length; partition++) {
+            if (slowest < 0 || partitionNanos[partition] > partitionNanos[slowest]) {
+                slowest = partition;
+            }
+        }
+        return slowest;
+    }
+
+    @Override
+    public String toString() {
+        return "TaskTrace{" +
+                "total=" + millis(getTotalNanos()) +
+                ", split=" + millis(splitNanos) +
+                ", map=" + millis(mapNanos) +
+                ", jobMax=" + millis(jobMaxNanos) +
+                ", scan=" + millis(scanNanos) +
+                ", aggregation=" + millis(aggregationNanos) +
+                ", unmarshal=" + millis(unmarshalNanos) +
+                ", network~" + millis(getNetworkNanos()) +
+                ", reduce=" + millis(reduceNanos) +
+                ", enrich=" + millis(enrichNanos) +
+                ", jobs=" + jobs +
+                ", rows=" + rowsScanned +
+                ", resultBytes=" + resultBytes +
+                '}';
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.2fms", nanos / 1e6);
+    }
+}
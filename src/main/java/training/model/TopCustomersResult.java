@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training.model;
+
+import java.io.Serializable;
+
+/**
+ * Result of the top paying customers task: the customers, the number of rows every partition query returned and the
+ * {@link TaskTrace} of the execution. The row counts are invoice lines, and show skewed partitions, only for strategies
+ * that read every line; the others return at most one row per customer.
+ */
+public class TopCustomersResult implements Serializable {
+    private final TopCustomer[] customers;
+
+    private final long[] partitionRowCounts;
+
+    private final TaskTrace trace;
+
+    public TopCustomersResult(TopCustomer[] customers, long[] partitionRowCounts, TaskTrace trace) {
+        this.customers = customers;
+        this.partitionRowCounts = partitionRowCounts;
+        this.trace = trace;
+    }
+
+    public TopCustomer[] getCustomers() {
+        return customers;
+    }
+
+    /** Rows returned by the query of every partition, indexed by partition id. */
+    public long[] getPartitionRowCounts() {
+        return partitionRowCounts;
+    }
+
+    public TaskTrace getTrace() {
+        return trace;
+    }
+
+    @Override
+    public String toString() {
+        return "TopCustomersResult{" +
+                "customers=" + customers.length +
+                ", partitions=" + partitionRowCounts.length +
+                ", trace=" + trace +
+                '}';
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training.model;
+
+import java.io.Serializable;
+
+/**
+ * A track of the top selling tracks report. An approximate report returns an upper bound of the quantity sold and the
+ * most it may be overestimated by; an exact report has no error.
+ */
+public class TopTrack implements Serializable {
+    private final int trackId;
+
+    private final long quantity;
+
+    private final long error;
+
+    private String name;
+
+    public TopTrack(int trackId, long quantity, long error) {
+        this.trackId = trackId;
+        this.quantity = quantity;
+        this.error = error;
+    }
+
+    public int getTrackId() {
+        return trackId;
+    }
+
+    /** Units sold, or an upper bound of them. */
+    public long getQuantity() {
+        return quantity;
+    }
+
+    public long getError() {
+        return error;
+    }
+
+    /** Units the track is guaranteed to have sold. */
+    public long getLowerBound() {
+        return quantity - error;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    @Override public String toString() {
+        return "TopTrack{" +
+            "trackId=" + trackId +
+            ", name='" + name + '\'' +
+            ", quantity=" + quantity +
+            (error != 0 ? ", error=" + error : "") +
+            '}';
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training.model;
+
+import java.io.Serializable;
+
+/**
+ * Result of the top selling tracks task: the tracks, the error bound of the summaries they were selected from and what
+ * the jobs sent to the reduce step.
+ */
+public class TopTracksResult implements Serializable {
+    private final TopTrack[] tracks;
+
+    private final long totalQuantity;
+
+    private final long maxError;
+
+    private final long entriesShipped;
+
+    private final long resultBytes;
+
+    public TopTracksResult(TopTrack[] tracks, long totalQuantity, long maxError, long entriesShipped, long resultBytes) {
+        this.tracks = tracks;
+        this.totalQuantity = totalQuantity;
+        this.maxError = maxError;
+        this.entriesShipped = entriesShipped;
+        this.resultBytes = resultBytes;
+    }
+
+    public TopTrack[] getTracks() {
+        return tracks;
+    }
+
+    /** Units sold over all invoice lines. */
+    public long getTotalQuantity() {
+        return totalQuantity;
+    }
+
+    /**
+     * Largest overestimate of any quantity, and the most any track missing from the summaries can have sold; zero for
+     * an exact report.
+     */
+    public long getMaxError() {
+        return maxError;
+    }
+
+    /** Per-track counters in all job results. */
+    public long getEntriesShipped() {
+        return entriesShipped;
+    }
+
+    /** Marshalled size of all job results. */
+    public long getResultBytes() {
+        return resultBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "TopTracksResult{" +
+                "tracks=" + tracks.length +
+                ", totalQuantity=" + totalQuantity +
+                ", maxError=" + maxError +
+                ", entriesShipped=" + entriesShipped +
+                ", resultBytes=" + resultBytes +
+                '}';
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training.model;
+
+import java.io.Serializable;
+
+/**
+ * Top co-playlisted neighbours of the tracks a recommendation job ranked. The neighbours of track {@code i} are
+ * {@code neighbourIds[offsets[i]]} to {@code neighbourIds[offsets[i + 1] - 1]}, most shared playlists first.
+ */
+public class TrackNeighbours implements Serializable {
+    private final int[] trackIds;
+
+    private final int[] playlists;
+
+    private final int[] offsets;
+
+    private final int[] neighbourIds;
+
+    private final int[] sharedPlaylists;
+
+    public TrackNeighbours(int[] trackIds, int[] playlists, int[] offsets, int[] neighbourIds, int[] sharedPlaylists) {
+        this.trackIds = trackIds;
+        this.playlists = playlists;
+        this.offsets = offsets;
+        this.neighbourIds = neighbourIds;
+        this.sharedPlaylists = sharedPlaylists;
+    }
+
+    public int size() {
+        return trackIds.length;
+    }
+
+    public int[] getTrackIds() {
+        return trackIds;
+    }
+
+    /** Number of playlists every track is in. */
+    public int[] getPlaylists() {
+        return playlists;
+    }
+
+    public int[] getOffsets() {
+        return offsets;
+    }
+
+    public int[] getNeighbourIds() {
+        return neighbourIds;
+    }
+
+    /** Number of playlists a track and its neighbour are both in. */
+    public int[] getSharedPlaylists() {
+        return sharedPlaylists;
+    }
+
+    @Override
+    public String toString() {
+        return "TrackNeighbours{" +
+                "tracks=" + trackIds.length +
+                ", neighbours=" + neighbourIds.length +
+                '}';
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training.model;
+
+import java.io.Serializable;
+
+/** A track recommended for another one and the number of playlists the two are both in. */
+public class TrackRecommendation implements Serializable {
+    private final int trackId;
+
+    private final int sharedPlaylists;
+
+    private String name;
+
+    public TrackRecommendation(int trackId, int sharedPlaylists) {
+        this.trackId = trackId;
+        this.sharedPlaylists = sharedPlaylists;
+    }
+
+    public int getTrackId() {
+        return trackId;
+    }
+
+    public int getSharedPlaylists() {
+        return sharedPlaylists;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String toString() {
+        return "TrackRecommendation{" +
+                "trackId=" + trackId +
+                (name != null ? ", name='" + name + '\'' : "") +
+                ", sharedPlaylists=" + sharedPlaylists +
+                '}';
+    }
+}
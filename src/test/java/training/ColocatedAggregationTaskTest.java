@@ -0,0 +1,54 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import java.util.BitSet;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import training.model.PartitionResult;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ColocatedAggregationTaskTest {
+    private static final BitSet FOUR_PARTITIONS = BitSet.valueOf(new long[] {0b1111});
+
+    @Test
+    public void returnsRowCountsByPartition() {
+        var counts = ColocatedAggregationTask.checkCoverage(FOUR_PARTITIONS,
+                List.of(result(new int[] {2, 0}, 20, 0), result(new int[] {3, 1}, 30, 10)));
+
+        assertArrayEquals(new long[] {0, 10, 20, 30}, counts);
+    }
+
+    @Test
+    public void rejectsMissingUnknownAndDuplicatePartitions() {
+        assertThrows(IllegalStateException.class, () -> ColocatedAggregationTask.checkCoverage(FOUR_PARTITIONS,
+                List.of(result(new int[] {0, 1, 2}, 1, 1, 1))));
+        assertThrows(IllegalStateException.class, () -> ColocatedAggregationTask.checkCoverage(FOUR_PARTITIONS,
+                List.of(result(new int[] {0, 1, 2, 3, 4}, 1, 1, 1, 1, 1))));
+        assertThrows(IllegalStateException.class, () -> ColocatedAggregationTask.checkCoverage(FOUR_PARTITIONS,
+                List.of(result(new int[] {0, 1, 2, 3, -1}, 1, 1, 1, 1, 1))));
+        assertThrows(IllegalStateException.class, () -> ColocatedAggregationTask.checkCoverage(FOUR_PARTITIONS,
+                List.of(result(new int[] {0, 1}, 1, 1), result(new int[] {1, 2, 3}, 1, 1, 1))));
+    }
+
+    private static PartitionResult<Object> result(int[] partitions, long... rowCounts) {
+        return new PartitionResult<>(partitions, rowCounts, new long[partitions.length], null, 0, 0, 0);
+    }
+}
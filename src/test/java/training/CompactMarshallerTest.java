@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import java.math.BigDecimal;
+
+import org.junit.jupiter.api.Test;
+import training.model.CustomerPrice;
+import training.model.PartitionResult;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class CompactMarshallerTest {
+    private final CompactMarshaller<Object> marshaller = CompactMarshaller.create();
+
+    @Test
+    public void partialIsWrittenInPlace() {
+        var prices = new CustomerPrice[] {new CustomerPrice(7, new BigDecimal("12.34")), null,
+                new CustomerPrice(300, new BigDecimal("0.99"))};
+
+        var withPrices = marshaller.marshal(result(prices));
+        var withoutPartial = marshaller.marshal(result(null));
+
+        // The null partial is a single tag byte; the prices take their own tagged encoding and nothing more.
+        assertEquals(withoutPartial.length - 1 + marshaller.marshal(prices).length, withPrices.length);
+
+        var read = (PartitionResult<?>) marshaller.unmarshal(withPrices);
+        var readPrices = (CustomerPrice[]) read.getPartial();
+        assertEquals(3, readPrices.length);
+        assertEquals(300, readPrices[2].getCustomerId().intValue());
+        assertEquals(new BigDecimal("12.34"), readPrices[0].getPrice());
+        assertNull(readPrices[1]);
+        assertArrayEquals(new int[] {3, 11}, read.getPartitions());
+        assertEquals(42, read.getAllocatedBytes());
+
+        assertNull(((PartitionResult<?>) marshaller.unmarshal(withoutPartial)).getPartial());
+    }
+
+    @Test
+    public void partialWithoutCompactEncodingIsSerialized() {
+        var read = (PartitionResult<?>) marshaller.unmarshal(marshaller.marshal(result("partial")));
+
+        assertEquals("partial", read.getPartial());
+        assertEquals(42, read.getAllocatedBytes());
+    }
+
+    @Test
+    public void countersRoundTrip() {
+        var counters = new long[] {0, 1, -1, Long.MAX_VALUE, 300};
+
+        assertArrayEquals(counters, (long[]) marshaller.unmarshal(marshaller.marshal(counters)));
+        var read = (PartitionResult<?>) marshaller.unmarshal(marshaller.marshal(result(counters)));
+        assertArrayEquals(counters, (long[]) read.getPartial());
+    }
+
+    private static PartitionResult<Object> result(Object partial) {
+        return new PartitionResult<>(new int[] {3, 11}, new long[] {10, 20}, new long[] {1_000, 2_000}, partial, 500,
+                5_000, 42);
+    }
+}
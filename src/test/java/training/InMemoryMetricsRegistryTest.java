@@ -0,0 +1,54 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import java.util.TreeSet;
+
+import javax.management.AttributeNotFoundException;
+import javax.management.ReflectionException;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class InMemoryMetricsRegistryTest {
+    @Test
+    public void exposesCountersAndTimersAsAttributes() throws Exception {
+        var registry = new InMemoryMetricsRegistry();
+        registry.increment("job.rows", 3);
+        registry.increment("job.rows", 4);
+        registry.recordNanos("job.scan", 2_000);
+
+        assertEquals(7L, registry.getAttribute("job.rows"));
+        assertEquals(1L, registry.getAttribute("job.scan.count"));
+        assertEquals(2.0, (Double) registry.getAttribute("job.scan.maxMicros"), 0.0);
+        assertThrows(AttributeNotFoundException.class, () -> registry.getAttribute("job.scan.minMicros"));
+        assertEquals(registry.snapshot().get("job.scan.p99Micros"), registry.getAttribute("job.scan.p99Micros"));
+
+        var names = new TreeSet<String>();
+        for (var attribute : registry.getMBeanInfo().getAttributes()) {
+            names.add(attribute.getName());
+        }
+        assertEquals(registry.snapshot().keySet(), names);
+    }
+
+    @Test
+    public void rejectsOperations() {
+        assertThrows(ReflectionException.class, () -> new InMemoryMetricsRegistry().invoke("reset", null, null));
+    }
+}
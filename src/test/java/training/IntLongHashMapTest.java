@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class IntLongHashMapTest {
+    @Test
+    public void addToStartsFromZero() {
+        var map = new IntLongHashMap(4);
+        map.addTo(7, 5);
+        map.addTo(7, -2);
+        map.addTo(-7, 1);
+
+        assertEquals(3, map.get(7, -1));
+        assertEquals(1, map.get(-7, -1));
+        assertEquals(-1, map.get(8, -1));
+        assertEquals(2, map.size());
+    }
+
+    @Test
+    public void removeKeepsCollidingKeysReachable() {
+        var map = new IntLongHashMap(4);
+        // Multiples of a power of two larger than the table collide after mixing often enough to build long probe
+        // sequences, so removals have to move entries back across the gap and around the end of the table.
+        for (var key = 0; key < 64; key++) {
+            map.put(key << 16, key);
+        }
+        for (var key = 0; key < 64; key += 3) {
+            assertTrue(map.remove(key << 16));
+        }
+        assertFalse(map.remove(1));
+
+        for (var key = 0; key < 64; key++) {
+            assertEquals(key % 3 == 0 ? -1 : key, map.get(key << 16, -1), "key " + (key << 16));
+        }
+    }
+
+    @Test
+    public void keysListsEveryKeyOnce() {
+        var map = new IntLongHashMap(2);
+        for (var key = -50; key < 50; key++) {
+            map.put(key, key);
+        }
+        map.remove(0);
+
+        var keys = map.keys();
+        Arrays.sort(keys);
+        var expected = IntStream.range(-50, 50).filter(key -> key != 0).toArray();
+        assertArrayEquals(expected, keys);
+    }
+
+    @Test
+    public void matchesHashMapUnderRandomOperations() {
+        var random = new Random(42);
+        for (var round = 0; round < 20; round++) {
+            var map = new IntLongHashMap(1 + random.nextInt(16));
+            var expected = new HashMap<Integer, Long>();
+            // A small key range makes updates, removals and re-insertions of the same keys frequent.
+            var keys = 1 + random.nextInt(500);
+
+            for (var i = 0; i < 20_000; i++) {
+                var key = random.nextInt(keys) - keys / 2;
+                switch (random.nextInt(4)) {
+                    case 0:
+                        map.put(key, i);
+                        expected.put(key, (long) i);
+                        break;
+                    case 1:
+                        map.addTo(key, i);
+                        expected.merge(key, (long) i, Long::sum);
+                        break;
+                    case 2:
+                        assertEquals(expected.remove(key) != null, map.remove(key));
+                        break;
+                    default:
+                        assertEquals(expected.getOrDefault(key, Long.MIN_VALUE).longValue(), map.get(key, Long.MIN_VALUE));
+                }
+            }
+
+            assertContains(expected, map);
+            map.clear();
+            assertEquals(0, map.size());
+            assertEquals(-1, map.get(expected.isEmpty() ? 0 : expected.keySet().iterator().next(), -1));
+        }
+    }
+
+    private static void assertContains(Map<Integer, Long> expected, IntLongHashMap map) {
+        assertEquals(expected.size(), map.size());
+
+        var seen = new HashMap<Integer, Long>();
+        for (var slot = 0; slot < map.capacity(); slot++) {
+            if (map.isUsed(slot)) {
+                seen.put(map.keyAt(slot), map.valueAt(slot));
+            }
+        }
+        assertEquals(expected, seen);
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LatencyHistogramTest {
+    @Test
+    public void emptyHistogramReportsZero() {
+        var histogram = new LatencyHistogram();
+        assertEquals(0, histogram.count());
+        assertEquals(0, histogram.percentile(50));
+        assertEquals(0.0, histogram.mean(), 0.0);
+    }
+
+    @Test
+    public void bucketsCoverTheWholeRange() {
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.highestEquivalentValue(LatencyHistogram.bucket(Long.MAX_VALUE)));
+
+        for (var value : new long[] {0, 1, 127, 128, 129, 255, 256, 1_000, 123_456_789, 1L << 40, Long.MAX_VALUE / 3}) {
+            var bucket = LatencyHistogram.bucket(value);
+            var highest = LatencyHistogram.highestEquivalentValue(bucket);
+            assertTrue(value <= highest, value + " above its bucket " + highest);
+            assertEquals(bucket, LatencyHistogram.bucket(highest));
+            assertEquals(bucket + 1, LatencyHistogram.bucket(highest + 1));
+        }
+    }
+
+    @Test
+    public void percentilesStayWithinRelativeError() {
+        var random = new Random(11);
+        var histogram = new LatencyHistogram();
+        var values = new long[50_000];
+        for (var i = 0; i < values.length; i++) {
+            // Log-uniform from 1 ns to about 10 s.
+            values[i] = (long) Math.exp(random.nextDouble() * Math.log(1e10));
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        assertEquals(values.length, histogram.count());
+        assertEquals(values[values.length - 1], histogram.max());
+        for (var percentile : new double[] {0, 1, 25, 50, 90, 99, 99.9, 100}) {
+            var exact = values[(int) Math.max(1, Math.ceil(percentile / 100 * values.length)) - 1];
+            var reported = histogram.percentile(percentile);
+            assertTrue(exact <= reported && reported - exact <= exact / 64,
+                    "p" + percentile + ": exact " + exact + ", reported " + reported);
+        }
+    }
+
+    @Test
+    public void negativeValuesAreRecordedAsZero() {
+        var histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(10);
+
+        assertEquals(0, histogram.percentile(50));
+        assertEquals(10, histogram.percentile(100));
+        assertEquals(5.0, histogram.mean(), 0.0);
+    }
+}
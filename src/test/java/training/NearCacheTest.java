@@ -0,0 +1,167 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class NearCacheTest {
+    private static final Duration LONG_TTL = Duration.ofHours(1);
+
+    @Test
+    public void lruEvictsLeastRecentlyUsed() {
+        var loader = new RecordingLoader();
+        var cache = new NearCache<>("lru", loader, 2, LONG_TTL, NearCache.Eviction.LRU);
+
+        cache.get("a");
+        cache.get("b");
+        cache.get("a");
+        cache.get("c");
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.evictions());
+        loader.loaded.clear();
+
+        cache.get("a");
+        cache.get("c");
+        assertEquals(List.of(), loader.loaded);
+        cache.get("b");
+        assertEquals(List.of(List.of("b")), loader.loaded);
+    }
+
+    @Test
+    public void lfuEvictsLeastFrequentlyUsedOfSample() {
+        var loader = new RecordingLoader();
+        var cache = new NearCache<>("lfu", loader, 3, LONG_TTL, NearCache.Eviction.LFU);
+
+        cache.getAll(List.of("a", "b", "c"));
+        // Least recently used first: b, c, a; but a has the fewest hits.
+        for (var key : List.of("b", "b", "c", "c", "a")) {
+            cache.get(key);
+        }
+        cache.get("d");
+        loader.loaded.clear();
+
+        cache.getAll(List.of("b", "c", "d"));
+        assertEquals(List.of(), loader.loaded);
+        cache.get("a");
+        assertEquals(List.of(List.of("a")), loader.loaded);
+    }
+
+    @Test
+    public void missingKeysAreCachedToo() {
+        var loader = new RecordingLoader();
+        var cache = new NearCache<>("missing", loader, 10, LONG_TTL, NearCache.Eviction.LRU);
+
+        assertNull(cache.get("missing"));
+        assertNull(cache.get("missing"));
+
+        assertEquals(1, loader.loaded.size());
+        assertEquals(1, cache.hits());
+        assertEquals(1, cache.misses());
+    }
+
+    @Test
+    public void expiredEntriesAreReloaded() throws InterruptedException {
+        var loader = new RecordingLoader();
+        var cache = new NearCache<>("ttl", loader, 10, Duration.ofMillis(1), NearCache.Eviction.LRU);
+
+        assertEquals("value of a", cache.get("a"));
+        Thread.sleep(10);
+        assertEquals("value of a", cache.get("a"));
+
+        assertEquals(2, loader.loaded.size());
+        assertEquals(1, cache.expirations());
+        assertEquals(0, cache.hits());
+    }
+
+    @Test
+    public void invalidationDiscardsRunningLoads() {
+        var pending = new CompletableFuture<Map<String, String>>();
+        var loads = new ArrayList<Collection<String>>();
+        var cache = new NearCache<String, String>("generation", keys -> {
+            loads.add(keys);
+            return loads.size() == 1 ? pending : CompletableFuture.completedFuture(Map.of("a", "new"));
+        }, 10, LONG_TTL, NearCache.Eviction.LRU);
+
+        var result = cache.getAllAsync(List.of("a"));
+        cache.invalidateAll();
+        pending.complete(Map.of("a", "old"));
+
+        // The caller still gets what it asked for, but the value read before the invalidation isn't kept.
+        assertEquals(Map.of("a", "old"), result.join());
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.estimatedBytes());
+        assertEquals("new", cache.get("a"));
+        assertEquals(2, loads.size());
+    }
+
+    @Test
+    public void estimatedBytesFollowEntries() {
+        var cache = new NearCache<>("bytes", new RecordingLoader(), 2, LONG_TTL, NearCache.Eviction.LRU);
+
+        cache.preload(Map.of("k1", "v1"));
+        var entryBytes = cache.estimatedBytes();
+        assertTrue(entryBytes > NearCache.estimateBytes("k1") + NearCache.estimateBytes("v1"));
+
+        cache.preload(Map.of("k2", "v2"));
+        assertEquals(2 * entryBytes, cache.estimatedBytes());
+
+        // Replacing a value with a longer one only adds the difference.
+        cache.preload(Map.of("k1", "v1 and more"));
+        assertEquals(2 * entryBytes + "v1 and more".length() - "v1".length(), cache.estimatedBytes());
+
+        cache.invalidate("k1");
+        assertEquals(entryBytes, cache.estimatedBytes());
+
+        cache.preload(Map.of("k3", "v3", "k4", "v4"));
+        assertEquals(2, cache.size());
+        assertEquals(2 * entryBytes, cache.estimatedBytes());
+
+        cache.invalidateAll();
+        assertEquals(0, cache.estimatedBytes());
+    }
+
+    /** Knows a value for every key except {@code missing} and records the keys of every load. */
+    private static class RecordingLoader implements NearCache.Loader<String, String> {
+        final List<List<String>> loaded = new ArrayList<>();
+
+        @Override
+        public CompletableFuture<Map<String, String>> loadAll(Collection<String> keys) {
+            loaded.add(new ArrayList<>(keys));
+
+            var values = new HashMap<String, String>();
+            for (var key : keys) {
+                if (!key.equals("missing")) {
+                    values.put(key, "value of " + key);
+                }
+            }
+            return CompletableFuture.completedFuture(values);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SpaceSavingSummaryTest {
+    @Test
+    public void unboundedSummaryIsExact() {
+        var random = new Random(1);
+        var summary = new SpaceSavingSummary(SpaceSavingSummary.UNBOUNDED);
+        var exact = new HashMap<Integer, Long>();
+        for (var i = 0; i < 10_000; i++) {
+            var key = random.nextInt(3000);
+            var weight = 1 + random.nextInt(5);
+            summary.add(key, weight);
+            exact.merge(key, (long) weight, Long::sum);
+        }
+
+        assertEquals(0, summary.floor());
+        for (var entry : exact.entrySet()) {
+            assertEquals(entry.getValue().longValue(), summary.count(entry.getKey()));
+            assertEquals(0, summary.error(entry.getKey()));
+        }
+    }
+
+    @Test
+    public void boundedSummaryKeepsErrorBounds() {
+        var random = new Random(2);
+        for (var round = 0; round < 50; round++) {
+            var capacity = 1 + random.nextInt(64);
+            var summary = new SpaceSavingSummary(capacity);
+            var exact = new HashMap<Integer, Long>();
+            add(summary, exact, random, 5_000);
+
+            assertTrue(summary.size() <= capacity);
+            assertTrue(summary.floor() <= summary.total() / capacity, "floor " + summary.floor());
+            assertBounds(exact, summary);
+        }
+    }
+
+    @Test
+    public void mergedSummaryKeepsErrorBounds() {
+        var random = new Random(3);
+        for (var round = 0; round < 50; round++) {
+            var capacity = 1 + random.nextInt(64);
+            var left = new SpaceSavingSummary(capacity);
+            var right = new SpaceSavingSummary(capacity);
+            var exact = new HashMap<Integer, Long>();
+            add(left, exact, random, 1 + random.nextInt(5_000));
+            add(right, exact, random, 1 + random.nextInt(5_000));
+
+            var floors = left.floor() + right.floor();
+            var rightTotal = right.total();
+            left.merge(right);
+
+            assertEquals(rightTotal, right.total());
+            assertTrue(left.size() <= capacity);
+            assertTrue(left.floor() >= floors, "floor " + left.floor() + " below " + floors);
+            assertBounds(exact, left);
+        }
+    }
+
+    @Test
+    public void topRanksByCountThenKey() {
+        var summary = new SpaceSavingSummary(SpaceSavingSummary.UNBOUNDED);
+        summary.add(4, 3);
+        summary.add(2, 3);
+        summary.add(8, 5);
+        summary.add(1, 1);
+
+        assertArrayEquals(new int[] {8, 2, 4}, summary.top(3));
+        assertArrayEquals(new int[] {8, 2, 4, 1}, summary.top(10));
+    }
+
+    @Test
+    public void rebuiltSummaryHasTheSameCounters() {
+        var random = new Random(4);
+        var summary = new SpaceSavingSummary(16);
+        add(summary, new HashMap<>(), random, 1_000);
+
+        var copy = SpaceSavingSummary.of(summary.capacity(), summary.keys(), summary.counts(), summary.errors(),
+                summary.floor(), summary.total());
+        assertArrayEquals(summary.top(16), copy.top(16));
+        assertEquals(summary.floor(), copy.floor());
+        assertEquals(summary.total(), copy.total());
+        for (var key : summary.keys()) {
+            assertEquals(summary.count(key), copy.count(key));
+            assertEquals(summary.error(key), copy.error(key));
+        }
+    }
+
+    @Test
+    public void rejectsNonPositiveCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new SpaceSavingSummary(0));
+    }
+
+    /** Adds a skewed stream, so some keys stay in the summary and many are evicted. */
+    private static void add(SpaceSavingSummary summary, Map<Integer, Long> exact, Random random, int count) {
+        for (var i = 0; i < count; i++) {
+            var key = (int) (Math.pow(random.nextDouble(), 3) * 500);
+            var weight = 1 + random.nextInt(10);
+            summary.add(key, weight);
+            exact.merge(key, (long) weight, Long::sum);
+        }
+    }
+
+    private static void assertBounds(Map<Integer, Long> exact, SpaceSavingSummary summary) {
+        for (var key = 0; key < 500; key++) {
+            long total = exact.getOrDefault(key, 0L);
+            var count = summary.count(key);
+            assertTrue(count - summary.error(key) <= total && total <= count,
+                    "key " + key + ": total " + total + ", count " + count + ", error " + summary.error(key));
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class TopKSelectorTest {
+    @Test
+    public void breaksTiesBySmallerKey() {
+        var map = new IntLongHashMap(8);
+        map.put(5, 10);
+        map.put(3, 10);
+        map.put(9, 20);
+        map.put(1, 5);
+        map.put(4, 10);
+
+        assertArrayEquals(new int[] {9, 3, 4}, keys(map, TopKSelector.select(map, 3)));
+    }
+
+    @Test
+    public void handlesEmptyAndOversizedSelections() {
+        var map = new IntLongHashMap(8);
+        assertEquals(0, TopKSelector.select(map, 5).length);
+
+        map.put(2, 1);
+        map.put(1, 2);
+        assertEquals(0, TopKSelector.select(map, 0).length);
+        assertArrayEquals(new int[] {1, 2}, keys(map, TopKSelector.select(map, 10)));
+    }
+
+    @Test
+    public void matchesFullSort() {
+        var random = new Random(7);
+        for (var round = 0; round < 500; round++) {
+            var map = new IntLongHashMap(16);
+            // Few distinct values, so most selections have to break ties.
+            var values = 1 + random.nextInt(20);
+            for (var i = random.nextInt(300); i > 0; i--) {
+                map.put(random.nextInt(1000) - 500, random.nextInt(values) - values / 2);
+            }
+            var k = random.nextInt(40);
+
+            var sorted = new ArrayList<long[]>();
+            for (var slot = 0; slot < map.capacity(); slot++) {
+                if (map.isUsed(slot)) {
+                    sorted.add(new long[] {map.keyAt(slot), map.valueAt(slot)});
+                }
+            }
+            sorted.sort(Comparator.<long[]>comparingLong(e -> -e[1]).thenComparingLong(e -> e[0]));
+
+            var expected = new int[Math.min(k, sorted.size())];
+            for (var i = 0; i < expected.length; i++) {
+                expected[i] = (int) sorted.get(i)[0];
+            }
+            assertArrayEquals(expected, keys(map, TopKSelector.select(map, k)), "round " + round);
+        }
+    }
+
+    private static int[] keys(IntLongHashMap map, int[] slots) {
+        var keys = new int[slots.length];
+        for (var i = 0; i < slots.length; i++) {
+            keys[i] = map.keyAt(slots[i]);
+        }
+        return keys;
+    }
+}
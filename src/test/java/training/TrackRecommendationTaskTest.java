@@ -0,0 +1,233 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package training;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.apache.ignite.table.Tuple;
+import org.junit.jupiter.api.Test;
+import training.TrackRecommendationTask.CooccurrenceAggregation;
+import training.TrackRecommendationTask.Membership;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Runs the split and the jobs of the task on generated playlists and compares the result with brute force. */
+public class TrackRecommendationTaskTest {
+    private static final int PARTITIONS = 7;
+
+    private static final int[][] JOBS = {{0, 3, 6}, {1, 4}, {2, 5}};
+
+    private static final int TOP_N = 5;
+
+    @Test
+    public void fullRunMatchesBruteForce() {
+        var playlists = playlists();
+
+        var ranked = run(playlists, new HashMap<>(), true, 0);
+
+        assertEquals(bruteForce(playlists, tracks(playlists), 0), ranked);
+    }
+
+    @Test
+    public void skipsPlaylistsAboveMaxSize() {
+        var playlists = playlists();
+
+        var ranked = run(playlists, new HashMap<>(), true, 20);
+
+        assertEquals(bruteForce(playlists, tracks(playlists), 20), ranked);
+    }
+
+    @Test
+    public void refreshRanksTracksOfChangedPlaylists() {
+        var playlists = playlists();
+        var snapshot = snapshot(playlists);
+        var changed = new TreeSet<>(playlists.get(3));
+        changed.addAll(playlists.get(7));
+        changed.add(1);
+        changed.add(2);
+        changed.add(149);
+
+        playlists.get(3).remove(playlists.get(3).first());
+        playlists.get(3).add(149);
+        playlists.remove(7);
+        playlists.put(41, new TreeSet<>(List.of(1, 2, 3)));
+        changed.retainAll(tracks(playlists));
+
+        var ranked = run(playlists, snapshot, false, 0);
+
+        assertEquals(bruteForce(playlists, changed, 0), ranked);
+    }
+
+    @Test
+    public void sendsJobsOnlyPlaylistsWithTheirTracks() {
+        var playlists = playlists();
+        var snapshot = snapshot(playlists);
+        playlists.get(5).add(147);
+
+        var task = new TrackRecommendationTask();
+        var arguments = task.sharedJobArguments(TrackRecommendationTask.input(false, TOP_N, 0), membership(playlists),
+                snapshot);
+        for (var partitions : JOBS) {
+            var sent = Membership.decode(task.jobArguments(arguments, partitions).value("membership"));
+            var expected = new TreeSet<Integer>();
+            for (var playlist : playlists.entrySet()) {
+                for (var trackId : playlists.get(5)) {
+                    if (playlist.getValue().contains(trackId) && owns(partitions, trackId)) {
+                        expected.add(playlist.getKey());
+                    }
+                }
+            }
+
+            var playlistIds = new TreeSet<Integer>();
+            for (var p = 0; p < sent.playlists(); p++) {
+                playlistIds.add(sent.playlistId(p));
+            }
+            assertEquals(expected, playlistIds);
+            assertTrue(sent.playlists() < playlists.size());
+        }
+    }
+
+    /** 40 playlists of tracks 1 to 150, the popular tracks more often, and one playlist of every track. */
+    private static TreeMap<Integer, TreeSet<Integer>> playlists() {
+        var random = new Random(5);
+        var playlists = new TreeMap<Integer, TreeSet<Integer>>();
+        for (var playlistId = 1; playlistId <= 40; playlistId++) {
+            var size = playlistId == 40 ? 150 : 1 + random.nextInt(12);
+            var tracks = new TreeSet<Integer>();
+            while (tracks.size() < size) {
+                tracks.add(1 + (int) (Math.pow(random.nextDouble(), 2) * 150));
+            }
+            playlists.put(playlistId, tracks);
+        }
+        return playlists;
+    }
+
+    /** Rows of the membership query, with some entries listed twice as if by two artists. */
+    private static Membership membership(Map<Integer, TreeSet<Integer>> playlists) {
+        var builder = new Membership.Builder();
+        for (var playlist : playlists.entrySet()) {
+            for (var trackId : playlist.getValue()) {
+                builder.add(playlist.getKey(), trackId, trackId % PARTITIONS);
+                if (trackId % 13 == 0) {
+                    builder.add(playlist.getKey(), trackId, trackId % PARTITIONS);
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    private static Map<Integer, byte[]> snapshot(Map<Integer, TreeSet<Integer>> playlists) {
+        var snapshot = new HashMap<Integer, byte[]>();
+        for (var playlist : playlists.entrySet()) {
+            var ids = playlist.getValue().stream().mapToInt(Integer::intValue).toArray();
+            snapshot.put(playlist.getKey(), TrackRecommendationTask.encodeIds(ids, 0, ids.length));
+        }
+        return snapshot;
+    }
+
+    private static TreeSet<Integer> tracks(Map<Integer, TreeSet<Integer>> playlists) {
+        var tracks = new TreeSet<Integer>();
+        for (var playlist : playlists.values()) {
+            tracks.addAll(playlist);
+        }
+        return tracks;
+    }
+
+    private static boolean owns(int[] partitions, int trackId) {
+        for (var partition : partitions) {
+            if (trackId % PARTITIONS == partition) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Splits the task, then scans every partition of every job as the job does, track by track. */
+    private static Map<Integer, List<String>> run(TreeMap<Integer, TreeSet<Integer>> playlists,
+            Map<Integer, byte[]> snapshot, boolean full, int maxPlaylistSize) {
+        var task = new TrackRecommendationTask();
+        var aggregation = new CooccurrenceAggregation();
+        var arguments = task.sharedJobArguments(TrackRecommendationTask.input(full, TOP_N, maxPlaylistSize),
+                membership(playlists), snapshot);
+
+        var ranked = new TreeMap<Integer, List<String>>();
+        for (var partitions : JOBS) {
+            Tuple jobArguments = task.jobArguments(arguments, partitions);
+            var accumulator = aggregation.createAccumulator(null, jobArguments);
+            for (var partition : partitions) {
+                for (var trackId : tracks(playlists)) {
+                    if (trackId % PARTITIONS != partition) {
+                        continue;
+                    }
+                    var trackPlaylists = new int[playlists.size()];
+                    var count = 0;
+                    for (var playlist : playlists.entrySet()) {
+                        if (playlist.getValue().contains(trackId)) {
+                            trackPlaylists[count++] = playlist.getKey();
+                        }
+                    }
+                    accumulator.rank(trackId, trackPlaylists, count);
+                }
+            }
+
+            var neighbours = aggregation.partial(accumulator, jobArguments);
+            for (var i = 0; i < neighbours.size(); i++) {
+                var list = new ArrayList<String>();
+                for (var e = neighbours.getOffsets()[i]; e < neighbours.getOffsets()[i + 1]; e++) {
+                    list.add(neighbours.getNeighbourIds()[e] + "x" + neighbours.getSharedPlaylists()[e]);
+                }
+                ranked.put(neighbours.getTrackIds()[i], list);
+            }
+        }
+        return ranked;
+    }
+
+    /** The top neighbours of every track, as {@code trackId x sharedPlaylists}, by counting every pair. */
+    private static Map<Integer, List<String>> bruteForce(Map<Integer, TreeSet<Integer>> playlists,
+            TreeSet<Integer> tracks, int maxPlaylistSize) {
+        var expected = new TreeMap<Integer, List<String>>();
+        for (var trackId : tracks) {
+            var counts = new HashMap<Integer, Integer>();
+            for (var playlist : playlists.values()) {
+                if (playlist.contains(trackId) && (maxPlaylistSize == 0 || playlist.size() <= maxPlaylistSize)) {
+                    for (var other : playlist) {
+                        if (!other.equals(trackId)) {
+                            counts.merge(other, 1, Integer::sum);
+                        }
+                    }
+                }
+            }
+
+            var sorted = new ArrayList<>(counts.entrySet());
+            sorted.sort((a, b) -> !a.getValue().equals(b.getValue())
+                    ? b.getValue() - a.getValue() : a.getKey() - b.getKey());
+            var list = new ArrayList<String>();
+            for (var entry : sorted.subList(0, Math.min(TOP_N, sorted.size()))) {
+                list.add(entry.getKey() + "x" + entry.getValue());
+            }
+            expected.put(trackId, list);
+        }
+        return expected;
+    }
+}